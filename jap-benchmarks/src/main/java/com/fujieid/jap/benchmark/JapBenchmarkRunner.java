@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the jap benchmarks with 1, 8 and 64 threads, the results of each run are written to
+ * {@code jmh-result-t<threads>.json}.
+ * <p>
+ * Usage: {@code java -jar jap-benchmarks/target/benchmarks.jar [include regex]}
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class JapBenchmarkRunner {
+
+    private static final int[] THREADS = {1, 8, 64};
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "com.fujieid.jap.benchmark.*";
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                .include(include)
+                .threads(threads)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result-t" + threads + ".json")
+                .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.benchmark.cache;
+
+import com.fujieid.jap.core.cache.CompactJapCacheCodec;
+import com.fujieid.jap.core.cache.JapCacheCodec;
+import com.fujieid.jap.core.cache.JdkJapCacheCodec;
+import com.fujieid.jap.ids.model.AccessToken;
+import com.fujieid.jap.ids.model.AuthCode;
+import com.fujieid.jap.ids.model.UserInfo;
+import com.fujieid.jap.oidc.OidcDiscoveryDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the encoding and decoding time of {@link JdkJapCacheCodec} and {@link CompactJapCacheCodec} for the cached
+ * jap models. The encoded size of each model is printed when the trial starts.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JapCacheCodecBenchmark {
+
+    @Param({"jdk", "compact"})
+    public String codecName;
+
+    @Param({"accessToken", "authCode", "userInfo", "oidcDiscovery"})
+    public String model;
+
+    private JapCacheCodec codec;
+    private Serializable value;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        codec = "jdk".equals(codecName) ? new JdkJapCacheCodec() : new CompactJapCacheCodec();
+        switch (model) {
+            case "accessToken":
+                value = accessToken();
+                break;
+            case "authCode":
+                value = new AuthCode()
+                    .setScope("openid email phone")
+                    .setNonce("n-0S6_WzA2Mj")
+                    .setCodeChallengeMethod("S256")
+                    .setCodeChallenge("E9Melhoa2OwvFrEMTJguCHaoeK1t8URWbuGJSstw-cM")
+                    .setUser(userInfo());
+                break;
+            case "userInfo":
+                value = userInfo();
+                break;
+            default:
+                value = new OidcDiscoveryDto()
+                    .setIssuer("https://sign.fujieid.com/oauth")
+                    .setAuthorizationEndpoint("https://sign.fujieid.com/oauth/authorize")
+                    .setTokenEndpoint("https://sign.fujieid.com/oauth/token")
+                    .setUserinfoEndpoint("https://sign.fujieid.com/oauth/userinfo")
+                    .setEndSessionEndpoint("https://sign.fujieid.com/oauth/logout")
+                    .setJwksUri("https://sign.fujieid.com/.well-known/jwks.json");
+        }
+        encoded = codec.encode(value);
+        System.out.println();
+        System.out.println(codecName + " " + model + ": " + encoded.length + " bytes");
+    }
+
+    private static AccessToken accessToken() {
+        LocalDateTime now = LocalDateTime.now();
+        return new AccessToken()
+            .setAccessToken("Kj9VxkFqLh2cW1sYp0aRzTgNbU4eMdQo")
+            .setRefreshToken("R7tYwQx3mZpLs8vN1cJ0bKfHgD5aEuIo")
+            .setUserId("1354287190361346048")
+            .setUserName("jap")
+            .setGrantType("authorization_code")
+            .setScope("openid email phone")
+            .setClientId("xd9eipbt9a04fhv3iu2qd8r1a8s4x7ik")
+            .setAccessTokenExpiresIn(7200L)
+            .setRefreshTokenExpiresIn(2592000L)
+            .setAccessTokenExpiration(now.plusHours(2))
+            .setRefreshTokenExpiration(now.plusDays(30));
+    }
+
+    private static UserInfo userInfo() {
+        return new UserInfo()
+            .setId("1354287190361346048")
+            .setSub("1354287190361346048")
+            .setUsername("jap")
+            .setNickname("Just auth plus")
+            .setEmail("jap@fujieid.com")
+            .setEmail_verified("true")
+            .setPhone_number("+86 13800000000")
+            .setLocale("zh-CN")
+            .setAddress(Collections.singletonMap("country", "CN"))
+            .setUpdated_at("1611891032");
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(value);
+    }
+
+    @Benchmark
+    public Serializable decode() {
+        return codec.decode(encoded);
+    }
+}
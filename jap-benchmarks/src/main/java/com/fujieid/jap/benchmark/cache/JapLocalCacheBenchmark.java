@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.benchmark.cache;
+
+import com.fujieid.jap.core.cache.JapCache;
+import com.fujieid.jap.core.cache.JapLocalCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare {@link JapLocalCache}, unbounded and bounded, with the lock based implementation of jap 1.0.4.
+ * <p>
+ * The thread count is not fixed here, {@link com.fujieid.jap.benchmark.JapBenchmarkRunner} runs it with 1, 8 and 64 threads.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JapLocalCacheBenchmark {
+
+    private static final String KEY_PREFIX = "JAPIDS:OAUTH2:ACCESS_TOKEN:";
+
+    @Param({"legacy", "local", "bounded"})
+    public String implementation;
+
+    @Param({"10000"})
+    public int keyCount;
+
+    private JapCache cache;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch (implementation) {
+            case "legacy":
+                cache = new LegacyJapLocalCache();
+                break;
+            case "bounded":
+                // Large enough to hold every key, measures the overhead of the W-TinyLFU bookkeeping
+                cache = new JapLocalCache(keyCount * 2L, 0, null);
+                break;
+            default:
+                cache = new JapLocalCache();
+        }
+        keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = KEY_PREFIX + i;
+            cache.set(keys[i], "value-" + i, TimeUnit.HOURS.toMillis(1));
+        }
+    }
+
+    private String nextKey() {
+        return keys[ThreadLocalRandom.current().nextInt(keyCount)];
+    }
+
+    @Benchmark
+    public Serializable get() {
+        return cache.get(nextKey());
+    }
+
+    @Benchmark
+    public boolean containsKey() {
+        return cache.containsKey(nextKey());
+    }
+
+    @Benchmark
+    public void set() {
+        cache.set(nextKey(), "value", TimeUnit.HOURS.toMillis(1));
+    }
+
+    /**
+     * 90% reads and 10% writes, close to the token validation traffic of an ids server
+     *
+     * @return the value read, or {@code null} for writes
+     */
+    @Benchmark
+    public Serializable readMostly() {
+        String key = nextKey();
+        if (ThreadLocalRandom.current().nextInt(10) == 0) {
+            cache.set(key, "value", TimeUnit.HOURS.toMillis(1));
+            return null;
+        }
+        return cache.get(key);
+    }
+}
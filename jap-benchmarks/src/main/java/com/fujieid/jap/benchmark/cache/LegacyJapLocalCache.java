@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.benchmark.cache;
+
+import cn.hutool.core.util.StrUtil;
+import com.fujieid.jap.core.cache.JapCache;
+import com.fujieid.jap.core.cache.JapCacheConfig;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The {@code JapLocalCache} of jap 1.0.4: one static map shared by all instances,
+ * every operation guarded by a fair read/write lock. Only kept as the baseline of the benchmarks.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class LegacyJapLocalCache implements JapCache {
+
+    private static final Map<String, CacheObj> LOCAL_CACHE = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock(true);
+    private final Lock writeLock = cacheLock.writeLock();
+    private final Lock readLock = cacheLock.readLock();
+
+    @Override
+    public void set(String key, Serializable value) {
+        set(key, value, JapCacheConfig.timeout);
+    }
+
+    @Override
+    public void set(String key, Serializable value, long timeout) {
+        writeLock.lock();
+        try {
+            LOCAL_CACHE.put(key, new CacheObj(value, timeout));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Serializable get(String key) {
+        if (StrUtil.isEmpty(key)) {
+            return null;
+        }
+        readLock.lock();
+        try {
+            CacheObj cacheObj = LOCAL_CACHE.get(key);
+            if (null == cacheObj || cacheObj.isExpired()) {
+                return null;
+            }
+            return cacheObj.data;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        if (StrUtil.isEmpty(key)) {
+            return false;
+        }
+        readLock.lock();
+        try {
+            CacheObj cacheObj = LOCAL_CACHE.get(key);
+            return null != cacheObj && !cacheObj.isExpired();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeKey(String key) {
+        writeLock.lock();
+        try {
+            LOCAL_CACHE.remove(key);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static class CacheObj {
+        private final Serializable data;
+        private final long expire;
+
+        CacheObj(Serializable data, long expire) {
+            this.data = data;
+            this.expire = System.currentTimeMillis() + expire;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > this.expire;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.benchmark.context;
+
+import com.baomidou.kisso.security.token.SSOToken;
+import com.fujieid.jap.core.cache.JapLocalCache;
+import com.fujieid.jap.core.config.JapConfig;
+import com.fujieid.jap.core.context.JapAuthentication;
+import com.fujieid.jap.core.context.JapContext;
+import com.fujieid.jap.core.util.JapTokenHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Check the jap tokens with {@link JapAuthentication#checkToken(String)}, with the verified tokens remembered
+ * ({@code verifiedTokenCacheSize = 10000}) and verified on every call ({@code verifiedTokenCacheSize = 0}).
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JapAuthenticationBenchmark {
+
+    @Param({"10000", "0"})
+    public int verifiedTokenCacheSize;
+
+    /**
+     * The number of live tokens
+     */
+    @Param({"1024"})
+    public int tokens;
+
+    private String[] userTokens;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        JapConfig japConfig = new JapConfig().setVerifiedTokenCacheSize(verifiedTokenCacheSize);
+        JapAuthentication.setContext(new JapContext(null, new JapLocalCache(), japConfig));
+        userTokens = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            String userId = String.valueOf(1354287190361346048L + i);
+            userTokens[i] = new SSOToken()
+                .setId(userId)
+                .setIssuer("jap")
+                .setIp("192.168.1.103")
+                .setUserAgent("b3ef9")
+                .setTime(System.currentTimeMillis())
+                .getToken();
+            JapTokenHelper.saveUserToken(userId, userTokens[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(int size) {
+            int index = next;
+            next = index + 1 == size ? 0 : index + 1;
+            return index;
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> checkToken(Cursor cursor) {
+        return JapAuthentication.checkToken(userTokens[cursor.next(tokens)]);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.benchmark.ids;
+
+import com.fujieid.jap.ids.JapIds;
+import com.fujieid.jap.ids.filter.IdsAccessTokenFilter;
+import com.fujieid.jap.ids.model.AccessToken;
+import com.fujieid.jap.ids.model.ClientDetail;
+import com.fujieid.jap.ids.model.UserInfo;
+import com.fujieid.jap.ids.model.enums.GrantType;
+import com.fujieid.jap.ids.model.enums.TokenSigningAlg;
+import com.fujieid.jap.ids.util.TokenUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validate the access token of a request with {@link TokenUtil#validateAccessToken(String)} and with the whole
+ * {@link IdsAccessTokenFilter#doFilter}, which also extracts the token from the mocked request.
+ * <p>
+ * The tokens are RS256 JWTs of about 640 characters, issued to {@link #tokens} users in advance. Each thread reads
+ * them in turn.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdsAccessTokenBenchmark {
+
+    /**
+     * The number of live tokens
+     */
+    @Param({"1024"})
+    public int tokens;
+
+    private String[] accessTokens;
+    private HttpServletRequest[] requests;
+    private HttpServletResponse response;
+    private IdsAccessTokenFilter filter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        IdsBenchmarkSupport.registerContext(TokenSigningAlg.RS256);
+        ClientDetail clientDetail = JapIds.getContext().getClientDetailService().getByClientId(IdsBenchmarkSupport.CLIENT_ID);
+        accessTokens = new String[tokens];
+        requests = new HttpServletRequest[tokens];
+        for (int i = 0; i < tokens; i++) {
+            UserInfo userInfo = IdsBenchmarkSupport.userInfo().setId(String.valueOf(1354287190361346048L + i));
+            AccessToken accessToken = TokenUtil.createAccessToken(userInfo, clientDetail, GrantType.AUTHORIZATION_CODE.getType(),
+                IdsBenchmarkSupport.SCOPE, "n-0S6_WzA2Mj", IdsBenchmarkSupport.ISSUER);
+            accessTokens[i] = accessToken.getAccessToken();
+            requests[i] = IdsBenchmarkSupport.bearerRequest(accessTokens[i]);
+        }
+        response = IdsBenchmarkSupport.response();
+        filter = new IdsAccessTokenFilter();
+        System.out.println();
+        System.out.println("access token: " + accessTokens[0].length() + " chars");
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(int size) {
+            int index = next;
+            next = index + 1 == size ? 0 : index + 1;
+            return index;
+        }
+    }
+
+    @Benchmark
+    public void validateAccessToken(Cursor cursor) {
+        TokenUtil.validateAccessToken(accessTokens[cursor.next(tokens)]);
+    }
+
+    @Benchmark
+    public void doFilter(Cursor cursor, Blackhole blackhole) throws IOException, ServletException {
+        FilterChain chain = (request, response) -> blackhole.consume(request);
+        filter.doFilter(requests[cursor.next(tokens)], response, chain);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.benchmark.ids;
+
+import cn.hutool.log.dialect.console.ConsoleLog;
+import cn.hutool.log.level.Level;
+import com.fujieid.jap.ids.JapIds;
+import com.fujieid.jap.ids.config.IdsConfig;
+import com.fujieid.jap.ids.config.JwtConfig;
+import com.fujieid.jap.ids.context.IdsContext;
+import com.fujieid.jap.ids.model.ClientDetail;
+import com.fujieid.jap.ids.model.UserInfo;
+import com.fujieid.jap.ids.model.enums.TokenSigningAlg;
+import com.fujieid.jap.ids.service.IdsClientDetailService;
+import com.fujieid.jap.ids.service.IdsIdentityService;
+import com.fujieid.jap.ids.service.IdsTokenService;
+import com.fujieid.jap.ids.util.JwkUtil;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * The shared fixtures of the jap-ids benchmarks
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+final class IdsBenchmarkSupport {
+
+    static final String ISSUER = "https://sign.fujieid.com/oauth";
+    static final String CLIENT_ID = "xd9eipbt9a04fhv3iu2qd8r1a8s4x7ik";
+    /**
+     * The scopes of a typical OpenID Connect login, all the standard claims are put into the id token
+     */
+    static final String SCOPE = "openid profile email phone address";
+
+    private IdsBenchmarkSupport() {
+    }
+
+    /**
+     * Register the ids context with a newly generated signing key
+     *
+     * @param tokenSigningAlg The signing algorithm
+     */
+    static void registerContext(TokenSigningAlg tokenSigningAlg) {
+        // Without a logging framework, hutool logs to the console at DEBUG level, applications log at INFO
+        ConsoleLog.setLevel(Level.INFO);
+        String keyId = "jap-benchmark";
+        String jwksJson = tokenSigningAlg.getKeyType().equals(TokenSigningAlg.ES256.getKeyType())
+            ? JwkUtil.createEsJsonWebKeySetJson(keyId, tokenSigningAlg)
+            : JwkUtil.createRsaJsonWebKeySetJson(keyId, tokenSigningAlg);
+        ClientDetail clientDetail = new ClientDetail()
+            .setClientId(CLIENT_ID)
+            .setScopes(SCOPE)
+            .setAccessTokenExpiresIn(7200L)
+            .setRefreshTokenExpiresIn(2592000L);
+        JapIds.registerContext(new IdsContext()
+            .setClientDetailService(new IdsClientDetailService() {
+                @Override
+                public ClientDetail getByClientId(String clientId) {
+                    return clientDetail;
+                }
+            })
+            .setIdentityService(new IdsIdentityService() {
+            })
+            .setTokenService(accessToken -> true)
+            .setIdsConfig(new IdsConfig()
+                .setIssuer(ISSUER)
+                .setJwtConfig(new JwtConfig()
+                    .setJwksKeyId(keyId)
+                    .setJwksJson(jwksJson)
+                    .setTokenSigningAlg(tokenSigningAlg))));
+    }
+
+    static UserInfo userInfo() {
+        return new UserInfo()
+            .setId("1354287190361346048")
+            .setSub("1354287190361346048")
+            .setUsername("jap")
+            .setName("Just Auth Plus")
+            .setGiven_name("Auth")
+            .setFamily_name("Just")
+            .setNickname("jap")
+            .setPreferred_username("jap")
+            .setProfile("https://gitee.com/fujieid/jap")
+            .setPicture("https://static.fujieid.com/avatar/1354287190361346048.png")
+            .setWebsite("https://justauth.plus")
+            .setEmail("jap@fujieid.com")
+            .setEmail_verified("true")
+            .setGender("male")
+            .setBirthdate("2021-01-28")
+            .setZoneinfo("Asia/Shanghai")
+            .setLocale("zh-CN")
+            .setPhone_number("+86 13800000000")
+            .setPhone_number_verified("true")
+            .setAddress(Collections.singletonMap("formatted", "Beijing, China"))
+            .setUpdated_at("1611891032");
+    }
+
+    /**
+     * Mock a request carrying the access token in the {@code Authorization} header. The mock is a plain dynamic proxy,
+     * a mocking framework records every invocation with a stack trace, which would cost more than the filter itself.
+     *
+     * @param accessToken The access token
+     * @return HttpServletRequest
+     */
+    static HttpServletRequest bearerRequest(String accessToken) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("getMethod", "GET");
+        values.put("getServletPath", "/api/userinfo");
+        values.put("getRequestURI", "/api/userinfo");
+        Map<String, String> headers = Collections.singletonMap("Authorization", "Bearer " + accessToken);
+        return mock(HttpServletRequest.class, (method, args) -> "getHeader".equals(method.getName())
+            ? headers.get((String) args[0]) : values.get(method.getName()));
+    }
+
+    static HttpServletResponse response() {
+        return mock(HttpServletResponse.class, (method, args) -> null);
+    }
+
+    /**
+     * Create a mock that answers the calls with the given function, or with the default value of the return type
+     */
+    private static <T> T mock(Class<T> type, BiFunction<Method, Object[], Object> answer) {
+        Object mock = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return type.getSimpleName();
+                default:
+                    Object value = answer.apply(method, args);
+                    return null != value || !method.getReturnType().isPrimitive() ? value : defaultValue(method.getReturnType());
+            }
+        });
+        return type.cast(mock);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.benchmark.ids;
+
+import com.fujieid.jap.ids.model.UserInfo;
+import com.fujieid.jap.ids.model.enums.ResponseType;
+import com.fujieid.jap.ids.model.enums.TokenSigningAlg;
+import com.fujieid.jap.ids.util.JwtUtil;
+import com.fujieid.jap.ids.util.OauthUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign an id token with {@link JwtUtil#createJwtToken(String, UserInfo, Long, String, Set, String, String)}.
+ * The length of the token is printed when the trial starts.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    @Param({"RS256", "ES256"})
+    public TokenSigningAlg tokenSigningAlg;
+
+    /**
+     * {@code openid} only puts the username into the token, the full scope puts every standard claim
+     */
+    @Param({"openid", IdsBenchmarkSupport.SCOPE})
+    public String scope;
+
+    private UserInfo userInfo;
+    private Set<String> scopes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        IdsBenchmarkSupport.registerContext(tokenSigningAlg);
+        userInfo = IdsBenchmarkSupport.userInfo();
+        scopes = OauthUtil.convertStrToList(scope);
+        System.out.println();
+        System.out.println(tokenSigningAlg + " [" + scope + "]: " + createJwtToken().length() + " chars");
+    }
+
+    @Benchmark
+    public String createJwtToken() {
+        return JwtUtil.createJwtToken(IdsBenchmarkSupport.CLIENT_ID, userInfo, 7200L, "n-0S6_WzA2Mj", scopes,
+            ResponseType.ID_TOKEN.getType(), IdsBenchmarkSupport.ISSUER);
+    }
+}
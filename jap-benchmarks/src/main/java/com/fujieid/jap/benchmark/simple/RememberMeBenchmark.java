@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.benchmark.simple;
+
+import com.fujieid.jap.simple.RememberMeDetails;
+import com.fujieid.jap.simple.RememberMeUtils;
+import com.fujieid.jap.simple.SimpleConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode the remember-me cookie with {@link RememberMeUtils#decode(SimpleConfig, String)}, which runs on every
+ * request of a user who is not logged in but has checked "remember me".
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RememberMeBenchmark {
+
+    private SimpleConfig simpleConfig;
+    private String cookieValue;
+    private String tamperedCookieValue;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        simpleConfig = new SimpleConfig().setRememberMeCookieExpire(Integer.MAX_VALUE);
+        cookieValue = RememberMeUtils.encode(simpleConfig, "jap@fujieid.com").getEncodeValue();
+        tamperedCookieValue = RememberMeUtils.encode(new SimpleConfig().setCredentialEncryptSalt("another salt")
+            .setRememberMeCookieExpire(Integer.MAX_VALUE), "jap@fujieid.com").getEncodeValue();
+    }
+
+    @Benchmark
+    public RememberMeDetails decode() {
+        return RememberMeUtils.decode(simpleConfig, cookieValue);
+    }
+
+    @Benchmark
+    public RememberMeDetails decodeTampered() {
+        return RememberMeUtils.decode(simpleConfig, tamperedCookieValue);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core;
+
+import com.fujieid.jap.core.cache.JapLocalCache;
+import com.fujieid.jap.core.config.JapUserCacheConfig;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache the lookups of a {@link JapUserService} in a bounded local cache, so that the repeated lookups of the same
+ * user, such as the remember-me and SSO checks, do not query the business system every time.
+ * <p>
+ * {@link #getById(String)} and {@link #getByName(String)} also cache the lookups that found no user for
+ * {@link JapUserCacheConfig#getNegativeExpireTime()}, which stops a flood of requests for users that do not exist.
+ * {@link #getByPlatformAndUid(String, String)} only caches the users found, because a missing user is created
+ * right after the lookup. The cached users are copied, the callers can modify the returned users.
+ * <p>
+ * The passwords are not cached, a user returned from the cache has no password and
+ * {@link #validPassword(String, JapUser)} checks the password against the user loaded again from the business system,
+ * so a changed password takes effect at once.
+ * <p>
+ * <strong>Any other change, such as locking, disabling or deleting a user, is only seen after
+ * {@link JapUserCacheConfig#getExpireTime()}, unless the {@code invalidate} methods are called.</strong> Call them when
+ * a user is changed or deleted in the business system, the strategies
+ * create this service when {@link com.fujieid.jap.core.config.JapConfig#enableUserCache()} is set, to invalidate
+ * the users, pass an instance created by the application to the strategies instead.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class CachingJapUserService implements JapUserService {
+
+    private static final String ID_KEY = "id:";
+    private static final String NAME_KEY = "name:";
+    private static final String PLATFORM_KEY = "platform:";
+
+    private final JapUserService delegate;
+    private final JapUserCacheConfig config;
+    private final JapLocalCache cache;
+    /**
+     * Prefixes the keys, {@link #invalidateAll()} increments it so that the existing entries are no longer found
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public CachingJapUserService(JapUserService delegate) {
+        this(delegate, new JapUserCacheConfig());
+    }
+
+    public CachingJapUserService(JapUserService delegate, JapUserCacheConfig config) {
+        this.delegate = delegate;
+        this.config = config;
+        this.cache = new JapLocalCache(config.getMaximumSize(), 0, null);
+    }
+
+    @Override
+    public JapUser getById(String userId) {
+        if (null == userId) {
+            return delegate.getById(null);
+        }
+        return this.get(ID_KEY + userId, () -> delegate.getById(userId), true);
+    }
+
+    @Override
+    public JapUser getByName(String username) {
+        if (null == username) {
+            return delegate.getByName(null);
+        }
+        return this.get(NAME_KEY + username, () -> delegate.getByName(username), true);
+    }
+
+    @Override
+    public boolean validPassword(String password, JapUser user) {
+        if (null != user && null == user.getPassword() && null != user.getUsername()) {
+            // The user came from the cache, check the current password of the user
+            user = delegate.getByName(user.getUsername());
+            if (null == user) {
+                return false;
+            }
+        }
+        return delegate.validPassword(password, user);
+    }
+
+    @Override
+    public JapUser getByPlatformAndUid(String platform, String uid) {
+        if (null == platform || null == uid) {
+            return delegate.getByPlatformAndUid(platform, uid);
+        }
+        return this.get(PLATFORM_KEY + platform + JapConst.DEFAULT_DELIMITER + uid,
+            () -> delegate.getByPlatformAndUid(platform, uid), false);
+    }
+
+    @Override
+    public JapUser createAndGetSocialUser(Object userInfo) {
+        JapUser japUser = delegate.createAndGetSocialUser(userInfo);
+        this.invalidate(japUser);
+        return japUser;
+    }
+
+    @Override
+    public JapUser createAndGetOauth2User(String platform, Map<String, Object> userInfo, Object tokenInfo) {
+        JapUser japUser = delegate.createAndGetOauth2User(platform, userInfo, tokenInfo);
+        this.invalidate(japUser);
+        return japUser;
+    }
+
+    /**
+     * Forget the cached lookups of the user by id and by name
+     *
+     * @param japUser The changed user
+     */
+    public void invalidate(JapUser japUser) {
+        if (null == japUser) {
+            return;
+        }
+        this.invalidateById(japUser.getUserId());
+        this.invalidateByName(japUser.getUsername());
+    }
+
+    public void invalidateById(String userId) {
+        if (null != userId) {
+            cache.removeKey(this.key(ID_KEY + userId));
+        }
+    }
+
+    public void invalidateByName(String username) {
+        if (null != username) {
+            cache.removeKey(this.key(NAME_KEY + username));
+        }
+    }
+
+    public void invalidateByPlatformAndUid(String platform, String uid) {
+        if (null != platform && null != uid) {
+            cache.removeKey(this.key(PLATFORM_KEY + platform + JapConst.DEFAULT_DELIMITER + uid));
+        }
+    }
+
+    /**
+     * Forget all the cached lookups
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+    }
+
+    public JapUserService getDelegate() {
+        return delegate;
+    }
+
+    private JapUser get(String lookup, Supplier<JapUser> loader, boolean cacheMissing) {
+        String key = this.key(lookup);
+        Serializable cached = cache.get(key);
+        if (cached instanceof JapUser) {
+            return copy((JapUser) cached);
+        }
+        if (null != cached) {
+            return null;
+        }
+        JapUser japUser = loader.get();
+        if (null != japUser) {
+            cache.set(key, copy(japUser), config.getExpireTime());
+        } else if (cacheMissing && config.getNegativeExpireTime() > 0) {
+            cache.set(key, Missing.INSTANCE, config.getNegativeExpireTime());
+        }
+        return japUser;
+    }
+
+    private String key(String lookup) {
+        return generation.get() + lookup;
+    }
+
+    /**
+     * Copy the user without the password, the {@code additional} map is copied too
+     */
+    private static JapUser copy(JapUser japUser) {
+        Object additional = japUser.getAdditional();
+        return new JapUser()
+            .setUserId(japUser.getUserId())
+            .setUsername(japUser.getUsername())
+            .setAdditional(additional instanceof Map ? new HashMap<>((Map<?, ?>) additional) : additional)
+            .setToken(japUser.getToken());
+    }
+
+    /**
+     * The cached value of a lookup that found no user
+     */
+    private enum Missing {
+        INSTANCE
+    }
+}
@@ -28,6 +28,20 @@ public interface JapConst {
 
     String USER_TOKEN_KEY = "_jap:user:token:";
 
+    /**
+     * The cache region of the user tokens, see {@link com.fujieid.jap.core.cache.JapCache#region(String)}
+     *
+     * @since 1.0.5
+     */
+    String USER_TOKEN_CACHE_REGION = "user-token";
+
+    /**
+     * The cache region of the login users of {@link com.fujieid.jap.core.store.CacheJapUserStore}
+     *
+     * @since 1.0.5
+     */
+    String USER_SESSION_CACHE_REGION = "user-session";
+
     /**
      * default delimiter
      */
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * The asynchronous variant of {@link JapCache}.
+ * <p>
+ * Every method returns immediately with a {@link CompletionStage}, so that a cache backed by a networked store does not
+ * block the calling thread, and the cache I/O can overlap with other work such as signing a token.
+ * The methods are named with the {@code Async} suffix, so one class can implement both {@link JapCache} and
+ * {@code AsyncJapCache}.
+ * <p>
+ * Use {@link #of(JapCache)} or {@link #of(JapCache, Executor)} to adapt an existing {@link JapCache}.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public interface AsyncJapCache {
+
+    /**
+     * Set cache
+     *
+     * @param key   Cache key
+     * @param value Cache value after serialization
+     * @return CompletionStage, completed when the value has been written
+     */
+    CompletionStage<Void> setAsync(String key, Serializable value);
+
+    /**
+     * Set the cache and specify the expiration time of the cache
+     *
+     * @param key     Cache key
+     * @param value   Cache value after serialization
+     * @param timeout The expiration time of the cache, in milliseconds
+     * @return CompletionStage, completed when the value has been written
+     */
+    CompletionStage<Void> setAsync(String key, Serializable value, long timeout);
+
+    /**
+     * Get cache value
+     *
+     * @param key Cache key
+     * @return CompletionStage of the cache value, the value is {@code null} if the key does not exist
+     */
+    CompletionStage<Serializable> getAsync(String key);
+
+    /**
+     * Determine whether a key exists in the cache
+     *
+     * @param key Cache key
+     * @return CompletionStage of boolean
+     */
+    CompletionStage<Boolean> containsKeyAsync(String key);
+
+    /**
+     * Delete the key from the cache
+     *
+     * @param key Cache key
+     * @return CompletionStage, completed when the key has been deleted
+     */
+    CompletionStage<Void> removeKeyAsync(String key);
+
+    /**
+     * Get the values of multiple keys, see {@link JapCache#getAll(Collection)}
+     *
+     * @param keys Cache keys
+     * @return CompletionStage of the keys that exist in the cache and their values
+     */
+    CompletionStage<Map<String, Serializable>> getAllAsync(Collection<String> keys);
+
+    /**
+     * Set multiple caches, each with its own expiration time, see {@link JapCache#setAll(Map, Map)}
+     *
+     * @param values   Cache keys and values
+     * @param timeouts The expiration time of each key, in milliseconds
+     * @return CompletionStage, completed when all the values have been written
+     */
+    CompletionStage<Void> setAllAsync(Map<String, ? extends Serializable> values, Map<String, Long> timeouts);
+
+    /**
+     * Delete multiple keys from the cache, see {@link JapCache#removeAll(Collection)}
+     *
+     * @param keys Cache keys
+     * @return CompletionStage, completed when all the keys have been deleted
+     */
+    CompletionStage<Void> removeAllAsync(Collection<String> keys);
+
+    /**
+     * Get a named region of the cache, see {@link JapCache#region(String)}
+     *
+     * @param name The name of the region
+     * @return AsyncJapCache
+     */
+    AsyncJapCache asyncRegion(String name);
+
+    /**
+     * Adapt a synchronous cache. The operations run on the calling thread and the returned stages are already
+     * completed, which suits in-process caches such as {@link JapLocalCache}.
+     *
+     * @param cache The synchronous cache
+     * @return AsyncJapCache
+     */
+    static AsyncJapCache of(JapCache cache) {
+        return of(cache, null);
+    }
+
+    /**
+     * Adapt a synchronous cache. The operations run on the {@code executor}, which suits blocking caches backed by a
+     * networked store.
+     *
+     * @param cache    The synchronous cache
+     * @param executor The executor that runs the blocking operations, {@code null} to run them on the calling thread
+     * @return AsyncJapCache
+     */
+    static AsyncJapCache of(JapCache cache, Executor executor) {
+        if (null == cache) {
+            throw new IllegalArgumentException("The cache cannot be null");
+        }
+        if (null == executor && cache instanceof AsyncJapCache) {
+            return (AsyncJapCache) cache;
+        }
+        return new JapCacheAsyncAdapter(cache, executor);
+    }
+}
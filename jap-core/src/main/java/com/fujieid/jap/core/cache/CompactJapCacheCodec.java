@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import com.fujieid.jap.core.exception.JapException;
+import com.fujieid.jap.core.spi.JapServiceLoader;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The compact binary codec.
+ * <p>
+ * A value starts with a tag byte. {@code null}, {@link String}, {@link Long}, {@link Integer} and {@link Boolean} are
+ * written directly, the types with a {@link JapCacheSerializer} are written as the type id followed by their fields,
+ * without any class name or field name, and the other values fall back to {@link JdkJapCacheCodec}.
+ * <p>
+ * The serializers of the jap models, such as the {@code AccessToken} of jap-ids, are registered by their modules through
+ * {@link java.util.ServiceLoader}, they are loaded on the first use.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class CompactJapCacheCodec implements JapCacheCodec {
+
+    private static final byte NULL = 0;
+    private static final byte JDK = 1;
+    private static final byte STRING = 2;
+    private static final byte LONG = 3;
+    private static final byte INTEGER = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte TYPED = 6;
+    private static final int MINIMUM_TYPE_ID = 16;
+    private static final JdkJapCacheCodec FALLBACK = new JdkJapCacheCodec();
+    /**
+     * Count the serialized bytes without keeping them
+     */
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private final Map<Class<?>, JapCacheSerializer<?>> serializersByType = new ConcurrentHashMap<>();
+    private final Map<Integer, JapCacheSerializer<?>> serializersById = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Register a serializer, the serializers found by {@link java.util.ServiceLoader} need not be registered again
+     *
+     * @param serializer The serializer
+     * @return this
+     */
+    public CompactJapCacheCodec register(JapCacheSerializer<?> serializer) {
+        if (serializer.typeId() < MINIMUM_TYPE_ID) {
+            throw new IllegalArgumentException("The type id " + serializer.typeId() + " is reserved");
+        }
+        JapCacheSerializer<?> existing = serializersById.putIfAbsent(serializer.typeId(), serializer);
+        if (null != existing && existing.type() != serializer.type()) {
+            throw new IllegalArgumentException("The type id " + serializer.typeId() + " is used by both "
+                + existing.type().getName() + " and " + serializer.type().getName());
+        }
+        serializersByType.putIfAbsent(serializer.type(), serializer);
+        return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] encode(Serializable value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            if (null == value) {
+                out.writeByte(NULL);
+            } else if (value instanceof String) {
+                out.writeByte(STRING);
+                writeString(out, (String) value);
+            } else if (value instanceof Long) {
+                out.writeByte(LONG);
+                writeVarLong(out, (Long) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(INTEGER);
+                writeVarLong(out, (Integer) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else {
+                JapCacheSerializer<Serializable> serializer = (JapCacheSerializer<Serializable>) serializer(value.getClass());
+                if (null == serializer) {
+                    out.writeByte(JDK);
+                    out.flush();
+                    FALLBACK.write(value, bytes);
+                } else {
+                    out.writeByte(TYPED);
+                    writeVarInt(out, serializer.typeId());
+                    serializer.write(value, out);
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new JapException("Failed to serialize the cache value: " + e.getMessage(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Serializable decode(byte[] bytes) {
+        ByteArrayInputStream stream = new ByteArrayInputStream(bytes);
+        DataInputStream in = new DataInputStream(stream);
+        try {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case JDK:
+                    return FALLBACK.read(stream);
+                case STRING:
+                    return readString(in);
+                case LONG:
+                    return readVarLong(in);
+                case INTEGER:
+                    return (int) readVarLong(in);
+                case BOOLEAN:
+                    return in.readBoolean();
+                case TYPED:
+                    int typeId = readVarInt(in);
+                    JapCacheSerializer<?> serializer = serializer(typeId);
+                    if (null == serializer) {
+                        throw new JapException("No serializer is registered for the type id " + typeId);
+                    }
+                    return serializer.read(in);
+                default:
+                    throw new JapException("Unknown tag of the cache value: " + tag);
+            }
+        } catch (IOException e) {
+            throw new JapException("Failed to deserialize the cache value: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the number of bytes the registered serializer writes for the value, used to weigh the value
+     *
+     * @param value The value
+     * @return The number of bytes, or {@code -1} if no serializer is registered for the class of the value
+     */
+    @SuppressWarnings("unchecked")
+    long serializedSize(Serializable value) {
+        JapCacheSerializer<Serializable> serializer = (JapCacheSerializer<Serializable>) serializer(value.getClass());
+        if (null == serializer) {
+            return -1;
+        }
+        DataOutputStream out = new DataOutputStream(DISCARD);
+        try {
+            serializer.write(value, out);
+        } catch (IOException e) {
+            return -1;
+        }
+        return out.size();
+    }
+
+    private JapCacheSerializer<?> serializer(Class<?> type) {
+        loadIfNecessary();
+        return serializersByType.get(type);
+    }
+
+    private JapCacheSerializer<?> serializer(int typeId) {
+        loadIfNecessary();
+        return serializersById.get(typeId);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void loadIfNecessary() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                for (JapCacheSerializer serializer : JapServiceLoader.load(JapCacheSerializer.class)) {
+                    register(serializer);
+                }
+                loaded = true;
+            }
+        }
+    }
+
+    /**
+     * Write an int of 1 to 5 bytes, the small non-negative values take fewer bytes
+     *
+     * @param out   output
+     * @param value value
+     * @throws IOException IOException
+     */
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed var int");
+    }
+
+    /**
+     * Write a long of 1 to 10 bytes with the zigzag encoding, the values close to zero take fewer bytes
+     *
+     * @param out   output
+     * @param value value
+     * @throws IOException IOException
+     */
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    public static long readVarLong(DataInput in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed var long");
+    }
+
+    /**
+     * Write a nullable string as the UTF-8 bytes and their length
+     *
+     * @param out   output
+     * @param value value
+     * @throws IOException IOException
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (null == value) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(null != value);
+        if (null != value) {
+            writeVarLong(out, value);
+        }
+    }
+
+    public static Long readLong(DataInput in) throws IOException {
+        return in.readBoolean() ? readVarLong(in) : null;
+    }
+
+    /**
+     * Write a nullable {@link LocalDateTime} as the seconds and the nanoseconds, without the zone
+     *
+     * @param out   output
+     * @param value value
+     * @throws IOException IOException
+     */
+    public static void writeDateTime(DataOutput out, LocalDateTime value) throws IOException {
+        out.writeBoolean(null != value);
+        if (null != value) {
+            writeVarLong(out, value.toEpochSecond(ZoneOffset.UTC));
+            writeVarInt(out, value.getNano());
+        }
+    }
+
+    public static LocalDateTime readDateTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long seconds = readVarLong(in);
+        return LocalDateTime.ofEpochSecond(seconds, readVarInt(in), ZoneOffset.UTC);
+    }
+
+    /**
+     * Write a nullable map of strings, it is read back as a {@link LinkedHashMap}
+     *
+     * @param out   output
+     * @param value value
+     * @throws IOException IOException
+     */
+    public static void writeStringMap(DataOutput out, Map<String, String> value) throws IOException {
+        if (null == value) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, value.size() + 1);
+        for (Map.Entry<String, String> entry : value.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    public static Map<String, String> readStringMap(DataInput in) throws IOException {
+        int size = readVarInt(in) - 1;
+        if (size < 0) {
+            return null;
+        }
+        Map<String, String> map = new LinkedHashMap<>((int) (size / 0.75f) + 1);
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readString(in));
+        }
+        return map;
+    }
+
+    /**
+     * Write a nullable value of any type with the JDK serialization
+     *
+     * @param out   output
+     * @param value value
+     * @throws IOException IOException
+     */
+    public static void writeObject(DataOutput out, Serializable value) throws IOException {
+        if (null == value) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = FALLBACK.encode(value);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    public static Serializable readObject(DataInput in) throws IOException {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return FALLBACK.decode(bytes);
+    }
+
+    /**
+     * Read the version byte written by a serializer before its fields, and fail if it is not the expected one
+     *
+     * @param in      input
+     * @param version The expected version
+     * @throws IOException When the version is different
+     */
+    public static void checkVersion(DataInput in, int version) throws IOException {
+        int actual = in.readUnsignedByte();
+        if (actual != version) {
+            throw new IOException("Unsupported version " + actual + ", expected " + version);
+        }
+    }
+}
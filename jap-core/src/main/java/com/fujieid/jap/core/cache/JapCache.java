@@ -16,6 +16,10 @@
 package com.fujieid.jap.core.cache;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * JAP cache
@@ -65,4 +69,245 @@ public interface JapCache {
      * @param key Cache key
      */
     void removeKey(String key);
+
+    /**
+     * Get the values of multiple keys.
+     * <p>
+     * The default implementation calls {@link #get(String)} for each key. Implementations based on a remote cache
+     * should override it to fetch all keys in one round trip.
+     *
+     * @param keys Cache keys
+     * @return The keys that exist in the cache and their values, never {@code null}
+     */
+    default Map<String, Serializable> getAll(Collection<String> keys) {
+        Map<String, Serializable> values = new HashMap<>();
+        if (null == keys) {
+            return values;
+        }
+        for (String key : keys) {
+            Serializable value = this.get(key);
+            if (null != value) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Set multiple caches with the same expiration time.
+     * <p>
+     * The default implementation calls {@link #set(String, Serializable, long)} for each key. Implementations based
+     * on a remote cache should override it to write all keys in one round trip.
+     *
+     * @param values  Cache keys and values
+     * @param timeout The expiration time of the caches, in milliseconds
+     */
+    default void setAll(Map<String, ? extends Serializable> values, long timeout) {
+        if (null == values) {
+            return;
+        }
+        values.forEach((key, value) -> this.set(key, value, timeout));
+    }
+
+    /**
+     * Set multiple caches, each with its own expiration time.
+     * <p>
+     * The default implementation calls {@link #set(String, Serializable, long)} for each key. Implementations based
+     * on a remote cache should override it to write all keys in one round trip.
+     *
+     * @param values   Cache keys and values
+     * @param timeouts The expiration time of each key, in milliseconds. Keys without a timeout use the default one,
+     *                 see {@link #set(String, Serializable)}
+     */
+    default void setAll(Map<String, ? extends Serializable> values, Map<String, Long> timeouts) {
+        if (null == values) {
+            return;
+        }
+        values.forEach((key, value) -> {
+            Long timeout = null == timeouts ? null : timeouts.get(key);
+            if (null == timeout) {
+                this.set(key, value);
+            } else {
+                this.set(key, value, timeout);
+            }
+        });
+    }
+
+    /**
+     * Delete multiple keys from the cache.
+     * <p>
+     * The default implementation calls {@link #removeKey(String)} for each key. Implementations based on a remote
+     * cache should override it to delete all keys in one round trip.
+     *
+     * @param keys Cache keys
+     */
+    default void removeAll(Collection<String> keys) {
+        if (null == keys) {
+            return;
+        }
+        for (String key : keys) {
+            this.removeKey(key);
+        }
+    }
+
+    /**
+     * Set the cache only if the key does not exist or has expired.
+     * <p>
+     * The default implementation is not atomic. Implementations should override it with an atomic operation,
+     * such as Redis {@code SET key value PX timeout NX}.
+     *
+     * @param key     Cache key
+     * @param value   Cache value after serialization
+     * @param timeout The expiration time of the cache, in milliseconds
+     * @return {@code true} if the value was set
+     * @since 1.0.5
+     */
+    default boolean putIfAbsent(String key, Serializable value, long timeout) {
+        if (this.containsKey(key)) {
+            return false;
+        }
+        this.set(key, value, timeout);
+        return true;
+    }
+
+    /**
+     * Get the value and delete the key, so that a single-use value such as an authorization code is consumed once.
+     * <p>
+     * The default implementation is not atomic. Implementations should override it with an atomic operation,
+     * such as Redis {@code GETDEL}.
+     *
+     * @param key Cache key
+     * @return The cache value, or {@code null} if the key does not exist
+     * @since 1.0.5
+     */
+    default Serializable getAndRemove(String key) {
+        Serializable value = this.get(key);
+        if (null != value) {
+            this.removeKey(key);
+        }
+        return value;
+    }
+
+    /**
+     * Replace the value only if the current value equals the expected value.
+     * <p>
+     * The default implementation is not atomic. Implementations should override it with an atomic operation,
+     * such as a Redis script.
+     *
+     * @param key     Cache key
+     * @param expect  The expected current value, compared with {@link Object#equals(Object)}
+     * @param update  The new value, {@code null} to delete the key
+     * @param timeout The expiration time of the new value, in milliseconds
+     * @return {@code true} if the current value was the expected value and has been replaced
+     * @since 1.0.5
+     */
+    default boolean compareAndSet(String key, Serializable expect, Serializable update, long timeout) {
+        Serializable current = this.get(key);
+        if (null == current || !current.equals(expect)) {
+            return false;
+        }
+        if (null == update) {
+            this.removeKey(key);
+        } else {
+            this.set(key, update, timeout);
+        }
+        return true;
+    }
+
+    /**
+     * Get the value, or load and cache it if the key does not exist. Concurrent misses of the same key call the
+     * loader once, the other callers wait for its result. A {@code null} result is returned but not cached.
+     *
+     * @param key     Cache key
+     * @param loader  Load the value of a missing key, the exception it throws is rethrown to every waiting caller
+     * @param timeout The expiration time of the loaded value, in milliseconds, {@code <= 0} means the default timeout
+     * @return The cached or loaded value
+     * @since 1.0.5
+     */
+    default Serializable get(String key, Function<String, ? extends Serializable> loader, long timeout) {
+        return this.get(key, loader, timeout, 0);
+    }
+
+    /**
+     * Get the value, or load and cache it if the key does not exist, see {@link #get(String, Function, long)}.
+     * <p>
+     * When the remaining time of a cached value is less than {@code refreshAhead}, the value is returned and reloaded
+     * in the background, so that a hot key is replaced before it expires and its readers never wait for the loader.
+     * <p>
+     * The default implementation coalesces the concurrent loads of this instance only and ignores
+     * {@code refreshAhead}. {@link JapLocalCache} supports both.
+     *
+     * @param key          Cache key
+     * @param loader       Load the value of a missing key
+     * @param timeout      The expiration time of the loaded value, in milliseconds, {@code <= 0} means the default
+     *                     timeout
+     * @param refreshAhead Reload the value in the background when it expires within this time, in milliseconds,
+     *                     {@code <= 0} means never
+     * @return The cached or loaded value
+     * @since 1.0.5
+     */
+    default Serializable get(String key, Function<String, ? extends Serializable> loader, long timeout, long refreshAhead) {
+        return JapCacheLoading.load(this, key, loader, timeout);
+    }
+
+    /**
+     * Whether the cache notifies the listeners added by {@link #addRemovalListener(JapCacheRemovalListener)}. The
+     * callers that rely on the notifications, such as the verified token memo of {@code JapTokenHelper}, check it
+     * instead of waiting for notifications that never come.
+     *
+     * @return {@code true} if the removals are notified, {@code false} by default
+     * @since 1.0.5
+     */
+    default boolean supportsRemovalListeners() {
+        return false;
+    }
+
+    /**
+     * Listen to the removal of the entries, including the expired, evicted and replaced ones.
+     * <p>
+     * The default implementation does nothing, see {@link #supportsRemovalListeners()}. {@link JapLocalCache}
+     * delivers the notifications asynchronously, a remote cache may implement it with the keyspace notifications of
+     * the server.
+     *
+     * @param listener JapCacheRemovalListener
+     * @since 1.0.5
+     */
+    default void addRemovalListener(JapCacheRemovalListener listener) {
+    }
+
+    /**
+     * Stop notifying the listener added by {@link #addRemovalListener(JapCacheRemovalListener)}
+     *
+     * @param listener JapCacheRemovalListener
+     * @since 1.0.5
+     */
+    default void removeRemovalListener(JapCacheRemovalListener listener) {
+    }
+
+    /**
+     * Get the statistics of the cache, broken down by key namespace, see {@link JapCacheNamespaces}.
+     * <p>
+     * The default implementation returns empty statistics.
+     *
+     * @return JapCacheStats
+     * @since 1.0.5
+     */
+    default JapCacheStats stats() {
+        return new JapCacheStats();
+    }
+
+    /**
+     * Get a named region of the cache, see {@link JapCacheRegions} for the configuration of the regions.
+     * <p>
+     * The default implementation returns a view of this cache that prefixes the keys with
+     * {@link JapCacheRegion#getKeyPrefix()} and applies the timeout of the region, the maximum size and the eviction
+     * policy are left to the underlying cache. {@link JapLocalCache} keeps each region in its own storage.
+     *
+     * @param name The name of the region
+     * @return JapCache
+     * @since 1.0.5
+     */
+    default JapCache region(String name) {
+        return new PrefixedJapCache(this, JapCacheRegions.get(name));
+    }
 }
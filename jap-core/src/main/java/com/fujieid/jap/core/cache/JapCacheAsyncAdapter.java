@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Adapt a {@link JapCache} to {@link AsyncJapCache}, see {@link AsyncJapCache#of(JapCache, Executor)}
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+final class JapCacheAsyncAdapter implements AsyncJapCache {
+
+    private final JapCache cache;
+    /**
+     * {@code null} means running on the calling thread
+     */
+    private final Executor executor;
+
+    JapCacheAsyncAdapter(JapCache cache, Executor executor) {
+        this.cache = cache;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletionStage<Void> setAsync(String key, Serializable value) {
+        return run(() -> cache.set(key, value));
+    }
+
+    @Override
+    public CompletionStage<Void> setAsync(String key, Serializable value, long timeout) {
+        return run(() -> cache.set(key, value, timeout));
+    }
+
+    @Override
+    public CompletionStage<Serializable> getAsync(String key) {
+        return supply(() -> cache.get(key));
+    }
+
+    @Override
+    public CompletionStage<Boolean> containsKeyAsync(String key) {
+        return supply(() -> cache.containsKey(key));
+    }
+
+    @Override
+    public CompletionStage<Void> removeKeyAsync(String key) {
+        return run(() -> cache.removeKey(key));
+    }
+
+    @Override
+    public CompletionStage<Map<String, Serializable>> getAllAsync(Collection<String> keys) {
+        return supply(() -> cache.getAll(keys));
+    }
+
+    @Override
+    public CompletionStage<Void> setAllAsync(Map<String, ? extends Serializable> values, Map<String, Long> timeouts) {
+        return run(() -> cache.setAll(values, timeouts));
+    }
+
+    @Override
+    public CompletionStage<Void> removeAllAsync(Collection<String> keys) {
+        return run(() -> cache.removeAll(keys));
+    }
+
+    @Override
+    public AsyncJapCache asyncRegion(String name) {
+        return new JapCacheAsyncAdapter(cache.region(name), executor);
+    }
+
+    private CompletionStage<Void> run(Runnable operation) {
+        return supply(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    private <T> CompletionStage<T> supply(Supplier<T> operation) {
+        if (null != executor) {
+            return CompletableFuture.supplyAsync(operation, executor);
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            future.complete(operation.get());
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The single daemon thread that refreshes {@link JapCacheClock} and reclaims the expired entries of every
+ * {@link JapLocalCache}.
+ * <p>
+ * Caches are held by weak references, a cache that is no longer used is unregistered automatically.
+ * Each round of reclamation is limited to {@link #PRUNE_BUDGET_NANOS}, the rest is continued in the next round.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+enum JapCacheCleaner {
+    /**
+     * JapCacheCleaner
+     */
+    INSTANCE;
+
+    /**
+     * Interval between two rounds of reclamation, in milliseconds
+     */
+    private static final long PRUNE_INTERVAL_MILLIS = 1000;
+    /**
+     * Time budget of one round of reclamation, in nanoseconds
+     */
+    private static final long PRUNE_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final List<WeakReference<JapLocalCache>> caches = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+    /**
+     * The cache to start with in the next round, so that every cache gets its share of the budget
+     */
+    private int cursor;
+
+    JapCacheCleaner() {
+        this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "jap-cache-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start() {
+        scheduler.scheduleAtFixedRate(JapCacheClock::tick, JapCacheClock.RESOLUTION_MILLIS, JapCacheClock.RESOLUTION_MILLIS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::prune, PRUNE_INTERVAL_MILLIS, PRUNE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Register the cache, its expired entries will be reclaimed in the background
+     *
+     * @param cache JapLocalCache
+     */
+    void register(JapLocalCache cache) {
+        for (WeakReference<JapLocalCache> reference : caches) {
+            if (reference.get() == cache) {
+                return;
+            }
+        }
+        caches.add(new WeakReference<>(cache));
+    }
+
+    private void prune() {
+        try {
+            caches.removeIf(reference -> null == reference.get());
+            int size = caches.size();
+            if (size == 0) {
+                return;
+            }
+            long deadline = System.nanoTime() + PRUNE_BUDGET_NANOS;
+            int start = cursor % size;
+            for (int i = 0; i < size; i++) {
+                JapLocalCache cache = caches.get((start + i) % size).get();
+                if (null != cache && !cache.pruneCache(deadline)) {
+                    // Out of budget, start with this cache next time
+                    cursor = start + i;
+                    return;
+                }
+            }
+            cursor = start + 1;
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the periodic task
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+/**
+ * A coarse clock for the cache. The current time is cached in a volatile field and refreshed by the cache
+ * cleaner thread every {@link #RESOLUTION_MILLIS} milliseconds, so the hot paths of the cache do not call
+ * {@link System#currentTimeMillis()} on every read.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public final class JapCacheClock {
+
+    /**
+     * The resolution of the clock, in milliseconds
+     */
+    public static final long RESOLUTION_MILLIS = 5;
+
+    private static volatile long now = System.currentTimeMillis();
+
+    static {
+        JapCacheCleaner.INSTANCE.start();
+    }
+
+    private JapCacheClock() {
+    }
+
+    /**
+     * Get the current time, which may lag behind the system time by at most about {@link #RESOLUTION_MILLIS}
+     *
+     * @return the current time in milliseconds
+     */
+    public static long currentTimeMillis() {
+        return now;
+    }
+
+    /**
+     * Refresh the cached time, called by the cache cleaner thread
+     */
+    static void tick() {
+        now = System.currentTimeMillis();
+    }
+}
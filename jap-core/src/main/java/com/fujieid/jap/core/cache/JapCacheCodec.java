@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.io.Serializable;
+
+/**
+ * Convert the cache values to bytes and back.
+ * <p>
+ * {@link JapLocalCache} keeps the objects as they are, the codec is used by the caches that store bytes, such as
+ * {@link OffHeapJapCache} and the snapshot of {@link JapLocalCache}. A custom remote {@link JapCache} (e.g. redis) can
+ * use {@link JapCacheConfig#codec} as well.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public interface JapCacheCodec {
+
+    /**
+     * Serialize the cache value
+     *
+     * @param value Cache value, may be null
+     * @return bytes
+     */
+    byte[] encode(Serializable value);
+
+    /**
+     * Deserialize the bytes returned by {@link #encode(Serializable)}
+     *
+     * @param bytes bytes
+     * @return Cache value
+     */
+    Serializable decode(byte[] bytes);
+}
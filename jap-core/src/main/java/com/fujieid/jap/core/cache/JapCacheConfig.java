@@ -33,8 +33,41 @@ public class JapCacheConfig {
 
     /**
      * Turn on the timed task of clearing the local memory cache.
-     * After it is turned on, the {@link JapLocalCache#pruneCache()} method will be called to automatically clear the cache.
+     * After it is turned on, every {@link JapLocalCache} is registered with a single shared daemon thread,
+     * which reclaims the expired entries incrementally about once per second.
+     * Otherwise {@link JapLocalCache#pruneCache()} must be called to clear the expired entries that are never read again.
      * If you customize the implemented jap cache interface, you can ignore this config.
      */
     public static boolean schedulePrune = true;
+
+    /**
+     * The maximum number of entries of a {@link JapLocalCache}, {@code 0} (default) means no limit.
+     * When the limit is exceeded, the entries with the lowest access frequency are evicted first.
+     */
+    public static long maximumSize = 0;
+
+    /**
+     * The maximum estimated retained bytes of a {@link JapLocalCache}, {@code 0} (default) means no limit.
+     * The retained bytes of an entry are estimated by {@link JapCacheWeigher#DEFAULT}.
+     */
+    public static long maximumWeight = 0;
+
+    /**
+     * Record the hits, misses, loads, evictions and expirations of each {@link JapLocalCache} created afterwards,
+     * see {@link JapCache#stats()}. Off by default, the size and the retained bytes are available either way.
+     */
+    public static boolean recordStats = false;
+
+    /**
+     * The interval of saving the changed entries of a {@link JapLocalCache} to its snapshot file, in milliseconds.
+     * Only used after {@link JapLocalCache#enableSnapshot(java.io.File)} is called.
+     */
+    public static long snapshotInterval = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * The codec of the caches that store the values as bytes, such as {@link OffHeapJapCache} and the snapshot of
+     * {@link JapLocalCache}, used by the caches created afterwards. By default, the jap models are written by
+     * {@link CompactJapCacheCodec} and the other values fall back to the JDK serialization.
+     */
+    public static JapCacheCodec codec = new CompactJapCacheCodec();
 }
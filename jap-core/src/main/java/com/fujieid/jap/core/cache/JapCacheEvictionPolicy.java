@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+/**
+ * The eviction policy of a bounded {@link JapLocalCache} region, see {@link JapCacheRegion#setEvictionPolicy(JapCacheEvictionPolicy)}
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public enum JapCacheEvictionPolicy {
+
+    /**
+     * W-TinyLFU, a new entry is only kept when it is read more often than the entry it replaces.
+     * Suits the long-lived entries that are read repeatedly, such as the access tokens.
+     */
+    TINY_LFU,
+
+    /**
+     * Approximate LRU, the least recently read entry is evicted.
+     * Suits the short-lived entries that are read once, such as the oauth state and the authorization codes.
+     */
+    LRU
+}
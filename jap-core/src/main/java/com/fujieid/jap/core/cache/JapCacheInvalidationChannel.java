@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.util.Collection;
+
+/**
+ * The channel that broadcasts the keys changed on one node to the {@link NearJapCache} of all the nodes,
+ * so that they drop their local copies.
+ * <p>
+ * Implement it with the pub/sub of the shared store, such as Redis {@code PUBLISH/SUBSCRIBE}.
+ * {@link LoopbackInvalidationChannel} delivers the messages within the current process.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public interface JapCacheInvalidationChannel {
+
+    /**
+     * Broadcast the changed keys to all the subscribers, including the ones in the current process
+     *
+     * @param sourceId The id of the publisher, lets a subscriber skip its own messages
+     * @param keys     The changed cache keys
+     */
+    void publish(String sourceId, Collection<String> keys);
+
+    /**
+     * Subscribe to the changed keys
+     *
+     * @param listener Invalidation listener
+     */
+    void subscribe(Listener listener);
+
+    /**
+     * Receive the changed keys
+     */
+    @FunctionalInterface
+    interface Listener {
+
+        /**
+         * Called when keys have been changed by some node
+         *
+         * @param sourceId The id of the publisher
+         * @param keys     The changed cache keys
+         */
+        void onInvalidate(String sourceId, Collection<String> keys);
+    }
+}
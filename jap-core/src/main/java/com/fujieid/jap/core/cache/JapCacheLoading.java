@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import com.fujieid.jap.core.exception.JapException;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The single-flight loading of {@link JapCache#get(String, Function, long, long)}.
+ * <p>
+ * Concurrent misses of the same key wait for the load started by the first caller instead of calling the loader
+ * again, so an expired discovery document or client does not send a burst of identical requests to the backend.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+final class JapCacheLoading {
+
+    /**
+     * The loads in progress of the caches that do not track their own, keyed by cache and key
+     */
+    private static final Map<Flight, CompletableFuture<Serializable>> FLIGHTS = new ConcurrentHashMap<>();
+
+    private JapCacheLoading() {
+    }
+
+    /**
+     * The default implementation of {@link JapCache#get(String, Function, long, long)}, without refresh-ahead
+     *
+     * @param cache   The cache
+     * @param key     Cache key
+     * @param loader  Load the value of a missing key
+     * @param timeout The expiration time of the loaded value, {@code <= 0} means the default timeout of the cache
+     * @return The cached or loaded value
+     */
+    static Serializable load(JapCache cache, String key, Function<String, ? extends Serializable> loader, long timeout) {
+        Serializable value = cache.get(key);
+        if (null != value) {
+            return value;
+        }
+        return singleFlight(FLIGHTS, new Flight(cache, key), () -> {
+            // The value may have been loaded by the previous flight
+            Serializable current = cache.get(key);
+            if (null != current) {
+                return current;
+            }
+            Serializable loaded = loader.apply(key);
+            if (null != loaded) {
+                if (timeout > 0) {
+                    cache.set(key, loaded, timeout);
+                } else {
+                    cache.set(key, loaded);
+                }
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * Run the load unless a load of the same key is in progress, in which case wait for its result
+     *
+     * @param flights   The loads in progress
+     * @param flightKey The key of the load
+     * @param load      Load and cache the value
+     * @param <K>       The type of the key
+     * @return The loaded value
+     */
+    static <K> Serializable singleFlight(Map<K, CompletableFuture<Serializable>> flights, K flightKey, Supplier<Serializable> load) {
+        CompletableFuture<Serializable> future = new CompletableFuture<>();
+        CompletableFuture<Serializable> running = flights.putIfAbsent(flightKey, future);
+        if (null != running) {
+            return join(running);
+        }
+        try {
+            Serializable value = load.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(flightKey, future);
+        }
+    }
+
+    /**
+     * Wait for the load and rethrow the exception of the loader
+     *
+     * @param future The load in progress
+     * @return The loaded value
+     */
+    static Serializable join(CompletableFuture<Serializable> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new JapException("Failed to load the cache value", cause);
+        }
+    }
+
+    /**
+     * Run the refresh-ahead in the background
+     *
+     * @param task The refresh
+     * @throws RejectedExecutionException if too many refreshes are waiting
+     */
+    static void refresh(Runnable task) {
+        Refresher.EXECUTOR.execute(task);
+    }
+
+    private static final class Flight {
+        private final JapCache cache;
+        private final String key;
+
+        Flight(JapCache cache, String key) {
+            this.cache = cache;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Flight)) {
+                return false;
+            }
+            Flight flight = (Flight) o;
+            return cache == flight.cache && key.equals(flight.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(cache) + key.hashCode();
+        }
+    }
+
+    /**
+     * The shared threads of the refresh-ahead, created on first use
+     */
+    private static final class Refresher {
+        static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(1024), r -> {
+            Thread thread = new Thread(r, "jap-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        static {
+            EXECUTOR.allowCoreThreadTimeOut(true);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import com.fujieid.jap.core.JapConst;
+import com.xkcoding.json.util.StringUtil;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The key prefixes that group the cache statistics, see {@link JapCacheStats#getNamespaces()}.
+ * <p>
+ * The modules register the prefixes of their own keys, such as the user token key of jap-core and the token keys
+ * of jap-ids. A key matches the longest registered prefix, the keys without a matching prefix are grouped into
+ * {@link #OTHER}.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public final class JapCacheNamespaces {
+
+    /**
+     * The namespace of the keys without a registered prefix
+     */
+    public static final String OTHER = "other";
+
+    private static final List<String> PREFIXES = new CopyOnWriteArrayList<>();
+
+    static {
+        register(JapConst.USER_TOKEN_KEY);
+        register(JapConst.SESSION_USER_KEY);
+    }
+
+    private JapCacheNamespaces() {
+    }
+
+    /**
+     * Register a key prefix as a namespace
+     *
+     * @param prefix Key prefix
+     */
+    public static void register(String prefix) {
+        if (StringUtil.isEmpty(prefix)) {
+            return;
+        }
+        synchronized (PREFIXES) {
+            if (!PREFIXES.contains(prefix)) {
+                PREFIXES.add(prefix);
+            }
+        }
+    }
+
+    /**
+     * Get the namespace of the key
+     *
+     * @param key Cache key
+     * @return The longest registered prefix of the key, or {@link #OTHER}
+     */
+    public static String of(String key) {
+        String namespace = OTHER;
+        if (null == key) {
+            return namespace;
+        }
+        int length = 0;
+        for (String prefix : PREFIXES) {
+            if (prefix.length() > length && key.startsWith(prefix)) {
+                namespace = prefix;
+                length = prefix.length();
+            }
+        }
+        return namespace;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+/**
+ * The configuration of a cache region, see {@link JapCache#region(String)} and {@link JapCacheRegions}.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class JapCacheRegion {
+
+    private final String name;
+    /**
+     * The prefix added to the keys when the region shares the keyspace of the cache, {@code name + ":"} by default
+     */
+    private String keyPrefix;
+    /**
+     * The default expiration time of the region in milliseconds, {@code 0} means the default of the cache
+     */
+    private long timeout;
+    /**
+     * The maximum number of entries of the region, {@code 0} means no limit
+     */
+    private long maximumSize;
+    /**
+     * The maximum estimated retained bytes of the region, {@code 0} means no limit
+     */
+    private long maximumWeight;
+    private JapCacheEvictionPolicy evictionPolicy = JapCacheEvictionPolicy.TINY_LFU;
+
+    public JapCacheRegion(String name) {
+        this.name = name;
+        this.keyPrefix = name + ":";
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public JapCacheRegion setKeyPrefix(String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+        return this;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public JapCacheRegion setTimeout(long timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public JapCacheRegion setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public JapCacheRegion setMaximumWeight(long maximumWeight) {
+        this.maximumWeight = maximumWeight;
+        return this;
+    }
+
+    public JapCacheEvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public JapCacheRegion setEvictionPolicy(JapCacheEvictionPolicy evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+        return this;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import com.fujieid.jap.core.JapConst;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The configurations of the cache regions.
+ * <p>
+ * The modules register the defaults of their own regions, such as {@link JapConst#USER_TOKEN_CACHE_REGION} here and the
+ * token regions of jap-ids. Register a configuration with the same name to override the default, before the region is
+ * first used. A region that is not registered has no limit and uses the default expiration time of the cache.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public final class JapCacheRegions {
+
+    private static final Map<String, JapCacheRegion> REGIONS = new ConcurrentHashMap<>();
+
+    static {
+        registerDefault(new JapCacheRegion(JapConst.USER_TOKEN_CACHE_REGION)
+            .setKeyPrefix(JapConst.USER_TOKEN_KEY)
+            .setTimeout(TimeUnit.DAYS.toMillis(7)));
+        registerDefault(new JapCacheRegion(JapConst.USER_SESSION_CACHE_REGION)
+            .setKeyPrefix(JapConst.SESSION_USER_KEY + JapConst.DEFAULT_DELIMITER)
+            .setTimeout(TimeUnit.MINUTES.toMillis(30)));
+    }
+
+    private JapCacheRegions() {
+    }
+
+    /**
+     * Register the configuration of a region, replaces the existing one with the same name
+     *
+     * @param region The configuration
+     */
+    public static void register(JapCacheRegion region) {
+        REGIONS.put(region.getName(), region);
+    }
+
+    /**
+     * Register the default configuration of a region, does nothing if the region has already been configured
+     *
+     * @param region The configuration
+     */
+    public static void registerDefault(JapCacheRegion region) {
+        REGIONS.putIfAbsent(region.getName(), region);
+    }
+
+    /**
+     * Get the configuration of a region
+     *
+     * @param name The name of the region
+     * @return The registered configuration, or a configuration without limits
+     */
+    public static JapCacheRegion get(String name) {
+        JapCacheRegion region = REGIONS.get(name);
+        return null == region ? new JapCacheRegion(name) : region;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+/**
+ * The reason why an entry was removed from the cache, see {@link JapCacheRemovalListener}
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public enum JapCacheRemovalCause {
+
+    /**
+     * The entry was removed by the user, such as {@link JapCache#removeKey(String)} and
+     * {@link JapCache#getAndRemove(String)}
+     */
+    EXPLICIT,
+
+    /**
+     * The value was replaced by the user, such as {@link JapCache#set(String, java.io.Serializable)} of an existing key
+     */
+    REPLACED,
+
+    /**
+     * The entry has expired
+     */
+    EXPIRED,
+
+    /**
+     * The entry was evicted because the cache exceeded its bounds
+     */
+    EVICTED;
+
+    /**
+     * Whether the entry was removed automatically rather than by the user
+     *
+     * @return {@code true} for {@link #EXPIRED} and {@link #EVICTED}
+     */
+    public boolean wasEvicted() {
+        return this == EXPIRED || this == EVICTED;
+    }
+}
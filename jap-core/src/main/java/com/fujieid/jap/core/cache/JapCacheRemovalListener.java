@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.io.Serializable;
+
+/**
+ * Listen to the removal of the cache entries, see {@link JapCache#addRemovalListener(JapCacheRemovalListener)}.
+ * <p>
+ * Use it to keep the secondary data consistent with the cache without scanning it, such as the session index of a
+ * user, a gauge of the live sessions or an audit log of the expired tokens.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+@FunctionalInterface
+public interface JapCacheRemovalListener {
+
+    /**
+     * Called after an entry is removed. {@link JapLocalCache} calls it asynchronously on a single shared thread,
+     * in the order of the removals, so it should not block.
+     *
+     * @param key   Cache key
+     * @param value The removed value
+     * @param cause The reason of the removal
+     */
+    void onRemoval(String key, Serializable value, JapCacheRemovalCause cause);
+}
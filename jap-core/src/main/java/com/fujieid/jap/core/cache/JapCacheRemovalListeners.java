@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The removal listeners of a {@link JapLocalCache}, the notifications are delivered on the single shared
+ * {@code jap-cache-removal} thread, so the writes and the expiration are never blocked by a listener.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+final class JapCacheRemovalListeners {
+
+    private final List<JapCacheRemovalListener> listeners = new CopyOnWriteArrayList<>();
+
+    void add(JapCacheRemovalListener listener) {
+        if (null == listener) {
+            throw new IllegalArgumentException("The removal listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+
+    void remove(JapCacheRemovalListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Notify the listeners asynchronously
+     *
+     * @param cacheObj The removed cache object
+     * @param cause    The reason of the removal
+     */
+    void notify(JapLocalCache.CacheObj cacheObj, JapCacheRemovalCause cause) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        Dispatcher.EXECUTOR.execute(() -> {
+            for (JapCacheRemovalListener listener : listeners) {
+                try {
+                    listener.onRemoval(cacheObj.key, cacheObj.getData(), cause);
+                } catch (RuntimeException ignored) {
+                    // A failing listener must not stop the delivery to the others
+                }
+            }
+        });
+    }
+
+    /**
+     * The shared thread of all the removal listeners, created on first use
+     */
+    private static final class Dispatcher {
+        static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "jap-cache-removal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
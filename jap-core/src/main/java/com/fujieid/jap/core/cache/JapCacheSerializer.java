@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Write and read the fields of one type for {@link CompactJapCacheCodec}.
+ * <p>
+ * The implementations are registered with {@link CompactJapCacheCodec#register(JapCacheSerializer)}, or found by
+ * {@link java.util.ServiceLoader} from {@code META-INF/services/com.fujieid.jap.core.cache.JapCacheSerializer}.
+ * The helpers of {@link CompactJapCacheCodec}, such as {@link CompactJapCacheCodec#writeString(DataOutput, String)},
+ * write the nullable fields compactly.
+ *
+ * @param <T> The type of the value
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public interface JapCacheSerializer<T extends Serializable> {
+
+    /**
+     * The id written before the fields, must be unique and never change once the bytes have been stored.
+     * The ids below {@code 16} are reserved by jap.
+     *
+     * @return type id
+     */
+    int typeId();
+
+    /**
+     * Only the values of exactly this class are written by this serializer, the subclasses fall back to the JDK serialization
+     *
+     * @return The class of the value
+     */
+    Class<T> type();
+
+    /**
+     * Write the fields of the value
+     *
+     * @param value The value, never null
+     * @param out   output
+     * @throws IOException IOException
+     */
+    void write(T value, DataOutput out) throws IOException;
+
+    /**
+     * Read the fields written by {@link #write(Serializable, DataOutput)}
+     *
+     * @param in input
+     * @return The value
+     * @throws IOException IOException
+     */
+    T read(DataInput in) throws IOException;
+}
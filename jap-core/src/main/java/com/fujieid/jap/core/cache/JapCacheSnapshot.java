@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import com.fujieid.jap.core.exception.JapException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The snapshot file of a {@link JapLocalCache}, see {@link JapLocalCache#enableSnapshot(File)}.
+ * <p>
+ * The file is memory-mapped and append-only. Every round, the keys changed since the last round are appended as
+ * {@code PUT} or {@code REMOVE} records; the record length is written last, so a record torn by a crash is ignored.
+ * When the file holds more than twice as many records as there are live entries, it is compacted into a new file
+ * with only the live entries.
+ * <p>
+ * On startup the records are only indexed. A value is deserialized and put back to the cache when its key is first
+ * read, so a restart does not pay for loading the entries that are never used again. The index stops at the first
+ * record that does not fit in the file, the rest of the file is discarded and overwritten by the next records.
+ * <p>
+ * The periodic saving holds the snapshot by a weak reference, a cache that is no longer used is not kept alive by its
+ * snapshot, and its file is closed in the next round.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+final class JapCacheSnapshot {
+
+    private static final int MAGIC = 0x4A415053;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    /**
+     * A record is {@code [length][type][expire][key length][key][value]}, the length excludes itself
+     */
+    private static final int RECORD_HEADER_SIZE = 1 + 8 + 4;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int MINIMUM_MAPPED_SIZE = 1 << 20;
+    private static final int MINIMUM_COMPACTION_RECORDS = 1024;
+    private static final byte[] EMPTY = new byte[0];
+    private static final int ZERO_BLOCK_SIZE = 4096;
+
+    private final JapLocalCache cache;
+    private final File file;
+    private final JapCacheCodec codec = JapCacheConfig.codec;
+    /**
+     * The keys of the records that have not been loaded yet, and the positions of their latest {@code PUT} records
+     */
+    private final Map<String, Integer> pending = new ConcurrentHashMap<>();
+    /**
+     * The keys changed since the last round
+     */
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    private FileChannel channel;
+    /**
+     * Replaced when the file grows, the readers of {@link #pending} records keep using the mapping they see
+     */
+    private volatile MappedByteBuffer mapped;
+    private int writePosition;
+    private long records;
+    private SaveTask task;
+    private boolean closed;
+
+    JapCacheSnapshot(JapLocalCache cache, File file) throws IOException {
+        this.cache = cache;
+        this.file = file;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (null != parent && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create the directory " + parent);
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("The snapshot file is too large: " + file);
+        }
+        this.mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, MINIMUM_MAPPED_SIZE));
+        if (size >= FILE_HEADER_SIZE && mapped.getInt(0) == MAGIC && mapped.getInt(4) == VERSION) {
+            index((int) size);
+        } else {
+            writeFileHeader();
+        }
+    }
+
+    /**
+     * Get the snapshot file of a region of the cache
+     *
+     * @param region The name of the region
+     * @return The file next to the snapshot file of the cache
+     */
+    File regionFile(String region) {
+        return new File(file.getPath() + "." + region);
+    }
+
+    /**
+     * Start saving the snapshot periodically, and once more when the JVM shuts down
+     *
+     * @param interval Interval between two rounds, in milliseconds
+     */
+    synchronized void schedule(long interval) {
+        task = new SaveTask(this, channel);
+        Scheduler.TASKS.add(task);
+        task.future = Scheduler.EXECUTOR.scheduleWithFixedDelay(task, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop saving the snapshot: save the changed keys a last time, load the records that have not been read yet and
+     * close the file. The file is kept.
+     *
+     * @throws IOException When the file cannot be written
+     */
+    synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (null != task) {
+            task.cancel();
+        }
+        try {
+            save();
+            for (String key : new ArrayList<>(pending.keySet())) {
+                restore(key);
+            }
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    /**
+     * Called before the key is written or removed, the changed key is saved in the next round and its old record
+     * will never be loaded
+     *
+     * @param key Cache key
+     */
+    void onWrite(String key) {
+        if (!pending.isEmpty()) {
+            pending.remove(key);
+        }
+        dirty.add(key);
+    }
+
+    /**
+     * Load the key from the snapshot, at most once
+     *
+     * @param key Cache key
+     * @return The restored cache object, or {@code null} if the snapshot has no unexpired value of the key
+     */
+    JapLocalCache.CacheObj restore(String key) {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        JapLocalCache.CacheObj[] restored = new JapLocalCache.CacheObj[1];
+        // The computation holds the lock of the key, a concurrent onWrite waits until the value is restored,
+        // so the restored value never overrides a newer value
+        pending.computeIfPresent(key, (k, position) -> {
+            restored[0] = load(k, position);
+            return null;
+        });
+        return restored[0];
+    }
+
+    /**
+     * Append the changed keys to the file, and compact the file if it holds too many stale records
+     *
+     * @throws IOException When the file cannot be written
+     */
+    synchronized void save() throws IOException {
+        if (closed) {
+            return;
+        }
+        for (Iterator<String> iterator = dirty.iterator(); iterator.hasNext(); ) {
+            String key = iterator.next();
+            // Remove before reading the entry, a concurrent change marks the key dirty again
+            iterator.remove();
+            JapLocalCache.CacheObj cacheObj = cache.peek(key);
+            if (null == cacheObj) {
+                append(REMOVE, key, EMPTY, 0);
+            } else {
+                append(PUT, key, codec.encode(cacheObj.getData()), cacheObj.getExpire());
+            }
+        }
+        long live = (long) cache.entries().size() + pending.size();
+        if (records > MINIMUM_COMPACTION_RECORDS && records > 2 * live) {
+            compact();
+        }
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException | RuntimeException e) {
+            // Never let an exception cancel the periodic task, the changes are retried in the next round
+        }
+    }
+
+    /**
+     * Rewrite the file with only the live entries
+     */
+    private void compact() throws IOException {
+        // The positions of the pending records are lost after rewriting, so load them first
+        for (String key : new ArrayList<>(pending.keySet())) {
+            restore(key);
+        }
+        File compacted = new File(file.getPath() + ".tmp");
+        FileChannel oldChannel = channel;
+        channel = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, MINIMUM_MAPPED_SIZE);
+        writeFileHeader();
+        long now = JapCacheClock.currentTimeMillis();
+        for (JapLocalCache.CacheObj cacheObj : cache.entries()) {
+            if (cacheObj.getExpire() >= now) {
+                append(PUT, cacheObj.key, codec.encode(cacheObj.getData()), cacheObj.getExpire());
+            }
+        }
+        mapped.force();
+        if (null != task) {
+            task.channel = channel;
+        }
+        oldChannel.close();
+        // The open channel follows the renamed file
+        Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeFileHeader() {
+        mapped.putInt(0, MAGIC);
+        mapped.putInt(4, VERSION);
+        writePosition = FILE_HEADER_SIZE;
+        records = 0;
+    }
+
+    /**
+     * Index the records of an existing file, up to the first record that is torn or does not fit in the file
+     *
+     * @param size The size of the file
+     */
+    private void index(int size) {
+        MappedByteBuffer buffer = mapped;
+        long now = JapCacheClock.currentTimeMillis();
+        int position = FILE_HEADER_SIZE;
+        while (position + 4 <= size) {
+            int length = buffer.getInt(position);
+            if (length < RECORD_HEADER_SIZE || length > size - position - 4) {
+                break;
+            }
+            int body = position + 4;
+            byte type = buffer.get(body);
+            int keyLength = buffer.getInt(body + 9);
+            if ((type != PUT && type != REMOVE) || keyLength < 0 || keyLength > length - RECORD_HEADER_SIZE) {
+                break;
+            }
+            byte[] keyBytes = new byte[keyLength];
+            ByteBuffer reader = buffer.duplicate();
+            reader.position(body + RECORD_HEADER_SIZE);
+            reader.get(keyBytes);
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+            if (type == PUT && buffer.getLong(body + 1) >= now) {
+                pending.put(key, position);
+            } else {
+                pending.remove(key);
+            }
+            records++;
+            position = body + length;
+        }
+        writePosition = position;
+        // Clear the discarded tail, so that a shorter record appended later is not followed by a stale one
+        ByteBuffer writer = buffer.duplicate();
+        writer.position(position);
+        byte[] zeros = new byte[ZERO_BLOCK_SIZE];
+        while (writer.position() < size) {
+            writer.put(zeros, 0, Math.min(zeros.length, size - writer.position()));
+        }
+    }
+
+    private JapLocalCache.CacheObj load(String key, int position) {
+        MappedByteBuffer buffer = mapped;
+        int body = position + 4;
+        int length = buffer.getInt(position);
+        int keyLength = buffer.getInt(body + 9);
+        long expire = buffer.getLong(body + 1);
+        byte[] value = new byte[length - RECORD_HEADER_SIZE - keyLength];
+        ByteBuffer reader = buffer.duplicate();
+        reader.position(body + RECORD_HEADER_SIZE + keyLength);
+        reader.get(value);
+        Serializable data;
+        try {
+            data = codec.decode(value);
+        } catch (JapException e) {
+            // Written by an incompatible version of the value class, the key is treated as a miss
+            return null;
+        }
+        return cache.restore(key, data, expire);
+    }
+
+    private void append(byte type, String key, byte[] value, long expire) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_HEADER_SIZE + keyBytes.length + value.length;
+        long required = (long) writePosition + 4 + length;
+        if (required > mapped.capacity()) {
+            long size = Math.max(required, (long) mapped.capacity() * 2);
+            if (size > Integer.MAX_VALUE) {
+                throw new JapException("The snapshot file exceeds 2GB: " + file);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        ByteBuffer writer = mapped.duplicate();
+        writer.position(writePosition + 4);
+        writer.put(type).putLong(expire).putInt(keyBytes.length).put(keyBytes).put(value);
+        // Write the length last, so that a torn record ends the file
+        mapped.putInt(writePosition, length);
+        writePosition += 4 + length;
+        records++;
+    }
+
+    /**
+     * Save a snapshot periodically, as long as its cache is in use
+     */
+    private static final class SaveTask implements Runnable {
+        private final WeakReference<JapCacheSnapshot> snapshot;
+        /**
+         * The file of the snapshot, closed when the snapshot has been collected
+         */
+        private volatile FileChannel channel;
+        private volatile ScheduledFuture<?> future;
+
+        SaveTask(JapCacheSnapshot snapshot, FileChannel channel) {
+            this.snapshot = new WeakReference<>(snapshot);
+            this.channel = channel;
+        }
+
+        @Override
+        public void run() {
+            JapCacheSnapshot current = snapshot.get();
+            if (null != current) {
+                current.saveQuietly();
+                return;
+            }
+            this.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // The file is no longer used
+            }
+        }
+
+        void saveQuietly() {
+            JapCacheSnapshot current = snapshot.get();
+            if (null != current) {
+                current.saveQuietly();
+            }
+        }
+
+        void cancel() {
+            Scheduler.TASKS.remove(this);
+            ScheduledFuture<?> current = future;
+            if (null != current) {
+                current.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * The shared thread of all the snapshots, created on first use
+     */
+    private static final class Scheduler {
+        static final List<SaveTask> TASKS = new CopyOnWriteArrayList<>();
+        static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jap-cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> TASKS.forEach(SaveTask::saveQuietly), "jap-cache-snapshot-shutdown"));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The statistics of a {@link JapCache}, see {@link JapCache#stats()}.
+ * <p>
+ * The counters are cumulative since the cache was created. The size and the retained bytes are computed when the
+ * statistics are taken, the retained bytes are an estimate.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class JapCacheStats {
+
+    private long hitCount;
+    private long missCount;
+    private long loadCount;
+    /**
+     * The total time spent loading entries, in nanoseconds
+     */
+    private long totalLoadTime;
+    private long evictionCount;
+    private long expirationCount;
+    private long size;
+    private long estimatedBytes;
+    /**
+     * The statistics of each key namespace, see {@link JapCacheNamespaces}
+     */
+    private Map<String, JapCacheStats> namespaces = Collections.emptyMap();
+
+    /**
+     * Get the ratio of the reads that found a value
+     *
+     * @return double, {@code 1.0} when nothing has been read
+     */
+    public double hitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * Get the average time spent loading an entry
+     *
+     * @return double, in nanoseconds
+     */
+    public double averageLoadPenalty() {
+        return loadCount == 0 ? 0.0 : (double) totalLoadTime / loadCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public JapCacheStats setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+        return this;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public JapCacheStats setMissCount(long missCount) {
+        this.missCount = missCount;
+        return this;
+    }
+
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    public JapCacheStats setLoadCount(long loadCount) {
+        this.loadCount = loadCount;
+        return this;
+    }
+
+    public long getTotalLoadTime() {
+        return totalLoadTime;
+    }
+
+    public JapCacheStats setTotalLoadTime(long totalLoadTime) {
+        this.totalLoadTime = totalLoadTime;
+        return this;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public JapCacheStats setEvictionCount(long evictionCount) {
+        this.evictionCount = evictionCount;
+        return this;
+    }
+
+    public long getExpirationCount() {
+        return expirationCount;
+    }
+
+    public JapCacheStats setExpirationCount(long expirationCount) {
+        this.expirationCount = expirationCount;
+        return this;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public JapCacheStats setSize(long size) {
+        this.size = size;
+        return this;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public JapCacheStats setEstimatedBytes(long estimatedBytes) {
+        this.estimatedBytes = estimatedBytes;
+        return this;
+    }
+
+    public Map<String, JapCacheStats> getNamespaces() {
+        return namespaces;
+    }
+
+    public JapCacheStats setNamespaces(Map<String, JapCacheStats> namespaces) {
+        this.namespaces = namespaces;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "JapCacheStats{" +
+            "hitCount=" + hitCount +
+            ", missCount=" + missCount +
+            ", loadCount=" + loadCount +
+            ", totalLoadTime=" + totalLoadTime +
+            ", evictionCount=" + evictionCount +
+            ", expirationCount=" + expirationCount +
+            ", size=" + size +
+            ", estimatedBytes=" + estimatedBytes +
+            ", namespaces=" + namespaces +
+            '}';
+    }
+}
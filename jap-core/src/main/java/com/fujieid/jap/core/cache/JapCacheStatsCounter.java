@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters behind {@link JapLocalCache#stats()}, one set of striped {@link LongAdder} per key namespace
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+final class JapCacheStatsCounter {
+
+    /**
+     * The number of entries per namespace whose retained bytes are estimated, the rest is extrapolated
+     */
+    private static final int SAMPLE_SIZE = 256;
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    void recordHit(String key) {
+        counters(key).hits.increment();
+    }
+
+    void recordMiss(String key) {
+        counters(key).misses.increment();
+    }
+
+    void recordLoad(String key, long loadTime) {
+        Counters counters = counters(key);
+        counters.loads.increment();
+        counters.loadTime.add(loadTime);
+    }
+
+    void recordEviction(String key) {
+        counters(key).evictions.increment();
+    }
+
+    void recordExpiration(String key) {
+        counters(key).expirations.increment();
+    }
+
+    /**
+     * Take the statistics
+     *
+     * @param counters The counters, {@code null} when the statistics are not recorded
+     * @param entries  All the cache objects
+     * @param weighed  Whether the weight of the entries is available
+     * @return JapCacheStats
+     */
+    static JapCacheStats snapshot(JapCacheStatsCounter counters, Collection<JapLocalCache.CacheObj> entries, boolean weighed) {
+        Map<String, Footprint> footprints = new HashMap<>();
+        for (JapLocalCache.CacheObj cacheObj : entries) {
+            if (cacheObj.isExpired()) {
+                continue;
+            }
+            Footprint footprint = footprints.computeIfAbsent(JapCacheNamespaces.of(cacheObj.key), k -> new Footprint());
+            footprint.size++;
+            if (weighed) {
+                footprint.sampledBytes += cacheObj.weight;
+                footprint.sampled++;
+            } else if (footprint.sampled < SAMPLE_SIZE) {
+                footprint.sampledBytes += JapCacheWeigher.estimate(cacheObj.key, cacheObj.getData());
+                footprint.sampled++;
+            }
+        }
+
+        Map<String, JapCacheStats> namespaces = new HashMap<>();
+        if (null != counters) {
+            counters.counters.forEach((namespace, value) -> namespaces.put(namespace, value.snapshot()));
+        }
+        footprints.forEach((namespace, footprint) -> namespaces.computeIfAbsent(namespace, k -> new JapCacheStats())
+            .setSize(footprint.size)
+            .setEstimatedBytes(footprint.estimatedBytes()));
+
+        JapCacheStats total = new JapCacheStats();
+        for (JapCacheStats stats : namespaces.values()) {
+            total.setHitCount(total.getHitCount() + stats.getHitCount())
+                .setMissCount(total.getMissCount() + stats.getMissCount())
+                .setLoadCount(total.getLoadCount() + stats.getLoadCount())
+                .setTotalLoadTime(total.getTotalLoadTime() + stats.getTotalLoadTime())
+                .setEvictionCount(total.getEvictionCount() + stats.getEvictionCount())
+                .setExpirationCount(total.getExpirationCount() + stats.getExpirationCount())
+                .setSize(total.getSize() + stats.getSize())
+                .setEstimatedBytes(total.getEstimatedBytes() + stats.getEstimatedBytes());
+        }
+        return total.setNamespaces(namespaces);
+    }
+
+    private Counters counters(String key) {
+        String namespace = JapCacheNamespaces.of(key);
+        Counters value = counters.get(namespace);
+        return null == value ? counters.computeIfAbsent(namespace, k -> new Counters()) : value;
+    }
+
+    private static final class Counters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder loads = new LongAdder();
+        final LongAdder loadTime = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+        final LongAdder expirations = new LongAdder();
+
+        JapCacheStats snapshot() {
+            return new JapCacheStats()
+                .setHitCount(hits.sum())
+                .setMissCount(misses.sum())
+                .setLoadCount(loads.sum())
+                .setTotalLoadTime(loadTime.sum())
+                .setEvictionCount(evictions.sum())
+                .setExpirationCount(expirations.sum());
+        }
+    }
+
+    private static final class Footprint {
+        long size;
+        long sampled;
+        long sampledBytes;
+
+        long estimatedBytes() {
+            return sampled == 0 ? 0 : sampledBytes * size / sampled;
+        }
+    }
+}
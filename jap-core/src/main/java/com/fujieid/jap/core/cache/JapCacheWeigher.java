@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.io.Serializable;
+
+/**
+ * Estimate the retained bytes of a cache entry, used by {@link JapLocalCache} to limit the cache by heap budget.
+ * <p>
+ * The estimation does not need to be exact, it only needs to be proportional to the real footprint.
+ * Developers who cache large custom objects can provide a more accurate implementation.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+@FunctionalInterface
+public interface JapCacheWeigher {
+
+    /**
+     * The default weigher, see {@link #estimate(String, Serializable)}
+     */
+    JapCacheWeigher DEFAULT = JapCacheWeigher::estimate;
+
+    /**
+     * Estimate the retained bytes of the cache entry
+     *
+     * @param key   Cache key
+     * @param value Cache value
+     * @return The estimated number of bytes, must not be negative
+     */
+    long weigh(String key, Serializable value);
+
+    /**
+     * A rough estimate based on the common jdk types: the key, the value and about 64 bytes for the map node and
+     * the cache object. The types with a {@link JapCacheSerializer}, such as the {@code AccessToken} of jap-ids, are
+     * weighed from the size of their serialized fields. Other unknown objects are counted as 256 bytes.
+     *
+     * @param key   Cache key
+     * @param value Cache value
+     * @return The estimated number of bytes
+     */
+    static long estimate(String key, Serializable value) {
+        return 64 + SizeEstimator.estimate(key) + SizeEstimator.estimate(value);
+    }
+}
@@ -16,20 +16,45 @@
 package com.fujieid.jap.core.cache;
 
 import cn.hutool.core.util.StrUtil;
+import com.fujieid.jap.core.exception.JapException;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.Iterator;
+import java.util.Collection;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 /**
- * Default cache implementation
+ * Default cache implementation.
+ * <p>
+ * Each instance owns its storage. Reads rely on the concurrency of {@link ConcurrentHashMap} only, the expiration
+ * time is kept in the immutable {@link CacheObj}, so no additional lock is needed. Writes also link the entry into the
+ * {@link TimerWheel} under its short lock.
+ * <p>
+ * When {@link JapCacheConfig#maximumSize} or {@link JapCacheConfig#maximumWeight} is set, or the cache is created
+ * with {@link #JapLocalCache(long, long, JapCacheWeigher)}, the cache is bounded and evicts entries with a W-TinyLFU
+ * policy, see {@link TinyLfuPolicy}. Reads stay lock-free, writes in the bounded mode go through the eviction lock.
+ * <p>
+ * Expired entries are ordered by a {@link TimerWheel} and reclaimed incrementally by the single shared
+ * cache cleaner thread, the expiration check uses the coarse {@link JapCacheClock}.
+ * <p>
+ * The entries can optionally be persisted to a snapshot file and reloaded lazily after a restart,
+ * see {@link #enableSnapshot(File)}.
+ * <p>
+ * Each region returned by {@link #region(String)} is a separate instance with its own timeout, bounds and eviction
+ * policy, see {@link JapCacheRegions}.
+ * <p>
+ * The removed, replaced, expired and evicted entries are reported to the listeners added by
+ * {@link #addRemovalListener(JapCacheRemovalListener)}.
+ * <p>
+ * A deserialized cache is a new cache created with the current {@link JapCacheConfig}, holding the unexpired entries
+ * of the serialized one. The regions, the bounds given to the constructor, the listeners and the snapshot are not
+ * serialized.
  *
  * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
  * @version 1.0.0
@@ -37,14 +62,71 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  */
 public class JapLocalCache implements JapCache, Serializable {
 
-    private static final Map<String, CacheObj> LOCAL_CACHE = new ConcurrentHashMap<>();
-    private final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock(true);
-    private final Lock writeLock = cacheLock.writeLock();
-    private final Lock readLock = cacheLock.readLock();
+    private final Map<String, CacheObj> localCache = new ConcurrentHashMap<>();
+    /**
+     * The eviction policy, {@code null} when the cache is unbounded
+     */
+    private final transient TinyLfuPolicy policy;
+    private final transient JapCacheWeigher weigher;
+    /**
+     * The statistics counters, {@code null} unless {@link JapCacheConfig#recordStats} is enabled
+     */
+    private final transient JapCacheStatsCounter statsCounter;
+    private final transient TimerWheel timerWheel = new TimerWheel(this::expire, JapCacheClock.currentTimeMillis());
+    /**
+     * The snapshot file, {@code null} unless {@link #enableSnapshot(File)} is called
+     */
+    private transient volatile JapCacheSnapshot snapshot;
+    /**
+     * The default expiration time, {@code 0} means {@link JapCacheConfig#timeout}
+     */
+    private final transient long timeout;
+    /**
+     * The regions of the cache, each has its own storage, see {@link #region(String)}
+     */
+    private final transient Map<String, JapLocalCache> regions = new ConcurrentHashMap<>();
+    /**
+     * The loads and refreshes in progress, see {@link #get(String, Function, long, long)}
+     */
+    private final transient Map<String, CompletableFuture<Serializable>> loadings = new ConcurrentHashMap<>();
+    private final transient JapCacheRemovalListeners listeners = new JapCacheRemovalListeners();
 
     public JapLocalCache() {
+        this(JapCacheConfig.maximumSize, JapCacheConfig.maximumWeight, JapCacheWeigher.DEFAULT);
+    }
+
+    /**
+     * Create a cache with its own default expiration time
+     *
+     * @param timeout The expiration time of the writes without a timeout, in milliseconds, {@code <= 0} means
+     *                {@link JapCacheConfig#timeout}
+     * @since 1.0.5
+     */
+    public JapLocalCache(long timeout) {
+        this(JapCacheConfig.maximumSize, JapCacheConfig.maximumWeight, JapCacheWeigher.DEFAULT,
+            JapCacheEvictionPolicy.TINY_LFU, timeout);
+    }
+
+    /**
+     * Create a size-bounded cache
+     *
+     * @param maximumSize   The maximum number of entries, {@code <= 0} means no limit
+     * @param maximumWeight The maximum estimated retained bytes of all entries, {@code <= 0} means no limit
+     * @param weigher       Estimate the retained bytes of an entry, only used when {@code maximumWeight} is limited
+     */
+    public JapLocalCache(long maximumSize, long maximumWeight, JapCacheWeigher weigher) {
+        this(maximumSize, maximumWeight, weigher, JapCacheEvictionPolicy.TINY_LFU, 0);
+    }
+
+    private JapLocalCache(long maximumSize, long maximumWeight, JapCacheWeigher weigher,
+                          JapCacheEvictionPolicy evictionPolicy, long timeout) {
+        this.statsCounter = JapCacheConfig.recordStats ? new JapCacheStatsCounter() : null;
+        boolean bounded = maximumSize > 0 || maximumWeight > 0;
+        this.policy = bounded ? new TinyLfuPolicy(localCache, maximumSize, maximumWeight, evictionPolicy, this::onEviction, timerWheel) : null;
+        this.weigher = maximumWeight > 0 ? (null == weigher ? JapCacheWeigher.DEFAULT : weigher) : null;
+        this.timeout = timeout;
         if (JapCacheConfig.schedulePrune) {
-            this.schedulePrune(JapCacheConfig.timeout);
+            JapCacheCleaner.INSTANCE.register(this);
         }
     }
 
@@ -56,7 +138,7 @@ public class JapLocalCache implements JapCache, Serializable {
      */
     @Override
     public void set(String key, Serializable value) {
-        set(key, value, JapCacheConfig.timeout);
+        set(key, value, defaultTimeout(0));
     }
 
     /**
@@ -68,11 +150,94 @@ public class JapLocalCache implements JapCache, Serializable {
      */
     @Override
     public void set(String key, Serializable value, long timeout) {
-        writeLock.lock();
-        try {
-            LOCAL_CACHE.put(key, new CacheObj(value, timeout));
-        } finally {
-            writeLock.unlock();
+        JapCacheSnapshot snapshot = this.snapshot;
+        if (null != snapshot) {
+            snapshot.onWrite(key);
+        }
+        CacheObj cacheObj = newCacheObj(key, value, timeout);
+        CacheObj old = putEntry(key, cacheObj);
+        if (null != old) {
+            listeners.notify(old, old.isExpired() ? JapCacheRemovalCause.EXPIRED : JapCacheRemovalCause.REPLACED);
+        }
+    }
+
+    /**
+     * Set the cache only if the key does not exist or has expired, atomically
+     *
+     * @param key     Cache key
+     * @param value   Cache value after serialization
+     * @param timeout The expiration time of the cache, in milliseconds
+     * @return {@code true} if the value was set
+     */
+    @Override
+    public boolean putIfAbsent(String key, Serializable value, long timeout) {
+        CacheObj cacheObj = newCacheObj(key, value, timeout);
+        while (true) {
+            CacheObj current = getCacheObj(key);
+            if (null != current) {
+                return false;
+            }
+            // An expired entry that has not been reclaimed yet is replaced
+            CacheObj stale = localCache.get(key);
+            boolean added;
+            if (null == stale) {
+                added = putEntryIfAbsent(key, cacheObj);
+            } else {
+                added = stale.isExpired() && replace(key, stale, cacheObj);
+                if (added) {
+                    listeners.notify(stale, JapCacheRemovalCause.EXPIRED);
+                }
+            }
+            if (added) {
+                afterWrite(cacheObj);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Get the value and delete the key atomically, only one of the concurrent callers gets the value
+     *
+     * @param key Cache key
+     * @return The cache value, or {@code null} if the key does not exist or has expired
+     */
+    @Override
+    public Serializable getAndRemove(String key) {
+        while (true) {
+            CacheObj current = getCacheObj(key);
+            if (null == current) {
+                return null;
+            }
+            if (remove(key, current)) {
+                afterWrite(current);
+                listeners.notify(current, JapCacheRemovalCause.EXPLICIT);
+                return current.getData();
+            }
+        }
+    }
+
+    /**
+     * Replace the value only if the current value equals the expected value, atomically
+     *
+     * @param key     Cache key
+     * @param expect  The expected current value, compared with {@link Object#equals(Object)}
+     * @param update  The new value, {@code null} to delete the key
+     * @param timeout The expiration time of the new value, in milliseconds
+     * @return {@code true} if the current value was the expected value and has been replaced
+     */
+    @Override
+    public boolean compareAndSet(String key, Serializable expect, Serializable update, long timeout) {
+        CacheObj cacheObj = null == update ? null : newCacheObj(key, update, timeout);
+        while (true) {
+            CacheObj current = getCacheObj(key);
+            if (null == current || null == current.getData() || !current.getData().equals(expect)) {
+                return false;
+            }
+            if (null == cacheObj ? remove(key, current) : replace(key, current, cacheObj)) {
+                afterWrite(null == cacheObj ? current : cacheObj);
+                listeners.notify(current, null == cacheObj ? JapCacheRemovalCause.EXPLICIT : JapCacheRemovalCause.REPLACED);
+                return true;
+            }
         }
     }
 
@@ -84,19 +249,47 @@ public class JapLocalCache implements JapCache, Serializable {
      */
     @Override
     public Serializable get(String key) {
-        if (StrUtil.isEmpty(key)) {
-            return null;
-        }
-        readLock.lock();
-        try {
-            CacheObj cacheObj = LOCAL_CACHE.get(key);
-            if (null == cacheObj || cacheObj.isExpired()) {
-                return null;
+        CacheObj cacheObj = getCacheObj(key);
+        return null == cacheObj ? null : cacheObj.getData();
+    }
+
+    /**
+     * Get the value, or load and cache it if the key does not exist. Concurrent misses of the same key call the
+     * loader once.
+     * <p>
+     * A value that expires within {@code refreshAhead} is returned at once and reloaded on the shared
+     * {@code jap-cache-refresh} threads. The reloaded value only replaces the value it was loaded for, so a concurrent
+     * write or removal wins. When the reload fails, the current value is served until it expires.
+     *
+     * @param key          Cache key
+     * @param loader       Load the value of a missing key
+     * @param timeout      The expiration time of the loaded value, in milliseconds, {@code <= 0} means the default
+     *                     timeout
+     * @param refreshAhead Reload the value in the background when it expires within this time, in milliseconds,
+     *                     {@code <= 0} means never
+     * @return The cached or loaded value
+     */
+    @Override
+    public Serializable get(String key, Function<String, ? extends Serializable> loader, long timeout, long refreshAhead) {
+        CacheObj cacheObj = getCacheObj(key);
+        if (null != cacheObj) {
+            if (refreshAhead > 0 && cacheObj.getExpire() - JapCacheClock.currentTimeMillis() <= refreshAhead) {
+                refresh(key, cacheObj, loader, timeout);
             }
             return cacheObj.getData();
-        } finally {
-            readLock.unlock();
         }
+        return JapCacheLoading.singleFlight(loadings, key, () -> {
+            // The value may have been loaded by the previous flight
+            CacheObj current = localCache.get(key);
+            if (null != current && !current.isExpired()) {
+                return current.getData();
+            }
+            Serializable value = load(key, loader);
+            if (null != value) {
+                set(key, value, defaultTimeout(timeout));
+            }
+            return value;
+        });
     }
 
     /**
@@ -107,16 +300,7 @@ public class JapLocalCache implements JapCache, Serializable {
      */
     @Override
     public boolean containsKey(String key) {
-        if (StrUtil.isEmpty(key)) {
-            return false;
-        }
-        readLock.lock();
-        try {
-            CacheObj cacheObj = LOCAL_CACHE.get(key);
-            return null != cacheObj && !cacheObj.isExpired();
-        } finally {
-            readLock.unlock();
-        }
+        return null != getCacheObj(key);
     }
 
     /**
@@ -126,90 +310,532 @@ public class JapLocalCache implements JapCache, Serializable {
      */
     @Override
     public void removeKey(String key) {
-        writeLock.lock();
+        if (null == key) {
+            return;
+        }
+        JapCacheSnapshot snapshot = this.snapshot;
+        if (null != snapshot) {
+            snapshot.onWrite(key);
+        }
+        CacheObj old = removeEntry(key);
+        if (null != old) {
+            listeners.notify(old, old.isExpired() ? JapCacheRemovalCause.EXPIRED : JapCacheRemovalCause.EXPLICIT);
+        }
+    }
+
+    /**
+     * Listen to the removal of the entries. The notifications are delivered asynchronously on a single shared thread,
+     * in the order of the removals. The expired entries are reported when they are reclaimed, by a read or by the
+     * cache cleaner thread, see {@link JapCacheConfig#schedulePrune}.
+     * <p>
+     * The listener only receives the entries of this instance, add it to each {@link #region(String)} of interest.
+     *
+     * @param listener JapCacheRemovalListener
+     */
+    @Override
+    public void addRemovalListener(JapCacheRemovalListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public boolean supportsRemovalListeners() {
+        return true;
+    }
+
+    @Override
+    public void removeRemovalListener(JapCacheRemovalListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Get the number of entries evicted because the cache exceeded its bounds
+     *
+     * @return long, always 0 for an unbounded cache
+     */
+    public long getEvictionCount() {
+        return null == policy ? 0 : policy.evictionCount();
+    }
+
+    /**
+     * Get the sum of the estimated retained bytes of all entries
+     *
+     * @return long, always 0 unless the cache is limited by {@code maximumWeight}
+     */
+    public long getWeightedSize() {
+        return null == policy ? 0 : policy.weightedSize();
+    }
+
+    /**
+     * Get the statistics of the cache. The counters are only recorded when {@link JapCacheConfig#recordStats} was
+     * enabled before the cache was created. The retained bytes are the weights of the entries when the cache is
+     * limited by weight, otherwise they are estimated from a sample of each namespace.
+     *
+     * @return JapCacheStats
+     */
+    @Override
+    public JapCacheStats stats() {
+        JapCacheStats stats = JapCacheStatsCounter.snapshot(statsCounter, localCache.values(), null != weigher);
+        if (regions.isEmpty()) {
+            return stats;
+        }
+        // The regions are reported as namespaces named after the regions, and added to the totals
+        Map<String, JapCacheStats> namespaces = new TreeMap<>(stats.getNamespaces());
+        regions.forEach((name, region) -> {
+            JapCacheStats regionStats = region.stats();
+            namespaces.put(name, regionStats);
+            stats.setHitCount(stats.getHitCount() + regionStats.getHitCount())
+                .setMissCount(stats.getMissCount() + regionStats.getMissCount())
+                .setLoadCount(stats.getLoadCount() + regionStats.getLoadCount())
+                .setTotalLoadTime(stats.getTotalLoadTime() + regionStats.getTotalLoadTime())
+                .setEvictionCount(stats.getEvictionCount() + regionStats.getEvictionCount())
+                .setExpirationCount(stats.getExpirationCount() + regionStats.getExpirationCount())
+                .setSize(stats.getSize() + regionStats.getSize())
+                .setEstimatedBytes(stats.getEstimatedBytes() + regionStats.getEstimatedBytes());
+        });
+        return stats.setNamespaces(namespaces);
+    }
+
+    /**
+     * Get a region of the cache. Each region is a separate {@link JapLocalCache} with the timeout, the maximum size,
+     * the maximum weight and the eviction policy registered in {@link JapCacheRegions}, so the keys are stored without
+     * a prefix and the short-lived entries of one region cannot evict the entries of another region.
+     * <p>
+     * The regions are reported in {@link #stats()}, pruned by {@link #pruneCache()} and persisted with the snapshot
+     * of this cache, each to its own file next to the snapshot file of this cache.
+     *
+     * @param name The name of the region
+     * @return JapCache
+     */
+    @Override
+    public JapCache region(String name) {
+        JapLocalCache region = regions.get(name);
+        if (null != region) {
+            return region;
+        }
+        synchronized (this) {
+            region = regions.get(name);
+            if (null == region) {
+                JapCacheRegion config = JapCacheRegions.get(name);
+                region = new JapLocalCache(config.getMaximumSize(), config.getMaximumWeight(), JapCacheWeigher.DEFAULT,
+                    config.getEvictionPolicy(), config.getTimeout() > 0 ? config.getTimeout() : timeout);
+                if (null != snapshot) {
+                    region.enableSnapshot(snapshot.regionFile(name));
+                }
+                regions.put(name, region);
+            }
+            return region;
+        }
+    }
+
+    /**
+     * Persist the entries to the snapshot file, and reload the entries saved by the previous process.
+     * <p>
+     * The changed entries are appended to the file every {@link JapCacheConfig#snapshotInterval} milliseconds and
+     * when the JVM shuts down, the file is compacted when it holds too many stale records. The saved entries are not
+     * loaded up front, an entry is put back to the cache when its key is first read, so that a restarted node keeps
+     * the tokens and the login states without a burst of work at startup.
+     * <p>
+     * The values are serialized with {@link JapCacheConfig#codec}. Use one file per cache instance.
+     *
+     * @param file The snapshot file, created if it does not exist
+     */
+    public synchronized void enableSnapshot(File file) {
+        if (null != snapshot) {
+            throw new JapException("The snapshot of the cache has already been enabled.");
+        }
         try {
-            LOCAL_CACHE.remove(key);
+            JapCacheSnapshot snapshot = new JapCacheSnapshot(this, file);
+            snapshot.schedule(JapCacheConfig.snapshotInterval);
+            this.snapshot = snapshot;
+        } catch (IOException e) {
+            throw new JapException("Failed to open the snapshot file " + file, e);
+        }
+        regions.forEach((name, region) -> region.enableSnapshot(snapshot.regionFile(name)));
+    }
+
+    /**
+     * Stop persisting the entries, does nothing if the snapshot is not enabled. The changed entries are saved a last
+     * time, the entries of the file that have not been read yet are loaded into the cache, and the file is closed but
+     * kept, so that the snapshot can be enabled again. The snapshots of the regions are disabled as well.
+     */
+    public synchronized void disableSnapshot() {
+        JapCacheSnapshot snapshot = this.snapshot;
+        if (null == snapshot) {
+            return;
+        }
+        regions.values().forEach(JapLocalCache::disableSnapshot);
+        try {
+            snapshot.close();
+        } catch (IOException e) {
+            throw new JapException("Failed to save the snapshot of the cache", e);
         } finally {
-            writeLock.unlock();
+            this.snapshot = null;
+        }
+    }
+
+    /**
+     * Save the changed entries to the snapshot file now, does nothing if the snapshot is not enabled
+     */
+    public void saveSnapshot() {
+        JapCacheSnapshot snapshot = this.snapshot;
+        if (null == snapshot) {
+            return;
+        }
+        try {
+            snapshot.save();
+        } catch (IOException e) {
+            throw new JapException("Failed to save the snapshot of the cache", e);
         }
+        regions.values().forEach(JapLocalCache::saveSnapshot);
     }
 
     /**
-     * Start a scheduled task to clean up expired cache
+     * Get the unexpired cache object without recording the access
      *
-     * @param delay Interval duration, in milliseconds
+     * @param key Cache key
+     * @return CacheObj, or {@code null} if the key does not exist or has expired
      */
-    public void schedulePrune(long delay) {
-        AuthCacheScheduler.INSTANCE.schedule(this::pruneCache, delay);
+    CacheObj peek(String key) {
+        CacheObj cacheObj = localCache.get(key);
+        return null == cacheObj || cacheObj.isExpired() ? null : cacheObj;
     }
 
     /**
-     * Clean up expired cache
+     * Get all the cache objects, including the expired ones that have not been reclaimed
+     *
+     * @return Collection, backed by the cache
      */
-    public void pruneCache() {
-        Iterator<CacheObj> values = LOCAL_CACHE.values().iterator();
-        CacheObj cacheObj;
-        while (values.hasNext()) {
-            cacheObj = values.next();
-            if (cacheObj.isExpired()) {
-                values.remove();
+    Collection<CacheObj> entries() {
+        return localCache.values();
+    }
+
+    /**
+     * Put back an entry loaded from the snapshot, unless the key has been written in the meantime
+     *
+     * @param key    Cache key
+     * @param value  Cache value
+     * @param expire The absolute expiration time
+     * @return The current cache object of the key, or {@code null} if the entry has expired
+     */
+    CacheObj restore(String key, Serializable value, long expire) {
+        long now = JapCacheClock.currentTimeMillis();
+        if (now > expire) {
+            return null;
+        }
+        long weight = null == weigher ? 0 : weigher.weigh(key, value);
+        CacheObj cacheObj = new CacheObj(key, value, expire - now, weight);
+        putEntryIfAbsent(key, cacheObj);
+        return peek(key);
+    }
+
+    /**
+     * Get the unexpired cache object. Expired objects are removed on the way,
+     * {@code remove(key, value)} makes sure that a value written concurrently is not deleted by mistake.
+     *
+     * @param key Cache key
+     * @return CacheObj, or {@code null} if the key does not exist or has expired
+     */
+    private CacheObj getCacheObj(String key) {
+        if (StrUtil.isEmpty(key)) {
+            return null;
+        }
+        CacheObj cacheObj = localCache.get(key);
+        if (null != cacheObj && cacheObj.isExpired()) {
+            removeExpired(key, cacheObj);
+            cacheObj = null;
+        }
+        if (null != statsCounter) {
+            if (null == cacheObj) {
+                statsCounter.recordMiss(key);
+            } else {
+                statsCounter.recordHit(key);
             }
         }
+        if (null == cacheObj && null != snapshot) {
+            cacheObj = restore(key);
+        }
+        if (null != policy) {
+            policy.recordRead(key, cacheObj);
+        }
+        return cacheObj;
+    }
+
+    private long defaultTimeout(long timeout) {
+        if (timeout > 0) {
+            return timeout;
+        }
+        return this.timeout > 0 ? this.timeout : JapCacheConfig.timeout;
+    }
+
+    private Serializable load(String key, Function<String, ? extends Serializable> loader) {
+        if (null == statsCounter) {
+            return loader.apply(key);
+        }
+        long start = System.nanoTime();
+        Serializable value = loader.apply(key);
+        statsCounter.recordLoad(key, System.nanoTime() - start);
+        return value;
     }
 
     /**
-     * Cache scheduler
+     * Reload the value in the background, unless a load of the key is already in progress
+     *
+     * @param key      Cache key
+     * @param cacheObj The cache object to be replaced
+     * @param loader   Load the value
+     * @param timeout  The expiration time of the reloaded value
      */
-    private enum AuthCacheScheduler {
-        /**
-         * AuthCacheScheduler
-         */
-        INSTANCE;
+    private void refresh(String key, CacheObj cacheObj, Function<String, ? extends Serializable> loader, long timeout) {
+        CompletableFuture<Serializable> future = new CompletableFuture<>();
+        if (null != loadings.putIfAbsent(key, future)) {
+            return;
+        }
+        try {
+            JapCacheLoading.refresh(() -> {
+                try {
+                    Serializable value = load(key, loader);
+                    if (null != value) {
+                        CacheObj refreshed = newCacheObj(key, value, defaultTimeout(timeout));
+                        // A value written or removed during the reload wins
+                        if (replace(key, cacheObj, refreshed)) {
+                            afterWrite(refreshed);
+                            listeners.notify(cacheObj, JapCacheRemovalCause.REPLACED);
+                        }
+                    }
+                    future.complete(value);
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    loadings.remove(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Too many refreshes are waiting, the key is loaded again when it expires
+            loadings.remove(key, future);
+            future.complete(cacheObj.getData());
+        }
+    }
 
-        private final AtomicInteger cacheTaskNumber = new AtomicInteger(1);
-        private ScheduledExecutorService scheduler;
+    private CacheObj newCacheObj(String key, Serializable value, long timeout) {
+        long weight = null == weigher ? 0 : weigher.weigh(key, value);
+        return new CacheObj(key, value, timeout, weight);
+    }
+
+    // The methods below modify the storage. A bounded cache delegates to the policy, which links and unlinks the
+    // entries of the timer wheel under the eviction lock, an unbounded cache does it after the map operation.
+
+    private CacheObj putEntry(String key, CacheObj cacheObj) {
+        if (null != policy) {
+            return policy.put(key, cacheObj);
+        }
+        CacheObj old = localCache.put(key, cacheObj);
+        if (null != old) {
+            timerWheel.deschedule(old);
+        }
+        schedule(cacheObj);
+        return old;
+    }
 
-        AuthCacheScheduler() {
-            create();
+    private boolean putEntryIfAbsent(String key, CacheObj cacheObj) {
+        if (null != policy) {
+            return policy.putIfAbsent(key, cacheObj);
+        }
+        if (null != localCache.putIfAbsent(key, cacheObj)) {
+            return false;
         }
+        schedule(cacheObj);
+        return true;
+    }
 
-        private void create() {
-            this.shutdown();
-            this.scheduler = new ScheduledThreadPoolExecutor(10, r -> new Thread(r, String.format("JustAuth-Task-%s", cacheTaskNumber.getAndIncrement())));
+    private boolean replace(String key, CacheObj expected, CacheObj cacheObj) {
+        if (null != policy) {
+            return policy.replace(key, expected, cacheObj);
+        }
+        if (!localCache.replace(key, expected, cacheObj)) {
+            return false;
         }
+        timerWheel.deschedule(expected);
+        schedule(cacheObj);
+        return true;
+    }
 
-        public void shutdown() {
-            if (null != scheduler) {
-                this.scheduler.shutdown();
+    private CacheObj removeEntry(String key) {
+        if (null != policy) {
+            return policy.remove(key);
+        }
+        CacheObj old = localCache.remove(key);
+        if (null != old) {
+            timerWheel.deschedule(old);
+        }
+        return old;
+    }
+
+    private boolean remove(String key, CacheObj expected) {
+        if (null != policy) {
+            return policy.remove(key, expected);
+        }
+        if (!localCache.remove(key, expected)) {
+            return false;
+        }
+        timerWheel.deschedule(expected);
+        return true;
+    }
+
+    /**
+     * Schedule the expiration of an entry of an unbounded cache. An entry removed or replaced by another thread
+     * before it was scheduled is descheduled again, so the wheel never keeps an entry that has left the cache.
+     *
+     * @param cacheObj The cache object that has been put into the storage
+     */
+    private void schedule(CacheObj cacheObj) {
+        timerWheel.schedule(cacheObj);
+        if (localCache.get(cacheObj.key) != cacheObj) {
+            timerWheel.deschedule(cacheObj);
+        }
+    }
+
+    /**
+     * Mark the written or removed entry dirty for the snapshot
+     *
+     * @param cacheObj The written or removed cache object
+     */
+    private void afterWrite(CacheObj cacheObj) {
+        JapCacheSnapshot snapshot = this.snapshot;
+        if (null != snapshot) {
+            snapshot.onWrite(cacheObj.key);
+        }
+    }
+
+    private CacheObj restore(String key) {
+        if (null == statsCounter) {
+            return snapshot.restore(key);
+        }
+        long start = System.nanoTime();
+        CacheObj cacheObj = snapshot.restore(key);
+        if (null != cacheObj) {
+            statsCounter.recordLoad(key, System.nanoTime() - start);
+        }
+        return cacheObj;
+    }
+
+    private void removeExpired(String key, CacheObj cacheObj) {
+        if (remove(key, cacheObj)) {
+            if (null != statsCounter) {
+                statsCounter.recordExpiration(key);
             }
+            listeners.notify(cacheObj, JapCacheRemovalCause.EXPIRED);
         }
+    }
 
-        public void schedule(Runnable task, long delay) {
-            this.scheduler.scheduleAtFixedRate(task, delay, delay, TimeUnit.MILLISECONDS);
+    private void onEviction(CacheObj cacheObj) {
+        if (null != statsCounter) {
+            statsCounter.recordEviction(cacheObj.key);
         }
+        listeners.notify(cacheObj, JapCacheRemovalCause.EVICTED);
+    }
+
+    /**
+     * Register the cache with the shared cache cleaner thread, which reclaims the expired entries in the background
+     *
+     * @param delay Ignored, the cleaner runs about once per second with a time budget
+     * @deprecated The cache is registered automatically when {@link JapCacheConfig#schedulePrune} is enabled
+     */
+    @Deprecated
+    public void schedulePrune(long delay) {
+        JapCacheCleaner.INSTANCE.register(this);
     }
 
     /**
-     * Cache Object
+     * Clean up expired cache
      */
-    private static class CacheObj implements Serializable {
+    public void pruneCache() {
+        pruneCache(Long.MAX_VALUE);
+        regions.values().forEach(JapLocalCache::pruneCache);
+    }
+
+    /**
+     * Clean up expired cache until the deadline
+     *
+     * @param deadline The deadline of {@link System#nanoTime()}
+     * @return {@code true} if all the expired entries have been reclaimed
+     */
+    boolean pruneCache(long deadline) {
+        return timerWheel.advance(JapCacheClock.currentTimeMillis(), deadline);
+    }
+
+    /**
+     * The eviction policy, the timer wheel and the other runtime state are transient, rebuild them by creating a new
+     * cache and put back the unexpired entries
+     *
+     * @return JapLocalCache
+     */
+    private Object readResolve() {
+        JapLocalCache japCache = new JapLocalCache();
+        for (CacheObj cacheObj : localCache.values()) {
+            japCache.restore(cacheObj.key, cacheObj.getData(), cacheObj.getExpire());
+        }
+        return japCache;
+    }
+
+    /**
+     * Get the number of entries scheduled in the timer wheel
+     *
+     * @return int
+     */
+    int scheduledCount() {
+        return timerWheel.size();
+    }
+
+    /**
+     * Callback of the {@link TimerWheel}
+     *
+     * @param node The expired cache object
+     */
+    private void expire(TimerWheel.Node node) {
+        CacheObj cacheObj = (CacheObj) node;
+        if (localCache.get(cacheObj.key) == cacheObj && cacheObj.isExpired()) {
+            removeExpired(cacheObj.key, cacheObj);
+        }
+    }
+
+    /**
+     * Cache Object, also the node of the {@link TimerWheel} while it is in the cache
+     */
+    static class CacheObj extends TimerWheel.Node implements Serializable {
+        final String key;
         private final Serializable data;
         private final long expire;
+        /**
+         * The estimated retained bytes, see {@link JapCacheWeigher}
+         */
+        final long weight;
+
+        /**
+         * The fields below are only used by the {@link TinyLfuPolicy} of a bounded cache
+         */
+        transient volatile boolean accessed;
+        transient TinyLfuPolicy.ClockQueue queue;
+        transient CacheObj prev;
+        transient CacheObj next;
 
-        CacheObj(Serializable data, long expire) {
+        CacheObj(String key, Serializable data, long expire, long weight) {
+            this.key = key;
             this.data = data;
+            this.weight = weight;
             // The actual expiration time is equal to the current time plus the validity period
-            this.expire = System.currentTimeMillis() + expire;
+            long now = JapCacheClock.currentTimeMillis();
+            this.expire = expire > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + expire;
         }
 
         boolean isExpired() {
-            return System.currentTimeMillis() > this.expire;
+            return JapCacheClock.currentTimeMillis() > this.expire;
         }
 
         public Serializable getData() {
             return data;
         }
 
+        @Override
         public long getExpire() {
             return expire;
         }
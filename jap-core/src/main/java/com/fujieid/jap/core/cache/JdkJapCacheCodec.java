@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import com.fujieid.jap.core.exception.JapException;
+
+import java.io.*;
+
+/**
+ * The codec using the JDK serialization, which supports every {@link Serializable} value.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class JdkJapCacheCodec implements JapCacheCodec {
+
+    @Override
+    public byte[] encode(Serializable value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        write(value, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Serializable decode(byte[] bytes) {
+        return read(new ByteArrayInputStream(bytes));
+    }
+
+    void write(Serializable value, OutputStream out) {
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(value);
+        } catch (IOException e) {
+            throw new JapException("Failed to serialize the cache value: " + e.getMessage(), e);
+        }
+    }
+
+    Serializable read(InputStream in) {
+        try (ObjectInputStream ois = new ObjectInputStream(in)) {
+            return (Serializable) ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new JapException("Failed to deserialize the cache value: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The in-process {@link JapCacheInvalidationChannel}, delivers the messages synchronously to the listeners of the same
+ * channel instance. Suitable for a single node and for tests.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class LoopbackInvalidationChannel implements JapCacheInvalidationChannel {
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String sourceId, Collection<String> keys) {
+        for (Listener listener : listeners) {
+            listener.onInvalidate(sourceId, keys);
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        if (null != listener) {
+            listeners.add(listener);
+        }
+    }
+}
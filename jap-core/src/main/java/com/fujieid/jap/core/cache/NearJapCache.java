@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The two-tier cache, keeps a bounded short-lived local copy (L1) of the hot keys in front of a shared cache (L2).
+ * <p>
+ * Reads are served from the local copy when possible. Writes and deletions go to the shared cache first, then the
+ * changed keys are published to the {@link JapCacheInvalidationChannel}, and every other node drops its local copy,
+ * so a revoked token stops being accepted everywhere as soon as the message arrives. The local TTL bounds the
+ * staleness when a message is lost.
+ * <p>
+ * Usage: {@code JapIds.getContext().setCache(new NearJapCache(redisCache, redisChannel))}
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class NearJapCache implements JapCache {
+
+    /**
+     * The default maximum number of local entries
+     */
+    public static final long DEFAULT_LOCAL_MAXIMUM_SIZE = 10_000;
+    /**
+     * The default TTL of the local entries, in milliseconds
+     */
+    public static final long DEFAULT_LOCAL_TIMEOUT = 5_000;
+    /**
+     * The number of generation stripes, a power of two
+     */
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final JapCache sharedCache;
+    private final JapLocalCache localCache;
+    private final JapCacheInvalidationChannel channel;
+    private final long localTimeout;
+    private final String sourceId = UUID.randomUUID().toString();
+    /**
+     * The generations of the keys, striped by the hash of the key. Increased by each change of a key of the stripe,
+     * a value loaded from the shared cache is only kept locally when its stripe did not change during the load, so
+     * that the changes of the other keys do not discard the load
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public NearJapCache(JapCache sharedCache, JapCacheInvalidationChannel channel) {
+        this(sharedCache, channel, DEFAULT_LOCAL_MAXIMUM_SIZE, DEFAULT_LOCAL_TIMEOUT);
+    }
+
+    /**
+     * @param sharedCache      The shared cache
+     * @param channel          The invalidation channel shared by all the nodes
+     * @param localMaximumSize The maximum number of local entries
+     * @param localTimeout     The TTL of the local entries, in milliseconds
+     */
+    public NearJapCache(JapCache sharedCache, JapCacheInvalidationChannel channel, long localMaximumSize, long localTimeout) {
+        if (null == sharedCache || null == channel) {
+            throw new IllegalArgumentException("The shared cache and the invalidation channel cannot be null");
+        }
+        this.sharedCache = sharedCache;
+        this.channel = channel;
+        this.localTimeout = localTimeout;
+        this.localCache = new JapLocalCache(localMaximumSize, 0, null);
+        channel.subscribe(this::onInvalidate);
+    }
+
+    @Override
+    public void set(String key, Serializable value) {
+        sharedCache.set(key, value);
+        setLocal(key, value, localTimeout);
+        channel.publish(sourceId, Collections.singletonList(key));
+    }
+
+    @Override
+    public void set(String key, Serializable value, long timeout) {
+        sharedCache.set(key, value, timeout);
+        setLocal(key, value, Math.min(timeout, localTimeout));
+        channel.publish(sourceId, Collections.singletonList(key));
+    }
+
+    @Override
+    public Serializable get(String key) {
+        Serializable value = localCache.get(key);
+        if (null != value) {
+            return value;
+        }
+        long expected = generation(key);
+        value = sharedCache.get(key);
+        if (null != value) {
+            loadLocal(key, value, expected);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return localCache.containsKey(key) || sharedCache.containsKey(key);
+    }
+
+    @Override
+    public void removeKey(String key) {
+        sharedCache.removeKey(key);
+        nextGeneration(key);
+        localCache.removeKey(key);
+        channel.publish(sourceId, Collections.singletonList(key));
+    }
+
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        Map<String, Serializable> values = new HashMap<>();
+        if (null == keys) {
+            return values;
+        }
+        List<String> missingKeys = new ArrayList<>();
+        for (String key : keys) {
+            Serializable value = localCache.get(key);
+            if (null == value) {
+                missingKeys.add(key);
+            } else {
+                values.put(key, value);
+            }
+        }
+        if (!missingKeys.isEmpty()) {
+            long[] expected = new long[missingKeys.size()];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = generation(missingKeys.get(i));
+            }
+            Map<String, Serializable> loaded = sharedCache.getAll(missingKeys);
+            for (int i = 0; i < expected.length; i++) {
+                String key = missingKeys.get(i);
+                Serializable value = loaded.get(key);
+                if (null != value) {
+                    loadLocal(key, value, expected[i]);
+                }
+            }
+            values.putAll(loaded);
+        }
+        return values;
+    }
+
+    @Override
+    public void setAll(Map<String, ? extends Serializable> values, long timeout) {
+        if (null == values || values.isEmpty()) {
+            return;
+        }
+        sharedCache.setAll(values, timeout);
+        long timeoutOfLocal = Math.min(timeout, localTimeout);
+        values.forEach((key, value) -> setLocal(key, value, timeoutOfLocal));
+        channel.publish(sourceId, new ArrayList<>(values.keySet()));
+    }
+
+    @Override
+    public void setAll(Map<String, ? extends Serializable> values, Map<String, Long> timeouts) {
+        if (null == values || values.isEmpty()) {
+            return;
+        }
+        sharedCache.setAll(values, timeouts);
+        values.forEach((key, value) -> {
+            Long timeout = null == timeouts ? null : timeouts.get(key);
+            setLocal(key, value, null == timeout ? localTimeout : Math.min(timeout, localTimeout));
+        });
+        channel.publish(sourceId, new ArrayList<>(values.keySet()));
+    }
+
+    @Override
+    public void removeAll(Collection<String> keys) {
+        if (null == keys || keys.isEmpty()) {
+            return;
+        }
+        sharedCache.removeAll(keys);
+        keys.forEach(this::nextGeneration);
+        localCache.removeAll(keys);
+        channel.publish(sourceId, new ArrayList<>(keys));
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, Serializable value, long timeout) {
+        if (!sharedCache.putIfAbsent(key, value, timeout)) {
+            return false;
+        }
+        setLocal(key, value, Math.min(timeout, localTimeout));
+        channel.publish(sourceId, Collections.singletonList(key));
+        return true;
+    }
+
+    @Override
+    public Serializable getAndRemove(String key) {
+        // Always consume from the shared cache, the local copy cannot tell whether another node consumed it
+        Serializable value = sharedCache.getAndRemove(key);
+        nextGeneration(key);
+        localCache.removeKey(key);
+        channel.publish(sourceId, Collections.singletonList(key));
+        return value;
+    }
+
+    @Override
+    public boolean compareAndSet(String key, Serializable expect, Serializable update, long timeout) {
+        if (!sharedCache.compareAndSet(key, expect, update, timeout)) {
+            return false;
+        }
+        nextGeneration(key);
+        localCache.removeKey(key);
+        channel.publish(sourceId, Collections.singletonList(key));
+        return true;
+    }
+
+    /**
+     * Listen to the removal of the entries of the shared cache, the local copies are not reported
+     *
+     * @param listener JapCacheRemovalListener
+     */
+    @Override
+    public void addRemovalListener(JapCacheRemovalListener listener) {
+        sharedCache.addRemovalListener(listener);
+    }
+
+    @Override
+    public void removeRemovalListener(JapCacheRemovalListener listener) {
+        sharedCache.removeRemovalListener(listener);
+    }
+
+    @Override
+    public boolean supportsRemovalListeners() {
+        return sharedCache.supportsRemovalListeners();
+    }
+
+    private void setLocal(String key, Serializable value, long timeout) {
+        nextGeneration(key);
+        localCache.set(key, value, timeout);
+    }
+
+    /**
+     * Keep the value loaded from the shared cache, unless the key, or another key of its stripe, changed since the
+     * load began, in which case the value may be stale
+     */
+    private void loadLocal(String key, Serializable value, long expected) {
+        if (generation(key) != expected) {
+            return;
+        }
+        localCache.set(key, value, localTimeout);
+        if (generation(key) != expected) {
+            localCache.removeKey(key);
+        }
+    }
+
+    private long generation(String key) {
+        return generations.get(stripe(key));
+    }
+
+    private void nextGeneration(String key) {
+        generations.incrementAndGet(stripe(key));
+    }
+
+    private static int stripe(String key) {
+        int hash = null == key ? 0 : key.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    private void onInvalidate(String sourceId, Collection<String> keys) {
+        if (this.sourceId.equals(sourceId) || null == keys) {
+            return;
+        }
+        keys.forEach(this::nextGeneration);
+        localCache.removeAll(keys);
+    }
+}
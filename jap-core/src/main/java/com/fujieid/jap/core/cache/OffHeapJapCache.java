@@ -0,0 +1,672 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import cn.hutool.core.util.StrUtil;
+import com.fujieid.jap.core.exception.JapException;
+
+import java.io.Closeable;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The cache that keeps the serialized entries outside of the Java heap.
+ * <p>
+ * The storage is split into segments, each segment has its own lock, a few direct {@link ByteBuffer} slabs and an
+ * on-heap open-addressing index which holds only the hash and the address of each entry. An entry is appended to the
+ * active slab as {@code [hash][key length][value length][expire][flag][key][value]}, so the expiration time lives in
+ * the slab, and the value is deserialized by {@link JapCacheConfig#codec} on each read.
+ * <p>
+ * Removed, replaced and expired entries leave holes in the slabs. When the active slab is full, the slab with the most
+ * holes is compacted in place and reused; if no slab has enough holes, the oldest slab is compacted and, if it is
+ * still full, all its entries are evicted. Expired entries are reclaimed when read and when their slab is compacted,
+ * {@link #compact()} runs a compaction pass over all the slabs.
+ * <p>
+ * The slabs are allocated up front and are not released while the cache is in use, the direct memory is only
+ * reclaimed after {@link #close()}, once the slabs are garbage collected. Close a cache that is replaced or no longer
+ * used, any use of a closed cache throws {@link IllegalStateException}.
+ * <p>
+ * Usage: {@code JapIds.getContext().setCache(new OffHeapJapCache(256L * 1024 * 1024))}
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class OffHeapJapCache implements JapCache, Closeable {
+
+    /**
+     * The default size of a slab, in bytes
+     */
+    public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+    /**
+     * The default maximum number of segments
+     */
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+    private static final int MAXIMUM_CONCURRENCY_LEVEL = 256;
+
+    private static final int HASH_OFFSET = 0;
+    private static final int KEY_LENGTH_OFFSET = 4;
+    private static final int VALUE_LENGTH_OFFSET = 8;
+    private static final int EXPIRE_OFFSET = 12;
+    private static final int FLAG_OFFSET = 20;
+    private static final int HEADER_SIZE = 21;
+    private static final byte LIVE = 1;
+    private static final byte DEAD = 0;
+
+    /**
+     * The segments of the storage, {@code null} after {@link #close()}
+     */
+    private volatile Segment[] segments;
+    private final JapCacheCodec codec = JapCacheConfig.codec;
+
+    /**
+     * Create a cache with the default slab size and concurrency level
+     *
+     * @param capacity The maximum bytes of the off-heap storage
+     */
+    public OffHeapJapCache(long capacity) {
+        this(capacity, DEFAULT_SLAB_SIZE, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Create a cache.
+     * <p>
+     * Each segment needs at least two slabs, so the actual capacity is at least {@code 2 * slabSize}, and fewer segments
+     * are used when the capacity is small.
+     *
+     * @param capacity         The maximum bytes of the off-heap storage
+     * @param slabSize         The size of a slab in bytes, which is also the maximum size of an entry
+     * @param concurrencyLevel The maximum number of segments, which can be written concurrently
+     */
+    public OffHeapJapCache(long capacity, int slabSize, int concurrencyLevel) {
+        if (capacity <= 0 || slabSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Illegal capacity or slab size: " + capacity + ", " + slabSize);
+        }
+        int maxSegments = Math.min(Math.max(concurrencyLevel, 1), MAXIMUM_CONCURRENCY_LEVEL);
+        int segmentCount = 1;
+        while (segmentCount * 2 <= maxSegments && (long) segmentCount * 2 * 2 * slabSize <= capacity) {
+            segmentCount <<= 1;
+        }
+        int slabsPerSegment = (int) Math.min(Integer.MAX_VALUE, Math.max(2, capacity / segmentCount / slabSize));
+        Segment[] created = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            created[i] = new Segment(slabsPerSegment, slabSize);
+        }
+        this.segments = created;
+    }
+
+    /**
+     * Set cache
+     *
+     * @param key   Cache key
+     * @param value Cache value after serialization
+     */
+    @Override
+    public void set(String key, Serializable value) {
+        set(key, value, JapCacheConfig.timeout);
+    }
+
+    /**
+     * Set the cache and specify the expiration time of the cache
+     *
+     * @param key     Cache key
+     * @param value   Cache value after serialization
+     * @param timeout expiration time of the cache
+     */
+    @Override
+    public void set(String key, Serializable value, long timeout) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = codec.encode(value);
+        long now = JapCacheClock.currentTimeMillis();
+        long expire = timeout > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeout;
+        int hash = hash(key);
+        segmentFor(hash).put(hash, keyBytes, valueBytes, expire);
+    }
+
+    /**
+     * Get cache value
+     *
+     * @param key Cache key
+     * @return Cache value
+     */
+    @Override
+    public Serializable get(String key) {
+        if (StrUtil.isEmpty(key)) {
+            return null;
+        }
+        int hash = hash(key);
+        byte[] valueBytes = segmentFor(hash).get(hash, key.getBytes(StandardCharsets.UTF_8));
+        // Deserialize outside of the segment lock
+        return null == valueBytes ? null : codec.decode(valueBytes);
+    }
+
+    /**
+     * Determine whether a key exists in the cache
+     *
+     * @param key Cache key
+     * @return boolean
+     */
+    @Override
+    public boolean containsKey(String key) {
+        if (StrUtil.isEmpty(key)) {
+            return false;
+        }
+        int hash = hash(key);
+        return segmentFor(hash).contains(hash, key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Delete the key from the cache
+     *
+     * @param key Cache key
+     */
+    @Override
+    public void removeKey(String key) {
+        if (null == key) {
+            return;
+        }
+        int hash = hash(key);
+        segmentFor(hash).remove(hash, key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Set the cache only if the key does not exist or has expired, atomically
+     *
+     * @param key     Cache key
+     * @param value   Cache value after serialization
+     * @param timeout The expiration time of the cache, in milliseconds
+     * @return {@code true} if the value was set
+     */
+    @Override
+    public boolean putIfAbsent(String key, Serializable value, long timeout) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = codec.encode(value);
+        long now = JapCacheClock.currentTimeMillis();
+        long expire = timeout > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeout;
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            if (segment.contains(hash, keyBytes)) {
+                return false;
+            }
+            segment.put(hash, keyBytes, valueBytes, expire);
+            return true;
+        }
+    }
+
+    /**
+     * Get the value and delete the key atomically, only one of the concurrent callers gets the value
+     *
+     * @param key Cache key
+     * @return The cache value, or {@code null} if the key does not exist or has expired
+     */
+    @Override
+    public Serializable getAndRemove(String key) {
+        if (StrUtil.isEmpty(key)) {
+            return null;
+        }
+        int hash = hash(key);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        Segment segment = segmentFor(hash);
+        byte[] valueBytes;
+        synchronized (segment) {
+            valueBytes = segment.get(hash, keyBytes);
+            if (null != valueBytes) {
+                segment.remove(hash, keyBytes);
+            }
+        }
+        return null == valueBytes ? null : codec.decode(valueBytes);
+    }
+
+    /**
+     * Replace the value only if the current value equals the expected value, atomically
+     *
+     * @param key     Cache key
+     * @param expect  The expected current value, compared with {@link Object#equals(Object)}
+     * @param update  The new value, {@code null} to delete the key
+     * @param timeout The expiration time of the new value, in milliseconds
+     * @return {@code true} if the current value was the expected value and has been replaced
+     */
+    @Override
+    public boolean compareAndSet(String key, Serializable expect, Serializable update, long timeout) {
+        if (StrUtil.isEmpty(key)) {
+            return false;
+        }
+        int hash = hash(key);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] updateBytes = null == update ? null : codec.encode(update);
+        long now = JapCacheClock.currentTimeMillis();
+        long expire = timeout > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeout;
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            byte[] currentBytes = segment.get(hash, keyBytes);
+            if (null == currentBytes || !codec.decode(currentBytes).equals(expect)) {
+                return false;
+            }
+            if (null == updateBytes) {
+                segment.remove(hash, keyBytes);
+            } else {
+                segment.put(hash, keyBytes, updateBytes, expire);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Compact all the slabs that contain removed or expired entries
+     */
+    public void compact() {
+        for (Segment segment : segments()) {
+            segment.compactAll();
+        }
+    }
+
+    /**
+     * Get the number of entries, including the expired entries that have not been reclaimed
+     *
+     * @return long
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments()) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Get the number of entries evicted because the cache ran out of capacity
+     *
+     * @return long
+     */
+    public long getEvictionCount() {
+        long evictionCount = 0;
+        for (Segment segment : segments()) {
+            evictionCount += segment.evictionCount();
+        }
+        return evictionCount;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Drop the slabs of all the segments, the direct memory is reclaimed when the slabs are garbage collected.
+     * The cache can no longer be used, closing it again has no effect.
+     */
+    @Override
+    public void close() {
+        Segment[] closed = segments;
+        segments = null;
+        if (null != closed) {
+            for (Segment segment : closed) {
+                segment.close();
+            }
+        }
+    }
+
+    private Segment[] segments() {
+        Segment[] current = segments;
+        if (null == current) {
+            throw new IllegalStateException("The off-heap cache is closed.");
+        }
+        return current;
+    }
+
+    private Segment segmentFor(int hash) {
+        Segment[] current = segments();
+        // The low bits are used by the index of the segment
+        return current[(hash >>> 24) & (current.length - 1)];
+    }
+
+    /**
+     * A part of the storage with its own lock
+     */
+    private static final class Segment {
+        /**
+         * The empty slot of the index, the addresses are never 0 because the slab number is stored plus one
+         */
+        private static final long EMPTY = 0;
+        private static final long TOMBSTONE = -1;
+
+        private final ByteBuffer[] slabs;
+        private final int[] used;
+        private final int[] garbage;
+        private final int slabSize;
+        private int active;
+
+        private int[] hashes = new int[16];
+        private long[] addresses = new long[16];
+        private int size;
+        private int tombstones;
+        private long evictionCount;
+        private byte[] scratch = new byte[256];
+        private boolean closed;
+
+        Segment(int slabCount, int slabSize) {
+            this.slabs = new ByteBuffer[slabCount];
+            this.used = new int[slabCount];
+            this.garbage = new int[slabCount];
+            this.slabSize = slabSize;
+            for (int i = 0; i < slabCount; i++) {
+                slabs[i] = ByteBuffer.allocateDirect(slabSize);
+            }
+        }
+
+        synchronized void put(int hash, byte[] key, byte[] value, long expire) {
+            ensureOpen();
+            int entrySize = HEADER_SIZE + key.length + value.length;
+            if (entrySize > slabSize) {
+                throw new JapException("The cache entry of " + entrySize + " bytes exceeds the slab size of " + slabSize + " bytes.");
+            }
+            int slot = find(hash, key);
+            if (slot >= 0) {
+                removeSlot(slot);
+            }
+            long address = allocate(entrySize);
+            ByteBuffer slab = slabs[slabOf(address)];
+            int offset = offsetOf(address);
+            slab.putInt(offset + HASH_OFFSET, hash);
+            slab.putInt(offset + KEY_LENGTH_OFFSET, key.length);
+            slab.putInt(offset + VALUE_LENGTH_OFFSET, value.length);
+            slab.putLong(offset + EXPIRE_OFFSET, expire);
+            slab.put(offset + FLAG_OFFSET, LIVE);
+            slab.position(offset + HEADER_SIZE);
+            slab.put(key);
+            slab.put(value);
+            insert(hash, address);
+        }
+
+        synchronized byte[] get(int hash, byte[] key) {
+            ensureOpen();
+            int slot = findUnexpired(hash, key);
+            if (slot < 0) {
+                return null;
+            }
+            long address = addresses[slot];
+            ByteBuffer slab = slabs[slabOf(address)];
+            int offset = offsetOf(address);
+            byte[] value = new byte[slab.getInt(offset + VALUE_LENGTH_OFFSET)];
+            slab.position(offset + HEADER_SIZE + key.length);
+            slab.get(value);
+            return value;
+        }
+
+        synchronized boolean contains(int hash, byte[] key) {
+            ensureOpen();
+            return findUnexpired(hash, key) >= 0;
+        }
+
+        synchronized void remove(int hash, byte[] key) {
+            ensureOpen();
+            int slot = find(hash, key);
+            if (slot >= 0) {
+                removeSlot(slot);
+            }
+        }
+
+        synchronized void compactAll() {
+            ensureOpen();
+            for (int i = 0; i < slabs.length; i++) {
+                compact(i);
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long evictionCount() {
+            return evictionCount;
+        }
+
+        synchronized void close() {
+            closed = true;
+            Arrays.fill(slabs, null);
+            hashes = new int[0];
+            addresses = new long[0];
+            size = 0;
+            tombstones = 0;
+        }
+
+        /**
+         * The callers may still hold the segment when the cache is closed
+         */
+        private void ensureOpen() {
+            if (closed) {
+                throw new IllegalStateException("The off-heap cache is closed.");
+            }
+        }
+
+        private int findUnexpired(int hash, byte[] key) {
+            int slot = find(hash, key);
+            if (slot >= 0 && isExpired(addresses[slot], JapCacheClock.currentTimeMillis())) {
+                removeSlot(slot);
+                return -1;
+            }
+            return slot;
+        }
+
+        private int find(int hash, byte[] key) {
+            int mask = addresses.length - 1;
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                long address = addresses[i];
+                if (address == EMPTY) {
+                    return -1;
+                }
+                if (address != TOMBSTONE && hashes[i] == hash && keyEquals(address, key)) {
+                    return i;
+                }
+            }
+        }
+
+        private int findByAddress(int hash, long address) {
+            int mask = addresses.length - 1;
+            int i = hash & mask;
+            while (addresses[i] != address) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private void insert(int hash, long address) {
+            // Keep at least half of the slots empty, so that the probe sequences stay short
+            if ((size + tombstones + 1) * 2 > addresses.length) {
+                resize();
+            }
+            int mask = addresses.length - 1;
+            int i = hash & mask;
+            while (addresses[i] != EMPTY && addresses[i] != TOMBSTONE) {
+                i = (i + 1) & mask;
+            }
+            if (addresses[i] == TOMBSTONE) {
+                tombstones--;
+            }
+            hashes[i] = hash;
+            addresses[i] = address;
+            size++;
+        }
+
+        private void resize() {
+            int capacity = 16;
+            while (capacity < (size + 1) * 4) {
+                capacity <<= 1;
+            }
+            int[] oldHashes = hashes;
+            long[] oldAddresses = addresses;
+            hashes = new int[capacity];
+            addresses = new long[capacity];
+            tombstones = 0;
+            int mask = capacity - 1;
+            for (int j = 0; j < oldAddresses.length; j++) {
+                long address = oldAddresses[j];
+                if (address == EMPTY || address == TOMBSTONE) {
+                    continue;
+                }
+                int i = oldHashes[j] & mask;
+                while (addresses[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                hashes[i] = oldHashes[j];
+                addresses[i] = address;
+            }
+        }
+
+        /**
+         * Remove the entry from the index and mark it as dead in the slab
+         */
+        private void removeSlot(int slot) {
+            long address = addresses[slot];
+            int slab = slabOf(address);
+            int offset = offsetOf(address);
+            slabs[slab].put(offset + FLAG_OFFSET, DEAD);
+            garbage[slab] += entrySize(slabs[slab], offset);
+            addresses[slot] = TOMBSTONE;
+            tombstones++;
+            size--;
+        }
+
+        private long allocate(int entrySize) {
+            if (slabSize - used[active] < entrySize) {
+                active = nextActiveSlab(entrySize);
+            }
+            long address = address(active, used[active]);
+            used[active] += entrySize;
+            return address;
+        }
+
+        private int nextActiveSlab(int entrySize) {
+            // Reuse the slab with the most holes if compacting it frees enough space
+            int candidate = 0;
+            for (int i = 1; i < slabs.length; i++) {
+                if (garbage[i] > garbage[candidate]) {
+                    candidate = i;
+                }
+            }
+            if (garbage[candidate] > 0 && slabSize - used[candidate] + garbage[candidate] >= entrySize) {
+                compact(candidate);
+                return candidate;
+            }
+            // Otherwise recycle the oldest slab, which follows the active one
+            int oldest = (active + 1) % slabs.length;
+            compact(oldest);
+            if (slabSize - used[oldest] < entrySize) {
+                evict(oldest);
+            }
+            return oldest;
+        }
+
+        /**
+         * Move the live entries of the slab to its beginning, drop the dead and the expired ones
+         */
+        private void compact(int slab) {
+            ByteBuffer buffer = slabs[slab];
+            long now = JapCacheClock.currentTimeMillis();
+            int read = 0;
+            int write = 0;
+            while (read < used[slab]) {
+                int entrySize = entrySize(buffer, read);
+                if (buffer.get(read + FLAG_OFFSET) == LIVE) {
+                    long oldAddress = address(slab, read);
+                    int slot = findByAddress(buffer.getInt(read + HASH_OFFSET), oldAddress);
+                    if (isExpired(oldAddress, now)) {
+                        addresses[slot] = TOMBSTONE;
+                        tombstones++;
+                        size--;
+                    } else {
+                        if (write != read) {
+                            move(buffer, read, write, entrySize);
+                            addresses[slot] = address(slab, write);
+                        }
+                        write += entrySize;
+                    }
+                }
+                read += entrySize;
+            }
+            used[slab] = write;
+            garbage[slab] = 0;
+        }
+
+        /**
+         * Drop all the entries of the slab
+         */
+        private void evict(int slab) {
+            ByteBuffer buffer = slabs[slab];
+            int offset = 0;
+            while (offset < used[slab]) {
+                if (buffer.get(offset + FLAG_OFFSET) == LIVE) {
+                    int slot = findByAddress(buffer.getInt(offset + HASH_OFFSET), address(slab, offset));
+                    addresses[slot] = TOMBSTONE;
+                    tombstones++;
+                    size--;
+                    evictionCount++;
+                }
+                offset += entrySize(buffer, offset);
+            }
+            used[slab] = 0;
+            garbage[slab] = 0;
+        }
+
+        private void move(ByteBuffer buffer, int from, int to, int length) {
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.position(from);
+            buffer.get(scratch, 0, length);
+            buffer.position(to);
+            buffer.put(scratch, 0, length);
+        }
+
+        private boolean keyEquals(long address, byte[] key) {
+            ByteBuffer slab = slabs[slabOf(address)];
+            int offset = offsetOf(address);
+            if (slab.getInt(offset + KEY_LENGTH_OFFSET) != key.length) {
+                return false;
+            }
+            int keyOffset = offset + HEADER_SIZE;
+            for (int i = 0; i < key.length; i++) {
+                if (slab.get(keyOffset + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isExpired(long address, long now) {
+            return now > slabs[slabOf(address)].getLong(offsetOf(address) + EXPIRE_OFFSET);
+        }
+
+        private static int entrySize(ByteBuffer buffer, int offset) {
+            return HEADER_SIZE + buffer.getInt(offset + KEY_LENGTH_OFFSET) + buffer.getInt(offset + VALUE_LENGTH_OFFSET);
+        }
+
+        private static long address(int slab, int offset) {
+            return ((long) (slab + 1) << 32) | offset;
+        }
+
+        private static int slabOf(long address) {
+            return (int) (address >>> 32) - 1;
+        }
+
+        private static int offsetOf(long address) {
+            return (int) address;
+        }
+    }
+}
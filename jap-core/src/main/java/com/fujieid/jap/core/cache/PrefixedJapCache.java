@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * The default region view of a {@link JapCache}, see {@link JapCache#region(String)}.
+ * <p>
+ * The keys are prefixed with {@link JapCacheRegion#getKeyPrefix()} and the writes without a timeout use the timeout
+ * of the region, or the default of the underlying cache when the region has none. The entries still share the capacity of the underlying cache.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+final class PrefixedJapCache implements JapCache {
+
+    private final JapCache cache;
+    private final JapCacheRegion region;
+    private final String prefix;
+
+    PrefixedJapCache(JapCache cache, JapCacheRegion region) {
+        this.cache = cache;
+        this.region = region;
+        this.prefix = region.getKeyPrefix();
+    }
+
+    private String key(String key) {
+        return prefix.concat(key);
+    }
+
+    private List<String> keys(Collection<String> keys) {
+        List<String> list = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            list.add(key(key));
+        }
+        return list;
+    }
+
+    @Override
+    public void set(String key, Serializable value) {
+        if (region.getTimeout() > 0) {
+            cache.set(key(key), value, region.getTimeout());
+        } else {
+            cache.set(key(key), value);
+        }
+    }
+
+    @Override
+    public void set(String key, Serializable value, long timeout) {
+        cache.set(key(key), value, timeout);
+    }
+
+    @Override
+    public Serializable get(String key) {
+        return cache.get(key(key));
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return cache.containsKey(key(key));
+    }
+
+    @Override
+    public void removeKey(String key) {
+        cache.removeKey(key(key));
+    }
+
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        if (null == keys || keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Serializable> values = cache.getAll(keys(keys));
+        Map<String, Serializable> result = new HashMap<>((int) (values.size() / 0.75f) + 1);
+        values.forEach((key, value) -> result.put(key.substring(prefix.length()), value));
+        return result;
+    }
+
+    @Override
+    public void setAll(Map<String, ? extends Serializable> values, long timeout) {
+        if (null == values) {
+            return;
+        }
+        Map<String, Serializable> prefixed = new HashMap<>((int) (values.size() / 0.75f) + 1);
+        values.forEach((key, value) -> prefixed.put(key(key), value));
+        cache.setAll(prefixed, timeout);
+    }
+
+    @Override
+    public void setAll(Map<String, ? extends Serializable> values, Map<String, Long> timeouts) {
+        if (null == values) {
+            return;
+        }
+        Map<String, Serializable> prefixed = new HashMap<>((int) (values.size() / 0.75f) + 1);
+        Map<String, Long> prefixedTimeouts = new HashMap<>((int) (values.size() / 0.75f) + 1);
+        values.forEach((key, value) -> {
+            prefixed.put(key(key), value);
+            Long timeout = null == timeouts ? null : timeouts.get(key);
+            if (null != timeout) {
+                prefixedTimeouts.put(key(key), timeout);
+            } else if (region.getTimeout() > 0) {
+                prefixedTimeouts.put(key(key), region.getTimeout());
+            }
+        });
+        cache.setAll(prefixed, prefixedTimeouts);
+    }
+
+    @Override
+    public void removeAll(Collection<String> keys) {
+        if (null == keys || keys.isEmpty()) {
+            return;
+        }
+        cache.removeAll(keys(keys));
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, Serializable value, long timeout) {
+        return cache.putIfAbsent(key(key), value, timeout);
+    }
+
+    @Override
+    public Serializable getAndRemove(String key) {
+        return cache.getAndRemove(key(key));
+    }
+
+    @Override
+    public boolean compareAndSet(String key, Serializable expect, Serializable update, long timeout) {
+        return cache.compareAndSet(key(key), expect, update, timeout);
+    }
+
+    @Override
+    public Serializable get(String key, Function<String, ? extends Serializable> loader, long timeout, long refreshAhead) {
+        return cache.get(key(key), prefixedKey -> loader.apply(key), timeout > 0 ? timeout : region.getTimeout(), refreshAhead);
+    }
+
+    @Override
+    public void addRemovalListener(JapCacheRemovalListener listener) {
+        if (null == listener) {
+            throw new IllegalArgumentException("The removal listener cannot be null");
+        }
+        cache.addRemovalListener(new PrefixedRemovalListener(prefix, listener));
+    }
+
+    @Override
+    public void removeRemovalListener(JapCacheRemovalListener listener) {
+        cache.removeRemovalListener(new PrefixedRemovalListener(prefix, listener));
+    }
+
+    @Override
+    public boolean supportsRemovalListeners() {
+        return cache.supportsRemovalListeners();
+    }
+
+    @Override
+    public JapCacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public JapCache region(String name) {
+        return cache.region(name);
+    }
+
+    /**
+     * Pass the removals of the region to the listener, with the prefix stripped. Equal to another instance of the
+     * same prefix and listener, so that the listener can be removed through a new view of the region.
+     */
+    private static final class PrefixedRemovalListener implements JapCacheRemovalListener {
+        private final String prefix;
+        private final JapCacheRemovalListener listener;
+
+        PrefixedRemovalListener(String prefix, JapCacheRemovalListener listener) {
+            this.prefix = prefix;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onRemoval(String key, Serializable value, JapCacheRemovalCause cause) {
+            if (key.startsWith(prefix)) {
+                listener.onRemoval(key.substring(prefix.length()), value, cause);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PrefixedRemovalListener)) {
+                return false;
+            }
+            PrefixedRemovalListener that = (PrefixedRemovalListener) o;
+            return prefix.equals(that.prefix) && Objects.equals(listener, that.listener);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * prefix.hashCode() + Objects.hashCode(listener);
+        }
+    }
+}
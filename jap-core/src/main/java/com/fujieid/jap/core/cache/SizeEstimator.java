@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Rough shallow size estimation of the common jdk types, and of the types with a {@link JapCacheSerializer}
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+final class SizeEstimator {
+
+    /**
+     * Unknown objects are counted as this number of bytes
+     */
+    private static final long UNKNOWN_OBJECT_SIZE = 256;
+    /**
+     * The fixed part of an object weighed by its serializer: the header of the object and of a few fields
+     */
+    private static final long SERIALIZED_OBJECT_OVERHEAD = 64;
+    /**
+     * Maps and collections are only inspected up to this depth
+     */
+    private static final int MAX_DEPTH = 2;
+
+    private SizeEstimator() {
+    }
+
+    static long estimate(Object value) {
+        return estimate(value, 0);
+    }
+
+    private static long estimate(Object value, int depth) {
+        if (null == value) {
+            return 0;
+        }
+        if (value instanceof CharSequence) {
+            return 40 + 2L * ((CharSequence) value).length();
+        }
+        if (value instanceof byte[]) {
+            return 16 + ((byte[]) value).length;
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Enum) {
+            return 16;
+        }
+        if (depth < MAX_DEPTH && value instanceof Map) {
+            long size = 48;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += 32 + estimate(entry.getKey(), depth + 1) + estimate(entry.getValue(), depth + 1);
+            }
+            return size;
+        }
+        if (depth < MAX_DEPTH && value instanceof Collection) {
+            long size = 40;
+            for (Object item : (Collection<?>) value) {
+                size += 8 + estimate(item, depth + 1);
+            }
+            return size;
+        }
+        if (value instanceof Serializable) {
+            // Most of the serialized bytes are the characters of the strings, which take up to two bytes each on
+            // the heap, plus the header of each string
+            long serializedSize = codec().serializedSize((Serializable) value);
+            if (serializedSize >= 0) {
+                return SERIALIZED_OBJECT_OVERHEAD + 2 * serializedSize;
+            }
+        }
+        return UNKNOWN_OBJECT_SIZE;
+    }
+
+    /**
+     * Get the codec that knows the serializers, {@link JapCacheConfig#codec} if it is a compact codec, so that the
+     * serializers registered on it are used
+     *
+     * @return CompactJapCacheCodec
+     */
+    private static CompactJapCacheCodec codec() {
+        JapCacheCodec codec = JapCacheConfig.codec;
+        return codec instanceof CompactJapCacheCodec ? (CompactJapCacheCodec) codec : DefaultCodec.INSTANCE;
+    }
+
+    /**
+     * The codec with the serializers found by {@link com.fujieid.jap.core.spi.JapServiceLoader}, created on first use
+     */
+    private static final class DefaultCodec {
+        static final CompactJapCacheCodec INSTANCE = new CompactJapCacheCodec();
+    }
+}
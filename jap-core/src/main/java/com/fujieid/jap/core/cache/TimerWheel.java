@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+/**
+ * A hierarchical timing wheel that orders the cache entries by their expiration time.
+ * <p>
+ * Every level has 64 buckets. A bucket of the first level spans about one second, a bucket of each following level
+ * spans 64 buckets of the previous one, so the four levels cover about 65 seconds, 70 minutes, 3 days and 199 days.
+ * Later expiration times are kept in an overflow bucket. When the wheel advances, only the buckets whose time has
+ * come are drained: their entries are reclaimed if they have expired, or cascaded to a lower level otherwise.
+ * The cost of the reclamation therefore grows with the number of expired entries instead of the size of the cache.
+ * <p>
+ * The entries are the intrusive {@link Node nodes} of the buckets, so an entry is scheduled at most once and is
+ * unlinked in constant time when it is replaced or removed. The wheel holds no reference to the entries that have
+ * left the cache. All operations are done while holding the monitor of the wheel, the expired entries are passed to
+ * the {@link Expirer} after the monitor has been released.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+final class TimerWheel {
+
+    private static final int BUCKETS = 64;
+    private static final int[] SHIFT = {10, 16, 22, 28};
+    /**
+     * The number of expired entries passed to the {@link Expirer} at a time, the deadline is checked after each batch
+     */
+    private static final int BATCH_SIZE = 64;
+
+    private final Expirer expirer;
+    private final Node[][] levels;
+    private final Node overflow = new Sentinel();
+    /**
+     * The entries of the drained buckets that have not been processed yet
+     */
+    private final Node due = new Sentinel();
+    private long time;
+    /**
+     * The number of scheduled entries
+     */
+    private int size;
+
+    TimerWheel(Expirer expirer, long time) {
+        this.expirer = expirer;
+        this.time = time;
+        this.levels = new Node[SHIFT.length][BUCKETS];
+        for (Node[] level : levels) {
+            for (int j = 0; j < BUCKETS; j++) {
+                level[j] = new Sentinel();
+            }
+        }
+    }
+
+    /**
+     * Schedule the expiration of the entry, or reschedule it if it is already scheduled
+     *
+     * @param node The entry
+     */
+    synchronized void schedule(Node node) {
+        if (null != node.timerNext) {
+            unlink(node);
+        }
+        add(node);
+    }
+
+    /**
+     * Cancel the expiration of the entry, does nothing if it is not scheduled
+     *
+     * @param node The entry
+     */
+    synchronized void deschedule(Node node) {
+        if (null != node.timerNext) {
+            unlink(node);
+        }
+    }
+
+    private void add(Node node) {
+        long expire = node.getExpire();
+        long delay = expire - time;
+        for (int i = 0; i < SHIFT.length; i++) {
+            if (delay < ((long) BUCKETS << SHIFT[i])) {
+                linkLast(levels[i][(int) ((expire >>> SHIFT[i]) & (BUCKETS - 1))], node);
+                return;
+            }
+        }
+        linkLast(overflow, node);
+    }
+
+    /**
+     * Get the number of scheduled entries
+     *
+     * @return int
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Advance the wheel to the current time and reclaim the expired entries until the deadline
+     *
+     * @param now      The current time, in milliseconds
+     * @param deadline The deadline of {@link System#nanoTime()}, {@code Long.MAX_VALUE} means no deadline
+     * @return {@code true} if all the due entries have been processed, {@code false} if the deadline was reached
+     */
+    boolean advance(long now, long deadline) {
+        Node[] expired = new Node[BATCH_SIZE];
+        while (true) {
+            int count = this.poll(now, expired);
+            for (int i = 0; i < count; i++) {
+                expirer.expire(expired[i]);
+                expired[i] = null;
+            }
+            if (count < BATCH_SIZE) {
+                return true;
+            }
+            if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Drain the buckets whose time has come, cascade the entries that have not expired and take a batch of the
+     * expired ones
+     *
+     * @param now     The current time, in milliseconds
+     * @param expired Receive the expired entries, which are no longer scheduled
+     * @return The number of expired entries
+     */
+    private synchronized int poll(long now, Node[] expired) {
+        long previous = time;
+        if (now > previous) {
+            time = now;
+            for (int i = 0; i < SHIFT.length; i++) {
+                long previousTicks = previous >>> SHIFT[i];
+                long currentTicks = now >>> SHIFT[i];
+                if (currentTicks <= previousTicks) {
+                    break;
+                }
+                // The buckets of the first level are drained once passed, all their entries have expired.
+                // The buckets of the other levels are drained once entered, their entries are cascaded down
+                // before they expire.
+                long firstTick = i == 0 ? previousTicks : previousTicks + 1;
+                long lastTick = i == 0 ? currentTicks - 1 : currentTicks;
+                firstTick = Math.max(firstTick, lastTick - BUCKETS + 1);
+                for (long tick = firstTick; tick <= lastTick; tick++) {
+                    transfer(levels[i][(int) (tick & (BUCKETS - 1))]);
+                }
+                if (i == SHIFT.length - 1) {
+                    transfer(overflow);
+                }
+            }
+        }
+        int count = 0;
+        Node node;
+        while (count < expired.length && (node = due.timerNext) != due) {
+            unlink(node);
+            // The entry has expired once the clock has passed its expiration time, see CacheObj#isExpired
+            if (node.getExpire() < time) {
+                expired[count++] = node;
+            } else {
+                add(node);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Move all the entries of the bucket to the end of {@link #due}
+     *
+     * @param bucket The sentinel of the bucket
+     */
+    private void transfer(Node bucket) {
+        Node first = bucket.timerNext;
+        if (first == bucket) {
+            return;
+        }
+        Node last = bucket.timerPrev;
+        bucket.timerNext = bucket;
+        bucket.timerPrev = bucket;
+        Node tail = due.timerPrev;
+        tail.timerNext = first;
+        first.timerPrev = tail;
+        last.timerNext = due;
+        due.timerPrev = last;
+    }
+
+    private void linkLast(Node bucket, Node node) {
+        size++;
+        Node tail = bucket.timerPrev;
+        node.timerPrev = tail;
+        node.timerNext = bucket;
+        tail.timerNext = node;
+        bucket.timerPrev = node;
+    }
+
+    private void unlink(Node node) {
+        size--;
+        node.timerPrev.timerNext = node.timerNext;
+        node.timerNext.timerPrev = node.timerPrev;
+        node.timerPrev = null;
+        node.timerNext = null;
+    }
+
+    /**
+     * Callback of the expired entries
+     */
+    @FunctionalInterface
+    interface Expirer {
+
+        /**
+         * The expiration time of the entry has passed. The entry may have been removed or replaced concurrently,
+         * the implementation must check it.
+         *
+         * @param node The entry, no longer scheduled
+         */
+        void expire(Node node);
+    }
+
+    /**
+     * An entry of the wheel, linked into one bucket while it is scheduled. The links are guarded by the monitor of
+     * the wheel.
+     */
+    abstract static class Node {
+        transient Node timerPrev;
+        transient Node timerNext;
+
+        /**
+         * @return The expiration time, in milliseconds
+         */
+        abstract long getExpire();
+    }
+
+    /**
+     * The head of a circular bucket
+     */
+    private static final class Sentinel extends Node {
+        Sentinel() {
+            timerPrev = this;
+            timerNext = this;
+        }
+
+        @Override
+        long getExpire() {
+            return Long.MAX_VALUE;
+        }
+    }
+}
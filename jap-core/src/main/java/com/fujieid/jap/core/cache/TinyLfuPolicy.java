@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * The size-bounded eviction policy of {@link JapLocalCache}, a W-TinyLFU variant.
+ * <p>
+ * New entries are admitted into a small window (1% of the capacity). Entries leaving the window compete with the
+ * victim of the main space, and the one with the lower access frequency estimated by the {@link FrequencySketch} is
+ * evicted. A burst of one-shot entries (oauth state, authorization codes) therefore cannot flush the hot tokens.
+ * With {@link JapCacheEvictionPolicy#LRU} the window takes the whole capacity, so the policy degrades to CLOCK.
+ * <p>
+ * To keep reads lock-free, the LRU queues of W-TinyLFU are approximated by CLOCK queues: a read only sets the
+ * access bit of the entry and increments the sketch, the queues are reordered lazily when looking for a victim.
+ * All structural modifications of the cache are done while holding the eviction lock, including the scheduling of
+ * the entries in the {@link TimerWheel}, so an entry leaves the wheel when it leaves the cache.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+final class TinyLfuPolicy {
+
+    private static final double WINDOW_PERCENT = 0.01;
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final Map<String, JapLocalCache.CacheObj> data;
+    private final FrequencySketch sketch;
+    private final LongAdder evictionCount = new LongAdder();
+    /**
+     * Called with each evicted entry, may be {@code null}
+     */
+    private final Consumer<JapLocalCache.CacheObj> evictionListener;
+    private final TimerWheel timerWheel;
+
+    private final long maximumSize;
+    private final long maximumWeight;
+    private final long windowMaximumSize;
+    private final long windowMaximumWeight;
+
+    private final ClockQueue window = new ClockQueue();
+    private final ClockQueue main = new ClockQueue();
+
+    /**
+     * @param data             The storage of the cache
+     * @param maximumSize      The maximum number of entries, {@code <= 0} means unbounded
+     * @param maximumWeight    The maximum estimated retained bytes, {@code <= 0} means unbounded
+     * @param evictionPolicy   The eviction policy
+     * @param evictionListener Called with each evicted entry, may be {@code null}
+     * @param timerWheel       The timer wheel of the expiration of the entries
+     */
+    TinyLfuPolicy(Map<String, JapLocalCache.CacheObj> data, long maximumSize, long maximumWeight,
+                  JapCacheEvictionPolicy evictionPolicy, Consumer<JapLocalCache.CacheObj> evictionListener,
+                  TimerWheel timerWheel) {
+        this.data = data;
+        this.timerWheel = timerWheel;
+        this.evictionListener = evictionListener;
+        this.maximumSize = maximumSize > 0 ? maximumSize : Long.MAX_VALUE;
+        this.maximumWeight = maximumWeight > 0 ? maximumWeight : Long.MAX_VALUE;
+        double windowPercent = JapCacheEvictionPolicy.LRU == evictionPolicy ? 1 : WINDOW_PERCENT;
+        this.windowMaximumSize = maximumSize > 0 ? Math.max(1, (long) (maximumSize * windowPercent)) : Long.MAX_VALUE;
+        this.windowMaximumWeight = maximumWeight > 0 ? Math.max(1, (long) (maximumWeight * windowPercent)) : Long.MAX_VALUE;
+        // When only the weight is limited, assume that an entry takes about 1KB
+        this.sketch = new FrequencySketch(maximumSize > 0 ? maximumSize : maximumWeight / 1024);
+    }
+
+    /**
+     * Record a read of the key, hit or miss
+     *
+     * @param key      Cache key
+     * @param cacheObj The cache object read, {@code null} on a miss
+     */
+    void recordRead(String key, JapLocalCache.CacheObj cacheObj) {
+        sketch.increment(key);
+        if (null != cacheObj) {
+            cacheObj.accessed = true;
+        }
+    }
+
+    /**
+     * Insert or replace the cache object of the key, and evict entries if the cache exceeds its bounds
+     *
+     * @param key      Cache key
+     * @param cacheObj The new cache object
+     * @return The replaced cache object, or {@code null}
+     */
+    JapLocalCache.CacheObj put(String key, JapLocalCache.CacheObj cacheObj) {
+        sketch.increment(key);
+        evictionLock.lock();
+        try {
+            JapLocalCache.CacheObj old = data.put(key, cacheObj);
+            if (null != old) {
+                unlink(old);
+            }
+            window.addLast(cacheObj);
+            cacheObj.queue = window;
+            timerWheel.schedule(cacheObj);
+            evict();
+            return old;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Add the entry only if the key is absent
+     *
+     * @param key      Cache key
+     * @param cacheObj Cache object
+     * @return {@code true} if the entry was added
+     */
+    boolean putIfAbsent(String key, JapLocalCache.CacheObj cacheObj) {
+        evictionLock.lock();
+        try {
+            if (null != data.putIfAbsent(key, cacheObj)) {
+                return false;
+            }
+            sketch.increment(key);
+            window.addLast(cacheObj);
+            cacheObj.queue = window;
+            timerWheel.schedule(cacheObj);
+            evict();
+            return true;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Replace the cache object only if the key is still mapped to the expected one
+     *
+     * @param key      Cache key
+     * @param expected The expected cache object
+     * @param cacheObj The new cache object
+     * @return {@code true} if the cache object was replaced
+     */
+    boolean replace(String key, JapLocalCache.CacheObj expected, JapLocalCache.CacheObj cacheObj) {
+        evictionLock.lock();
+        try {
+            if (!data.replace(key, expected, cacheObj)) {
+                return false;
+            }
+            unlink(expected);
+            sketch.increment(key);
+            window.addLast(cacheObj);
+            cacheObj.queue = window;
+            timerWheel.schedule(cacheObj);
+            evict();
+            return true;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Remove the key from the cache
+     *
+     * @param key Cache key
+     * @return The removed cache object, or {@code null}
+     */
+    JapLocalCache.CacheObj remove(String key) {
+        evictionLock.lock();
+        try {
+            JapLocalCache.CacheObj old = data.remove(key);
+            if (null != old) {
+                unlink(old);
+            }
+            return old;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Remove the key only if it is still mapped to the cache object
+     *
+     * @param key      Cache key
+     * @param cacheObj The expected cache object
+     * @return {@code true} if the cache object was removed
+     */
+    boolean remove(String key, JapLocalCache.CacheObj cacheObj) {
+        evictionLock.lock();
+        try {
+            if (data.remove(key, cacheObj)) {
+                unlink(cacheObj);
+                return true;
+            }
+            return false;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * The sum of the estimated retained bytes of all entries
+     *
+     * @return long
+     */
+    long weightedSize() {
+        evictionLock.lock();
+        try {
+            return window.weight + main.weight;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void unlink(JapLocalCache.CacheObj cacheObj) {
+        if (null != cacheObj.queue) {
+            cacheObj.queue.unlink(cacheObj);
+            cacheObj.queue = null;
+        }
+        timerWheel.deschedule(cacheObj);
+    }
+
+    private boolean exceedsMaximum() {
+        return window.size + main.size > maximumSize || window.weight + main.weight > maximumWeight;
+    }
+
+    private boolean exceedsWindow() {
+        return window.size > windowMaximumSize || window.weight > windowMaximumWeight;
+    }
+
+    /**
+     * Move the overflow of the window into the main space, and let the candidates compete with the victims of the
+     * main space while the cache exceeds its bounds.
+     */
+    private void evict() {
+        while (exceedsWindow()) {
+            JapLocalCache.CacheObj candidate = window.pollVictim();
+            main.addLast(candidate);
+            candidate.queue = main;
+            if (!exceedsMaximum()) {
+                continue;
+            }
+            JapLocalCache.CacheObj victim = main.peekVictim(candidate);
+            if (null == victim || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                evictEntry(candidate);
+            } else {
+                evictEntry(victim);
+            }
+        }
+        while (exceedsMaximum()) {
+            evictEntry(main.size > 0 ? main.pollVictim() : window.pollVictim());
+        }
+    }
+
+    private void evictEntry(JapLocalCache.CacheObj cacheObj) {
+        unlink(cacheObj);
+        if (data.remove(cacheObj.key, cacheObj)) {
+            evictionCount.increment();
+            if (null != evictionListener) {
+                evictionListener.accept(cacheObj);
+            }
+        }
+    }
+
+    /**
+     * An intrusive doubly linked queue of cache objects, ordered by insertion. The access bit gives recently read
+     * entries a second chance before they are chosen as the victim.
+     */
+    static final class ClockQueue {
+        private JapLocalCache.CacheObj head;
+        private JapLocalCache.CacheObj tail;
+        private long size;
+        private long weight;
+
+        void addLast(JapLocalCache.CacheObj cacheObj) {
+            cacheObj.prev = tail;
+            cacheObj.next = null;
+            if (null == tail) {
+                head = cacheObj;
+            } else {
+                tail.next = cacheObj;
+            }
+            tail = cacheObj;
+            size++;
+            weight += cacheObj.weight;
+        }
+
+        void unlink(JapLocalCache.CacheObj cacheObj) {
+            JapLocalCache.CacheObj prev = cacheObj.prev;
+            JapLocalCache.CacheObj next = cacheObj.next;
+            if (null == prev) {
+                head = next;
+            } else {
+                prev.next = next;
+            }
+            if (null == next) {
+                tail = prev;
+            } else {
+                next.prev = prev;
+            }
+            cacheObj.prev = null;
+            cacheObj.next = null;
+            size--;
+            weight -= cacheObj.weight;
+        }
+
+        /**
+         * Find the victim: the oldest entry that has not been read since it was last passed over.
+         * Entries with the access bit set are moved to the tail and their bit is cleared, so one rotation
+         * gives every entry a second chance.
+         *
+         * @param exclude An entry that must not be chosen, may be {@code null}
+         * @return The victim, or {@code null} if the queue has no other entry
+         */
+        JapLocalCache.CacheObj peekVictim(JapLocalCache.CacheObj exclude) {
+            for (long i = size; i > 0; i--) {
+                JapLocalCache.CacheObj cacheObj = head;
+                if (cacheObj != exclude) {
+                    if (!cacheObj.accessed) {
+                        return cacheObj;
+                    }
+                    cacheObj.accessed = false;
+                }
+                unlink(cacheObj);
+                addLast(cacheObj);
+            }
+            // Every entry has been read recently, fall back to the oldest one
+            return head != exclude ? head : head.next;
+        }
+
+        /**
+         * Remove the victim from the queue
+         *
+         * @return The victim
+         */
+        JapLocalCache.CacheObj pollVictim() {
+            JapLocalCache.CacheObj victim = peekVictim(null);
+            unlink(victim);
+            victim.queue = null;
+            return victim;
+        }
+    }
+}
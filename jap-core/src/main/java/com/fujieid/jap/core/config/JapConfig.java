@@ -17,6 +17,7 @@ package com.fujieid.jap.core.config;
 
 import com.fujieid.jap.sso.config.JapSsoConfig;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -45,10 +46,53 @@ public class JapConfig {
     private long tokenExpireTime = TimeUnit.DAYS.toMillis(7);
 
     /**
-     * The expiration time of the jap cache, in milliseconds, the default validity period is 7 days
+     * The expiration time of the jap cache, in milliseconds, the default validity period is 7 days. It is the default of
+     * the {@code JapLocalCache} created by a strategy without a cache, a cache passed to the strategy keeps its own
+     * default. The registered regions use their own timeouts, see {@code JapCacheRegions}
      */
     private long cacheExpireTime = TimeUnit.DAYS.toMillis(7);
 
+    /**
+     * The maximum number of verified tokens remembered by {@code JapAuthentication.checkToken}, {@code 0} disables it.
+     * In a cluster, a token removed by another node stays valid on this node for up to
+     * {@link #verifiedTokenCacheTtl} seconds, unless the cache notifies the removals, see
+     * {@code JapCache#supportsRemovalListeners}
+     *
+     * @since 1.0.5
+     */
+    private int verifiedTokenCacheSize = 10_000;
+
+    /**
+     * The time in seconds a verified token is remembered when the cache does not notify the removals of the user
+     * tokens, {@code 0} disables the memory of the verified tokens for such a cache. With a cache that notifies the
+     * removals, the tokens are remembered until they expire.
+     *
+     * @since 1.0.5
+     */
+    private long verifiedTokenCacheTtl = 5;
+
+    /**
+     * The maximum number of tokens of a user, one per logged in device, the oldest token is removed by a new login
+     * beyond the limit. {@code 0} means no limit
+     *
+     * @since 1.0.5
+     */
+    private int userTokenLimit = 10;
+
+    /**
+     * The cache of the {@code JapUserService} lookups of the strategies, not enabled by default
+     *
+     * @since 1.0.5
+     */
+    private JapUserCacheConfig userCacheConfig;
+
+    /**
+     * The executor of {@code JapStrategy#authenticateAsync}, {@code null} to use {@code JapStrategyExecutors#getDefault()}
+     *
+     * @since 1.0.5
+     */
+    private Executor authenticateExecutor;
+
     public boolean isSso() {
         return sso;
     }
@@ -95,4 +139,77 @@ public class JapConfig {
         this.cacheExpireTime = cacheExpireTime;
         return this;
     }
+
+    public int getVerifiedTokenCacheSize() {
+        return verifiedTokenCacheSize;
+    }
+
+    public JapConfig setVerifiedTokenCacheSize(int verifiedTokenCacheSize) {
+        this.verifiedTokenCacheSize = verifiedTokenCacheSize;
+        return this;
+    }
+
+    public long getVerifiedTokenCacheTtl() {
+        return verifiedTokenCacheTtl;
+    }
+
+    public JapConfig setVerifiedTokenCacheTtl(long verifiedTokenCacheTtl) {
+        this.verifiedTokenCacheTtl = verifiedTokenCacheTtl;
+        return this;
+    }
+
+    /**
+     * Cache the {@code JapUserService} lookups of the strategies with the default configuration, see
+     * {@link com.fujieid.jap.core.CachingJapUserService}.
+     * <p>
+     * <strong>A locked, disabled or deleted user is still returned for up to {@link JapUserCacheConfig#getExpireTime()},
+     * call the {@code invalidate} methods of the service when a user changes.</strong>
+     *
+     * @return JapConfig
+     * @since 1.0.5
+     */
+    public JapConfig enableUserCache() {
+        return setUserCacheConfig(new JapUserCacheConfig());
+    }
+
+    /**
+     * Cache the {@code JapUserService} lookups of the strategies, see
+     * {@link com.fujieid.jap.core.CachingJapUserService}
+     *
+     * @param userCacheConfig Customize the configuration
+     * @return JapConfig
+     * @since 1.0.5
+     */
+    public JapConfig enableUserCache(Consumer<JapUserCacheConfig> userCacheConfig) {
+        JapUserCacheConfig japUserCacheConfig = new JapUserCacheConfig();
+        userCacheConfig.accept(japUserCacheConfig);
+        return setUserCacheConfig(japUserCacheConfig);
+    }
+
+    public int getUserTokenLimit() {
+        return userTokenLimit;
+    }
+
+    public JapConfig setUserTokenLimit(int userTokenLimit) {
+        this.userTokenLimit = userTokenLimit;
+        return this;
+    }
+
+    public JapUserCacheConfig getUserCacheConfig() {
+        return userCacheConfig;
+    }
+
+    public JapConfig setUserCacheConfig(JapUserCacheConfig userCacheConfig) {
+        this.userCacheConfig = userCacheConfig;
+        return this;
+    }
+
+    public Executor getAuthenticateExecutor() {
+        return authenticateExecutor;
+    }
+
+    public JapConfig setAuthenticateExecutor(Executor authenticateExecutor) {
+        this.authenticateExecutor = authenticateExecutor;
+        return this;
+    }
 }
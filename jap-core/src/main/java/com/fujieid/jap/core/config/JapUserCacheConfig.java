@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The configuration of the user cache, see {@link com.fujieid.jap.core.CachingJapUserService}
+ * <p>
+ * <strong>The passwords are always checked against the business system, but a locked, disabled or deleted user keeps
+ * being returned from the cache for up to {@link #expireTime}, unless the application calls the {@code invalidate}
+ * methods of {@code CachingJapUserService} when the user changes.</strong>
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class JapUserCacheConfig {
+
+    /**
+     * The valid time of a cached user, in milliseconds, the default is 5 minutes
+     */
+    private long expireTime = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * The valid time of a cached lookup that found no user, in milliseconds, the default is 30 seconds.
+     * {@code 0} disables the caching of the missing users
+     */
+    private long negativeExpireTime = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * The maximum number of cached lookups
+     */
+    private long maximumSize = 10_000;
+
+    public long getExpireTime() {
+        return expireTime;
+    }
+
+    public JapUserCacheConfig setExpireTime(long expireTime) {
+        this.expireTime = expireTime;
+        return this;
+    }
+
+    public long getNegativeExpireTime() {
+        return negativeExpireTime;
+    }
+
+    public JapUserCacheConfig setNegativeExpireTime(long negativeExpireTime) {
+        this.negativeExpireTime = negativeExpireTime;
+        return this;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public JapUserCacheConfig setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+        return this;
+    }
+}
@@ -16,23 +16,19 @@
 package com.fujieid.jap.core.context;
 
 import cn.hutool.core.collection.CollectionUtil;
-import cn.hutool.core.map.MapUtil;
 import cn.hutool.core.util.ObjectUtil;
 import com.fujieid.jap.core.JapUser;
 import com.fujieid.jap.core.cache.JapCache;
-import com.fujieid.jap.core.config.JapConfig;
 import com.fujieid.jap.core.result.JapErrorCode;
 import com.fujieid.jap.core.result.JapResponse;
 import com.fujieid.jap.core.store.JapUserStore;
 import com.fujieid.jap.core.util.JapTokenHelper;
 import com.fujieid.jap.core.util.RequestUtil;
-import com.xkcoding.json.util.Kv;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.Serializable;
-import java.util.Date;
 import java.util.Map;
 
 /**
@@ -116,7 +112,8 @@ public class JapAuthentication implements Serializable {
     }
 
     /**
-     * Verify the legitimacy of JAP Token
+     * Verify the legitimacy of JAP Token. The verified tokens are remembered until they expire, see
+     * {@link JapTokenHelper#checkToken(String, long)}
      *
      * @param token jwt token
      * @return Map
@@ -129,22 +126,7 @@ public class JapAuthentication implements Serializable {
         if (null == japCache) {
             return null;
         }
-        Map<String, Object> tokenMap = JapTokenHelper.checkToken(token);
-        if (MapUtil.isNotEmpty(tokenMap)) {
-            Kv kv = new Kv();
-            kv.putAll(tokenMap);
-            // Get the token creation time, multiplied by 1000 is the number of milliseconds
-            long iat = kv.getLong("iat") * 1000;
-            JapConfig japConfig = context.getConfig();
-            // Get token expiration time
-            long tokenExpireTime = japConfig.getTokenExpireTime();
-            // The token is available when the token creation time plus the token expiration time is later than the current time,
-            // otherwise the token has expired
-            if (new Date(iat + tokenExpireTime).after(new Date())) {
-                return tokenMap;
-            }
-        }
-        return null;
+        return JapTokenHelper.checkToken(token, context.getConfig().getTokenExpireTime());
     }
 
     /**
@@ -15,6 +15,7 @@
  */
 package com.fujieid.jap.core.context;
 
+import com.fujieid.jap.core.cache.AsyncJapCache;
 import com.fujieid.jap.core.cache.JapCache;
 import com.fujieid.jap.core.config.JapConfig;
 import com.fujieid.jap.core.store.JapUserStore;
@@ -37,6 +38,10 @@ public class JapContext {
      * jap cache
      */
     private JapCache cache;
+    /**
+     * The asynchronous jap cache, adapted from {@link #cache} when it is not set
+     */
+    private AsyncJapCache asyncCache;
     /**
      * Jap configuration.
      */
@@ -69,6 +74,24 @@ public class JapContext {
         return this;
     }
 
+    /**
+     * Get the asynchronous cache. When it is not set, the {@link #getCache()} is used: directly if it implements
+     * {@link AsyncJapCache}, otherwise it is adapted to run on the calling thread.
+     *
+     * @return AsyncJapCache
+     */
+    public AsyncJapCache getAsyncCache() {
+        if (null != asyncCache) {
+            return asyncCache;
+        }
+        return null == cache ? null : AsyncJapCache.of(cache);
+    }
+
+    public JapContext setAsyncCache(AsyncJapCache asyncCache) {
+        this.asyncCache = asyncCache;
+        return this;
+    }
+
     public JapConfig getConfig() {
         return config;
     }
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.context;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parsed data of the current HTTP request that JAP reads repeatedly: the cookies, the client IP, the User-Agent
+ * and the credentials in the {@code Authorization} header.
+ * <p>
+ * The context is created once per request by {@link #of(HttpServletRequest)} and kept in a request attribute, each
+ * value is parsed on first use, so the strategies, the user stores and the filters share the same result instead
+ * of scanning the cookies and the headers again.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public final class JapRequestContext {
+
+    /**
+     * The name of the request attribute that holds the context
+     */
+    public static final String ATTRIBUTE_NAME = JapRequestContext.class.getName();
+
+    private static final String[] IP_HEADERS = {"X-Forwarded-For", "X-Real-IP", "Proxy-Client-IP", "WL-Proxy-Client-IP", "HTTP_CLIENT_IP", "HTTP_X_FORWARDED_FOR"};
+    private static final String BEARER = "Bearer";
+    private static final String BASIC = "Basic";
+
+    private final HttpServletRequest request;
+
+    private Map<String, Cookie> cookies;
+    private String ip;
+    private String userAgent;
+    private String authorization;
+    private boolean authorizationParsed;
+    private String bearerToken;
+    private BasicCredentials basicCredentials;
+
+    private JapRequestContext(HttpServletRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * Get the context of the request, create it on the first call
+     *
+     * @param request current HTTP request
+     * @return JapRequestContext
+     */
+    public static JapRequestContext of(HttpServletRequest request) {
+        Object context = request.getAttribute(ATTRIBUTE_NAME);
+        if (context instanceof JapRequestContext && ((JapRequestContext) context).request == request) {
+            return (JapRequestContext) context;
+        }
+        JapRequestContext created = new JapRequestContext(request);
+        request.setAttribute(ATTRIBUTE_NAME, created);
+        return created;
+    }
+
+    /**
+     * Get all the cookies by name, the first one wins when several cookies have the same name
+     *
+     * @return An unmodifiable map, never {@code null}
+     */
+    public Map<String, Cookie> getCookies() {
+        if (null == cookies) {
+            Cookie[] array = request.getCookies();
+            if (null == array || array.length == 0) {
+                cookies = Collections.emptyMap();
+            } else {
+                Map<String, Cookie> index = new HashMap<>(array.length * 4 / 3 + 1);
+                for (Cookie cookie : array) {
+                    index.putIfAbsent(cookie.getName(), cookie);
+                }
+                cookies = Collections.unmodifiableMap(index);
+            }
+        }
+        return cookies;
+    }
+
+    /**
+     * Get the cookie
+     *
+     * @param name cookie name
+     * @return Cookie, or {@code null} if the request does not have it
+     */
+    public Cookie getCookie(String name) {
+        return this.getCookies().get(name);
+    }
+
+    /**
+     * Get the value of the cookie
+     *
+     * @param name cookie name
+     * @return String, or {@code null} if the request does not have the cookie
+     */
+    public String getCookieValue(String name) {
+        Cookie cookie = this.getCookie(name);
+        return null == cookie ? null : cookie.getValue();
+    }
+
+    /**
+     * Get the IP of the client, the first valid address of the reverse proxy headers, or the remote address
+     *
+     * @return String
+     */
+    public String getIp() {
+        if (null == ip) {
+            ip = resolveIp(request);
+        }
+        return ip;
+    }
+
+    /**
+     * Get the User-Agent of the request
+     *
+     * @return String
+     */
+    public String getUserAgent() {
+        if (null == userAgent) {
+            userAgent = request.getHeader("User-Agent");
+        }
+        return userAgent;
+    }
+
+    /**
+     * Get the value of the {@code Authorization} header
+     *
+     * @return String, or {@code null} if the request does not have the header
+     */
+    public String getAuthorization() {
+        this.parseAuthorization();
+        return authorization;
+    }
+
+    /**
+     * Get the token of the {@code Authorization: Bearer} header
+     *
+     * @return String, or {@code null} if the request does not have a bearer token
+     * @see <a href="https://tools.ietf.org/html/rfc6750#section-2.1" target="_blank">2.1. Authorization Request Header Field</a>
+     */
+    public String getBearerToken() {
+        this.parseAuthorization();
+        return bearerToken;
+    }
+
+    /**
+     * Get the credentials of the {@code Authorization: Basic} header
+     *
+     * @return BasicCredentials, or {@code null} if the request does not have basic credentials
+     * @see <a href="https://tools.ietf.org/html/rfc7617#section-2" target="_blank">2. The 'Basic' Authentication Scheme</a>
+     */
+    public BasicCredentials getBasicCredentials() {
+        this.parseAuthorization();
+        return basicCredentials;
+    }
+
+    private void parseAuthorization() {
+        if (authorizationParsed) {
+            return;
+        }
+        authorizationParsed = true;
+        authorization = request.getHeader("Authorization");
+        if (null == authorization) {
+            return;
+        }
+        String credentials = credentials(authorization, BEARER);
+        if (null != credentials) {
+            bearerToken = credentials;
+            return;
+        }
+        credentials = credentials(authorization, BASIC);
+        if (null != credentials) {
+            basicCredentials = BasicCredentials.decode(credentials);
+        }
+    }
+
+    /**
+     * Get the credentials of the header in the form of {@code <scheme> +<credentials> *}
+     *
+     * @param header The value of the header
+     * @param scheme The authentication scheme, compared case-insensitively
+     * @return The credentials, or {@code null} if the header has another scheme or is malformed
+     */
+    private static String credentials(String header, String scheme) {
+        int start = scheme.length();
+        if (!header.regionMatches(true, 0, scheme, 0, start) || header.length() <= start || header.charAt(start) != ' ') {
+            return null;
+        }
+        int end = header.length();
+        while (start < end && header.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && header.charAt(end - 1) == ' ') {
+            end--;
+        }
+        int space = header.indexOf(' ', start);
+        if (start == end || (space >= 0 && space < end)) {
+            return null;
+        }
+        return header.substring(start, end);
+    }
+
+    private static String resolveIp(HttpServletRequest request) {
+        String ip;
+        for (String header : IP_HEADERS) {
+            ip = request.getHeader(header);
+            if (isValidIp(ip)) {
+                return getMultistageReverseProxyIp(ip);
+            }
+        }
+        return getMultistageReverseProxyIp(request.getRemoteAddr());
+    }
+
+    /**
+     * Obtain the first non-unknown ip address from the multi-level reverse proxy
+     *
+     * @param ip IP
+     * @return The first non-unknown ip address
+     */
+    private static String getMultistageReverseProxyIp(String ip) {
+        if (ip != null && ip.indexOf(',') > 0) {
+            for (String subIp : ip.split(",")) {
+                subIp = subIp.trim();
+                if (isValidIp(subIp)) {
+                    return subIp;
+                }
+            }
+        }
+        return ip;
+    }
+
+    private static boolean isValidIp(String ip) {
+        return null != ip && !ip.isEmpty() && !"unknown".equalsIgnoreCase(ip);
+    }
+
+    /**
+     * The user id and password of the Basic authentication scheme
+     *
+     * @since 1.0.5
+     */
+    public static final class BasicCredentials {
+        private final String id;
+        private final String secret;
+
+        private BasicCredentials(String id, String secret) {
+            this.id = id;
+            this.secret = secret;
+        }
+
+        private static BasicCredentials decode(String encoded) {
+            String value;
+            try {
+                value = new String(Base64.getMimeDecoder().decode(encoded), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                return new BasicCredentials(null, null);
+            }
+            int colon = value.indexOf(':');
+            return colon < 0 ? new BasicCredentials(value, null) : new BasicCredentials(value.substring(0, colon), value.substring(colon + 1));
+        }
+
+        /**
+         * @return The user id, or the client id of an OAuth client, {@code null} if the credentials are malformed
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @return The password, or the client secret of an OAuth client, {@code null} if it is absent
+         */
+        public String getSecret() {
+            return secret;
+        }
+    }
+}
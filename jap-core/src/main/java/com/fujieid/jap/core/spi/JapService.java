@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.spi;
+
+import java.lang.annotation.*;
+
+/**
+ * Mark a service provider, so that {@link JapServiceProcessor} registers it at compile time. The processor only runs
+ * in the modules that enable it, see {@link JapServiceProcessor}.
+ * <p>
+ * The processor writes the {@code META-INF/services} file of each service as {@link java.util.ServiceLoader}
+ * expects, and the index that {@link JapServiceLoader} reads in one pass when the index is enabled.
+ *
+ * <pre>
+ * &#64;JapService(IdsUserService.class)
+ * public class UserServiceImpl implements IdsUserService {
+ * }
+ * </pre>
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface JapService {
+
+    /**
+     * @return The service interfaces or classes that the annotated class provides
+     */
+    Class<?>[] value();
+}
@@ -15,34 +15,185 @@
  */
 package com.fujieid.jap.core.spi;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.ServiceLoader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Load the service providers registered in {@code META-INF/services}, like {@link ServiceLoader}.
+ * <p>
+ * The provider names of each service are read once per class loader and cached, the following calls only load the
+ * classes and create the instances. The providers are looked up with the context class loader of the calling thread.
+ * Only the names are cached, and the class loaders are held weakly, so that the class loader of an undeployed
+ * application can be collected.
+ * <p>
+ * When the system property {@code jap.spi.index} is {@code true}, the index generated by {@link JapServiceProcessor}
+ * is read in one pass, and the services it contains are no longer looked up in {@code META-INF/services}. All the
+ * providers of an indexed service must then be annotated with {@link JapService}.
+ *
  * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
  * @version 1.0.0
  * @since 1.0.2
  */
 public class JapServiceLoader {
 
+    /**
+     * The index of the services and their providers, one {@code service=provider} per line
+     *
+     * @since 1.0.5
+     */
+    public static final String INDEX_RESOURCE = "META-INF/jap/services.index";
+
+    /**
+     * The system property that enables the index
+     *
+     * @since 1.0.5
+     */
+    public static final String INDEX_PROPERTY = "jap.spi.index";
+
+    private static final String SERVICES_DIRECTORY = "META-INF/services/";
+
+    private static final Map<ClassLoader, LoaderProviders> PROVIDERS = Collections.synchronizedMap(new WeakHashMap<>());
+
     public static <T> List<T> load(Class<T> clazz) {
         List<T> list = new ArrayList<>();
         if (null == clazz) {
             return list;
         }
-        ServiceLoader<T> serviceLoader = ServiceLoader.load(clazz);
-        for (T t : serviceLoader) {
-            list.add(t);
+        ClassLoader loader = classLoader(clazz);
+        for (String provider : providers(clazz, loader)) {
+            list.add(newInstance(clazz, providerClass(clazz, provider, loader)));
         }
         return list;
     }
 
     public static <T> T loadFirst(Class<T> clazz) {
-        List<T> list = load(clazz);
-        if (list.isEmpty()) {
+        if (null == clazz) {
+            return null;
+        }
+        ClassLoader loader = classLoader(clazz);
+        List<String> providers = providers(clazz, loader);
+        if (providers.isEmpty()) {
             return null;
         }
-        return list.get(0);
+        return newInstance(clazz, providerClass(clazz, providers.get(0), loader));
+    }
+
+    /**
+     * Forget the resolved providers and the index, so that the next call looks them up again
+     *
+     * @since 1.0.5
+     */
+    public static void reload() {
+        PROVIDERS.clear();
+    }
+
+    private static ClassLoader classLoader(Class<?> service) {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (null == loader) {
+            loader = service.getClassLoader() == null ? ClassLoader.getSystemClassLoader() : service.getClassLoader();
+        }
+        return loader;
+    }
+
+    private static List<String> providers(Class<?> service, ClassLoader loader) {
+        LoaderProviders providers = PROVIDERS.computeIfAbsent(loader, k -> new LoaderProviders());
+        return providers.services.computeIfAbsent(service.getName(), name -> resolve(service, loader, providers));
+    }
+
+    private static List<String> resolve(Class<?> service, ClassLoader loader, LoaderProviders providers) {
+        Collection<String> names = null;
+        if (Boolean.getBoolean(INDEX_PROPERTY)) {
+            names = providers.index(loader).get(service.getName());
+        }
+        if (null == names) {
+            names = readProviders(loader, SERVICES_DIRECTORY + service.getName(), service);
+        }
+        return Collections.unmodifiableList(new ArrayList<>(names));
+    }
+
+    private static Class<?> providerClass(Class<?> service, String name, ClassLoader loader) {
+        try {
+            Class<?> provider = Class.forName(name, false, loader);
+            if (!service.isAssignableFrom(provider)) {
+                throw new ServiceConfigurationError(service.getName() + ": Provider " + name + " not a subtype");
+            }
+            return provider;
+        } catch (ClassNotFoundException e) {
+            throw new ServiceConfigurationError(service.getName() + ": Provider " + name + " not found", e);
+        }
+    }
+
+    /**
+     * Read the distinct lines of all the resources with the name, without the comments
+     *
+     * @param loader   ClassLoader
+     * @param resource The name of the resource
+     * @param service  The service to report in the errors
+     * @return The lines in the order of the class path
+     */
+    private static Set<String> readProviders(ClassLoader loader, String resource, Class<?> service) {
+        Set<String> lines = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> urls = loader.getResources(resource);
+            while (urls.hasMoreElements()) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(urls.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        line = stripComment(line);
+                        if (!line.isEmpty()) {
+                            lines.add(line);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new ServiceConfigurationError(service.getName() + ": Error reading " + resource, e);
+        }
+        return lines;
+    }
+
+    static String stripComment(String line) {
+        int comment = line.indexOf('#');
+        return (comment < 0 ? line : line.substring(0, comment)).trim();
+    }
+
+    private static <T> T newInstance(Class<T> service, Class<?> provider) {
+        try {
+            return service.cast(provider.getConstructor().newInstance());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new ServiceConfigurationError(service.getName() + ": Provider " + provider.getName() + " could not be instantiated", e);
+        }
+    }
+
+    /**
+     * The provider names read from one class loader
+     */
+    private static final class LoaderProviders {
+        private final Map<String, List<String>> services = new ConcurrentHashMap<>();
+        private volatile Map<String, List<String>> index;
+
+        private Map<String, List<String>> index(ClassLoader loader) {
+            Map<String, List<String>> current = index;
+            if (null == current) {
+                Map<String, List<String>> services = new HashMap<>();
+                for (String line : readProviders(loader, INDEX_RESOURCE, JapServiceLoader.class)) {
+                    int separator = line.indexOf('=');
+                    if (separator > 0) {
+                        List<String> providers = services.computeIfAbsent(line.substring(0, separator).trim(), k -> new ArrayList<>());
+                        String provider = line.substring(separator + 1).trim();
+                        if (!providers.contains(provider)) {
+                            providers.add(provider);
+                        }
+                    }
+                }
+                index = current = services;
+            }
+            return current;
+        }
     }
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.spi;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Generate the service files of the classes annotated with {@link JapService}.
+ * <p>
+ * For each service, the processor merges the providers into {@code META-INF/services/<service>}, and writes all
+ * services of the module to {@link JapServiceLoader#INDEX_RESOURCE}.
+ * <p>
+ * The processor is not registered in {@code META-INF/services/javax.annotation.processing.Processor}, so depending
+ * on jap-core does not run it. A module that annotates its providers opts in, with {@code -processor} or with the
+ * maven compiler plugin:
+ *
+ * <pre>
+ * &lt;configuration&gt;
+ *   &lt;annotationProcessorPaths&gt;
+ *     &lt;path&gt;
+ *       &lt;groupId&gt;com.fujieid&lt;/groupId&gt;
+ *       &lt;artifactId&gt;jap-core&lt;/artifactId&gt;
+ *       &lt;version&gt;${jap.version}&lt;/version&gt;
+ *     &lt;/path&gt;
+ *   &lt;/annotationProcessorPaths&gt;
+ *   &lt;annotationProcessors&gt;
+ *     &lt;annotationProcessor&gt;com.fujieid.jap.core.spi.JapServiceProcessor&lt;/annotationProcessor&gt;
+ *   &lt;/annotationProcessors&gt;
+ * &lt;/configuration&gt;
+ * </pre>
+ * <p>
+ * The other processors of the module must then be listed in {@code annotationProcessors} as well.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+@SupportedAnnotationTypes("com.fujieid.jap.core.spi.JapService")
+public class JapServiceProcessor extends AbstractProcessor {
+
+    private static final String SERVICES_DIRECTORY = "META-INF/services/";
+
+    /**
+     * The providers of each service, in the order in which they were found
+     */
+    private final Map<String, Set<String>> providers = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!providers.isEmpty()) {
+                this.generate();
+            }
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(JapService.class)) {
+            if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)) {
+                this.error("@JapService must be placed on a concrete class", element);
+                continue;
+            }
+            TypeElement provider = (TypeElement) element;
+            for (TypeElement service : this.services(provider)) {
+                if (!this.isProvider(provider, service)) {
+                    this.error(provider.getQualifiedName() + " does not implement " + service.getQualifiedName(), element);
+                    continue;
+                }
+                providers.computeIfAbsent(this.binaryName(service), k -> new LinkedHashSet<>()).add(this.binaryName(provider));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the value of {@link JapService} from the annotation mirror, the classes may not be compiled yet
+     *
+     * @param provider The annotated class
+     * @return The service types
+     */
+    private List<TypeElement> services(TypeElement provider) {
+        List<TypeElement> services = new ArrayList<>();
+        for (AnnotationMirror mirror : provider.getAnnotationMirrors()) {
+            if (!((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(JapService.class.getName())) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                if (!entry.getKey().getSimpleName().contentEquals("value")) {
+                    continue;
+                }
+                Object value = entry.getValue().getValue();
+                List<?> values = value instanceof List ? (List<?>) value : Collections.singletonList(entry.getValue());
+                for (Object item : values) {
+                    Object type = ((AnnotationValue) item).getValue();
+                    if (type instanceof DeclaredType) {
+                        services.add((TypeElement) ((DeclaredType) type).asElement());
+                    }
+                }
+            }
+        }
+        return services;
+    }
+
+    private boolean isProvider(TypeElement provider, TypeElement service) {
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror serviceType = types.erasure(service.asType());
+        return types.isAssignable(types.erasure(provider.asType()), serviceType);
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private void generate() {
+        Filer filer = processingEnv.getFiler();
+        StringBuilder index = new StringBuilder();
+        for (Map.Entry<String, Set<String>> entry : providers.entrySet()) {
+            String resource = SERVICES_DIRECTORY + entry.getKey();
+            // Keep the providers that are registered by hand in the same module
+            Set<String> lines = new LinkedHashSet<>(this.read(filer, resource));
+            lines.addAll(entry.getValue());
+            this.write(filer, resource, lines);
+            for (String provider : entry.getValue()) {
+                index.append(entry.getKey()).append('=').append(provider).append('\n');
+            }
+        }
+        this.write(filer, JapServiceLoader.INDEX_RESOURCE, Collections.singletonList(index.toString().trim()));
+    }
+
+    private List<String> read(Filer filer, String resource) {
+        List<String> lines = new ArrayList<>();
+        try {
+            FileObject file = filer.getResource(StandardLocation.CLASS_OUTPUT, "", resource);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = JapServiceLoader.stripComment(line);
+                    if (!line.isEmpty()) {
+                        lines.add(line);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // The file does not exist yet
+        }
+        return lines;
+    }
+
+    private void write(Filer filer, String resource, Collection<String> lines) {
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", resource);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            this.error("Unable to write " + resource + ": " + e.getMessage(), null);
+        }
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
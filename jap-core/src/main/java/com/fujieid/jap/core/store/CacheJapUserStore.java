@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.store;
+
+import com.fujieid.jap.core.JapConst;
+import com.fujieid.jap.core.JapUser;
+import com.fujieid.jap.core.JapUserService;
+import com.fujieid.jap.core.cache.JapCache;
+import com.fujieid.jap.core.cache.JapLocalCache;
+import com.fujieid.jap.core.config.JapConfig;
+import com.fujieid.jap.core.context.JapAuthentication;
+import com.fujieid.jap.core.util.JapTokenDigest;
+import com.fujieid.jap.core.util.JapTokenHelper;
+import com.fujieid.jap.core.util.JapUtil;
+import com.fujieid.jap.core.util.RequestUtil;
+import com.xkcoding.json.util.StringUtil;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.Serializable;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keep the login user in the {@link JapCache} of the jap context instead of the {@code HttpSession}, under a random
+ * session id that is sent to the client in a cookie. Any node that shares the cache can serve the user, without
+ * sticky sessions or session replication.
+ * <p>
+ * The expiration is sliding: the session expires {@link #setExpireTime(long)} after the last request, the entry in
+ * the cache is renewed once half of that time has passed. The sessions read from the cache are also kept in a small
+ * local cache for {@link #setLocalCacheTime(long)}, so a logout on another node is seen by this node at most that
+ * late. The cache keys are the digests of the session ids, see {@link JapTokenDigest}.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class CacheJapUserStore implements JapUserStore {
+
+    private static final int SESSION_ID_BYTES = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    /**
+     * The sessions recently read from the shared cache
+     */
+    private final JapLocalCache localCache;
+    /**
+     * Load the additional information of the users on demand, see {@link SessionJapUser}
+     */
+    private final JapUserService japUserService;
+
+    /**
+     * The valid time of the session after the last request, in milliseconds, the default is 30 minutes
+     */
+    private long expireTime = TimeUnit.MINUTES.toMillis(30);
+    /**
+     * The time a session read from the shared cache is kept locally, in milliseconds, {@code 0} to always read the
+     * shared cache
+     */
+    private long localCacheTime = TimeUnit.SECONDS.toMillis(5);
+    private String cookieName = "jap_sid";
+    private String cookieDomain;
+    private String cookiePath = "/";
+    private boolean cookieSecure;
+
+    public CacheJapUserStore() {
+        this(null, 10_000);
+    }
+
+    /**
+     * @param japUserService Load the additional information of the users on demand instead of keeping it in the
+     *                       cache, {@code null} to keep it, see {@link SessionJapUser}
+     * @param localCacheSize The maximum number of sessions kept locally
+     */
+    public CacheJapUserStore(JapUserService japUserService, long localCacheSize) {
+        this.japUserService = japUserService;
+        this.localCache = new JapLocalCache(localCacheSize, 0, null);
+    }
+
+    /**
+     * Login completed, save user information to the cache under a new session id
+     *
+     * @param request  current HTTP request
+     * @param response current HTTP response
+     * @param japUser  User information after successful login
+     * @return JapUser
+     */
+    @Override
+    public JapUser save(HttpServletRequest request, HttpServletResponse response, JapUser japUser) {
+        // Never reuse the session id of the request, which may have been fixed by an attacker
+        this.removeSession(request);
+
+        JapConfig japConfig = JapAuthentication.getContext().getConfig();
+        if (!japConfig.isSso()) {
+            String token = JapUtil.createToken(japUser, request);
+            JapTokenHelper.saveUserToken(japUser.getUserId(), token);
+            japUser.setToken(token);
+        }
+
+        SessionJapUser newUser = SessionJapUser.of(japUser, japUserService);
+        byte[] bytes = new byte[SESSION_ID_BYTES];
+        RANDOM.nextBytes(bytes);
+        String sessionId = ENCODER.encodeToString(bytes);
+        String key = JapTokenDigest.digest(sessionId);
+        this.sessionCache().set(key, new CachedSession(key, newUser, System.currentTimeMillis()), expireTime);
+        response.addCookie(this.createCookie(sessionId, -1));
+        return japUser;
+    }
+
+    /**
+     * Clear user information from cache
+     *
+     * @param request  current HTTP request
+     * @param response current HTTP response
+     */
+    @Override
+    public void remove(HttpServletRequest request, HttpServletResponse response) {
+        JapConfig japConfig = JapAuthentication.getContext().getConfig();
+        if (!japConfig.isSso()) {
+            JapUser japUser = this.get(request, response);
+            if (null != japUser && null != japUser.getToken()) {
+                // Only log out of this device
+                JapTokenHelper.removeUserToken(japUser.getUserId(), japUser.getToken());
+            } else if (null != japUser) {
+                JapTokenHelper.removeUserToken(japUser.getUserId());
+            }
+        }
+        if (this.removeSession(request)) {
+            response.addCookie(this.createCookie("", 0));
+        }
+    }
+
+    /**
+     * Get the login user information from the cache, return {@code JapUser} if it exists,
+     * return {@code null} if it is not logged in or the login has expired
+     *
+     * @param request  current HTTP request
+     * @param response current HTTP response
+     * @return JapUser
+     */
+    @Override
+    public JapUser get(HttpServletRequest request, HttpServletResponse response) {
+        String sessionId = RequestUtil.getCookieVal(request, cookieName);
+        if (StringUtil.isEmpty(sessionId)) {
+            return null;
+        }
+        String key = JapTokenDigest.digest(sessionId);
+        CachedSession session = (CachedSession) localCache.get(key);
+        if (null != session) {
+            return session.user;
+        }
+        JapCache sessionCache = this.sessionCache();
+        session = (CachedSession) sessionCache.get(key);
+        if (null == session) {
+            return null;
+        }
+        session.user.attach(japUserService);
+        long now = System.currentTimeMillis();
+        if (now - session.touchedAt >= expireTime / 2) {
+            CachedSession touched = new CachedSession(key, session.user, now);
+            // Fails if the session has been removed by a concurrent logout, which must not be undone
+            if (!sessionCache.compareAndSet(key, session, touched, expireTime)) {
+                return null;
+            }
+            session = touched;
+        }
+        if (localCacheTime > 0) {
+            localCache.set(key, session, localCacheTime);
+        }
+        return session.user;
+    }
+
+    /**
+     * Remove the session of the request from the caches
+     *
+     * @param request current HTTP request
+     * @return {@code true} if the request had a session cookie
+     */
+    private boolean removeSession(HttpServletRequest request) {
+        String sessionId = RequestUtil.getCookieVal(request, cookieName);
+        if (StringUtil.isEmpty(sessionId)) {
+            return false;
+        }
+        String key = JapTokenDigest.digest(sessionId);
+        this.sessionCache().removeKey(key);
+        localCache.removeKey(key);
+        return true;
+    }
+
+    private JapCache sessionCache() {
+        return JapAuthentication.getContext().getCache().region(JapConst.USER_SESSION_CACHE_REGION);
+    }
+
+    private Cookie createCookie(String value, int maxAge) {
+        Cookie cookie = new Cookie(cookieName, value);
+        cookie.setPath(cookiePath);
+        if (null != cookieDomain) {
+            cookie.setDomain(cookieDomain);
+        }
+        cookie.setMaxAge(maxAge);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(cookieSecure);
+        return cookie;
+    }
+
+    public long getExpireTime() {
+        return expireTime;
+    }
+
+    public CacheJapUserStore setExpireTime(long expireTime) {
+        this.expireTime = expireTime;
+        return this;
+    }
+
+    public long getLocalCacheTime() {
+        return localCacheTime;
+    }
+
+    public CacheJapUserStore setLocalCacheTime(long localCacheTime) {
+        this.localCacheTime = localCacheTime;
+        return this;
+    }
+
+    public String getCookieName() {
+        return cookieName;
+    }
+
+    public CacheJapUserStore setCookieName(String cookieName) {
+        this.cookieName = cookieName;
+        return this;
+    }
+
+    public String getCookieDomain() {
+        return cookieDomain;
+    }
+
+    public CacheJapUserStore setCookieDomain(String cookieDomain) {
+        this.cookieDomain = cookieDomain;
+        return this;
+    }
+
+    public String getCookiePath() {
+        return cookiePath;
+    }
+
+    public CacheJapUserStore setCookiePath(String cookiePath) {
+        this.cookiePath = cookiePath;
+        return this;
+    }
+
+    public boolean isCookieSecure() {
+        return cookieSecure;
+    }
+
+    public CacheJapUserStore setCookieSecure(boolean cookieSecure) {
+        this.cookieSecure = cookieSecure;
+        return this;
+    }
+
+    /**
+     * The cached value of a session. Two values are equal if they belong to the same session, so that renewing the
+     * expiration with {@link JapCache#compareAndSet} only fails if the session has been removed
+     */
+    static final class CachedSession implements Serializable {
+        private static final long serialVersionUID = 3650170520496410327L;
+
+        /**
+         * The cache key of the session, the session id itself is never stored
+         */
+        private final String key;
+        private final SessionJapUser user;
+        /**
+         * The time the expiration of the session was last renewed, in milliseconds
+         */
+        private final long touchedAt;
+
+        CachedSession(String key, SessionJapUser user, long touchedAt) {
+            this.key = key;
+            this.user = user;
+            this.touchedAt = touchedAt;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            return o instanceof CachedSession && key.equals(((CachedSession) o).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+    }
+}
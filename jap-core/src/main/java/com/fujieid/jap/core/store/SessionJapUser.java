@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.store;
+
+import com.fujieid.jap.core.JapUser;
+import com.fujieid.jap.core.JapUserService;
+
+import java.io.*;
+
+/**
+ * The compact form of the login user kept by the {@link JapUserStore}s, which is copied, replicated and cached far
+ * more often than it is read.
+ * <p>
+ * It holds the user id, the username and the token, never the password. When the store has a {@link JapUserService},
+ * {@link #getAdditional()} is not kept either but loaded by {@link JapUserService#getById(String)} on first use,
+ * otherwise it is kept as before. It is serialized in a compact externalizable form, without the class description of
+ * {@link JapUser}.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public final class SessionJapUser extends JapUser {
+
+    private static final long serialVersionUID = -3079534186325812406L;
+
+    private transient JapUserService japUserService;
+    private transient volatile boolean additionalLoaded;
+
+    private SessionJapUser() {
+    }
+
+    /**
+     * Copy the identity of the login user, without reflection
+     *
+     * @param japUser        The login user
+     * @param japUserService Load the additional information on demand, {@code null} to keep it in the copy
+     * @return SessionJapUser
+     */
+    public static SessionJapUser of(JapUser japUser, JapUserService japUserService) {
+        SessionJapUser sessionUser = new SessionJapUser();
+        sessionUser.setUserId(japUser.getUserId());
+        sessionUser.setUsername(japUser.getUsername());
+        sessionUser.setToken(japUser.getToken());
+        if (null == japUserService) {
+            sessionUser.setAdditional(japUser.getAdditional());
+        }
+        return sessionUser.attach(japUserService);
+    }
+
+    /**
+     * Set the service that loads the additional information, which is lost when the user is deserialized
+     *
+     * @param japUserService JapUserService
+     * @return this
+     */
+    SessionJapUser attach(JapUserService japUserService) {
+        this.japUserService = japUserService;
+        return this;
+    }
+
+    @Override
+    public Object getAdditional() {
+        Object additional = super.getAdditional();
+        if (null != additional || additionalLoaded || null == japUserService) {
+            return additional;
+        }
+        JapUser japUser = japUserService.getById(this.getUserId());
+        additional = null == japUser ? null : japUser.getAdditional();
+        super.setAdditional(additional);
+        additionalLoaded = true;
+        return additional;
+    }
+
+    private Object superAdditional() {
+        return super.getAdditional();
+    }
+
+    @Override
+    public JapUser setAdditional(Object additional) {
+        additionalLoaded = true;
+        return super.setAdditional(additional);
+    }
+
+    private Object writeReplace() {
+        return new Form(this);
+    }
+
+    private static void writeNullableUTF(ObjectOutput out, String value) throws IOException {
+        out.writeBoolean(null != value);
+        if (null != value) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(ObjectInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * The serialized form of {@link SessionJapUser}
+     */
+    static final class Form implements Externalizable {
+        private static final long serialVersionUID = 1L;
+        private static final byte VERSION = 1;
+
+        private SessionJapUser user;
+
+        /**
+         * Used by the deserialization only
+         */
+        public Form() {
+        }
+
+        private Form(SessionJapUser user) {
+            this.user = user;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeByte(VERSION);
+            writeNullableUTF(out, user.getUserId());
+            writeNullableUTF(out, user.getUsername());
+            writeNullableUTF(out, user.getToken());
+            // The loaded additional information can be loaded again
+            out.writeObject(null == user.japUserService ? user.superAdditional() : null);
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new InvalidObjectException("Unsupported version of SessionJapUser: " + version);
+            }
+            user = new SessionJapUser();
+            user.setUserId(readNullableUTF(in));
+            user.setUsername(readNullableUTF(in));
+            user.setToken(readNullableUTF(in));
+            Object additional = in.readObject();
+            if (null != additional) {
+                user.setAdditional(additional);
+            }
+        }
+
+        private Object readResolve() {
+            return user;
+        }
+    }
+}
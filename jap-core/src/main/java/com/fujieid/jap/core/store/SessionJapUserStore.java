@@ -15,9 +15,9 @@
  */
 package com.fujieid.jap.core.store;
 
-import cn.hutool.core.bean.BeanUtil;
 import com.fujieid.jap.core.JapConst;
 import com.fujieid.jap.core.JapUser;
+import com.fujieid.jap.core.JapUserService;
 import com.fujieid.jap.core.config.JapConfig;
 import com.fujieid.jap.core.context.JapAuthentication;
 import com.fujieid.jap.core.util.JapTokenHelper;
@@ -34,9 +34,23 @@ import javax.servlet.http.HttpSession;
  */
 public class SessionJapUserStore implements JapUserStore {
 
+    /**
+     * Load the additional information of the session users on demand, see {@link SessionJapUser}
+     */
+    private JapUserService sessionUserService;
+
     public SessionJapUserStore() {
     }
 
+    /**
+     * @param japUserService Load the additional information of the users on demand instead of keeping it in the
+     *                       session, see {@link SessionJapUser}
+     * @since 1.0.5
+     */
+    public SessionJapUserStore(JapUserService japUserService) {
+        this.sessionUserService = japUserService;
+    }
+
     /**
      * Login completed, save user information to the cache
      *
@@ -47,17 +61,16 @@ public class SessionJapUserStore implements JapUserStore {
      */
     @Override
     public JapUser save(HttpServletRequest request, HttpServletResponse response, JapUser japUser) {
-        HttpSession session = request.getSession();
-        JapUser newUser = BeanUtil.copyProperties(japUser, JapUser.class);
-        newUser.setPassword(null);
-        session.setAttribute(JapConst.SESSION_USER_KEY, newUser);
-
         JapConfig japConfig = JapAuthentication.getContext().getConfig();
         if (!japConfig.isSso()) {
             String token = JapUtil.createToken(japUser, request);
             JapTokenHelper.saveUserToken(japUser.getUserId(), token);
             japUser.setToken(token);
         }
+
+        // The session copy keeps the token, so that the logout only removes the token of this device
+        HttpSession session = request.getSession();
+        session.setAttribute(JapConst.SESSION_USER_KEY, SessionJapUser.of(japUser, sessionUserService));
         return japUser;
     }
 
@@ -73,7 +86,10 @@ public class SessionJapUserStore implements JapUserStore {
         JapConfig japConfig = JapAuthentication.getContext().getConfig();
         if (!japConfig.isSso()) {
             JapUser japUser = this.get(request, response);
-            if (null != japUser) {
+            if (null != japUser && null != japUser.getToken()) {
+                // Only log out of this device
+                JapTokenHelper.removeUserToken(japUser.getUserId(), japUser.getToken());
+            } else if (null != japUser) {
                 JapTokenHelper.removeUserToken(japUser.getUserId());
             }
         }
@@ -94,6 +110,11 @@ public class SessionJapUserStore implements JapUserStore {
     @Override
     public JapUser get(HttpServletRequest request, HttpServletResponse response) {
         HttpSession session = request.getSession();
-        return (JapUser) session.getAttribute(JapConst.SESSION_USER_KEY);
+        JapUser japUser = (JapUser) session.getAttribute(JapConst.SESSION_USER_KEY);
+        if (japUser instanceof SessionJapUser) {
+            // The service is lost when the session is replicated to another node
+            ((SessionJapUser) japUser).attach(sessionUserService);
+        }
+        return japUser;
     }
 }
@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.store;
+
+import com.fujieid.jap.core.JapUser;
+import com.fujieid.jap.core.exception.JapException;
+import com.fujieid.jap.core.util.RequestUtil;
+import com.xkcoding.json.util.StringUtil;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keep the login user in a signed token instead of the {@code HttpSession}, the token is sent back to the client in
+ * a cookie and can also be passed in a request header.
+ * <p>
+ * The token carries the user id, the username and the expiration time, signed with HMAC-SHA256 and, if an
+ * encryption key is set, encrypted with AES-GCM before signing. It is verified locally, so the store keeps nothing
+ * on the server and never creates a session, any node that shares the keys can authenticate the user. The other
+ * properties of the {@link JapUser}, such as {@link JapUser#getAdditional()}, are not kept.
+ * <p>
+ * A token cannot be revoked before it expires, {@link #remove(HttpServletRequest, HttpServletResponse)} only clears
+ * the cookie. Keep {@link #setExpireTime(long)} short or change the signing key to revoke all the tokens.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class TokenJapUserStore implements JapUserStore {
+
+    private static final byte PLAIN = 1;
+    private static final byte ENCRYPTED = 2;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec signingKey;
+    private final ThreadLocal<Mac> mac;
+    private SecretKeySpec encryptionKey;
+    private ThreadLocal<Cipher> cipher;
+
+    /**
+     * The valid time of the token, in milliseconds, the default validity period is 7 days
+     */
+    private long expireTime = TimeUnit.DAYS.toMillis(7);
+    /**
+     * The name of the cookie that carries the token, {@code null} to not use a cookie
+     */
+    private String cookieName = "jap_token";
+    private String cookieDomain;
+    private String cookiePath = "/";
+    private boolean cookieSecure;
+    /**
+     * The name of the request header that carries the token, read when the request has no token cookie
+     */
+    private String headerName = "X-Jap-Token";
+
+    /**
+     * @param signingKey The HMAC-SHA256 key, at least 32 bytes, shared by all the nodes
+     */
+    public TokenJapUserStore(byte[] signingKey) {
+        if (null == signingKey || signingKey.length < 32) {
+            throw new JapException("The signing key of the token must be at least 32 bytes.");
+        }
+        this.signingKey = new SecretKeySpec(signingKey.clone(), HMAC_ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(HMAC_ALGORITHM);
+                instance.init(this.signingKey);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new JapException("Failed to initialize " + HMAC_ALGORITHM, e);
+            }
+        });
+    }
+
+    /**
+     * Login completed, save user information to the token
+     *
+     * @param request  current HTTP request
+     * @param response current HTTP response
+     * @param japUser  User information after successful login
+     * @return JapUser, whose token is the token of this store
+     */
+    @Override
+    public JapUser save(HttpServletRequest request, HttpServletResponse response, JapUser japUser) {
+        String token = this.createToken(japUser, System.currentTimeMillis() + expireTime);
+        if (null != cookieName) {
+            response.addCookie(this.createCookie(token, (int) TimeUnit.MILLISECONDS.toSeconds(expireTime)));
+        }
+        return japUser.setToken(token);
+    }
+
+    /**
+     * Clear the token cookie
+     *
+     * @param request  current HTTP request
+     * @param response current HTTP response
+     */
+    @Override
+    public void remove(HttpServletRequest request, HttpServletResponse response) {
+        if (null != cookieName) {
+            response.addCookie(this.createCookie("", 0));
+        }
+    }
+
+    /**
+     * Get the login user information from the token of the request, return {@code JapUser} if it exists,
+     * return {@code null} if it is not logged in or the login has expired
+     *
+     * @param request  current HTTP request
+     * @param response current HTTP response
+     * @return JapUser
+     */
+    @Override
+    public JapUser get(HttpServletRequest request, HttpServletResponse response) {
+        String token = null == cookieName ? null : RequestUtil.getCookieVal(request, cookieName);
+        if (StringUtil.isEmpty(token) && null != headerName) {
+            token = request.getHeader(headerName);
+        }
+        if (StringUtil.isEmpty(token)) {
+            return null;
+        }
+        return this.parseToken(token);
+    }
+
+    /**
+     * Create the token of the user
+     *
+     * @param japUser   The login user
+     * @param expiresAt The expiration time of the token, in milliseconds
+     * @return The token
+     */
+    public String createToken(JapUser japUser, long expiresAt) {
+        if (null == japUser || StringUtil.isEmpty(japUser.getUserId())) {
+            throw new JapException("Failed to create the user token, userid cannot be empty.");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(expiresAt);
+            out.writeUTF(japUser.getUserId());
+            out.writeBoolean(null != japUser.getUsername());
+            if (null != japUser.getUsername()) {
+                out.writeUTF(japUser.getUsername());
+            }
+        } catch (IOException e) {
+            throw new JapException("Failed to create the user token.", e);
+        }
+        byte[] body = null == encryptionKey ? this.plain(bytes.toByteArray()) : this.encrypt(bytes.toByteArray());
+        return ENCODER.encodeToString(body) + "." + ENCODER.encodeToString(mac.get().doFinal(body));
+    }
+
+    /**
+     * Verify the token and get its user
+     *
+     * @param token The token
+     * @return JapUser, or {@code null} if the token is invalid or has expired
+     */
+    public JapUser parseToken(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return null;
+        }
+        byte[] body;
+        byte[] signature;
+        try {
+            body = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (body.length == 0 || !MessageDigest.isEqual(signature, mac.get().doFinal(body))) {
+            return null;
+        }
+        byte[] payload = this.decrypt(body);
+        if (null == payload) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            if (in.readLong() <= System.currentTimeMillis()) {
+                return null;
+            }
+            JapUser japUser = new JapUser().setUserId(in.readUTF());
+            if (in.readBoolean()) {
+                japUser.setUsername(in.readUTF());
+            }
+            return japUser.setToken(token);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] plain(byte[] payload) {
+        byte[] body = new byte[payload.length + 1];
+        body[0] = PLAIN;
+        System.arraycopy(payload, 0, body, 1, payload.length);
+        return body;
+    }
+
+    private byte[] encrypt(byte[] payload) {
+        byte[] iv = new byte[IV_BYTES];
+        RANDOM.nextBytes(iv);
+        try {
+            Cipher instance = cipher.get();
+            instance.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_BITS, iv));
+            byte[] body = new byte[1 + IV_BYTES + instance.getOutputSize(payload.length)];
+            body[0] = ENCRYPTED;
+            System.arraycopy(iv, 0, body, 1, IV_BYTES);
+            instance.doFinal(payload, 0, payload.length, body, 1 + IV_BYTES);
+            return body;
+        } catch (GeneralSecurityException e) {
+            throw new JapException("Failed to encrypt the user token.", e);
+        }
+    }
+
+    /**
+     * Get the payload of a verified token body
+     *
+     * @param body The signed body of the token
+     * @return The payload, or {@code null} if it cannot be decrypted
+     */
+    private byte[] decrypt(byte[] body) {
+        if (body[0] == PLAIN) {
+            byte[] payload = new byte[body.length - 1];
+            System.arraycopy(body, 1, payload, 0, payload.length);
+            return payload;
+        }
+        if (body[0] != ENCRYPTED || null == encryptionKey || body.length <= 1 + IV_BYTES) {
+            return null;
+        }
+        try {
+            Cipher instance = cipher.get();
+            instance.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_BITS, body, 1, IV_BYTES));
+            return instance.doFinal(body, 1 + IV_BYTES, body.length - 1 - IV_BYTES);
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+    }
+
+    private Cookie createCookie(String value, int maxAge) {
+        Cookie cookie = new Cookie(cookieName, value);
+        cookie.setPath(cookiePath);
+        if (null != cookieDomain) {
+            cookie.setDomain(cookieDomain);
+        }
+        cookie.setMaxAge(maxAge);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(cookieSecure);
+        return cookie;
+    }
+
+    /**
+     * Encrypt the tokens with AES-GCM, so that the user id and the username are not readable by the client
+     *
+     * @param encryptionKey The AES key, 16, 24 or 32 bytes, shared by all the nodes
+     * @return TokenJapUserStore
+     */
+    public TokenJapUserStore setEncryptionKey(byte[] encryptionKey) {
+        if (null == encryptionKey || (encryptionKey.length != 16 && encryptionKey.length != 24 && encryptionKey.length != 32)) {
+            throw new JapException("The encryption key of the token must be 16, 24 or 32 bytes.");
+        }
+        this.encryptionKey = new SecretKeySpec(encryptionKey.clone(), "AES");
+        this.cipher = ThreadLocal.withInitial(() -> {
+            try {
+                return Cipher.getInstance(CIPHER_ALGORITHM);
+            } catch (GeneralSecurityException e) {
+                throw new JapException("Failed to initialize " + CIPHER_ALGORITHM, e);
+            }
+        });
+        return this;
+    }
+
+    public long getExpireTime() {
+        return expireTime;
+    }
+
+    public TokenJapUserStore setExpireTime(long expireTime) {
+        this.expireTime = expireTime;
+        return this;
+    }
+
+    public String getCookieName() {
+        return cookieName;
+    }
+
+    public TokenJapUserStore setCookieName(String cookieName) {
+        this.cookieName = cookieName;
+        return this;
+    }
+
+    public String getCookieDomain() {
+        return cookieDomain;
+    }
+
+    public TokenJapUserStore setCookieDomain(String cookieDomain) {
+        this.cookieDomain = cookieDomain;
+        return this;
+    }
+
+    public String getCookiePath() {
+        return cookiePath;
+    }
+
+    public TokenJapUserStore setCookiePath(String cookiePath) {
+        this.cookiePath = cookiePath;
+        return this;
+    }
+
+    public boolean isCookieSecure() {
+        return cookieSecure;
+    }
+
+    public TokenJapUserStore setCookieSecure(boolean cookieSecure) {
+        this.cookieSecure = cookieSecure;
+        return this;
+    }
+
+    public String getHeaderName() {
+        return headerName;
+    }
+
+    public TokenJapUserStore setHeaderName(String headerName) {
+        this.headerName = headerName;
+        return this;
+    }
+}
@@ -17,10 +17,10 @@ package com.fujieid.jap.core.strategy;
 
 import cn.hutool.core.util.ClassUtil;
 import cn.hutool.core.util.ObjectUtil;
+import com.fujieid.jap.core.CachingJapUserService;
 import com.fujieid.jap.core.JapUser;
 import com.fujieid.jap.core.JapUserService;
 import com.fujieid.jap.core.cache.JapCache;
-import com.fujieid.jap.core.cache.JapCacheConfig;
 import com.fujieid.jap.core.cache.JapLocalCache;
 import com.fujieid.jap.core.config.AuthenticateConfig;
 import com.fujieid.jap.core.config.JapConfig;
@@ -36,6 +36,8 @@ import com.fujieid.jap.sso.JapSsoHelper;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 /**
  * General policy handling methods and parameters, policies of other platforms can inherit
@@ -63,7 +65,7 @@ public abstract class AbstractJapStrategy implements JapStrategy {
      * @param japConfig      japConfig
      */
     public AbstractJapStrategy(JapUserService japUserService, JapConfig japConfig) {
-        this(japUserService, japConfig, new JapLocalCache());
+        this(japUserService, japConfig, new JapLocalCache(japConfig.getCacheExpireTime()));
     }
 
     /**
@@ -74,7 +76,7 @@ public abstract class AbstractJapStrategy implements JapStrategy {
      * @param japConfig      japConfig
      */
     public AbstractJapStrategy(JapUserService japUserService, JapConfig japConfig, JapCache japCache) {
-        this(japUserService, japConfig, japConfig.isSso() ? new SsoJapUserStore(japUserService, japConfig.getSsoConfig()) : new SessionJapUserStore(), japCache);
+        this(japUserService, japConfig, null, japCache);
     }
 
     /**
@@ -82,11 +84,14 @@ public abstract class AbstractJapStrategy implements JapStrategy {
      *
      * @param japUserService japUserService
      * @param japConfig      japConfig
-     * @param japUserStore   JapUserStore
+     * @param japUserStore   JapUserStore, {@code null} to use the default store
      * @param japCache       Jap cache
      */
     public AbstractJapStrategy(JapUserService japUserService, JapConfig japConfig, JapUserStore japUserStore, JapCache japCache) {
-        this.japUserService = japUserService;
+        this.japUserService = cachingIfEnabled(japUserService, japConfig);
+        if (null == japUserStore) {
+            japUserStore = japConfig.isSso() ? new SsoJapUserStore(this.japUserService, japConfig.getSsoConfig()) : new SessionJapUserStore();
+        }
         if (japConfig.isSso()) {
             // init Kisso config
             JapSsoHelper.initKissoConfig(japConfig.getSsoConfig());
@@ -94,9 +99,35 @@ public abstract class AbstractJapStrategy implements JapStrategy {
         this.japContext = new JapContext(japUserStore, japCache, japConfig);
 
         JapAuthentication.setContext(this.japContext);
+    }
 
-        // Update the cache validity period
-        JapCacheConfig.timeout = japConfig.getCacheExpireTime();
+    /**
+     * Wrap the user service with a {@link CachingJapUserService} if {@link JapConfig#getUserCacheConfig()} is set
+     *
+     * @param japUserService japUserService
+     * @param japConfig      japConfig
+     * @return JapUserService
+     */
+    private static JapUserService cachingIfEnabled(JapUserService japUserService, JapConfig japConfig) {
+        if (null == japUserService || null == japConfig.getUserCacheConfig() || japUserService instanceof CachingJapUserService) {
+            return japUserService;
+        }
+        return new CachingJapUserService(japUserService, japConfig.getUserCacheConfig());
+    }
+
+    /**
+     * Authenticate on {@link JapConfig#getAuthenticateExecutor()}, or on the default executor if it is not set
+     *
+     * @param config   Authenticate Config
+     * @param request  The request to authenticate
+     * @param response The response to authenticate
+     * @return CompletionStage of the JapResponse
+     * @since 1.0.5
+     */
+    @Override
+    public CompletionStage<JapResponse> authenticateAsync(AuthenticateConfig config, HttpServletRequest request, HttpServletResponse response) {
+        Executor executor = japContext.getConfig().getAuthenticateExecutor();
+        return this.authenticateAsync(config, request, response, null == executor ? JapStrategyExecutors.getDefault() : executor);
     }
 
     /**
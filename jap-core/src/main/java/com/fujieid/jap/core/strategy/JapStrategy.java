@@ -21,6 +21,9 @@ import com.fujieid.jap.core.result.JapResponse;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 /**
  * The unified implementation interface of JAP Strategy, which must be implemented for all specific business policies.
@@ -42,4 +45,44 @@ public interface JapStrategy {
     default JapResponse authenticate(AuthenticateConfig config, HttpServletRequest request, HttpServletResponse response) {
         return JapResponse.error(JapErrorCode.ERROR.getErrroCode(), "JapStrategy#authenticate(AuthenticateConfig, HttpServletRequest, HttpServletResponse) must be overridden by subclass");
     }
+
+    /**
+     * Authenticate on the {@link JapStrategyExecutors#getDefault() default executor}, see
+     * {@link #authenticateAsync(AuthenticateConfig, HttpServletRequest, HttpServletResponse, Executor)}
+     *
+     * @param config   Authenticate Config
+     * @param request  The request to authenticate
+     * @param response The response to authenticate
+     * @return CompletionStage of the JapResponse
+     * @since 1.0.5
+     */
+    default CompletionStage<JapResponse> authenticateAsync(AuthenticateConfig config, HttpServletRequest request, HttpServletResponse response) {
+        return this.authenticateAsync(config, request, response, JapStrategyExecutors.getDefault());
+    }
+
+    /**
+     * Run {@link #authenticate(AuthenticateConfig, HttpServletRequest, HttpServletResponse)} on the executor, so that
+     * the container thread is not blocked by the calls to the identity provider.
+     * <p>
+     * The request and the response are used after the servlet returns, so the caller must put the request into
+     * asynchronous mode with {@link HttpServletRequest#startAsync()} and complete the {@code AsyncContext} when the
+     * stage completes.
+     *
+     * @param config   Authenticate Config
+     * @param request  The request to authenticate
+     * @param response The response to authenticate
+     * @param executor The executor that runs the authentication
+     * @return CompletionStage of the JapResponse, completed exceptionally if the authentication throws an exception or
+     * the executor rejects it
+     * @since 1.0.5
+     */
+    default CompletionStage<JapResponse> authenticateAsync(AuthenticateConfig config, HttpServletRequest request, HttpServletResponse response, Executor executor) {
+        try {
+            return CompletableFuture.supplyAsync(() -> this.authenticate(config, request, response), executor);
+        } catch (RuntimeException e) {
+            CompletableFuture<JapResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
 }
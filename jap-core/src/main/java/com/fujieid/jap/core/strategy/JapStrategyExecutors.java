@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.strategy;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The executors of {@link JapStrategy#authenticateAsync(com.fujieid.jap.core.config.AuthenticateConfig,
+ * javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}.
+ * <p>
+ * On JDK 21 and later, the default executor starts a virtual thread per authentication, so the calls to the identity
+ * providers do not hold a platform thread while they wait. On earlier JDKs it is a bounded pool of daemon threads
+ * that rejects the authentications it cannot queue.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public final class JapStrategyExecutors {
+
+    /**
+     * The maximum number of threads of the bounded pool
+     */
+    public static final int MAXIMUM_POOL_SIZE = Math.max(64, Runtime.getRuntime().availableProcessors() * 8);
+
+    /**
+     * The maximum number of authentications waiting for a thread of the bounded pool
+     */
+    public static final int QUEUE_CAPACITY = 1024;
+
+    private static volatile Executor defaultExecutor;
+
+    private JapStrategyExecutors() {
+    }
+
+    /**
+     * Get the default executor, the one set by {@link #setDefault(Executor)}, otherwise the virtual threads or the
+     * bounded pool
+     *
+     * @return Executor
+     */
+    public static Executor getDefault() {
+        Executor executor = defaultExecutor;
+        return null == executor ? Holder.EXECUTOR : executor;
+    }
+
+    /**
+     * Replace the default executor
+     *
+     * @param executor Executor, {@code null} to restore the built-in one
+     */
+    public static void setDefault(Executor executor) {
+        defaultExecutor = executor;
+    }
+
+    /**
+     * Create an executor that starts a virtual thread per task
+     *
+     * @return ExecutorService, or {@code null} if the JDK does not support virtual threads
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            // Executors.newVirtualThreadPerTaskExecutor() exists since JDK 21, and as a preview API on JDK 19 and 20
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            // Not available, or a preview API that is not enabled
+            return null;
+        }
+    }
+
+    /**
+     * Create a bounded pool of daemon threads, which rejects the tasks when all threads are busy and the queue is full
+     *
+     * @param maximumPoolSize The maximum number of threads
+     * @param queueCapacity   The maximum number of waiting tasks
+     * @return ExecutorService
+     */
+    public static ExecutorService newBoundedExecutor(int maximumPoolSize, int queueCapacity) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maximumPoolSize, maximumPoolSize, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "jap-authenticate-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * The built-in default executor, created on first use
+     */
+    private static final class Holder {
+        static final Executor EXECUTOR = create();
+
+        private static Executor create() {
+            ExecutorService executor = newVirtualThreadExecutor();
+            return null == executor ? newBoundedExecutor(MAXIMUM_POOL_SIZE, QUEUE_CAPACITY) : executor;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.util;
+
+import com.fujieid.jap.core.exception.JapException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Fixed-size cache keys of the tokens.
+ * <p>
+ * A signed JWT is often longer than a thousand characters, using it as the cache key keeps a second copy of the token
+ * in the cache and hashes the whole string on every lookup. The digest is the first 128 bits of the SHA-256 of the
+ * token, encoded as 22 base64url characters, which is short, cheap to compare and still collision-resistant for
+ * any realistic number of live tokens. It also keeps the usable tokens out of the cache keys.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public final class JapTokenDigest {
+
+    /**
+     * The length of the digest in bytes
+     */
+    private static final int DIGEST_BYTES = 16;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new JapException("SHA-256 is not supported by the JVM", e);
+        }
+    });
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private JapTokenDigest() {
+    }
+
+    /**
+     * Get the digest of the token
+     *
+     * @param token The token
+     * @return The 22 characters digest, or {@code null} if the token is {@code null}
+     */
+    public static String digest(String token) {
+        if (null == token) {
+            return null;
+        }
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+        byte[] truncated = new byte[DIGEST_BYTES];
+        System.arraycopy(hash, 0, truncated, 0, DIGEST_BYTES);
+        return ENCODER.encodeToString(truncated);
+    }
+}
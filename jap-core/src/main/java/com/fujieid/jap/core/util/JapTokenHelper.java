@@ -18,15 +18,30 @@ package com.fujieid.jap.core.util;
 import cn.hutool.core.util.ObjectUtil;
 import com.baomidou.kisso.security.token.SSOToken;
 import com.fujieid.jap.core.JapConst;
+import com.fujieid.jap.core.cache.AsyncJapCache;
+import com.fujieid.jap.core.cache.JapCache;
+import com.fujieid.jap.core.cache.JapCacheClock;
+import com.fujieid.jap.core.config.JapConfig;
 import com.fujieid.jap.core.context.JapAuthentication;
+import com.fujieid.jap.core.context.JapContext;
 import com.fujieid.jap.core.exception.JapException;
 import com.fujieid.jap.sso.JapSsoUtil;
+import com.xkcoding.json.util.Kv;
 import com.xkcoding.json.util.StringUtil;
 
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 
 /**
- * jap user token helper, responsible for processing the token after the user logs in successfully
+ * jap user token helper, responsible for processing the token after the user logs in successfully.
+ * <p>
+ * A user can be logged in on several devices, each login saves a token, see {@link JapConfig#getUserTokenLimit()}.
  *
  * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
  * @version 1.0.0
@@ -34,7 +49,20 @@ import java.util.Map;
  */
 public class JapTokenHelper {
 
+    private static final JapTokenMemo TOKEN_MEMO = new JapTokenMemo();
+
+    /**
+     * The number of attempts to update the tokens of a user that is concurrently updated by other requests
+     */
+    private static final int MAX_UPDATE_ATTEMPTS = 16;
 
+    /**
+     * Save the token of a new login of the user. When the user has more than {@link JapConfig#getUserTokenLimit()}
+     * tokens, the oldest ones are removed.
+     *
+     * @param userId user id
+     * @param token  user token
+     */
     public static void saveUserToken(String userId, String token) {
         if (StringUtil.isEmpty(userId)) {
             throw new JapException("Failed to save user token, userid cannot be empty.");
@@ -42,21 +70,65 @@ public class JapTokenHelper {
         if (StringUtil.isEmpty(token)) {
             throw new JapException("Failed to save user token, user token cannot be empty.");
         }
-        JapAuthentication.getContext().getCache().set(JapConst.USER_TOKEN_KEY.concat(userId), token);
+        JapConfig japConfig = JapAuthentication.getContext().getConfig();
+        updateUserTokens(userId, tokens -> tokens.add(token, japConfig.getUserTokenLimit()), "save");
     }
 
+    /**
+     * Get the token of the last login of the user
+     *
+     * @param userId user id
+     * @return user token
+     */
     public static String getUserToken(String userId) {
         if (StringUtil.isEmpty(userId)) {
             throw new JapException("Failed to get user token, userid cannot be empty.");
         }
-        return (String) JapAuthentication.getContext().getCache().get(JapConst.USER_TOKEN_KEY.concat(userId));
+        return JapUserTokens.of(userTokenCache().get(userId)).getLastToken();
     }
 
+    /**
+     * Remove all the tokens of the user, which logs the user out of all the devices
+     *
+     * @param userId user id
+     */
     public static void removeUserToken(String userId) {
         if (StringUtil.isEmpty(userId)) {
             throw new JapException("Failed to remove user token, userid cannot be empty.");
         }
-        JapAuthentication.getContext().getCache().removeKey(JapConst.USER_TOKEN_KEY.concat(userId));
+        userTokenCache().removeKey(userId);
+        TOKEN_MEMO.invalidate(userId);
+    }
+
+    /**
+     * Remove one token of the user, which logs the user out of one device
+     *
+     * @param userId user id
+     * @param token  user token
+     * @since 1.0.5
+     */
+    public static void removeUserToken(String userId, String token) {
+        if (StringUtil.isEmpty(userId)) {
+            throw new JapException("Failed to remove user token, userid cannot be empty.");
+        }
+        if (StringUtil.isEmpty(token)) {
+            throw new JapException("Failed to remove user token, user token cannot be empty.");
+        }
+        updateUserTokens(userId, tokens -> tokens.remove(token), "remove");
+    }
+
+    /**
+     * Remove all the tokens of the users in one batch, see {@link JapCache#removeAll(Collection)}
+     *
+     * @param userIds user ids
+     * @since 1.0.5
+     */
+    public static void removeUserTokens(Collection<String> userIds) {
+        if (null == userIds || userIds.isEmpty()) {
+            return;
+        }
+        userTokenCache().removeAll(userIds);
+        userIds.forEach(TOKEN_MEMO::invalidate);
     }
 
     public static Map<String, Object> checkToken(String token) {
@@ -64,10 +136,182 @@ public class JapTokenHelper {
         if (ObjectUtil.isNull(ssoToken)) {
             return null;
         }
-        String cacheKey = JapConst.USER_TOKEN_KEY.concat(ssoToken.getId());
-        if (!JapAuthentication.getContext().getCache().containsKey(cacheKey)) {
+        if (!isActive(ssoToken.getId(), JapTokenDigest.digest(token))) {
             return null;
         }
         return ssoToken.getClaims();
     }
+
+    /**
+     * Verify the token and its expiration time.
+     * <p>
+     * The verified tokens are remembered until they expire or the token of their user is removed, so that checking
+     * the same token again neither verifies the signature nor looks up the cache, see
+     * {@link JapConfig#getVerifiedTokenCacheSize()}. If the cache does not support removal listeners, the tokens are
+     * only remembered for {@link JapConfig#getVerifiedTokenCacheTtl()} seconds, the time a token removed by another
+     * node may still be accepted.
+     *
+     * @param token           user token
+     * @param tokenExpireTime The valid time of the token after its creation, in milliseconds
+     * @return The read-only claims of the token, or {@code null} if the token is invalid or has expired
+     * @since 1.0.5
+     */
+    public static Map<String, Object> checkToken(String token, long tokenExpireTime) {
+        JapContext context = JapAuthentication.getContext();
+        TOKEN_MEMO.watch(context.getCache());
+        String digest = JapTokenDigest.digest(token);
+        Map<String, Object> claims = TOKEN_MEMO.get(digest);
+        if (null != claims) {
+            return claims;
+        }
+        long stamp = TOKEN_MEMO.stamp();
+        SSOToken ssoToken = JapSsoUtil.parseToken(token);
+        if (ObjectUtil.isNull(ssoToken)) {
+            return null;
+        }
+        if (!isActive(ssoToken.getId(), digest)) {
+            return null;
+        }
+        Kv kv = new Kv();
+        kv.putAll(ssoToken.getClaims());
+        // Get the token creation time, multiplied by 1000 is the number of milliseconds
+        long expiresAt = kv.getLong("iat") * 1000 + tokenExpireTime;
+        if (expiresAt <= System.currentTimeMillis()) {
+            return null;
+        }
+        claims = Collections.unmodifiableMap(ssoToken.getClaims());
+        JapConfig config = context.getConfig();
+        if (!TOKEN_MEMO.followsRemovals()) {
+            // The removals by the other nodes are not notified, recheck the cache soon
+            long ttl = TimeUnit.SECONDS.toMillis(config.getVerifiedTokenCacheTtl());
+            if (ttl <= 0) {
+                return claims;
+            }
+            expiresAt = Math.min(expiresAt, JapCacheClock.currentTimeMillis() + ttl);
+        }
+        TOKEN_MEMO.put(digest, ssoToken.getId(), claims, expiresAt, config.getVerifiedTokenCacheSize(), stamp);
+        return claims;
+    }
+
+    /**
+     * The asynchronous variant of {@link #saveUserToken(String, String)}, uses
+     * {@link com.fujieid.jap.core.context.JapContext#getAsyncCache()}. The tokens of the user are read and written
+     * back without {@link JapCache#compareAndSet}, a concurrent login of the same user may be lost.
+     *
+     * @param userId user id
+     * @param token  user token
+     * @return CompletionStage, completed when the token has been saved
+     * @since 1.0.5
+     */
+    public static CompletionStage<Void> saveUserTokenAsync(String userId, String token) {
+        if (StringUtil.isEmpty(userId)) {
+            throw new JapException("Failed to save user token, userid cannot be empty.");
+        }
+        if (StringUtil.isEmpty(token)) {
+            throw new JapException("Failed to save user token, user token cannot be empty.");
+        }
+        JapConfig japConfig = JapAuthentication.getContext().getConfig();
+        AsyncJapCache cache = asyncUserTokenCache();
+        return cache.getAsync(userId)
+            .thenCompose(value -> cache.setAsync(userId, JapUserTokens.of(value).add(token, japConfig.getUserTokenLimit()),
+                japConfig.getTokenExpireTime()));
+    }
+
+    /**
+     * The asynchronous variant of {@link #getUserToken(String)}
+     *
+     * @param userId user id
+     * @return CompletionStage of the user token
+     * @since 1.0.5
+     */
+    public static CompletionStage<String> getUserTokenAsync(String userId) {
+        if (StringUtil.isEmpty(userId)) {
+            throw new JapException("Failed to get user token, userid cannot be empty.");
+        }
+        return asyncUserTokenCache().getAsync(userId)
+            .thenApply(value -> JapUserTokens.of(value).getLastToken());
+    }
+
+    /**
+     * The asynchronous variant of {@link #removeUserToken(String)}
+     *
+     * @param userId user id
+     * @return CompletionStage, completed when the token has been removed
+     * @since 1.0.5
+     */
+    public static CompletionStage<Void> removeUserTokenAsync(String userId) {
+        if (StringUtil.isEmpty(userId)) {
+            throw new JapException("Failed to remove user token, userid cannot be empty.");
+        }
+        TOKEN_MEMO.invalidate(userId);
+        return asyncUserTokenCache().removeKeyAsync(userId)
+            .thenRun(() -> TOKEN_MEMO.invalidate(userId));
+    }
+
+    /**
+     * The asynchronous variant of {@link #checkToken(String)}
+     *
+     * @param token user token
+     * @return CompletionStage of the claims of the token, the value is {@code null} if the token is invalid
+     * @since 1.0.5
+     */
+    public static CompletionStage<Map<String, Object>> checkTokenAsync(String token) {
+        SSOToken ssoToken = JapSsoUtil.parseToken(token);
+        if (ObjectUtil.isNull(ssoToken)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String digest = JapTokenDigest.digest(token);
+        return asyncUserTokenCache().getAsync(ssoToken.getId())
+            .thenApply(value -> JapUserTokens.of(value).contains(digest) ? ssoToken.getClaims() : null);
+    }
+
+    /**
+     * Check whether the token is one of the tokens of the user
+     *
+     * @param userId user id
+     * @param digest The digest of the token
+     * @return boolean
+     */
+    private static boolean isActive(String userId, String digest) {
+        return JapUserTokens.of(userTokenCache().get(userId)).contains(digest);
+    }
+
+    /**
+     * Replace the tokens of the user atomically, retry if they are concurrently updated
+     *
+     * @param userId    user id
+     * @param update    Create the new tokens from the current ones
+     * @param operation The name of the operation, used in the error message
+     */
+    private static void updateUserTokens(String userId, UnaryOperator<JapUserTokens> update, String operation) {
+        JapCache cache = userTokenCache();
+        long timeout = JapAuthentication.getContext().getConfig().getTokenExpireTime();
+        for (int i = 0; i < MAX_UPDATE_ATTEMPTS; i++) {
+            Serializable current = cache.get(userId);
+            JapUserTokens tokens = JapUserTokens.of(current);
+            JapUserTokens updated = update.apply(tokens);
+            boolean replaced;
+            if (null == current) {
+                replaced = updated.isEmpty() || cache.putIfAbsent(userId, updated, timeout);
+            } else {
+                replaced = cache.compareAndSet(userId, current, updated.isEmpty() ? null : updated, timeout);
+            }
+            if (replaced) {
+                // The removed or evicted tokens must not be accepted by the memo any more
+                if (!updated.containsAll(tokens)) {
+                    TOKEN_MEMO.invalidate(userId);
+                }
+                return;
+            }
+        }
+        throw new JapException("Failed to " + operation + " user token, the tokens of the user are updated concurrently.");
+    }
+
+    private static JapCache userTokenCache() {
+        return JapAuthentication.getContext().getCache().region(JapConst.USER_TOKEN_CACHE_REGION);
+    }
+
+    private static AsyncJapCache asyncUserTokenCache() {
+        return JapAuthentication.getContext().getAsyncCache().asyncRegion(JapConst.USER_TOKEN_CACHE_REGION);
+    }
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.util;
+
+import com.fujieid.jap.core.JapConst;
+import com.fujieid.jap.core.cache.JapCache;
+import com.fujieid.jap.core.cache.JapCacheClock;
+import com.fujieid.jap.core.cache.JapCacheRemovalCause;
+import com.fujieid.jap.core.cache.JapCacheRemovalListener;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The tokens that have passed {@link JapTokenHelper#checkToken(String, long)}, keyed by {@link JapTokenDigest}, so
+ * that checking the same token again is a hash lookup instead of a signature verification and a cache round trip.
+ * <p>
+ * An entry lives until the token expires and is dropped when the token of its user is removed, either by
+ * {@link JapTokenHelper#removeUserToken(String)} or, if the cache supports removal listeners, by any removal or
+ * expiration of the user token. Without removal listeners, the removals on the other nodes are not seen, so
+ * {@link JapTokenHelper} keeps the entries only briefly, see {@link #followsRemovals()}. When the memo is full, the
+ * expired entries are dropped first, then arbitrary ones.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+final class JapTokenMemo {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    /**
+     * Incremented by every invalidation, so that a token verified before the invalidation is not memorized after it
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+    private final JapCacheRemovalListener listener = (userId, token, cause) -> {
+        // Every login replaces the tokens of the user, JapTokenHelper invalidates the user when a token is dropped
+        if (cause != JapCacheRemovalCause.REPLACED) {
+            this.invalidate(userId);
+        }
+    };
+    private volatile JapCache watchedCache;
+    private volatile boolean followsRemovals;
+
+    /**
+     * Get the claims of a verified token
+     *
+     * @param digest The digest of the token
+     * @return The claims, or {@code null} if the token has not been verified or has expired
+     */
+    Map<String, Object> get(String digest) {
+        Entry entry = entries.get(digest);
+        if (null == entry) {
+            return null;
+        }
+        if (entry.expiresAt <= JapCacheClock.currentTimeMillis()) {
+            entries.remove(digest, entry);
+            return null;
+        }
+        return entry.claims;
+    }
+
+    /**
+     * Get the stamp to pass to {@link #put(String, String, Map, long, int, long)}, taken before the user token is
+     * looked up in the cache
+     *
+     * @return The number of invalidations so far
+     */
+    long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Memorize a verified token
+     *
+     * @param digest      The digest of the token
+     * @param userId      The user id of the token
+     * @param claims      The claims of the token
+     * @param expiresAt   The expiration time of the token, in milliseconds
+     * @param maximumSize The maximum number of tokens, {@code <= 0} disables the memo
+     * @param stamp       The stamp taken before the token was verified, see {@link #stamp()}
+     */
+    void put(String digest, String userId, Map<String, Object> claims, long expiresAt, int maximumSize, long stamp) {
+        if (maximumSize <= 0 || null == userId) {
+            return;
+        }
+        if (entries.size() >= maximumSize) {
+            this.evict(maximumSize);
+        }
+        Entry entry = new Entry(userId, claims, expiresAt);
+        entries.put(digest, entry);
+        // The user token was removed while the token was being verified
+        if (invalidations.get() != stamp) {
+            entries.remove(digest, entry);
+        }
+    }
+
+    /**
+     * Forget all the tokens of the user
+     *
+     * @param userId user id
+     */
+    void invalidate(String userId) {
+        invalidations.incrementAndGet();
+        entries.values().removeIf(entry -> entry.userId.equals(userId));
+    }
+
+    /**
+     * Forget all the tokens
+     */
+    void clear() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Follow the removals of the user tokens in the cache. When the cache changes, the tokens verified against the
+     * previous cache are forgotten.
+     *
+     * @param cache The cache of the jap context
+     */
+    void watch(JapCache cache) {
+        if (cache == watchedCache) {
+            return;
+        }
+        synchronized (this) {
+            if (cache == watchedCache) {
+                return;
+            }
+            if (null != watchedCache) {
+                watchedCache.region(JapConst.USER_TOKEN_CACHE_REGION).removeRemovalListener(listener);
+            }
+            JapCache region = cache.region(JapConst.USER_TOKEN_CACHE_REGION);
+            // Otherwise only the local removals are followed, through JapTokenHelper#removeUserToken
+            followsRemovals = region.supportsRemovalListeners();
+            if (followsRemovals) {
+                region.addRemovalListener(listener);
+            }
+            this.clear();
+            watchedCache = cache;
+        }
+    }
+
+    /**
+     * Whether every removal of a user token in the watched cache drops the tokens of the user, including the removals
+     * made by other nodes
+     *
+     * @return {@code true} if the watched cache supports removal listeners
+     */
+    boolean followsRemovals() {
+        return followsRemovals;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evict(int maximumSize) {
+        long now = JapCacheClock.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() >= maximumSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static final class Entry {
+        private final String userId;
+        private final Map<String, Object> claims;
+        private final long expiresAt;
+
+        private Entry(String userId, Map<String, Object> claims, long expiresAt) {
+            this.userId = userId;
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.util;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+
+/**
+ * The active tokens of a user, one per logged in device, kept in the user token cache as the digests of the tokens,
+ * see {@link JapTokenDigest}. The instances are never modified after they are cached, every change creates a copy
+ * that replaces the cached one with {@link com.fujieid.jap.core.cache.JapCache#compareAndSet}.
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+final class JapUserTokens implements Serializable {
+
+    private static final long serialVersionUID = -2186425311069214957L;
+
+    /**
+     * The digests of the tokens, the oldest first
+     */
+    private final LinkedHashSet<String> digests;
+    /**
+     * The token of the last login, returned by {@link JapTokenHelper#getUserToken(String)}
+     */
+    private final String lastToken;
+
+    private JapUserTokens(LinkedHashSet<String> digests, String lastToken) {
+        this.digests = digests;
+        this.lastToken = lastToken;
+    }
+
+    /**
+     * Get the tokens of a cached value
+     *
+     * @param value The cached value, a single token saved before 1.0.5, or {@code null}
+     * @return JapUserTokens, empty if the value is {@code null}
+     */
+    static JapUserTokens of(Object value) {
+        if (value instanceof JapUserTokens) {
+            return (JapUserTokens) value;
+        }
+        LinkedHashSet<String> digests = new LinkedHashSet<>();
+        if (value instanceof String) {
+            digests.add(JapTokenDigest.digest((String) value));
+            return new JapUserTokens(digests, (String) value);
+        }
+        return new JapUserTokens(digests, null);
+    }
+
+    boolean contains(String digest) {
+        return digests.contains(digest);
+    }
+
+    boolean isEmpty() {
+        return digests.isEmpty();
+    }
+
+    int size() {
+        return digests.size();
+    }
+
+    String getLastToken() {
+        return lastToken;
+    }
+
+    /**
+     * Add a token, the oldest tokens are dropped when there are more than {@code limit} tokens
+     *
+     * @param token The new token
+     * @param limit The maximum number of tokens, {@code <= 0} means no limit
+     * @return A new instance with the token
+     */
+    JapUserTokens add(String token, int limit) {
+        LinkedHashSet<String> copy = new LinkedHashSet<>(digests);
+        copy.add(JapTokenDigest.digest(token));
+        if (limit > 0) {
+            Iterator<String> iterator = copy.iterator();
+            while (copy.size() > limit) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        return new JapUserTokens(copy, token);
+    }
+
+    /**
+     * Remove a token
+     *
+     * @param token The removed token
+     * @return A new instance without the token
+     */
+    JapUserTokens remove(String token) {
+        LinkedHashSet<String> copy = new LinkedHashSet<>(digests);
+        copy.remove(JapTokenDigest.digest(token));
+        return new JapUserTokens(copy, token.equals(lastToken) ? null : lastToken);
+    }
+
+    /**
+     * Check whether all the tokens of another instance are still here
+     *
+     * @param other JapUserTokens
+     * @return boolean
+     */
+    boolean containsAll(JapUserTokens other) {
+        return digests.containsAll(other.digests);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof JapUserTokens)) {
+            return false;
+        }
+        JapUserTokens that = (JapUserTokens) o;
+        return digests.equals(that.digests) && Objects.equals(lastToken, that.lastToken);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(digests, lastToken);
+    }
+}
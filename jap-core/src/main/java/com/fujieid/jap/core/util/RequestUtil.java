@@ -15,8 +15,7 @@
  */
 package com.fujieid.jap.core.util;
 
-import cn.hutool.core.map.MapUtil;
-import cn.hutool.core.util.ArrayUtil;
+import com.fujieid.jap.core.context.JapRequestContext;
 import com.xkcoding.json.util.StringUtil;
 
 import javax.servlet.http.Cookie;
@@ -24,9 +23,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.util.Arrays;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * http servlet request util
@@ -93,11 +90,14 @@ public class RequestUtil {
      * @return string
      */
     public static String getUa(HttpServletRequest request) {
-        return getHeader("User-Agent", request);
+        if (null == request) {
+            return "";
+        }
+        return JapRequestContext.of(request).getUserAgent();
     }
 
     /**
-     * Get the IP of the current HTTP request
+     * Get the IP of the current HTTP request, see {@link JapRequestContext#getIp()}
      *
      * @param request current HTTP request
      * @return string
@@ -106,45 +106,7 @@ public class RequestUtil {
         if (null == request) {
             return "";
         }
-        String[] headers = {"X-Forwarded-For", "X-Real-IP", "Proxy-Client-IP", "WL-Proxy-Client-IP", "HTTP_CLIENT_IP", "HTTP_X_FORWARDED_FOR"};
-        String ip;
-        for (String header : headers) {
-            ip = request.getHeader(header);
-            if (isValidIp(ip)) {
-                return getMultistageReverseProxyIp(ip);
-            }
-        }
-        ip = request.getRemoteAddr();
-        return getMultistageReverseProxyIp(ip);
-    }
-
-    /**
-     * Obtain the first non-unknown ip address from the multi-level reverse proxy
-     *
-     * @param ip IP
-     * @return The first non-unknown ip address
-     */
-    private static String getMultistageReverseProxyIp(String ip) {
-        if (ip != null && ip.indexOf(",") > 0) {
-            final String[] ips = ip.trim().split(",");
-            for (String subIp : ips) {
-                if (isValidIp(subIp)) {
-                    ip = subIp;
-                    break;
-                }
-            }
-        }
-        return ip;
-    }
-
-    /**
-     * Verify ip legitimacy
-     *
-     * @param ip ip
-     * @return boolean
-     */
-    private static boolean isValidIp(String ip) {
-        return !StringUtil.isEmpty(ip) && !"unknown".equalsIgnoreCase(ip);
+        return JapRequestContext.of(request).getIp();
     }
 
     /**
@@ -185,8 +147,7 @@ public class RequestUtil {
      * @return String
      */
     public static String getCookieVal(HttpServletRequest request, String name) {
-        Cookie cookie = getCookie(request, name);
-        return cookie != null ? cookie.getValue() : null;
+        return JapRequestContext.of(request).getCookieValue(name);
     }
 
     /**
@@ -197,30 +158,19 @@ public class RequestUtil {
      * @return Cookie
      */
     public static Cookie getCookie(HttpServletRequest request, String name) {
-        Cookie[] cookies = request.getCookies();
-        if (cookies != null) {
-            for (Cookie cookie : cookies) {
-                if (name.equals(cookie.getName())) {
-                    return cookie;
-                }
-            }
-        }
-        return null;
+        return JapRequestContext.of(request).getCookie(name);
     }
 
     /**
-     * Get all the cookies, and use the cookie name as the key to form a map
+     * Get all the cookies, and use the cookie name as the key to form a map.
+     * <p>
+     * The map is parsed once per request and shared through {@link JapRequestContext}, it cannot be modified.
      *
      * @param request current HTTP request
      * @return Map
      */
     public static Map<String, Cookie> getCookieMap(HttpServletRequest request) {
-        final Cookie[] cookies = request.getCookies();
-        if (ArrayUtil.isEmpty(cookies)) {
-            return MapUtil.empty();
-        }
-
-        return Arrays.stream(cookies).collect(Collectors.toMap(Cookie::getName, v -> v, (k1, k2) -> k1));
+        return JapRequestContext.of(request).getCookies();
     }
 
     /**
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core;
+
+import com.fujieid.jap.core.config.JapUserCacheConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachingJapUserServiceTest {
+
+    private final AtomicInteger lookups = new AtomicInteger();
+    private String password = "old";
+    private final JapUserService japUserService = new JapUserService() {
+        @Override
+        public JapUser getById(String userId) {
+            lookups.incrementAndGet();
+            return "1111".equals(userId) ? new JapUser().setUserId("1111").setUsername("jap") : null;
+        }
+
+        @Override
+        public JapUser getByName(String username) {
+            lookups.incrementAndGet();
+            if (!"jap".equals(username)) {
+                return null;
+            }
+            Map<String, Object> additional = new HashMap<>();
+            additional.put("role", "user");
+            return new JapUser().setUserId("1111").setUsername("jap").setPassword(password).setAdditional(additional);
+        }
+
+        @Override
+        public boolean validPassword(String password, JapUser user) {
+            return password.equals(user.getPassword());
+        }
+
+        @Override
+        public JapUser getByPlatformAndUid(String platform, String uid) {
+            lookups.incrementAndGet();
+            return null;
+        }
+
+        @Override
+        public JapUser createAndGetOauth2User(String platform, Map<String, Object> userInfo, Object tokenInfo) {
+            return new JapUser().setUserId("2222").setUsername("oauth2");
+        }
+    };
+
+    @Test
+    public void getById() {
+        CachingJapUserService service = new CachingJapUserService(japUserService);
+        JapUser japUser = service.getById("1111");
+        Assert.assertEquals("jap", japUser.getUsername());
+        // The cached user is a copy
+        japUser.setToken("token");
+        Assert.assertNull(service.getById("1111").getToken());
+        Assert.assertEquals(1, lookups.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getByNameCopiesAdditional() {
+        CachingJapUserService service = new CachingJapUserService(japUserService);
+        JapUser japUser = service.getByName("jap");
+        ((Map<String, Object>) japUser.getAdditional()).put("role", "admin");
+        JapUser cached = service.getByName("jap");
+        Assert.assertEquals("user", ((Map<String, Object>) cached.getAdditional()).get("role"));
+        ((Map<String, Object>) cached.getAdditional()).put("role", "admin");
+        Assert.assertEquals("user", ((Map<String, Object>) service.getByName("jap").getAdditional()).get("role"));
+        Assert.assertEquals(1, lookups.get());
+    }
+
+    @Test
+    public void validPasswordAfterChange() {
+        CachingJapUserService service = new CachingJapUserService(japUserService);
+        Assert.assertTrue(service.validPassword("old", service.getByName("jap")));
+        password = "new";
+        // The cached user has no password, it is checked against the current user
+        JapUser cached = service.getByName("jap");
+        Assert.assertNull(cached.getPassword());
+        Assert.assertFalse(service.validPassword("old", cached));
+        Assert.assertTrue(service.validPassword("new", cached));
+    }
+
+    @Test
+    public void getMissingUser() {
+        CachingJapUserService service = new CachingJapUserService(japUserService);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertNull(service.getByName("unknown"));
+        }
+        Assert.assertEquals(1, lookups.get());
+
+        CachingJapUserService noNegativeCache = new CachingJapUserService(japUserService, new JapUserCacheConfig().setNegativeExpireTime(0));
+        Assert.assertNull(noNegativeCache.getByName("unknown"));
+        Assert.assertNull(noNegativeCache.getByName("unknown"));
+        Assert.assertEquals(3, lookups.get());
+    }
+
+    @Test
+    public void getByPlatformAndUidDoesNotCacheMissingUsers() {
+        CachingJapUserService service = new CachingJapUserService(japUserService);
+        Assert.assertNull(service.getByPlatformAndUid("gitee", "1"));
+        Assert.assertNull(service.getByPlatformAndUid("gitee", "1"));
+        Assert.assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void expire() throws InterruptedException {
+        CachingJapUserService service = new CachingJapUserService(japUserService, new JapUserCacheConfig().setExpireTime(100));
+        service.getById("1111");
+        service.getById("1111");
+        Thread.sleep(200);
+        service.getById("1111");
+        Assert.assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void invalidate() {
+        CachingJapUserService service = new CachingJapUserService(japUserService);
+        service.getById("1111");
+        service.getByName("jap");
+        service.getById("2222");
+        service.invalidate(new JapUser().setUserId("1111").setUsername("jap"));
+        service.getById("1111");
+        service.getByName("jap");
+        Assert.assertEquals(5, lookups.get());
+
+        // A created user is no longer missing
+        service.createAndGetOauth2User("gitee", null, null);
+        service.getById("2222");
+        Assert.assertEquals(6, lookups.get());
+
+        service.invalidateAll();
+        service.getById("1111");
+        Assert.assertEquals(7, lookups.get());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * unit test
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class AsyncJapCacheTest {
+
+    @Test
+    public void adaptOnCallingThread() {
+        JapLocalCache cache = new JapLocalCache();
+        AsyncJapCache asyncCache = AsyncJapCache.of(cache);
+
+        CompletableFuture<Void> set = asyncCache.setAsync("key", "value").toCompletableFuture();
+        Assert.assertTrue(set.isDone());
+        Assert.assertEquals("value", cache.get("key"));
+        Assert.assertEquals("value", asyncCache.getAsync("key").toCompletableFuture().join());
+        Assert.assertTrue(asyncCache.containsKeyAsync("key").toCompletableFuture().join());
+
+        asyncCache.removeKeyAsync("key").toCompletableFuture().join();
+        Assert.assertFalse(cache.containsKey("key"));
+    }
+
+    @Test
+    public void adaptOnExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            JapLocalCache cache = new JapLocalCache();
+            AsyncJapCache asyncCache = AsyncJapCache.of(cache, executor);
+
+            Map<String, Serializable> values = new HashMap<>();
+            values.put("key1", "value1");
+            values.put("key2", "value2");
+            asyncCache.setAllAsync(values, Collections.singletonMap("key1", 10000L)).toCompletableFuture().get();
+            Assert.assertEquals(values, asyncCache.getAllAsync(Arrays.asList("key1", "key2", "key3")).toCompletableFuture().get());
+
+            asyncCache.removeAllAsync(values.keySet()).toCompletableFuture().get();
+            Assert.assertFalse(cache.containsKey("key1"));
+            Assert.assertFalse(cache.containsKey("key2"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void failuresCompleteTheStage() {
+        JapCache failing = new JapLocalCache() {
+            @Override
+            public Serializable get(String key) {
+                throw new IllegalStateException("unreachable store");
+            }
+        };
+        CompletableFuture<Serializable> future = AsyncJapCache.of(failing).getAsync("key").toCompletableFuture();
+        Assert.assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            Assert.fail();
+        } catch (InterruptedException | ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
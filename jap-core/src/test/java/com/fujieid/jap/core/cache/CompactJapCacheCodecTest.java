@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import com.fujieid.jap.core.exception.JapException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+
+/**
+ * unit test
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class CompactJapCacheCodecTest {
+
+    @Test
+    public void builtInTypes() {
+        CompactJapCacheCodec codec = new CompactJapCacheCodec();
+        Assert.assertNull(codec.decode(codec.encode(null)));
+        Assert.assertEquals("中文 value", codec.decode(codec.encode("中文 value")));
+        Assert.assertEquals(Long.MIN_VALUE, codec.decode(codec.encode(Long.MIN_VALUE)));
+        Assert.assertEquals(-1, codec.decode(codec.encode(-1)));
+        Assert.assertEquals(true, codec.decode(codec.encode(true)));
+        Assert.assertEquals(2, codec.encode(1L).length);
+
+        HashMap<String, Object> map = new HashMap<>();
+        map.put("username", "jap");
+        Assert.assertEquals(map, codec.decode(codec.encode(map)));
+    }
+
+    @Test
+    public void registeredSerializer() {
+        CompactJapCacheCodec codec = new CompactJapCacheCodec().register(new PointSerializer());
+        LocalDateTime time = LocalDateTime.of(2021, 3, 1, 12, 30, 15, 123);
+        Point point = new Point("a", time);
+        byte[] bytes = codec.encode(point);
+        Assert.assertTrue(bytes.length < new JdkJapCacheCodec().encode(point).length);
+
+        Point decoded = (Point) codec.decode(bytes);
+        Assert.assertEquals("a", decoded.name);
+        Assert.assertEquals(time, decoded.time);
+
+        // The type id is unknown to a codec without the serializer
+        Assert.assertThrows(JapException.class, () -> new CompactJapCacheCodec().decode(bytes));
+        Assert.assertThrows(IllegalArgumentException.class, () -> new CompactJapCacheCodec().register(new PointSerializer() {
+            @Override
+            public int typeId() {
+                return 1;
+            }
+        }));
+    }
+
+    static class Point implements Serializable {
+        String name;
+        LocalDateTime time;
+
+        Point(String name, LocalDateTime time) {
+            this.name = name;
+            this.time = time;
+        }
+    }
+
+    static class PointSerializer implements JapCacheSerializer<Point> {
+
+        @Override
+        public int typeId() {
+            return 100;
+        }
+
+        @Override
+        public Class<Point> type() {
+            return Point.class;
+        }
+
+        @Override
+        public void write(Point value, DataOutput out) throws IOException {
+            CompactJapCacheCodec.writeString(out, value.name);
+            CompactJapCacheCodec.writeDateTime(out, value.time);
+        }
+
+        @Override
+        public Point read(DataInput in) throws IOException {
+            return new Point(CompactJapCacheCodec.readString(in), CompactJapCacheCodec.readDateTime(in));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * unit test
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class JapCacheSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restoreLazilyAfterRestart() throws IOException, InterruptedException {
+        File file = new File(folder.getRoot(), "cache.snapshot");
+        JapLocalCache cache = new JapLocalCache();
+        cache.enableSnapshot(file);
+        cache.set("token", "user");
+        cache.set("code", "state", 10);
+        cache.set("removed", "value");
+        cache.removeKey("removed");
+        cache.saveSnapshot();
+        Thread.sleep(50);
+
+        JapLocalCache restarted = new JapLocalCache();
+        restarted.enableSnapshot(file);
+        Assert.assertTrue(restarted.entries().isEmpty());
+        Assert.assertEquals("user", restarted.get("token"));
+        Assert.assertEquals(1, restarted.entries().size());
+        Assert.assertNull(restarted.get("code"));
+        Assert.assertFalse(restarted.containsKey("removed"));
+    }
+
+    @Test
+    public void writesWinOverTheSnapshot() {
+        File file = new File(folder.getRoot(), "cache.snapshot");
+        JapLocalCache cache = new JapLocalCache();
+        cache.enableSnapshot(file);
+        cache.set("key1", "old");
+        cache.set("key2", "old");
+        cache.saveSnapshot();
+
+        JapLocalCache restarted = new JapLocalCache();
+        restarted.enableSnapshot(file);
+        restarted.set("key1", "new");
+        restarted.removeKey("key2");
+        Assert.assertEquals("new", restarted.get("key1"));
+        Assert.assertNull(restarted.get("key2"));
+    }
+
+    @Test
+    public void compactStaleRecords() {
+        File file = new File(folder.getRoot(), "cache.snapshot");
+        JapLocalCache cache = new JapLocalCache();
+        cache.enableSnapshot(file);
+        for (int i = 0; i < 2000; i++) {
+            cache.set("key" + (i % 10), "value" + i);
+            cache.saveSnapshot();
+        }
+        Assert.assertFalse(new File(folder.getRoot(), "cache.snapshot.tmp").exists());
+
+        JapLocalCache restarted = new JapLocalCache();
+        restarted.enableSnapshot(file);
+        for (int i = 1990; i < 2000; i++) {
+            Assert.assertEquals("value" + i, restarted.get("key" + (i % 10)));
+        }
+    }
+
+    @Test
+    public void discardCorruptTail() throws IOException {
+        File file = new File(folder.getRoot(), "cache.snapshot");
+        JapLocalCache cache = new JapLocalCache();
+        cache.enableSnapshot(file);
+        cache.set("first", "1");
+        cache.saveSnapshot();
+        cache.set("second", "2");
+        cache.saveSnapshot();
+        cache.disableSnapshot();
+
+        // The key length of the second record points past the end of the file
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(8);
+            int second = 8 + 4 + raf.readInt();
+            raf.seek(second + 4 + 9);
+            raf.writeInt(Integer.MAX_VALUE);
+        }
+
+        JapLocalCache restarted = new JapLocalCache();
+        restarted.enableSnapshot(file);
+        Assert.assertEquals("1", restarted.get("first"));
+        Assert.assertNull(restarted.get("second"));
+        // The corrupt tail is overwritten by the next records
+        restarted.set("third", "3");
+        restarted.saveSnapshot();
+        restarted.disableSnapshot();
+
+        JapLocalCache again = new JapLocalCache();
+        again.enableSnapshot(file);
+        Assert.assertEquals("1", again.get("first"));
+        Assert.assertEquals("3", again.get("third"));
+        Assert.assertNull(again.get("second"));
+    }
+
+    @Test
+    public void disableSnapshot() {
+        File file = new File(folder.getRoot(), "cache.snapshot");
+        JapLocalCache cache = new JapLocalCache();
+        cache.enableSnapshot(file);
+        cache.set("saved", "value");
+        cache.region("region").set("key", "value");
+        cache.disableSnapshot();
+        cache.set("unsaved", "value");
+        cache.saveSnapshot();
+        Assert.assertTrue(file.exists());
+
+        JapLocalCache restarted = new JapLocalCache();
+        restarted.enableSnapshot(file);
+        Assert.assertEquals("value", restarted.get("saved"));
+        Assert.assertEquals("value", restarted.region("region").get("key"));
+        Assert.assertNull(restarted.get("unsaved"));
+
+        restarted.disableSnapshot();
+
+        // The entries that have not been read are loaded when the snapshot is disabled
+        JapLocalCache unread = new JapLocalCache();
+        unread.enableSnapshot(file);
+        Assert.assertTrue(unread.entries().isEmpty());
+        unread.disableSnapshot();
+        Assert.assertEquals(1, unread.entries().size());
+        Assert.assertEquals("value", unread.get("saved"));
+        // And it can be enabled again
+        unread.enableSnapshot(file);
+        unread.disableSnapshot();
+    }
+}
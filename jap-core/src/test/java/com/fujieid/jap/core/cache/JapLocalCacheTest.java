@@ -15,9 +15,24 @@
  */
 package com.fujieid.jap.core.cache;
 
+import cn.hutool.core.util.ObjectUtil;
+import com.fujieid.jap.core.JapConst;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * unit test
  *
@@ -85,4 +100,407 @@ public class JapLocalCacheTest {
         boolean containsKey = japCache.containsKey("Key");
         Assert.assertFalse(containsKey);
     }
+
+    @Test
+    public void instancesDoNotShareStorage() {
+        JapCache japCache = new JapLocalCache();
+        JapCache otherCache = new JapLocalCache();
+        japCache.set("isolatedKey", "value");
+        Assert.assertTrue(japCache.containsKey("isolatedKey"));
+        Assert.assertFalse(otherCache.containsKey("isolatedKey"));
+    }
+
+    @Test
+    public void getExpiredKey() throws InterruptedException {
+        JapCache japCache = new JapLocalCache();
+        japCache.set("expiredKey", "value", 1);
+        Thread.sleep(50);
+        Assert.assertNull(japCache.get("expiredKey"));
+        Assert.assertFalse(japCache.containsKey("expiredKey"));
+    }
+
+    @Test
+    public void removeKey() {
+        JapCache japCache = new JapLocalCache();
+        japCache.set("removedKey", "value");
+        japCache.removeKey("removedKey");
+        japCache.removeKey(null);
+        Assert.assertNull(japCache.get("removedKey"));
+    }
+
+    @Test
+    public void boundedBySize() {
+        JapLocalCache japCache = new JapLocalCache(100, 0, null);
+        for (int i = 0; i < 1000; i++) {
+            japCache.set("key" + i, "value" + i);
+        }
+        int size = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (japCache.containsKey("key" + i)) {
+                size++;
+            }
+        }
+        Assert.assertEquals(100, size);
+        Assert.assertEquals(900, japCache.getEvictionCount());
+    }
+
+    @Test
+    public void boundedByWeight() {
+        JapLocalCache japCache = new JapLocalCache(0, 10_000, (key, value) -> 1_000);
+        for (int i = 0; i < 100; i++) {
+            japCache.set("key" + i, "value" + i);
+        }
+        Assert.assertEquals(10_000, japCache.getWeightedSize());
+        Assert.assertEquals(90, japCache.getEvictionCount());
+    }
+
+    @Test
+    public void hotKeysSurviveOneShotBurst() {
+        JapLocalCache japCache = new JapLocalCache(100, 0, null);
+        for (int i = 0; i < 50; i++) {
+            japCache.set("token" + i, "value" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 100 == 0) {
+                // The tokens are validated on every request while the one-shot codes are never read
+                for (int j = 0; j < 50; j++) {
+                    japCache.get("token" + j);
+                }
+            }
+            japCache.set("code" + i, "value" + i);
+        }
+        for (int i = 0; i < 50; i++) {
+            Assert.assertTrue(japCache.containsKey("token" + i));
+        }
+    }
+
+    @Test
+    public void boundedRemoveAndReplace() {
+        JapLocalCache japCache = new JapLocalCache(10, 0, null);
+        japCache.set("key", "value");
+        japCache.set("key", "value2");
+        Assert.assertEquals("value2", japCache.get("key"));
+        japCache.removeKey("key");
+        Assert.assertNull(japCache.get("key"));
+        Assert.assertEquals(0, japCache.getEvictionCount());
+    }
+
+    @Test
+    public void timerWheelOnlyHoldsLiveEntries() {
+        JapLocalCache unbounded = new JapLocalCache(0, 0, null);
+        JapLocalCache bounded = new JapLocalCache(100, 0, null);
+        for (JapLocalCache japCache : Arrays.asList(unbounded, bounded)) {
+            for (int i = 0; i < 1000; i++) {
+                japCache.set("key", "value" + i);
+                japCache.compareAndSet("key", "value" + i, "next" + i, 60_000);
+            }
+            Assert.assertEquals(1, japCache.scheduledCount());
+            japCache.removeKey("key");
+            Assert.assertEquals(0, japCache.scheduledCount());
+            japCache.putIfAbsent("code", "value", 60_000);
+            japCache.getAndRemove("code");
+            Assert.assertEquals(0, japCache.scheduledCount());
+        }
+        // The evicted one-shot entries leave the wheel with the cache
+        for (int i = 0; i < 1000; i++) {
+            bounded.set("code" + i, "value", TimeUnit.DAYS.toMillis(7));
+        }
+        Assert.assertEquals(100, bounded.scheduledCount());
+    }
+
+    @Test
+    public void deserialize() throws InterruptedException {
+        JapLocalCache japCache = new JapLocalCache();
+        japCache.set("key", "value", 60_000);
+        japCache.set("expiredKey", "value", 1);
+        Thread.sleep(1100);
+        JapLocalCache copy = ObjectUtil.cloneByStream(japCache);
+        Assert.assertEquals("value", copy.get("key"));
+        Assert.assertNull(copy.get("expiredKey"));
+        copy.set("key2", "value2");
+        Assert.assertEquals("value2", copy.get("key2"));
+        Assert.assertEquals(2, copy.scheduledCount());
+        copy.removeKey("key");
+        Assert.assertNull(copy.get("key"));
+        Assert.assertEquals("value", japCache.get("key"));
+    }
+
+    @Test
+    public void pruneCache() throws InterruptedException {
+        JapLocalCache japCache = new JapLocalCache(0, 1_000_000, (key, value) -> 100);
+        for (int i = 0; i < 100; i++) {
+            japCache.set("shortKey" + i, "value", 1);
+        }
+        japCache.set("longKey", "value", 60_000);
+        Thread.sleep(1100);
+        japCache.pruneCache();
+        Assert.assertEquals(100, japCache.getWeightedSize());
+        Assert.assertTrue(japCache.containsKey("longKey"));
+    }
+
+    @Test
+    public void batchOperations() {
+        JapCache japCache = new JapLocalCache();
+        Map<String, String> values = new HashMap<>();
+        values.put("batchKey1", "value1");
+        values.put("batchKey2", "value2");
+        Map<String, Long> timeouts = new HashMap<>();
+        timeouts.put("batchKey1", 1L);
+        japCache.setAll(values, timeouts);
+        japCache.setAll(Collections.singletonMap("batchKey3", "value3"), 10000);
+
+        Map<String, Serializable> result = japCache.getAll(Arrays.asList("batchKey1", "batchKey2", "batchKey3", "batchKey4"));
+        Assert.assertEquals("value2", result.get("batchKey2"));
+        Assert.assertEquals("value3", result.get("batchKey3"));
+        Assert.assertFalse(result.containsKey("batchKey4"));
+
+        japCache.removeAll(Arrays.asList("batchKey2", "batchKey3"));
+        Assert.assertTrue(japCache.getAll(Arrays.asList("batchKey2", "batchKey3")).isEmpty());
+    }
+
+    @Test
+    public void stats() throws InterruptedException {
+        JapCacheConfig.recordStats = true;
+        JapLocalCache japCache;
+        try {
+            japCache = new JapLocalCache(2, 0, null);
+        } finally {
+            JapCacheConfig.recordStats = false;
+        }
+        String tokenKey = JapConst.USER_TOKEN_KEY + "1";
+        japCache.set(tokenKey, "token");
+        japCache.set("statsKey", "value", 1);
+        japCache.get(tokenKey);
+        japCache.get(JapConst.USER_TOKEN_KEY + "2");
+        Thread.sleep(20);
+        japCache.get("statsKey");
+
+        JapCacheStats stats = japCache.stats();
+        Assert.assertEquals(1, stats.getHitCount());
+        Assert.assertEquals(2, stats.getMissCount());
+        Assert.assertEquals(1, stats.getExpirationCount());
+        Assert.assertEquals(1, stats.getSize());
+        Assert.assertTrue(stats.getEstimatedBytes() > 0);
+
+        JapCacheStats tokenStats = stats.getNamespaces().get(JapConst.USER_TOKEN_KEY);
+        Assert.assertEquals(1, tokenStats.getHitCount());
+        Assert.assertEquals(1, tokenStats.getMissCount());
+        Assert.assertEquals(0.5, tokenStats.hitRate(), 0.001);
+        Assert.assertEquals(1, stats.getNamespaces().get(JapCacheNamespaces.OTHER).getExpirationCount());
+
+        for (int i = 0; i < 10; i++) {
+            japCache.set("evictedKey" + i, "value");
+        }
+        Assert.assertEquals(japCache.getEvictionCount(), japCache.stats().getEvictionCount());
+    }
+
+    @Test
+    public void atomicOperations() throws InterruptedException {
+        for (JapLocalCache japCache : Arrays.asList(new JapLocalCache(), new JapLocalCache(100, 0, null))) {
+            Assert.assertTrue(japCache.putIfAbsent("atomicKey", "value1", 10000));
+            Assert.assertFalse(japCache.putIfAbsent("atomicKey", "value2", 10000));
+            Assert.assertEquals("value1", japCache.get("atomicKey"));
+
+            Assert.assertFalse(japCache.compareAndSet("atomicKey", "value2", "value3", 10000));
+            Assert.assertTrue(japCache.compareAndSet("atomicKey", "value1", "value3", 10000));
+            Assert.assertEquals("value3", japCache.get("atomicKey"));
+
+            Assert.assertEquals("value3", japCache.getAndRemove("atomicKey"));
+            Assert.assertNull(japCache.getAndRemove("atomicKey"));
+            Assert.assertNull(japCache.getAndRemove(null));
+
+            japCache.set("expiredKey", "value", 1);
+            Thread.sleep(20);
+            Assert.assertTrue(japCache.putIfAbsent("expiredKey", "fresh", 10000));
+            Assert.assertEquals("fresh", japCache.get("expiredKey"));
+            Assert.assertTrue(japCache.compareAndSet("expiredKey", "fresh", null, 0));
+            Assert.assertFalse(japCache.containsKey("expiredKey"));
+        }
+    }
+
+    @Test
+    public void getAndRemoveOnlyOnce() throws InterruptedException {
+        JapLocalCache japCache = new JapLocalCache();
+        for (int round = 0; round < 100; round++) {
+            japCache.set("code", "authCode");
+            AtomicInteger winners = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (null != japCache.getAndRemove("code")) {
+                        winners.incrementAndGet();
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Assert.assertEquals(1, winners.get());
+        }
+    }
+
+    @Test
+    public void regions() throws InterruptedException {
+        JapCacheRegions.register(new JapCacheRegion("test-short")
+            .setTimeout(50)
+            .setMaximumSize(10)
+            .setEvictionPolicy(JapCacheEvictionPolicy.LRU));
+        JapLocalCache japCache = new JapLocalCache();
+        JapCache region = japCache.region("test-short");
+        Assert.assertSame(region, japCache.region("test-short"));
+
+        // The regions do not share the keyspace
+        region.set("key", "region");
+        japCache.set("key", "parent");
+        Assert.assertEquals("region", region.get("key"));
+        Assert.assertEquals("parent", japCache.get("key"));
+
+        for (int i = 0; i < 100; i++) {
+            region.set("burst" + i, i);
+        }
+        Assert.assertTrue(((JapLocalCache) region).stats().getSize() <= 10);
+        Assert.assertEquals(1, japCache.stats().getSize() - ((JapLocalCache) region).stats().getSize());
+        Assert.assertTrue(japCache.stats().getNamespaces().containsKey("test-short"));
+
+        // The region uses its own timeout
+        Thread.sleep(200);
+        Assert.assertNull(region.get("burst99"));
+        Assert.assertEquals("parent", japCache.get("key"));
+    }
+
+    @Test
+    public void defaultTimeout() throws InterruptedException {
+        JapLocalCache japCache = new JapLocalCache(50);
+        JapCache region = japCache.region("test-inherit");
+        japCache.set("key", "value");
+        region.set("key", "value");
+        japCache.set("long", "value", TimeUnit.MINUTES.toMillis(1));
+        Thread.sleep(200);
+        Assert.assertNull(japCache.get("key"));
+        Assert.assertNull(region.get("key"));
+        Assert.assertEquals("value", japCache.get("long"));
+    }
+
+    @Test
+    public void loadOnce() throws InterruptedException {
+        JapLocalCache japCache = new JapLocalCache();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Serializable> values = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                values.add(japCache.get("key", key -> {
+                    loads.incrementAndGet();
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException ignored) {
+                    }
+                    return key + "-value";
+                }, 10_000));
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(Collections.nCopies(8, "key-value"), values);
+
+        // A null value is not cached, the loader exception is rethrown
+        Assert.assertNull(japCache.get("missing", key -> null, 10_000));
+        Assert.assertFalse(japCache.containsKey("missing"));
+        Assert.assertThrows(IllegalStateException.class, () -> japCache.get("failed", key -> {
+            throw new IllegalStateException();
+        }, 10_000));
+    }
+
+    @Test
+    public void refreshAhead() throws InterruptedException {
+        JapLocalCache japCache = new JapLocalCache();
+        AtomicInteger loads = new AtomicInteger();
+        japCache.set("key", "old", 1_000);
+        // The value expires within the refresh-ahead time, it is returned and reloaded in the background
+        Assert.assertEquals("old", japCache.get("key", key -> "new" + loads.incrementAndGet(), 10_000, 5_000));
+        Thread.sleep(200);
+        Assert.assertEquals("new1", japCache.get("key"));
+        Assert.assertEquals("new1", japCache.get("key", key -> "new" + loads.incrementAndGet(), 10_000, 5_000));
+        Assert.assertEquals(1, loads.get());
+
+        // A prefixed region view loads with the bare key
+        JapCache view = new PrefixedJapCache(japCache, new JapCacheRegion("view"));
+        Assert.assertEquals("id", view.get("id", key -> key, 0));
+        Assert.assertEquals("id", japCache.get("view:id"));
+    }
+
+    @Test
+    public void removalListener() throws InterruptedException {
+        JapLocalCache japCache = new JapLocalCache(0, 0, null);
+        BlockingQueue<String> removals = new LinkedBlockingQueue<>();
+        japCache.addRemovalListener((key, value, cause) -> removals.add(key + "=" + value + ":" + cause));
+
+        japCache.set("a", "1");
+        japCache.set("a", "2");
+        Assert.assertEquals("a=1:REPLACED", removals.poll(1, TimeUnit.SECONDS));
+        japCache.removeKey("a");
+        Assert.assertEquals("a=2:EXPLICIT", removals.poll(1, TimeUnit.SECONDS));
+
+        japCache.set("b", "1", 50);
+        Thread.sleep(200);
+        Assert.assertNull(japCache.get("b"));
+        Assert.assertEquals("b=1:EXPIRED", removals.poll(1, TimeUnit.SECONDS));
+
+        JapLocalCache bounded = new JapLocalCache(2, 0, null);
+        bounded.addRemovalListener((key, value, cause) -> removals.add(cause.name()));
+        for (int i = 0; i < 3; i++) {
+            bounded.set("c" + i, i);
+        }
+        Assert.assertEquals("EVICTED", removals.poll(1, TimeUnit.SECONDS));
+
+        // A region view reports the keys without the prefix
+        JapCache view = new PrefixedJapCache(japCache, new JapCacheRegion("view"));
+        JapCacheRemovalListener listener = (key, value, cause) -> removals.add("view " + key);
+        view.addRemovalListener(listener);
+        view.set("d", "1");
+        view.removeKey("d");
+        Assert.assertEquals("view:d=1:EXPLICIT", removals.poll(1, TimeUnit.SECONDS));
+        Assert.assertEquals("view d", removals.poll(1, TimeUnit.SECONDS));
+        new PrefixedJapCache(japCache, new JapCacheRegion("view")).removeRemovalListener(listener);
+        view.set("e", "1");
+        view.removeKey("e");
+        Assert.assertEquals("view:e=1:EXPLICIT", removals.poll(1, TimeUnit.SECONDS));
+        Assert.assertNull(removals.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void supportsRemovalListeners() {
+        JapLocalCache japCache = new JapLocalCache();
+        Assert.assertTrue(japCache.supportsRemovalListeners());
+        Assert.assertTrue(japCache.region(JapConst.USER_TOKEN_CACHE_REGION).supportsRemovalListeners());
+        Assert.assertTrue(new PrefixedJapCache(japCache, new JapCacheRegion("view")).supportsRemovalListeners());
+
+        // By default the listeners are accepted and never notified
+        JapCache offHeapCache = new OffHeapJapCache(1 << 20);
+        Assert.assertFalse(offHeapCache.supportsRemovalListeners());
+        offHeapCache.addRemovalListener((key, value, cause) -> Assert.fail());
+        offHeapCache.set("a", "1");
+        offHeapCache.removeKey("a");
+        Assert.assertFalse(offHeapCache.region("view").supportsRemovalListeners());
+    }
 }
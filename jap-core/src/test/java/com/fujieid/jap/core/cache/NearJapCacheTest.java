@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * unit test
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class NearJapCacheTest {
+
+    private final AtomicInteger sharedReads = new AtomicInteger();
+    private Runnable onSharedRead = () -> {
+    };
+    private JapCache sharedCache;
+    private NearJapCache node1;
+    private NearJapCache node2;
+
+    @Before
+    public void before() {
+        sharedCache = new JapLocalCache() {
+            @Override
+            public Serializable get(String key) {
+                sharedReads.incrementAndGet();
+                Serializable value = super.get(key);
+                onSharedRead.run();
+                return value;
+            }
+        };
+        JapCacheInvalidationChannel channel = new LoopbackInvalidationChannel();
+        node1 = new NearJapCache(sharedCache, channel);
+        node2 = new NearJapCache(sharedCache, channel);
+    }
+
+    @Test
+    public void readsAreServedLocally() {
+        node1.set("key", "value");
+        Assert.assertEquals("value", node2.get("key"));
+        Assert.assertEquals(1, sharedReads.get());
+        Assert.assertEquals("value", node2.get("key"));
+        Assert.assertEquals("value", node1.get("key"));
+        Assert.assertEquals(1, sharedReads.get());
+    }
+
+    @Test
+    public void removeKeyEvictsEverywhere() {
+        node1.set("token", "user");
+        Assert.assertEquals("user", node2.get("token"));
+
+        node1.removeKey("token");
+        Assert.assertNull(node2.get("token"));
+        Assert.assertFalse(node2.containsKey("token"));
+        Assert.assertNull(node1.get("token"));
+    }
+
+    @Test
+    public void setReplacesStaleCopies() {
+        node1.set("key", "old");
+        Assert.assertEquals("old", node2.get("key"));
+
+        node1.set("key", "new", 10000);
+        Assert.assertEquals("new", node2.get("key"));
+    }
+
+    @Test
+    public void batchOperations() {
+        node1.set("key1", "value1");
+        node1.set("key2", "value2");
+        Assert.assertEquals(2, node2.getAll(Arrays.asList("key1", "key2", "key3")).size());
+
+        node1.removeAll(Arrays.asList("key1", "key2"));
+        Assert.assertTrue(node2.getAll(Arrays.asList("key1", "key2")).isEmpty());
+    }
+
+    @Test
+    public void localCopyExpires() throws InterruptedException {
+        NearJapCache node = new NearJapCache(sharedCache, new LoopbackInvalidationChannel(), 100, 20);
+        sharedCache.set("key", "value");
+        Assert.assertEquals("value", node.get("key"));
+        // The shared cache changes without a message, the local copy is stale until it expires
+        sharedCache.set("key", "changed");
+        Assert.assertEquals("value", node.get("key"));
+        Thread.sleep(50);
+        Assert.assertEquals("changed", node.get("key"));
+    }
+
+    @Test
+    public void changesDuringLoad() {
+        node1.set("key", "old");
+        node1.set("other", "value");
+
+        // The change of another key does not discard the load
+        onSharedRead = () -> node1.removeKey("other");
+        Assert.assertEquals("old", node2.get("key"));
+        onSharedRead = () -> {
+        };
+        Assert.assertEquals("old", node2.get("key"));
+        Assert.assertEquals(1, sharedReads.get());
+
+        // The change of the loaded key does
+        node2.removeKey("key");
+        sharedCache.set("key", "old");
+        onSharedRead = () -> node1.set("key", "new");
+        Assert.assertEquals("old", node2.get("key"));
+        onSharedRead = () -> {
+        };
+        Assert.assertEquals("new", node2.get("key"));
+        Assert.assertEquals(3, sharedReads.get());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import com.fujieid.jap.core.exception.JapException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * unit test
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class OffHeapJapCacheTest {
+
+    @Test
+    public void setAndGet() {
+        OffHeapJapCache cache = new OffHeapJapCache(1 << 20);
+        HashMap<String, Object> value = new HashMap<>();
+        value.put("username", "jap");
+        cache.set("key", value);
+        Assert.assertEquals(value, cache.get("key"));
+        Assert.assertTrue(cache.containsKey("key"));
+        Assert.assertNull(cache.get("missing"));
+
+        cache.set("key", "replaced");
+        Assert.assertEquals("replaced", cache.get("key"));
+        Assert.assertEquals(1, cache.size());
+
+        cache.removeKey("key");
+        Assert.assertFalse(cache.containsKey("key"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void getExpiredKey() throws InterruptedException {
+        OffHeapJapCache cache = new OffHeapJapCache(1 << 20);
+        cache.set("key", "value", 10);
+        Thread.sleep(50);
+        Assert.assertNull(cache.get("key"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void compactionReusesHoles() {
+        OffHeapJapCache cache = new OffHeapJapCache(8192, 4096, 1);
+        for (int i = 0; i < 1000; i++) {
+            cache.set("key" + (i % 10), "value" + i);
+        }
+        for (int i = 990; i < 1000; i++) {
+            Assert.assertEquals("value" + i, cache.get("key" + (i % 10)));
+        }
+        Assert.assertEquals(10, cache.size());
+        Assert.assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void evictOldestEntriesWhenFull() {
+        OffHeapJapCache cache = new OffHeapJapCache(8192, 4096, 1);
+        for (int i = 0; i < 1000; i++) {
+            cache.set("key" + i, "value" + i);
+        }
+        Assert.assertTrue(cache.getEvictionCount() > 0);
+        Assert.assertEquals(1000, cache.size() + cache.getEvictionCount());
+        Assert.assertNull(cache.get("key0"));
+        Assert.assertEquals("value999", cache.get("key999"));
+    }
+
+    @Test
+    public void compactDropsExpiredEntries() throws InterruptedException {
+        OffHeapJapCache cache = new OffHeapJapCache(1 << 20);
+        for (int i = 0; i < 100; i++) {
+            cache.set("key" + i, "value" + i, i % 2 == 0 ? 10 : 100000);
+        }
+        Thread.sleep(50);
+        cache.compact();
+        Assert.assertEquals(50, cache.size());
+        Assert.assertEquals("value1", cache.get("key1"));
+    }
+
+    @Test
+    public void atomicOperations() {
+        OffHeapJapCache cache = new OffHeapJapCache(1 << 20);
+        Assert.assertTrue(cache.putIfAbsent("key", "value1", 10000));
+        Assert.assertFalse(cache.putIfAbsent("key", "value2", 10000));
+        Assert.assertTrue(cache.compareAndSet("key", "value1", "value3", 10000));
+        Assert.assertFalse(cache.compareAndSet("key", "value1", "value4", 10000));
+        Assert.assertEquals("value3", cache.getAndRemove("key"));
+        Assert.assertNull(cache.getAndRemove("key"));
+    }
+
+    @Test(expected = JapException.class)
+    public void entryLargerThanSlab() {
+        OffHeapJapCache cache = new OffHeapJapCache(8192, 1024, 1);
+        cache.set("key", new byte[2048]);
+    }
+
+    @Test
+    public void close() {
+        OffHeapJapCache cache = new OffHeapJapCache(8192, 1024, 1);
+        cache.set("key", "value");
+        cache.close();
+        Assert.assertThrows(IllegalStateException.class, () -> cache.get("key"));
+        Assert.assertThrows(IllegalStateException.class, () -> cache.set("key", "value"));
+        Assert.assertThrows(IllegalStateException.class, cache::size);
+        // Closing again has no effect
+        cache.close();
+    }
+
+    @Test
+    public void regionView() {
+        JapCacheRegions.register(new JapCacheRegion("test-view").setKeyPrefix("view:"));
+        OffHeapJapCache cache = new OffHeapJapCache(1 << 20);
+        JapCache region = cache.region("test-view");
+        region.set("key", "value");
+        Assert.assertEquals("value", cache.get("view:key"));
+        Assert.assertEquals(Collections.singletonMap("key", "value"), region.getAll(Arrays.asList("key", "missing")));
+        Assert.assertTrue(region.getAndRemove("key") != null);
+        Assert.assertFalse(cache.containsKey("view:key"));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * unit test
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class TimerWheelTest {
+
+    private static final long START = TimeUnit.DAYS.toMillis(20000);
+
+    private static class Entry extends TimerWheel.Node {
+        private final String key;
+        private final long expire;
+
+        Entry(String key, long expire) {
+            this.key = key;
+            this.expire = expire;
+        }
+
+        @Override
+        long getExpire() {
+            return expire;
+        }
+    }
+
+    private static TimerWheel newTimerWheel(List<String> expired) {
+        return new TimerWheel(node -> expired.add(((Entry) node).key), START);
+    }
+
+    @Test
+    public void advanceOnlyExpiresDueEntries() {
+        List<String> expired = new ArrayList<>();
+        TimerWheel timerWheel = newTimerWheel(expired);
+        timerWheel.schedule(new Entry("seconds", START + TimeUnit.SECONDS.toMillis(10)));
+        timerWheel.schedule(new Entry("minutes", START + TimeUnit.MINUTES.toMillis(10)));
+        timerWheel.schedule(new Entry("days", START + TimeUnit.DAYS.toMillis(10)));
+        timerWheel.schedule(new Entry("year", START + TimeUnit.DAYS.toMillis(365)));
+
+        Assert.assertTrue(timerWheel.advance(START + TimeUnit.SECONDS.toMillis(5), Long.MAX_VALUE));
+        Assert.assertTrue(expired.isEmpty());
+
+        timerWheel.advance(START + TimeUnit.SECONDS.toMillis(12), Long.MAX_VALUE);
+        Assert.assertEquals(1, expired.size());
+        Assert.assertEquals("seconds", expired.get(0));
+
+        timerWheel.advance(START + TimeUnit.MINUTES.toMillis(11), Long.MAX_VALUE);
+        Assert.assertEquals(2, expired.size());
+        Assert.assertEquals("minutes", expired.get(1));
+
+        timerWheel.advance(START + TimeUnit.DAYS.toMillis(9), Long.MAX_VALUE);
+        Assert.assertEquals(2, expired.size());
+        timerWheel.advance(START + TimeUnit.DAYS.toMillis(11), Long.MAX_VALUE);
+        Assert.assertEquals(3, expired.size());
+        Assert.assertEquals("days", expired.get(2));
+
+        timerWheel.advance(START + TimeUnit.DAYS.toMillis(366), Long.MAX_VALUE);
+        Assert.assertEquals(4, expired.size());
+        Assert.assertEquals("year", expired.get(3));
+    }
+
+    @Test
+    public void advanceStepByStep() {
+        List<String> expired = new ArrayList<>();
+        TimerWheel timerWheel = newTimerWheel(expired);
+        for (int i = 1; i <= 100; i++) {
+            timerWheel.schedule(new Entry("key" + i, START + TimeUnit.MINUTES.toMillis(i)));
+        }
+        for (int i = 1; i <= 100; i++) {
+            timerWheel.advance(START + TimeUnit.MINUTES.toMillis(i) + TimeUnit.SECONDS.toMillis(2), Long.MAX_VALUE);
+            Assert.assertEquals(i, expired.size());
+            Assert.assertEquals("key" + i, expired.get(i - 1));
+        }
+    }
+
+    @Test
+    public void advanceWithinDeadline() {
+        List<String> expired = new ArrayList<>();
+        TimerWheel timerWheel = newTimerWheel(expired);
+        for (int i = 0; i < 1000; i++) {
+            timerWheel.schedule(new Entry("key" + i, START + 1));
+        }
+        // The deadline has passed, only the first batch is processed
+        Assert.assertFalse(timerWheel.advance(START + TimeUnit.SECONDS.toMillis(2), System.nanoTime()));
+        Assert.assertTrue(expired.size() < 1000);
+        Assert.assertTrue(timerWheel.advance(START + TimeUnit.SECONDS.toMillis(2), Long.MAX_VALUE));
+        Assert.assertEquals(1000, expired.size());
+    }
+
+    @Test
+    public void descheduleAndReschedule() {
+        List<String> expired = new ArrayList<>();
+        TimerWheel timerWheel = newTimerWheel(expired);
+        Entry removed = new Entry("removed", START + TimeUnit.SECONDS.toMillis(10));
+        Entry kept = new Entry("kept", START + TimeUnit.MINUTES.toMillis(10));
+        timerWheel.schedule(removed);
+        timerWheel.schedule(kept);
+        timerWheel.schedule(kept);
+        Assert.assertEquals(2, timerWheel.size());
+        timerWheel.deschedule(removed);
+        timerWheel.deschedule(removed);
+        Assert.assertEquals(1, timerWheel.size());
+
+        timerWheel.advance(START + TimeUnit.MINUTES.toMillis(11), Long.MAX_VALUE);
+        Assert.assertEquals(Collections.singletonList("kept"), expired);
+        Assert.assertEquals(0, timerWheel.size());
+    }
+}
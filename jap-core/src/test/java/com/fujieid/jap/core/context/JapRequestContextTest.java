@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.context;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+public class JapRequestContextTest {
+
+    private HttpServletRequest request;
+
+    @Before
+    public void init() {
+        request = Mockito.mock(HttpServletRequest.class);
+        Map<String, Object> attributes = new HashMap<>();
+        Mockito.doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+            .when(request).setAttribute(Mockito.anyString(), Mockito.any());
+        Mockito.when(request.getAttribute(Mockito.anyString())).thenAnswer(invocation -> attributes.get(invocation.<String>getArgument(0)));
+    }
+
+    @Test
+    public void parsedOncePerRequest() {
+        Mockito.when(request.getCookies()).thenReturn(new Cookie[]{new Cookie("a", "1"), new Cookie("b", "2"), new Cookie("a", "3")});
+        JapRequestContext context = JapRequestContext.of(request);
+        Assert.assertSame(context, JapRequestContext.of(request));
+        Assert.assertEquals("1", context.getCookieValue("a"));
+        Assert.assertEquals("2", JapRequestContext.of(request).getCookie("b").getValue());
+        Assert.assertNull(context.getCookieValue("c"));
+        Assert.assertEquals(2, context.getCookies().size());
+        Mockito.verify(request, Mockito.times(1)).getCookies();
+    }
+
+    @Test
+    public void noCookies() {
+        Assert.assertTrue(JapRequestContext.of(request).getCookies().isEmpty());
+        Assert.assertNull(JapRequestContext.of(request).getCookie("a"));
+    }
+
+    @Test
+    public void ip() {
+        Mockito.when(request.getHeader("X-Forwarded-For")).thenReturn("unknown");
+        Mockito.when(request.getHeader("X-Real-IP")).thenReturn("unknown, 10.0.0.1, 10.0.0.2");
+        Assert.assertEquals("10.0.0.1", JapRequestContext.of(request).getIp());
+
+        HttpServletRequest direct = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(direct.getRemoteAddr()).thenReturn("127.0.0.1");
+        Assert.assertEquals("127.0.0.1", JapRequestContext.of(direct).getIp());
+    }
+
+    @Test
+    public void bearerToken() {
+        Mockito.when(request.getHeader("Authorization")).thenReturn("bearer  abc.def ");
+        JapRequestContext context = JapRequestContext.of(request);
+        Assert.assertEquals("abc.def", context.getBearerToken());
+        Assert.assertNull(context.getBasicCredentials());
+        Assert.assertEquals("abc.def", context.getBearerToken());
+        Mockito.verify(request, Mockito.times(1)).getHeader("Authorization");
+    }
+
+    @Test
+    public void malformedBearerToken() {
+        HttpServletRequest other = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(other.getHeader("Authorization")).thenReturn("Bearer a b");
+        Assert.assertNull(JapRequestContext.of(other).getBearerToken());
+        Mockito.when(request.getHeader("Authorization")).thenReturn("Bearerabc");
+        Assert.assertNull(JapRequestContext.of(request).getBearerToken());
+        Assert.assertEquals("Bearerabc", JapRequestContext.of(request).getAuthorization());
+    }
+
+    @Test
+    public void basicCredentials() {
+        String encoded = Base64.getEncoder().encodeToString("client:se:cret".getBytes(StandardCharsets.UTF_8));
+        Mockito.when(request.getHeader("Authorization")).thenReturn("Basic " + encoded);
+        JapRequestContext.BasicCredentials credentials = JapRequestContext.of(request).getBasicCredentials();
+        Assert.assertEquals("client", credentials.getId());
+        Assert.assertEquals("se:cret", credentials.getSecret());
+        Assert.assertNull(JapRequestContext.of(request).getBearerToken());
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.spi;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class JapServiceLoaderTest {
+
+    public interface Greeter {
+        String greet();
+    }
+
+    public static class Hello implements Greeter {
+        @Override
+        public String greet() {
+            return "hello";
+        }
+    }
+
+    public static class Hi implements Greeter {
+        @Override
+        public String greet() {
+            return "hi";
+        }
+    }
+
+    @After
+    public void reset() {
+        System.clearProperty(JapServiceLoader.INDEX_PROPERTY);
+        JapServiceLoader.reload();
+    }
+
+    @Test
+    public void load() {
+        List<Greeter> greeters = JapServiceLoader.load(Greeter.class);
+        Assert.assertEquals(2, greeters.size());
+        Assert.assertTrue(greeters.get(0) instanceof Hello);
+        Assert.assertTrue(greeters.get(1) instanceof Hi);
+        // Every call creates new instances from the resolved providers
+        Assert.assertNotSame(greeters.get(0), JapServiceLoader.loadFirst(Greeter.class));
+        Assert.assertEquals("hello", JapServiceLoader.loadFirst(Greeter.class).greet());
+    }
+
+    @Test
+    public void noProvider() {
+        Assert.assertTrue(JapServiceLoader.load(Runnable.class).isEmpty());
+        Assert.assertNull(JapServiceLoader.loadFirst(Runnable.class));
+        Assert.assertTrue(JapServiceLoader.load(null).isEmpty());
+    }
+
+    @Test
+    public void index() {
+        System.setProperty(JapServiceLoader.INDEX_PROPERTY, "true");
+        List<Greeter> greeters = JapServiceLoader.load(Greeter.class);
+        Assert.assertEquals(1, greeters.size());
+        Assert.assertEquals("hi", greeters.get(0).greet());
+        // The services that are not indexed are still looked up in META-INF/services
+        Assert.assertNull(JapServiceLoader.loadFirst(Runnable.class));
+    }
+
+    @Test
+    public void indexPerClassLoader() throws IOException {
+        System.setProperty(JapServiceLoader.INDEX_PROPERTY, "true");
+        Assert.assertEquals(1, JapServiceLoader.load(Greeter.class).size());
+
+        Path directory = Files.createTempDirectory("jap-spi");
+        Path index = directory.resolve(JapServiceLoader.INDEX_RESOURCE.replace('/', File.separatorChar));
+        Files.createDirectories(index.getParent());
+        Files.write(index, Collections.singletonList(Greeter.class.getName() + "=" + Hello.class.getName()), StandardCharsets.UTF_8);
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, contextClassLoader)) {
+            thread.setContextClassLoader(loader);
+            // The index of the other class loader also contains the providers of its parent
+            List<Greeter> greeters = JapServiceLoader.load(Greeter.class);
+            Assert.assertEquals(2, greeters.size());
+            Assert.assertEquals("hi", greeters.get(0).greet());
+            Assert.assertEquals("hello", greeters.get(1).greet());
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+        Assert.assertEquals(1, JapServiceLoader.load(Greeter.class).size());
+    }
+
+    @Test
+    public void processor() throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull(compiler);
+        Path directory = Files.createTempDirectory("jap-spi");
+        Path source = directory.resolve("demo/Task.java");
+        Files.createDirectories(source.getParent());
+        Files.write(source, Arrays.asList(
+            "package demo;",
+            "@com.fujieid.jap.core.spi.JapService({Runnable.class, java.util.concurrent.Callable.class})",
+            "public class Task implements Runnable, java.util.concurrent.Callable<String> {",
+            "    public void run() {}",
+            "    public String call() { return \"\"; }",
+            "    @com.fujieid.jap.core.spi.JapService(Runnable.class)",
+            "    public static class Inner implements Runnable {",
+            "        public void run() {}",
+            "    }",
+            "}"), StandardCharsets.UTF_8);
+        int result = compiler.run(null, null, null,
+            "-classpath", System.getProperty("java.class.path"),
+            "-processor", JapServiceProcessor.class.getName(),
+            "-d", directory.toString(), source.toString());
+        Assert.assertEquals(0, result);
+
+        Assert.assertEquals(Arrays.asList("demo.Task", "demo.Task$Inner"),
+            Files.readAllLines(directory.resolve("META-INF/services/java.lang.Runnable"), StandardCharsets.UTF_8));
+        Assert.assertEquals(Collections.singletonList("demo.Task"),
+            Files.readAllLines(directory.resolve("META-INF/services/java.util.concurrent.Callable"), StandardCharsets.UTF_8));
+        Assert.assertEquals(Arrays.asList("java.lang.Runnable=demo.Task", "java.lang.Runnable=demo.Task$Inner", "java.util.concurrent.Callable=demo.Task"),
+            Files.readAllLines(directory.resolve(JapServiceLoader.INDEX_RESOURCE.replace('/', File.separatorChar)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void processorRejectsWrongService() throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull(compiler);
+        Path directory = Files.createTempDirectory("jap-spi");
+        Path source = directory.resolve("Wrong.java");
+        Files.write(source, Collections.singletonList(
+            "@com.fujieid.jap.core.spi.JapService(Runnable.class) public class Wrong {}"), StandardCharsets.UTF_8);
+        int result = compiler.run(null, null, null,
+            "-classpath", System.getProperty("java.class.path"),
+            "-processor", JapServiceProcessor.class.getName(),
+            "-d", directory.toString(), source.toString());
+        Assert.assertNotEquals(0, result);
+    }
+}
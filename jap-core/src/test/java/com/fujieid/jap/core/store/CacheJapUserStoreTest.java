@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.store;
+
+import com.fujieid.jap.core.JapUser;
+import com.fujieid.jap.core.cache.JapLocalCache;
+import com.fujieid.jap.core.config.JapConfig;
+import com.fujieid.jap.core.context.JapAuthentication;
+import com.fujieid.jap.core.context.JapContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+public class CacheJapUserStoreTest {
+    @Mock
+    public HttpServletRequest httpServletRequestMock;
+    @Mock
+    public HttpServletResponse httpServletResponseMock;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        JapAuthentication.setContext(new JapContext(null, new JapLocalCache(), new JapConfig()));
+        Mockito.when(httpServletRequestMock.getHeader("user-agent")).thenReturn("jap");
+        Mockito.when(httpServletRequestMock.getRemoteAddr()).thenReturn("127.0.0.1");
+    }
+
+    @Test
+    public void saveAndGet() {
+        CacheJapUserStore store = new CacheJapUserStore();
+        Cookie cookie = this.login(store, "1111");
+        Assert.assertTrue(cookie.isHttpOnly());
+
+        JapUser japUser = store.get(httpServletRequestMock, httpServletResponseMock);
+        Assert.assertEquals("1111", japUser.getUserId());
+        Assert.assertNull(japUser.getPassword());
+        Mockito.verify(httpServletRequestMock, Mockito.never()).getSession();
+    }
+
+    @Test
+    public void getNotLoggedIn() {
+        CacheJapUserStore store = new CacheJapUserStore();
+        Assert.assertNull(store.get(httpServletRequestMock, httpServletResponseMock));
+        Mockito.when(httpServletRequestMock.getCookies()).thenReturn(new Cookie[]{new Cookie("jap_sid", "unknown")});
+        Assert.assertNull(store.get(httpServletRequestMock, httpServletResponseMock));
+    }
+
+    @Test
+    public void removeOnAnotherNode() {
+        CacheJapUserStore store = new CacheJapUserStore().setLocalCacheTime(0);
+        this.login(store, "1111");
+        Assert.assertNotNull(store.get(httpServletRequestMock, httpServletResponseMock));
+
+        new CacheJapUserStore().remove(httpServletRequestMock, httpServletResponseMock);
+        Assert.assertNull(store.get(httpServletRequestMock, httpServletResponseMock));
+    }
+
+    @Test
+    public void slidingExpiration() throws InterruptedException {
+        CacheJapUserStore store = new CacheJapUserStore().setExpireTime(400).setLocalCacheTime(0);
+        this.login(store, "1111");
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(220);
+            Assert.assertNotNull(store.get(httpServletRequestMock, httpServletResponseMock));
+        }
+        Thread.sleep(500);
+        Assert.assertNull(store.get(httpServletRequestMock, httpServletResponseMock));
+    }
+
+    @Test
+    public void newSessionIdOnLogin() {
+        CacheJapUserStore store = new CacheJapUserStore();
+        Cookie first = this.login(store, "1111");
+        Cookie second = this.login(store, "2222");
+        Assert.assertNotEquals(first.getValue(), second.getValue());
+
+        Mockito.when(httpServletRequestMock.getCookies()).thenReturn(new Cookie[]{first});
+        Assert.assertNull(store.get(httpServletRequestMock, httpServletResponseMock));
+    }
+
+    private Cookie login(CacheJapUserStore store, String userId) {
+        Mockito.clearInvocations(httpServletResponseMock);
+        store.save(httpServletRequestMock, httpServletResponseMock, new JapUser().setUserId(userId).setPassword("password"));
+        ArgumentCaptor<Cookie> cookie = ArgumentCaptor.forClass(Cookie.class);
+        Mockito.verify(httpServletResponseMock).addCookie(cookie.capture());
+        Mockito.when(httpServletRequestMock.getCookies()).thenReturn(new Cookie[]{cookie.getValue()});
+        return cookie.getValue();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.store;
+
+import cn.hutool.core.util.ObjectUtil;
+import com.fujieid.jap.core.JapUser;
+import com.fujieid.jap.core.JapUserService;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SessionJapUserTest {
+
+    private static final JapUser JAP_USER = new JapUser()
+        .setUserId("1111")
+        .setUsername("jap")
+        .setPassword("password")
+        .setToken("token")
+        .setAdditional(Collections.singletonMap("email", "jap@fujieid.com"));
+
+    @Test
+    public void ofWithoutUserService() {
+        SessionJapUser sessionUser = SessionJapUser.of(JAP_USER, null);
+        Assert.assertEquals("1111", sessionUser.getUserId());
+        Assert.assertEquals("jap", sessionUser.getUsername());
+        Assert.assertEquals("token", sessionUser.getToken());
+        Assert.assertNull(sessionUser.getPassword());
+        Assert.assertEquals(JAP_USER.getAdditional(), sessionUser.getAdditional());
+
+        SessionJapUser copy = ObjectUtil.cloneByStream(sessionUser);
+        Assert.assertEquals("1111", copy.getUserId());
+        Assert.assertEquals(JAP_USER.getAdditional(), copy.getAdditional());
+    }
+
+    @Test
+    public void loadAdditional() {
+        AtomicInteger loads = new AtomicInteger();
+        JapUserService japUserService = new JapUserService() {
+            @Override
+            public JapUser getById(String userId) {
+                loads.incrementAndGet();
+                return "1111".equals(userId) ? JAP_USER : null;
+            }
+        };
+        SessionJapUser sessionUser = SessionJapUser.of(JAP_USER, japUserService);
+        Assert.assertEquals(0, loads.get());
+        Assert.assertEquals(JAP_USER.getAdditional(), sessionUser.getAdditional());
+        Assert.assertEquals(JAP_USER.getAdditional(), sessionUser.getAdditional());
+        Assert.assertEquals(1, loads.get());
+
+        // The loaded information is not serialized, it is loaded again through the attached service
+        SessionJapUser copy = ObjectUtil.cloneByStream(sessionUser);
+        Assert.assertNull(copy.getAdditional());
+        Assert.assertEquals(JAP_USER.getAdditional(), copy.attach(japUserService).getAdditional());
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void compactForm() {
+        JapUser japUser = new JapUser().setUserId("1111").setUsername("jap").setToken("token");
+        int serialized = ObjectUtil.serialize(japUser).length;
+        int compact = ObjectUtil.serialize(SessionJapUser.of(japUser, null)).length;
+        Assert.assertTrue(compact + " < " + serialized, compact < serialized);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.store;
+
+import com.fujieid.jap.core.JapUser;
+import com.fujieid.jap.core.exception.JapException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+
+public class TokenJapUserStoreTest {
+    private static final byte[] SIGNING_KEY = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ENCRYPTION_KEY = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    public HttpServletRequest httpServletRequestMock;
+    @Mock
+    public HttpServletResponse httpServletResponseMock;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void saveAndGetFromCookie() {
+        TokenJapUserStore store = new TokenJapUserStore(SIGNING_KEY);
+        JapUser japUser = store.save(httpServletRequestMock, httpServletResponseMock, new JapUser().setUserId("1111").setUsername("jap"));
+
+        ArgumentCaptor<Cookie> cookie = ArgumentCaptor.forClass(Cookie.class);
+        Mockito.verify(httpServletResponseMock).addCookie(cookie.capture());
+        Assert.assertEquals(japUser.getToken(), cookie.getValue().getValue());
+        Assert.assertTrue(cookie.getValue().isHttpOnly());
+
+        Mockito.when(httpServletRequestMock.getCookies()).thenReturn(new Cookie[]{cookie.getValue()});
+        JapUser storedUser = store.get(httpServletRequestMock, httpServletResponseMock);
+        Assert.assertEquals("1111", storedUser.getUserId());
+        Assert.assertEquals("jap", storedUser.getUsername());
+        Mockito.verify(httpServletRequestMock, Mockito.never()).getSession();
+        Mockito.verify(httpServletRequestMock, Mockito.never()).getSession(Mockito.anyBoolean());
+    }
+
+    @Test
+    public void getFromHeader() {
+        TokenJapUserStore store = new TokenJapUserStore(SIGNING_KEY).setCookieName(null);
+        String token = store.save(httpServletRequestMock, httpServletResponseMock, new JapUser().setUserId("1111")).getToken();
+        Mockito.verify(httpServletResponseMock, Mockito.never()).addCookie(Mockito.any());
+
+        Mockito.when(httpServletRequestMock.getHeader("X-Jap-Token")).thenReturn(token);
+        JapUser storedUser = store.get(httpServletRequestMock, httpServletResponseMock);
+        Assert.assertEquals("1111", storedUser.getUserId());
+        Assert.assertNull(storedUser.getUsername());
+    }
+
+    @Test
+    public void getNotLoggedIn() {
+        Assert.assertNull(new TokenJapUserStore(SIGNING_KEY).get(httpServletRequestMock, httpServletResponseMock));
+    }
+
+    @Test
+    public void parseInvalidToken() {
+        TokenJapUserStore store = new TokenJapUserStore(SIGNING_KEY);
+        String token = store.createToken(new JapUser().setUserId("1111"), System.currentTimeMillis() + 60_000);
+        Assert.assertNotNull(store.parseToken(token));
+        Assert.assertNull(store.parseToken(token.replace('.', 'x')));
+        Assert.assertNull(store.parseToken(token + "x"));
+        Assert.assertNull(store.parseToken("AQ." + token.substring(token.indexOf('.') + 1)));
+        Assert.assertNull(store.parseToken("!!." + token.substring(token.indexOf('.') + 1)));
+        Assert.assertNull(new TokenJapUserStore("another signing key, 32 bytes...".getBytes(StandardCharsets.UTF_8)).parseToken(token));
+    }
+
+    @Test
+    public void parseExpiredToken() {
+        TokenJapUserStore store = new TokenJapUserStore(SIGNING_KEY);
+        Assert.assertNull(store.parseToken(store.createToken(new JapUser().setUserId("1111"), System.currentTimeMillis() - 1)));
+    }
+
+    @Test
+    public void encrypted() {
+        TokenJapUserStore store = new TokenJapUserStore(SIGNING_KEY).setEncryptionKey(ENCRYPTION_KEY);
+        JapUser japUser = new JapUser().setUserId("1111").setUsername("jap");
+        String token = store.createToken(japUser, System.currentTimeMillis() + 60_000);
+        Assert.assertNotEquals(token, store.createToken(japUser, System.currentTimeMillis() + 60_000));
+        Assert.assertEquals("jap", store.parseToken(token).getUsername());
+        // Signed with the same key but not decryptable without the encryption key
+        Assert.assertNull(new TokenJapUserStore(SIGNING_KEY).parseToken(token));
+    }
+
+    @Test
+    public void remove() {
+        new TokenJapUserStore(SIGNING_KEY).remove(httpServletRequestMock, httpServletResponseMock);
+        ArgumentCaptor<Cookie> cookie = ArgumentCaptor.forClass(Cookie.class);
+        Mockito.verify(httpServletResponseMock).addCookie(cookie.capture());
+        Assert.assertEquals(0, cookie.getValue().getMaxAge());
+        Mockito.verify(httpServletRequestMock, Mockito.never()).getSession();
+    }
+
+    @Test
+    public void invalidKeys() {
+        Assert.assertThrows(JapException.class, () -> new TokenJapUserStore(new byte[16]));
+        Assert.assertThrows(JapException.class, () -> new TokenJapUserStore(SIGNING_KEY).setEncryptionKey(new byte[20]));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.strategy;
+
+import com.fujieid.jap.core.cache.JapCacheConfig;
+import com.fujieid.jap.core.config.AuthenticateConfig;
+import com.fujieid.jap.core.config.JapConfig;
+import com.fujieid.jap.core.exception.JapException;
+import com.fujieid.jap.core.result.JapResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.*;
+
+public class JapStrategyTest {
+
+    private static final AuthenticateConfig CONFIG = new AuthenticateConfig() {
+    };
+
+    private static class DemoStrategy extends AbstractJapStrategy {
+
+        DemoStrategy(JapConfig japConfig) {
+            super(null, japConfig);
+        }
+
+        @Override
+        public JapResponse authenticate(AuthenticateConfig config, HttpServletRequest request, HttpServletResponse response) {
+            if (null == config) {
+                throw new JapException("no config");
+            }
+            return JapResponse.success(Thread.currentThread().getName());
+        }
+    }
+
+    @Test
+    public void authenticateAsync() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "demo-authenticate"));
+        try {
+            JapStrategy strategy = new DemoStrategy(new JapConfig().setAuthenticateExecutor(executor));
+            JapResponse response = strategy.authenticateAsync(CONFIG, null, null)
+                .toCompletableFuture().get(5, TimeUnit.SECONDS);
+            Assert.assertEquals("demo-authenticate", response.getData());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void cacheExpireTimeIsNotGlobal() {
+        long timeout = JapCacheConfig.timeout;
+        new DemoStrategy(new JapConfig().setCacheExpireTime(100));
+        Assert.assertEquals(timeout, JapCacheConfig.timeout);
+    }
+
+    @Test
+    public void authenticateAsyncOnDefaultExecutor() throws Exception {
+        JapStrategy strategy = new DemoStrategy(new JapConfig());
+        JapResponse response = strategy.authenticateAsync(CONFIG, null, null)
+            .toCompletableFuture().get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(response.isSuccess());
+    }
+
+    @Test
+    public void authenticateAsyncFailure() throws Exception {
+        CompletableFuture<JapResponse> future = new DemoStrategy(new JapConfig())
+            .authenticateAsync(null, null, null, Runnable::run).toCompletableFuture();
+        ExecutionException e = Assert.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        Assert.assertTrue(e.getCause() instanceof JapException);
+    }
+
+    @Test
+    public void authenticateAsyncRejected() {
+        CompletableFuture<JapResponse> future = new DemoStrategy(new JapConfig())
+            .authenticateAsync(CONFIG, null, null, r -> {
+                throw new RejectedExecutionException();
+            }).toCompletableFuture();
+        Assert.assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void defaultExecutor() {
+        double version = Double.parseDouble(System.getProperty("java.specification.version"));
+        ExecutorService virtual = JapStrategyExecutors.newVirtualThreadExecutor();
+        if (version >= 21) {
+            Assert.assertNotNull(virtual);
+            virtual.shutdown();
+            Assert.assertEquals(virtual.getClass(), JapStrategyExecutors.getDefault().getClass());
+        } else if (version < 19) {
+            Assert.assertNull(virtual);
+            Assert.assertTrue(JapStrategyExecutors.getDefault() instanceof ThreadPoolExecutor);
+        }
+
+        Executor custom = Runnable::run;
+        JapStrategyExecutors.setDefault(custom);
+        try {
+            Assert.assertSame(custom, JapStrategyExecutors.getDefault());
+        } finally {
+            JapStrategyExecutors.setDefault(null);
+        }
+    }
+
+    @Test
+    public void boundedExecutorRejects() throws Exception {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) JapStrategyExecutors.newBoundedExecutor(1, 1);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            executor.execute(() -> {
+            });
+            Assert.assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {
+            }));
+            Assert.assertTrue(executor.getThreadFactory().newThread(() -> {
+            }).isDaemon());
+        } finally {
+            latch.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JapTokenDigestTest {
+
+    @Test
+    public void digest() {
+        Assert.assertNull(JapTokenDigest.digest(null));
+        // The first 128 bits of SHA-256("abc")
+        Assert.assertEquals("ungWv48Bz-pBQUDeXa4iIw", JapTokenDigest.digest("abc"));
+        StringBuilder jwt = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            jwt.append("eyJhbGciOiJSUzI1NiJ9.");
+        }
+        Assert.assertEquals(22, JapTokenDigest.digest(jwt.toString()).length());
+        Assert.assertNotEquals(JapTokenDigest.digest(jwt.toString()), JapTokenDigest.digest(jwt.append('x').toString()));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.util;
+
+import com.fujieid.jap.core.JapConst;
+import com.fujieid.jap.core.cache.JapCache;
+import com.fujieid.jap.core.cache.JapLocalCache;
+import com.fujieid.jap.core.cache.OffHeapJapCache;
+import com.fujieid.jap.core.config.JapConfig;
+import com.fujieid.jap.core.context.JapAuthentication;
+import com.fujieid.jap.core.context.JapContext;
+import com.fujieid.jap.sso.JapSsoUtil;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+public class JapTokenHelperTest {
+
+    private static final long TOKEN_EXPIRE_TIME = TimeUnit.DAYS.toMillis(1);
+
+    private JapCache japCache;
+
+    @Before
+    public void init() {
+        japCache = new JapLocalCache();
+        JapAuthentication.setContext(new JapContext(null, japCache, new JapConfig().setUserTokenLimit(3)));
+    }
+
+    @Test
+    public void saveUserTokenOfSeveralDevices() {
+        String first = this.login("1111", "device 1");
+        String second = this.login("1111", "device 2");
+        Assert.assertNotNull(JapTokenHelper.checkToken(first));
+        Assert.assertNotNull(JapTokenHelper.checkToken(second));
+        Assert.assertEquals(second, JapTokenHelper.getUserToken("1111"));
+    }
+
+    @Test
+    public void removeOldestToken() {
+        String first = this.login("1111", "device 1");
+        String second = this.login("1111", "device 2");
+        String third = this.login("1111", "device 3");
+        Assert.assertNotNull(JapAuthentication.checkToken(first));
+        String fourth = this.login("1111", "device 4");
+        Assert.assertNull(JapTokenHelper.checkToken(first));
+        // The memo of the verified tokens forgets the removed token
+        Assert.assertNull(JapAuthentication.checkToken(first));
+        Assert.assertNotNull(JapTokenHelper.checkToken(second));
+        Assert.assertNotNull(JapTokenHelper.checkToken(third));
+        Assert.assertNotNull(JapTokenHelper.checkToken(fourth));
+    }
+
+    @Test
+    public void removeUserTokenOfOneDevice() {
+        String first = this.login("1111", "device 1");
+        String second = this.login("1111", "device 2");
+        Assert.assertNotNull(JapAuthentication.checkToken(second));
+        JapTokenHelper.removeUserToken("1111", second);
+        Assert.assertNotNull(JapTokenHelper.checkToken(first));
+        Assert.assertNull(JapAuthentication.checkToken(second));
+        Assert.assertNull(JapTokenHelper.getUserToken("1111"));
+
+        JapTokenHelper.removeUserToken("1111", first);
+        Assert.assertFalse(japCache.region(JapConst.USER_TOKEN_CACHE_REGION).containsKey("1111"));
+    }
+
+    @Test
+    public void removeUserTokens() {
+        String first = this.login("1111", "device 1");
+        String second = this.login("1111", "device 2");
+        String other = this.login("2222", "device 1");
+        String untouched = this.login("3333", "device 1");
+        JapTokenHelper.removeUserTokens(Arrays.asList("1111", "2222"));
+        Assert.assertNull(JapTokenHelper.checkToken(first));
+        Assert.assertNull(JapTokenHelper.checkToken(second));
+        Assert.assertNull(JapTokenHelper.checkToken(other));
+        Assert.assertNotNull(JapTokenHelper.checkToken(untouched));
+    }
+
+    @Test
+    public void checkTokenSavedBeforeSeveralDevices() {
+        String token = this.createToken("1111", "device 1");
+        japCache.region(JapConst.USER_TOKEN_CACHE_REGION).set("1111", token);
+        Assert.assertNotNull(JapTokenHelper.checkToken(token));
+        Assert.assertEquals(token, JapTokenHelper.getUserToken("1111"));
+
+        String second = this.login("1111", "device 2");
+        Assert.assertNotNull(JapTokenHelper.checkToken(token));
+        Assert.assertNotNull(JapTokenHelper.checkToken(second));
+    }
+
+    @Test
+    public void saveUserTokenAsync() {
+        String first = this.createToken("1111", "device 1");
+        String second = this.createToken("1111", "device 2");
+        JapTokenHelper.saveUserTokenAsync("1111", first).toCompletableFuture().join();
+        JapTokenHelper.saveUserTokenAsync("1111", second).toCompletableFuture().join();
+        Assert.assertNotNull(JapTokenHelper.checkTokenAsync(first).toCompletableFuture().join());
+        Assert.assertEquals(second, JapTokenHelper.getUserTokenAsync("1111").toCompletableFuture().join());
+    }
+
+    @Test
+    public void checkTokenWithoutRemovalListeners() throws InterruptedException {
+        JapCache offHeapCache = new OffHeapJapCache(1 << 20);
+        JapAuthentication.setContext(new JapContext(null, offHeapCache, new JapConfig().setVerifiedTokenCacheTtl(1)));
+        String token = this.login("1111", "device 1");
+        Assert.assertNotNull(JapTokenHelper.checkToken(token, TOKEN_EXPIRE_TIME));
+
+        // Removed by another node, the remembered token is accepted for the ttl at most
+        offHeapCache.region(JapConst.USER_TOKEN_CACHE_REGION).removeKey("1111");
+        Assert.assertNotNull(JapTokenHelper.checkToken(token, TOKEN_EXPIRE_TIME));
+        Thread.sleep(1100);
+        Assert.assertNull(JapTokenHelper.checkToken(token, TOKEN_EXPIRE_TIME));
+
+        JapAuthentication.setContext(new JapContext(null, offHeapCache, new JapConfig().setVerifiedTokenCacheTtl(0)));
+        token = this.login("1111", "device 1");
+        Assert.assertNotNull(JapTokenHelper.checkToken(token, TOKEN_EXPIRE_TIME));
+        offHeapCache.region(JapConst.USER_TOKEN_CACHE_REGION).removeKey("1111");
+        Assert.assertNull(JapTokenHelper.checkToken(token, TOKEN_EXPIRE_TIME));
+    }
+
+    private String login(String userId, String device) {
+        String token = this.createToken(userId, device);
+        JapTokenHelper.saveUserToken(userId, token);
+        return token;
+    }
+
+    private String createToken(String userId, String device) {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeader("user-agent")).thenReturn(device);
+        Mockito.when(request.getRemoteAddr()).thenReturn("127.0.0.1");
+        return JapSsoUtil.createToken(userId, "jap", request);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.core.util;
+
+import com.fujieid.jap.core.cache.JapCacheClock;
+import com.fujieid.jap.core.cache.JapLocalCache;
+import com.fujieid.jap.core.cache.OffHeapJapCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class JapTokenMemoTest {
+
+    private static final long EXPIRES_AT = JapCacheClock.currentTimeMillis() + 60_000;
+
+    @Test
+    public void get() {
+        JapTokenMemo memo = new JapTokenMemo();
+        Map<String, Object> claims = Collections.singletonMap("jti", "1");
+        memo.put("a", "1", claims, EXPIRES_AT, 10, memo.stamp());
+        memo.put("b", "1", claims, JapCacheClock.currentTimeMillis() - 1, 10, memo.stamp());
+        Assert.assertSame(claims, memo.get("a"));
+        Assert.assertNull(memo.get("b"));
+        Assert.assertNull(memo.get("c"));
+    }
+
+    @Test
+    public void disabled() {
+        JapTokenMemo memo = new JapTokenMemo();
+        memo.put("a", "1", Collections.emptyMap(), EXPIRES_AT, 0, memo.stamp());
+        Assert.assertNull(memo.get("a"));
+    }
+
+    @Test
+    public void invalidate() {
+        JapTokenMemo memo = new JapTokenMemo();
+        memo.put("a", "1", Collections.emptyMap(), EXPIRES_AT, 10, memo.stamp());
+        memo.put("b", "1", Collections.emptyMap(), EXPIRES_AT, 10, memo.stamp());
+        memo.put("c", "2", Collections.emptyMap(), EXPIRES_AT, 10, memo.stamp());
+        memo.invalidate("1");
+        Assert.assertNull(memo.get("a"));
+        Assert.assertNull(memo.get("b"));
+        Assert.assertNotNull(memo.get("c"));
+    }
+
+    @Test
+    public void invalidateWhileVerifying() {
+        JapTokenMemo memo = new JapTokenMemo();
+        long stamp = memo.stamp();
+        memo.invalidate("1");
+        memo.put("a", "1", Collections.emptyMap(), EXPIRES_AT, 10, stamp);
+        Assert.assertNull(memo.get("a"));
+    }
+
+    @Test
+    public void watch() {
+        JapTokenMemo memo = new JapTokenMemo();
+        memo.watch(new JapLocalCache());
+        Assert.assertTrue(memo.followsRemovals());
+        memo.put("a", "1", Collections.emptyMap(), EXPIRES_AT, 10, memo.stamp());
+
+        memo.watch(new OffHeapJapCache(1 << 20));
+        Assert.assertFalse(memo.followsRemovals());
+        Assert.assertNull(memo.get("a"));
+    }
+
+    @Test
+    public void maximumSize() {
+        JapTokenMemo memo = new JapTokenMemo();
+        for (int i = 0; i < 100; i++) {
+            memo.put("token" + i, "user" + i, Collections.emptyMap(), EXPIRES_AT, 10, memo.stamp());
+        }
+        Assert.assertEquals(10, memo.size());
+        Assert.assertNotNull(memo.get("token99"));
+    }
+}
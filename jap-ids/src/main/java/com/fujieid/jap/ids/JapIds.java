@@ -15,10 +15,16 @@
  */
 package com.fujieid.jap.ids;
 
+import com.fujieid.jap.core.cache.JapCacheEvictionPolicy;
+import com.fujieid.jap.core.cache.JapCacheNamespaces;
+import com.fujieid.jap.core.cache.JapCacheRegion;
+import com.fujieid.jap.core.cache.JapCacheRegions;
 import com.fujieid.jap.core.spi.JapServiceLoader;
 import com.fujieid.jap.ids.config.IdsConfig;
 import com.fujieid.jap.ids.context.IdsContext;
 import com.fujieid.jap.ids.exception.IdsException;
+import com.fujieid.jap.ids.model.ClientDetail;
+import com.fujieid.jap.ids.model.IdsConsts;
 import com.fujieid.jap.ids.model.UserInfo;
 import com.fujieid.jap.ids.pipeline.IdsFilterPipeline;
 import com.fujieid.jap.ids.pipeline.IdsLogoutPipeline;
@@ -27,6 +33,7 @@ import com.fujieid.jap.ids.service.*;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Authorization service based on RFC6749 protocol specification and OpenID Connect Core 1.0 specification
@@ -38,6 +45,39 @@ import java.io.Serializable;
 public class JapIds implements Serializable {
     private static final String UNREGISTERED_IDS_CONTEXT = "Unregistered ids context.Please use `JapIds.registerContext(IdsContext)` to register ids context.";
     private static IdsContext context;
+    /**
+     * The cached client details are reloaded in the background during the last part of their lifetime
+     */
+    private static final int CLIENT_CACHE_REFRESH_AHEAD_RATIO = 6;
+
+    static {
+        JapCacheNamespaces.register(IdsConsts.OAUTH_ACCESS_TOKEN_CACHE_KEY);
+        JapCacheNamespaces.register(IdsConsts.OAUTH_REFRESH_TOKEN_CACHE_KEY);
+        JapCacheNamespaces.register(IdsConsts.OAUTH_CODE_CACHE_KEY);
+        JapCacheNamespaces.register(IdsConsts.OAUTH_USERINFO_CACHE_KEY);
+        // The keys in the region are prefixed again by TokenUtil, they end up in the access and refresh token namespaces
+        JapCacheRegions.registerDefault(new JapCacheRegion(IdsConsts.OAUTH_TOKEN_CACHE_REGION)
+            .setKeyPrefix(IdsConsts.IDS_OAUTH_CACHE_KEY)
+            .setTimeout(TimeUnit.SECONDS.toMillis(IdsConsts.ACCESS_TOKEN_ACTIVITY_TIME)));
+        // The codes are redeemed once within minutes, a burst of codes must not evict the tokens
+        JapCacheRegions.registerDefault(new JapCacheRegion(IdsConsts.OAUTH_CODE_CACHE_REGION)
+            .setKeyPrefix(IdsConsts.OAUTH_CODE_CACHE_KEY)
+            .setTimeout(TimeUnit.SECONDS.toMillis(IdsConsts.AUTHORIZATION_CODE_ACTIVITY_TIME))
+            .setMaximumSize(100_000)
+            .setEvictionPolicy(JapCacheEvictionPolicy.LRU));
+        JapCacheNamespaces.register(IdsConsts.OAUTH_CLIENT_CACHE_KEY);
+        JapCacheNamespaces.register(IdsConsts.JWKS_CACHE_KEY);
+        // The clients and the keys are read by every request, keep them briefly and reload them ahead of expiry, the
+        // clients are only cached when IdsConfig#getClientDetailCacheTtl is set
+        JapCacheRegions.registerDefault(new JapCacheRegion(IdsConsts.OAUTH_CLIENT_CACHE_REGION)
+            .setKeyPrefix(IdsConsts.OAUTH_CLIENT_CACHE_KEY)
+            .setTimeout(TimeUnit.MINUTES.toMillis(1))
+            .setMaximumSize(10_000));
+        JapCacheRegions.registerDefault(new JapCacheRegion(IdsConsts.JWKS_CACHE_REGION)
+            .setKeyPrefix(IdsConsts.JWKS_CACHE_KEY)
+            .setTimeout(TimeUnit.MINUTES.toMillis(5))
+            .setMaximumSize(1_000));
+    }
 
     private JapIds() {
     }
@@ -109,6 +149,45 @@ public class JapIds implements Serializable {
         context.getUserStoreService().remove(request);
     }
 
+    /**
+     * Get the client detail through the {@link IdsConsts#OAUTH_CLIENT_CACHE_REGION} cache region. Concurrent misses
+     * of a client call {@link IdsClientDetailService#getByClientId(String)} once, a missing client is not cached.
+     * <p>
+     * The client is loaded on every call unless {@link IdsConfig#getClientDetailCacheTtl()} is set. Then the client,
+     * including its secret, is cached for that many seconds and reloaded in the background before it expires. Until
+     * then a changed secret, a disabled or a deleted client is still accepted, call
+     * {@link #invalidateClientDetail(String)} after changing a client.
+     *
+     * @param clientId The client id
+     * @return ClientDetail, or {@code null} if the client does not exist
+     * @since 1.0.5
+     */
+    public static ClientDetail getClientDetail(String clientId) {
+        if (null == clientId) {
+            return null;
+        }
+        IdsContext context = getContext();
+        long timeout = TimeUnit.SECONDS.toMillis(context.getIdsConfig().getClientDetailCacheTtl());
+        if (timeout <= 0) {
+            return context.getClientDetailService().getByClientId(clientId);
+        }
+        return (ClientDetail) context.getCache().region(IdsConsts.OAUTH_CLIENT_CACHE_REGION)
+            .get(clientId, context.getClientDetailService()::getByClientId, timeout, timeout / CLIENT_CACHE_REFRESH_AHEAD_RATIO);
+    }
+
+    /**
+     * Remove the cached client detail, call it after the client is changed or deleted
+     *
+     * @param clientId The client id
+     * @since 1.0.5
+     */
+    public static void invalidateClientDetail(String clientId) {
+        if (null == clientId) {
+            return;
+        }
+        getContext().getCache().region(IdsConsts.OAUTH_CLIENT_CACHE_REGION).removeKey(clientId);
+    }
+
     public static IdsConfig getIdsConfig() {
         IdsContext context = getContext();
         return context.getIdsConfig();
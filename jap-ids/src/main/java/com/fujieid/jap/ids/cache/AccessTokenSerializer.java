@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.ids.cache;
+
+import com.fujieid.jap.core.cache.JapCacheSerializer;
+import com.fujieid.jap.ids.model.AccessToken;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static com.fujieid.jap.core.cache.CompactJapCacheCodec.*;
+
+/**
+ * The compact cache serializer of {@link AccessToken}
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class AccessTokenSerializer implements JapCacheSerializer<AccessToken> {
+
+    /**
+     * Increase it when the fields change
+     */
+    private static final int VERSION = 1;
+
+    @Override
+    public int typeId() {
+        return 16;
+    }
+
+    @Override
+    public Class<AccessToken> type() {
+        return AccessToken.class;
+    }
+
+    @Override
+    public void write(AccessToken value, DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        writeString(out, value.getAccessToken());
+        writeString(out, value.getRefreshToken());
+        writeString(out, value.getUserId());
+        writeString(out, value.getUserName());
+        writeString(out, value.getGrantType());
+        writeString(out, value.getScope());
+        writeString(out, value.getClientId());
+        writeLong(out, value.getAccessTokenExpiresIn());
+        writeLong(out, value.getRefreshTokenExpiresIn());
+        writeDateTime(out, value.getAccessTokenExpiration());
+        writeDateTime(out, value.getRefreshTokenExpiration());
+    }
+
+    @Override
+    public AccessToken read(DataInput in) throws IOException {
+        checkVersion(in, VERSION);
+        return new AccessToken()
+            .setAccessToken(readString(in))
+            .setRefreshToken(readString(in))
+            .setUserId(readString(in))
+            .setUserName(readString(in))
+            .setGrantType(readString(in))
+            .setScope(readString(in))
+            .setClientId(readString(in))
+            .setAccessTokenExpiresIn(readLong(in))
+            .setRefreshTokenExpiresIn(readLong(in))
+            .setAccessTokenExpiration(readDateTime(in))
+            .setRefreshTokenExpiration(readDateTime(in));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.ids.cache;
+
+import com.fujieid.jap.core.cache.JapCacheSerializer;
+import com.fujieid.jap.ids.model.AuthCode;
+import com.fujieid.jap.ids.model.UserInfo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static com.fujieid.jap.core.cache.CompactJapCacheCodec.*;
+
+/**
+ * The compact cache serializer of {@link AuthCode}, the user is written inline by {@link UserInfoSerializer}
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class AuthCodeSerializer implements JapCacheSerializer<AuthCode> {
+
+    /**
+     * Increase it when the fields change
+     */
+    private static final int VERSION = 1;
+
+    private final UserInfoSerializer userInfoSerializer = new UserInfoSerializer();
+
+    @Override
+    public int typeId() {
+        return 17;
+    }
+
+    @Override
+    public Class<AuthCode> type() {
+        return AuthCode.class;
+    }
+
+    @Override
+    public void write(AuthCode value, DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        writeString(out, value.getScope());
+        writeString(out, value.getNonce());
+        writeString(out, value.getCodeChallengeMethod());
+        writeString(out, value.getCodeChallenge());
+        UserInfo user = value.getUser();
+        // A subclass of UserInfo would lose its own fields, so it is written with the JDK serialization
+        boolean exact = null != user && user.getClass() == UserInfo.class;
+        out.writeBoolean(exact);
+        if (exact) {
+            userInfoSerializer.write(user, out);
+        } else {
+            writeObject(out, user);
+        }
+    }
+
+    @Override
+    public AuthCode read(DataInput in) throws IOException {
+        checkVersion(in, VERSION);
+        AuthCode authCode = new AuthCode()
+            .setScope(readString(in))
+            .setNonce(readString(in))
+            .setCodeChallengeMethod(readString(in))
+            .setCodeChallenge(readString(in));
+        return authCode.setUser(in.readBoolean() ? userInfoSerializer.read(in) : (UserInfo) readObject(in));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.ids.cache;
+
+import com.fujieid.jap.core.cache.JapCacheSerializer;
+import com.fujieid.jap.ids.model.UserInfo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static com.fujieid.jap.core.cache.CompactJapCacheCodec.*;
+
+/**
+ * The compact cache serializer of {@link UserInfo}, also used for the user of {@link AuthCodeSerializer}
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class UserInfoSerializer implements JapCacheSerializer<UserInfo> {
+
+    /**
+     * Increase it when the fields change
+     */
+    private static final int VERSION = 1;
+
+    @Override
+    public int typeId() {
+        return 18;
+    }
+
+    @Override
+    public Class<UserInfo> type() {
+        return UserInfo.class;
+    }
+
+    @Override
+    public void write(UserInfo value, DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        writeString(out, value.getId());
+        writeString(out, value.getSub());
+        writeString(out, value.getName());
+        writeString(out, value.getUsername());
+        writeString(out, value.getGiven_name());
+        writeString(out, value.getFamily_name());
+        writeString(out, value.getMiddle_name());
+        writeString(out, value.getNickname());
+        writeString(out, value.getPreferred_username());
+        writeString(out, value.getProfile());
+        writeString(out, value.getPicture());
+        writeString(out, value.getWebsite());
+        writeString(out, value.getEmail());
+        writeString(out, value.getEmail_verified());
+        writeString(out, value.getGender());
+        writeString(out, value.getBirthdate());
+        writeString(out, value.getZoneinfo());
+        writeString(out, value.getLocale());
+        writeString(out, value.getPhone_number());
+        writeString(out, value.getPhone_number_verified());
+        writeStringMap(out, value.getAddress());
+        writeString(out, value.getUpdated_at());
+    }
+
+    @Override
+    public UserInfo read(DataInput in) throws IOException {
+        checkVersion(in, VERSION);
+        return new UserInfo()
+            .setId(readString(in))
+            .setSub(readString(in))
+            .setName(readString(in))
+            .setUsername(readString(in))
+            .setGiven_name(readString(in))
+            .setFamily_name(readString(in))
+            .setMiddle_name(readString(in))
+            .setNickname(readString(in))
+            .setPreferred_username(readString(in))
+            .setProfile(readString(in))
+            .setPicture(readString(in))
+            .setWebsite(readString(in))
+            .setEmail(readString(in))
+            .setEmail_verified(readString(in))
+            .setGender(readString(in))
+            .setBirthdate(readString(in))
+            .setZoneinfo(readString(in))
+            .setLocale(readString(in))
+            .setPhone_number(readString(in))
+            .setPhone_number_verified(readString(in))
+            .setAddress(readStringMap(in))
+            .setUpdated_at(readString(in));
+    }
+}
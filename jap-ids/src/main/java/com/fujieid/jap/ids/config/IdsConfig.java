@@ -141,6 +141,15 @@ public class IdsConfig {
      * you can specify jwt config when obtaining the token.
      */
     private JwtConfig jwtConfig = new JwtConfig();
+    /**
+     * The time in seconds the client details, including the client secret, are cached by
+     * {@code JapIds.getClientDetail}, {@code 0} by default: the cache is disabled until it is set. When it is enabled,
+     * a changed secret, a disabled or a deleted client is still accepted for up to this time, so the code that manages
+     * the clients must call {@code JapIds.invalidateClientDetail(clientId)} after changing or deleting a client.
+     *
+     * @since 1.0.5
+     */
+    private long clientDetailCacheTtl;
 
     public IdsConfig(String issuer) {
         this.issuer = issuer;
@@ -356,6 +365,15 @@ public class IdsConfig {
         return this;
     }
 
+    public long getClientDetailCacheTtl() {
+        return clientDetailCacheTtl;
+    }
+
+    public IdsConfig setClientDetailCacheTtl(long clientDetailCacheTtl) {
+        this.clientDetailCacheTtl = clientDetailCacheTtl;
+        return this;
+    }
+
     public List<TokenAuthMethod> getTokenAuthMethods() {
         return tokenAuthMethods;
     }
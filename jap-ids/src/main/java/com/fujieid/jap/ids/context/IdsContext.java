@@ -15,6 +15,7 @@
  */
 package com.fujieid.jap.ids.context;
 
+import com.fujieid.jap.core.cache.AsyncJapCache;
 import com.fujieid.jap.core.cache.JapCache;
 import com.fujieid.jap.core.cache.JapLocalCache;
 import com.fujieid.jap.ids.config.IdsConfig;
@@ -35,6 +36,8 @@ public class IdsContext implements Serializable {
 
     private JapCache cache = new JapLocalCache();
 
+    private AsyncJapCache asyncCache;
+
     private IdsClientDetailService clientDetailService;
 
     private IdsUserService userService;
@@ -56,7 +59,11 @@ public class IdsContext implements Serializable {
     private IdsPipeline<UserInfo> logoutPipeline;
 
     public JapCache getCache() {
-        return cache == null ? new JapLocalCache() : cache;
+        if (null == cache) {
+            // Each JapLocalCache has its own storage, so the lazily created cache must be kept
+            cache = new JapLocalCache();
+        }
+        return cache;
     }
 
     public IdsContext setCache(JapCache cache) {
@@ -64,6 +71,24 @@ public class IdsContext implements Serializable {
         return this;
     }
 
+    /**
+     * Get the asynchronous cache. When it is not set, the {@link #getCache()} is used: directly if it implements
+     * {@link AsyncJapCache}, otherwise it is adapted to run on the calling thread.
+     *
+     * @return AsyncJapCache
+     */
+    public AsyncJapCache getAsyncCache() {
+        if (null != asyncCache) {
+            return asyncCache;
+        }
+        return AsyncJapCache.of(getCache());
+    }
+
+    public IdsContext setAsyncCache(AsyncJapCache asyncCache) {
+        this.asyncCache = asyncCache;
+        return this;
+    }
+
     public IdsClientDetailService getClientDetailService() {
         return clientDetailService;
     }
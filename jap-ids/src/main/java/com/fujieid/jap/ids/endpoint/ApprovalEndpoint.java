@@ -61,7 +61,7 @@ public class ApprovalEndpoint extends AbstractEndpoint {
      */
     public IdsResponse<String, Map<String, Object>> getAuthClientInfo(HttpServletRequest request) {
         IdsRequestParam param = IdsRequestParamProvider.parseRequest(request);
-        ClientDetail clientDetail = JapIds.getContext().getClientDetailService().getByClientId(param.getClientId());
+        ClientDetail clientDetail = JapIds.getClientDetail(param.getClientId());
         OauthUtil.validClientDetail(clientDetail);
 
         List<Map<String, Object>> scopeInfo = getScopeInfo(param);
@@ -83,7 +83,7 @@ public class ApprovalEndpoint extends AbstractEndpoint {
     private String createConfirmPageHtml(HttpServletRequest request) {
         IdsRequestParam param = IdsRequestParamProvider.parseRequest(request);
         String clientId = param.getClientId();
-        ClientDetail clientDetail = JapIds.getContext().getClientDetailService().getByClientId(clientId);
+        ClientDetail clientDetail = JapIds.getClientDetail(clientId);
         OauthUtil.validClientDetail(clientDetail);
 
         StringBuilder builder = new StringBuilder();
@@ -157,7 +157,7 @@ public class ApprovalEndpoint extends AbstractEndpoint {
      * @return List
      */
     private List<Map<String, Object>> getScopeInfo(IdsRequestParam param) {
-        ClientDetail clientDetail = JapIds.getContext().getClientDetailService().getByClientId(param.getClientId());
+        ClientDetail clientDetail = JapIds.getClientDetail(param.getClientId());
 
         Set<String> userAuthorizedScopes = OauthUtil.validateScope(param.getScope(), clientDetail.getScopes());
 
@@ -62,7 +62,7 @@ public class AuthorizationEndpoint extends AbstractEndpoint {
     public IdsResponse<String, String> authorize(HttpServletRequest request) throws IOException {
         IdsRequestParam param = IdsRequestParamProvider.parseRequest(request);
 
-        ClientDetail clientDetail = JapIds.getContext().getClientDetailService().getByClientId(param.getClientId());
+        ClientDetail clientDetail = JapIds.getClientDetail(param.getClientId());
 
         OauthUtil.validClientDetail(clientDetail);
         OauthUtil.validateResponseType(param.getResponseType(), clientDetail.getResponseTypes());
@@ -102,7 +102,7 @@ public class AuthorizationEndpoint extends AbstractEndpoint {
         // Ultimately participating in the authorized scope
         param.setScope(String.join(" ", scopes));
 
-        ClientDetail clientDetail = JapIds.getContext().getClientDetailService().getByClientId(param.getClientId());
+        ClientDetail clientDetail = JapIds.getClientDetail(param.getClientId());
         OauthUtil.validClientDetail(clientDetail);
 
         String responseType = param.getResponseType();
@@ -125,7 +125,7 @@ public class LoginEndpoint extends AbstractEndpoint {
 
         JapIds.saveUserInfo(userInfo, request);
 
-        ClientDetail clientDetail = JapIds.getContext().getClientDetailService().getByClientId(param.getClientId());
+        ClientDetail clientDetail = JapIds.getClientDetail(param.getClientId());
         OauthUtil.validClientDetail(clientDetail);
 
         String redirectUri = null;
@@ -77,6 +77,50 @@ public interface IdsConsts {
      */
     String OAUTH_CODE_CACHE_KEY = IDS_OAUTH_CACHE_KEY + "CODE:";
 
+    /**
+     * The cache region of the access tokens and the refresh tokens, see
+     * {@link com.fujieid.jap.core.cache.JapCache#region(String)}. Both tokens of a grant are kept in this region, so
+     * that they are saved and deleted in one batch
+     *
+     * @since 1.0.5
+     */
+    String OAUTH_TOKEN_CACHE_REGION = "oauth-token";
+
+    /**
+     * The cache region of the oauth codes
+     *
+     * @since 1.0.5
+     */
+    String OAUTH_CODE_CACHE_REGION = "oauth-code";
+
+    /**
+     * Cache the key of the client details
+     *
+     * @since 1.0.5
+     */
+    String OAUTH_CLIENT_CACHE_KEY = IDS_OAUTH_CACHE_KEY + "CLIENT:";
+
+    /**
+     * The cache region of the client details, see {@link com.fujieid.jap.ids.JapIds#getClientDetail(String)}
+     *
+     * @since 1.0.5
+     */
+    String OAUTH_CLIENT_CACHE_REGION = "oauth-client";
+
+    /**
+     * Cache the key of the public JWKS of the identities
+     *
+     * @since 1.0.5
+     */
+    String JWKS_CACHE_KEY = IDS_OAUTH_CACHE_KEY + "JWKS:";
+
+    /**
+     * The cache region of the public JWKS of the identities
+     *
+     * @since 1.0.5
+     */
+    String JWKS_CACHE_REGION = "ids-jwks";
+
     String CODE_CHALLENGE = "code_challenge";
     String CODE_CHALLENGE_METHOD = "code_challenge_method";
     String CODE_VERIFIER = "code_verifier";
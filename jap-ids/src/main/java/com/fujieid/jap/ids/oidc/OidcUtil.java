@@ -18,6 +18,7 @@ package com.fujieid.jap.ids.oidc;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.ObjectUtil;
+import com.fujieid.jap.core.cache.JapCache;
 import com.fujieid.jap.ids.JapIds;
 import com.fujieid.jap.ids.config.IdsConfig;
 import com.fujieid.jap.ids.model.IdsConsts;
@@ -34,6 +35,7 @@ import org.jose4j.jwt.ReservedClaimNames;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -43,6 +45,8 @@ import java.util.stream.Collectors;
  */
 public class OidcUtil {
 
+    private static final long JWKS_REFRESH_AHEAD = TimeUnit.SECONDS.toMillis(30);
+
     public static OidcDiscoveryDto getOidcDiscoveryInfo(HttpServletRequest request) {
 
         IdsConfig config = JapIds.getIdsConfig();
@@ -117,7 +121,19 @@ public class OidcUtil {
         return BeanUtil.mapToBean(model, OidcDiscoveryDto.class, false, null);
     }
 
+    /**
+     * Get the public JWKS of the identity, cached in the {@link IdsConsts#JWKS_CACHE_REGION} cache region and
+     * reloaded in the background before it expires
+     *
+     * @param identity The identity
+     * @return The public JWKS json
+     */
     public static String getJwksPublicKey(String identity) {
+        JapCache cache = JapIds.getContext().getCache().region(IdsConsts.JWKS_CACHE_REGION);
+        return (String) cache.get(null == identity ? "" : identity, key -> loadJwksPublicKey(identity), 0, JWKS_REFRESH_AHEAD);
+    }
+
+    private static String loadJwksPublicKey(String identity) {
         String jwksJson = JapIds.getContext().getIdentityService().getJwksJson(identity);
         JsonWebKeySet jsonWebKeySet = JwtUtil.IdsVerificationKeyResolver.createJsonWebKeySet(jwksJson);
         return jsonWebKeySet.toJson(JsonWebKey.OutputControlLevel.PUBLIC_ONLY);
@@ -29,6 +29,8 @@ import com.fujieid.jap.ids.util.TokenUtil;
 import com.xkcoding.json.util.StringUtil;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 /**
  * The token endpoint creates a token, and returns different token information for different authorization types
@@ -55,32 +57,34 @@ public class IdsTokenProvider {
      * @see <a href="https://tools.ietf.org/html/rfc6749#section-4.1" target="_blank">4.1.  Authorization Code Grant</a>
      */
     public IdsResponse<String, Object> generateAuthorizationCodeResponse(IdsRequestParam param, HttpServletRequest request) {
-        AuthCode codeInfo = oauth2Service.validateAndGetAuthrizationCode(param.getGrantType(), param.getCode());
+        // The code is consumed first, so it cannot be redeemed twice even if the following checks fail
+        AuthCode codeInfo = oauth2Service.validateAndConsumeAuthorizationCode(param.getGrantType(), param.getCode());
 
         String scope = codeInfo.getScope();
         UserInfo userInfo = codeInfo.getUser();
         String nonce = codeInfo.getNonce();
 
-        ClientDetail clientDetail = JapIds.getContext().getClientDetailService().getByClientId(param.getClientId());
+        ClientDetail clientDetail = JapIds.getClientDetail(param.getClientId());
 
         OauthUtil.validClientDetail(clientDetail);
         OauthUtil.validateGrantType(param.getGrantType(), clientDetail.getGrantTypes(), GrantType.AUTHORIZATION_CODE);
-        OauthUtil.validateSecret(param, clientDetail, oauth2Service);
+        OauthUtil.validateSecret(param, clientDetail, codeInfo, oauth2Service);
         OauthUtil.validateRedirectUri(param.getRedirectUri(), clientDetail);
 
-        oauth2Service.invalidateCode(param.getCode());
-
         long expiresIn = OauthUtil.getAccessTokenExpiresIn(clientDetail.getAccessTokenExpiresIn());
 
-        AccessToken accessToken = TokenUtil.createAccessToken(userInfo, clientDetail, param.getGrantType(), scope, nonce, EndpointUtil.getIssuer(request));
+        // Sign the id token while the access token is being written to the cache
+        CompletionStage<AccessToken> accessTokenStage = TokenUtil.createAccessTokenAsync(userInfo, clientDetail, param.getGrantType(), scope, nonce, EndpointUtil.getIssuer(request));
+        String idToken = OauthUtil.isOidcProtocol(scope) ? TokenUtil.createIdToken(clientDetail, userInfo, nonce, EndpointUtil.getIssuer(request)) : null;
+        AccessToken accessToken = join(accessTokenStage);
         IdsResponse<String, Object> response = new IdsResponse<String, Object>()
             .add(IdsConsts.ACCESS_TOKEN, accessToken.getAccessToken())
             .add(IdsConsts.REFRESH_TOKEN, accessToken.getRefreshToken())
             .add(IdsConsts.EXPIRES_IN, expiresIn)
             .add(IdsConsts.TOKEN_TYPE, IdsConsts.TOKEN_TYPE_BEARER)
             .add(IdsConsts.SCOPE, scope);
-        if (OauthUtil.isOidcProtocol(scope)) {
-            response.add(IdsConsts.ID_TOKEN, TokenUtil.createIdToken(clientDetail, userInfo, nonce, EndpointUtil.getIssuer(request)));
+        if (null != idToken) {
+            response.add(IdsConsts.ID_TOKEN, idToken);
         }
         return response;
     }
@@ -103,7 +107,7 @@ public class IdsTokenProvider {
         }
         JapIds.saveUserInfo(userInfo, request);
 
-        ClientDetail clientDetail = JapIds.getContext().getClientDetailService().getByClientId(param.getClientId());
+        ClientDetail clientDetail = JapIds.getClientDetail(param.getClientId());
         String requestScope = param.getScope();
 
         OauthUtil.validClientDetail(clientDetail);
@@ -113,7 +117,10 @@ public class IdsTokenProvider {
 
         long expiresIn = OauthUtil.getAccessTokenExpiresIn(clientDetail.getAccessTokenExpiresIn());
 
-        AccessToken accessToken = TokenUtil.createAccessToken(userInfo, clientDetail, param.getGrantType(), requestScope, param.getNonce(), EndpointUtil.getIssuer(request));
+        // Sign the id token while the access token is being written to the cache
+        CompletionStage<AccessToken> accessTokenStage = TokenUtil.createAccessTokenAsync(userInfo, clientDetail, param.getGrantType(), requestScope, param.getNonce(), EndpointUtil.getIssuer(request));
+        String idToken = OauthUtil.isOidcProtocol(requestScope) ? TokenUtil.createIdToken(clientDetail, userInfo, param.getNonce(), EndpointUtil.getIssuer(request)) : null;
+        AccessToken accessToken = join(accessTokenStage);
         IdsResponse<String, Object> response = new IdsResponse<String, Object>()
             .add(IdsConsts.ACCESS_TOKEN, accessToken.getAccessToken())
             .add(IdsConsts.REFRESH_TOKEN, accessToken.getRefreshToken())
@@ -121,8 +128,8 @@ public class IdsTokenProvider {
             .add(IdsConsts.TOKEN_TYPE, IdsConsts.TOKEN_TYPE_BEARER)
             .add(IdsConsts.SCOPE, requestScope);
 
-        if (OauthUtil.isOidcProtocol(requestScope)) {
-            response.add(IdsConsts.ID_TOKEN, TokenUtil.createIdToken(clientDetail, userInfo, param.getNonce(), EndpointUtil.getIssuer(request)));
+        if (null != idToken) {
+            response.add(IdsConsts.ID_TOKEN, idToken);
         }
         return response;
     }
@@ -138,7 +145,7 @@ public class IdsTokenProvider {
     public IdsResponse<String, Object> generateClientCredentialsResponse(IdsRequestParam param, HttpServletRequest request) {
         String clientId = param.getClientId();
 
-        ClientDetail clientDetail = JapIds.getContext().getClientDetailService().getByClientId(clientId);
+        ClientDetail clientDetail = JapIds.getClientDetail(clientId);
         String requestScope = param.getScope();
 
         OauthUtil.validClientDetail(clientDetail);
@@ -178,7 +185,7 @@ public class IdsTokenProvider {
         ClientDetail clientDetail = null;
         try {
 
-            clientDetail = JapIds.getContext().getClientDetailService().getByClientId(token.getClientId());
+            clientDetail = JapIds.getClientDetail(token.getClientId());
         } catch (Exception e) {
             log.error(e);
             throw new IdsException(ErrorResponse.INVALID_CLIENT);
@@ -203,4 +210,22 @@ public class IdsTokenProvider {
             .add(IdsConsts.TOKEN_TYPE, IdsConsts.TOKEN_TYPE_BEARER)
             .add(IdsConsts.SCOPE, requestScope);
     }
+
+    /**
+     * Wait for the asynchronous result and rethrow the original exception
+     *
+     * @param stage CompletionStage
+     * @param <T>   The type of the result
+     * @return The result
+     */
+    private static <T> T join(CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IdsException(e.getMessage());
+        }
+    }
 }
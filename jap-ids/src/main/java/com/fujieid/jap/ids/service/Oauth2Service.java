@@ -15,9 +15,13 @@
  */
 package com.fujieid.jap.ids.service;
 
+import cn.hutool.core.util.ObjectUtil;
+import com.fujieid.jap.ids.exception.InvalidCodeException;
 import com.fujieid.jap.ids.model.AuthCode;
 import com.fujieid.jap.ids.model.IdsRequestParam;
 import com.fujieid.jap.ids.model.UserInfo;
+import com.fujieid.jap.ids.model.enums.ErrorResponse;
+import com.fujieid.jap.ids.util.OauthUtil;
 
 /**
  * oauth 2.0 related methods
@@ -47,6 +51,22 @@ public interface Oauth2Service {
      */
     AuthCode validateAndGetAuthrizationCode(String grantType, String code);
 
+    /**
+     * Verify the authorization code and consume it, so that the code can only be redeemed once.
+     * <p>
+     * The default implementation is not atomic, it verifies the code and then invalidates it.
+     *
+     * @param grantType grant Type
+     * @param code      authorization code
+     * @return AuthCode
+     * @since 1.0.5
+     */
+    default AuthCode validateAndConsumeAuthorizationCode(String grantType, String code) {
+        AuthCode authCode = this.validateAndGetAuthrizationCode(grantType, code);
+        this.invalidateCode(code);
+        return authCode;
+    }
+
     /**
      * When the pkce protocol is enabled, the code challenge needs to be verified
      *
@@ -56,6 +76,27 @@ public interface Oauth2Service {
      */
     void validateAuthrizationCodeChallenge(String codeVerifier, String code);
 
+    /**
+     * When the pkce protocol is enabled, the code challenge needs to be verified against the authorization code
+     * that has already been consumed, see {@link #validateAndConsumeAuthorizationCode(String, String)}
+     *
+     * @param codeVerifier code verifier
+     * @param authCode     authorization code info
+     * @since 1.0.5
+     */
+    default void validateAuthrizationCodeChallenge(String codeVerifier, AuthCode authCode) {
+        if (ObjectUtil.isNull(authCode)) {
+            throw new InvalidCodeException(ErrorResponse.INVALID_CODE);
+        }
+        if (ObjectUtil.hasNull(authCode.getCodeChallenge(), authCode.getCodeChallengeMethod())) {
+            throw new InvalidCodeException(ErrorResponse.INVALID_CODE_CHALLENGE);
+        }
+        String currentCodeChallenge = OauthUtil.generateCodeChallenge(authCode.getCodeChallengeMethod(), codeVerifier);
+        if (!currentCodeChallenge.equals(authCode.getCodeChallenge())) {
+            throw new InvalidCodeException(ErrorResponse.INVALID_CODE_CHALLENGE);
+        }
+    }
+
     /**
      * Obtain auth code info by authorization code
      *
@@ -19,6 +19,7 @@ import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.log.Log;
 import cn.hutool.log.LogFactory;
+import com.fujieid.jap.core.cache.JapCache;
 import com.fujieid.jap.ids.JapIds;
 import com.fujieid.jap.ids.exception.InvalidCodeException;
 import com.fujieid.jap.ids.exception.UnsupportedGrantTypeException;
@@ -28,7 +29,6 @@ import com.fujieid.jap.ids.model.IdsRequestParam;
 import com.fujieid.jap.ids.model.UserInfo;
 import com.fujieid.jap.ids.model.enums.ErrorResponse;
 import com.fujieid.jap.ids.model.enums.GrantType;
-import com.fujieid.jap.ids.util.OauthUtil;
 
 /**
  * oauth 2.0 related methods
@@ -52,7 +52,7 @@ public class Oauth2ServiceImpl implements Oauth2Service {
             .setNonce(nonce)
             .setCodeChallenge(param.getCodeChallenge())
             .setCodeChallengeMethod(param.getCodeChallengeMethod());
-        JapIds.getContext().getCache().set(IdsConsts.OAUTH_CODE_CACHE_KEY + code, authCode, codeExpiresIn * 1000);
+        codeCache().set(code, authCode, codeExpiresIn * 1000);
         return code;
     }
 
@@ -61,7 +61,20 @@ public class Oauth2ServiceImpl implements Oauth2Service {
         if (!GrantType.AUTHORIZATION_CODE.getType().equals(grantType)) {
             throw new UnsupportedGrantTypeException(ErrorResponse.UNSUPPORTED_GRANT_TYPE);
         }
-        AuthCode authCode = this.getCodeInfo(code);
+        return this.validateCodeInfo(this.getCodeInfo(code));
+    }
+
+    @Override
+    public AuthCode validateAndConsumeAuthorizationCode(String grantType, String code) {
+        if (!GrantType.AUTHORIZATION_CODE.getType().equals(grantType)) {
+            throw new UnsupportedGrantTypeException(ErrorResponse.UNSUPPORTED_GRANT_TYPE);
+        }
+        // Read and delete in one operation, so that concurrent requests cannot redeem the same code twice
+        AuthCode authCode = (AuthCode) codeCache().getAndRemove(code);
+        return this.validateCodeInfo(authCode);
+    }
+
+    private AuthCode validateCodeInfo(AuthCode authCode) {
         if (null == authCode || ObjectUtil.hasNull(authCode.getUser(), authCode.getScope())) {
             throw new InvalidCodeException(ErrorResponse.INVALID_CODE);
         }
@@ -70,31 +83,27 @@ public class Oauth2ServiceImpl implements Oauth2Service {
 
     @Override
     public void validateAuthrizationCodeChallenge(String codeVerifier, String code) {
+        this.validateAuthrizationCodeChallenge(codeVerifier, this.getCodeInfo(code));
+    }
+
+    @Override
+    public void validateAuthrizationCodeChallenge(String codeVerifier, AuthCode authCode) {
         log.debug("The client opened the pkce enhanced protocol and began to verify the legitimacy of the code challenge...");
-        AuthCode authCode = this.getCodeInfo(code);
-        if (ObjectUtil.isNull(authCode)) {
-            throw new InvalidCodeException(ErrorResponse.INVALID_CODE);
-        }
-        if (ObjectUtil.hasNull(authCode.getCodeChallenge(), authCode.getCodeChallengeMethod())) {
-            log.debug("The client opened the pkce enhanced protocol, and the legality verification of the code challenge failed...");
-            throw new InvalidCodeException(ErrorResponse.INVALID_CODE_CHALLENGE);
-        }
-        String codeChallengeMethod = authCode.getCodeChallengeMethod();
-        String cacheCodeChallenge = authCode.getCodeChallenge();
-        String currentCodeChallenge = OauthUtil.generateCodeChallenge(codeChallengeMethod, codeVerifier);
-        if (!currentCodeChallenge.equals(cacheCodeChallenge)) {
-            throw new InvalidCodeException(ErrorResponse.INVALID_CODE_CHALLENGE);
-        }
+        Oauth2Service.super.validateAuthrizationCodeChallenge(codeVerifier, authCode);
     }
 
     @Override
     public AuthCode getCodeInfo(String code) {
-        return (AuthCode) JapIds.getContext().getCache().get(IdsConsts.OAUTH_CODE_CACHE_KEY + code);
+        return (AuthCode) codeCache().get(code);
     }
 
     @Override
     public void invalidateCode(String code) {
-        JapIds.getContext().getCache().removeKey(IdsConsts.OAUTH_CODE_CACHE_KEY + code);
+        codeCache().removeKey(code);
     }
 
+
+    private static JapCache codeCache() {
+        return JapIds.getContext().getCache().region(IdsConsts.OAUTH_CODE_CACHE_REGION);
+    }
 }
@@ -16,6 +16,7 @@
 package com.fujieid.jap.ids.util;
 
 import cn.hutool.core.util.ObjectUtil;
+import com.fujieid.jap.core.context.JapRequestContext;
 import com.fujieid.jap.core.util.RequestUtil;
 import com.fujieid.jap.ids.JapIds;
 import com.fujieid.jap.ids.model.ClientCertificate;
@@ -70,10 +71,13 @@ public class ClientCertificateUtil {
     }
 
     private static ClientCertificate getClientCertificateFromHeader(HttpServletRequest request) {
-        String authorizationHeader = RequestUtil.getHeader(IdsConsts.AUTHORIZATION_HEADER_NAME, request);
-        if (StringUtil.isNotEmpty(authorizationHeader)) {
-            BasicCredentials credentials = BasicCredentials.parse(authorizationHeader);
-            return credentials.getClientCertificate();
+        JapRequestContext context = JapRequestContext.of(request);
+        if (StringUtil.isNotEmpty(context.getAuthorization())) {
+            JapRequestContext.BasicCredentials credentials = context.getBasicCredentials();
+            if (null == credentials) {
+                return new BasicCredentials(null, null).getClientCertificate();
+            }
+            return new BasicCredentials(credentials.getId(), credentials.getSecret()).getClientCertificate();
         }
         return new ClientCertificate();
     }
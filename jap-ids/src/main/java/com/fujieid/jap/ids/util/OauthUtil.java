@@ -22,6 +22,7 @@ import cn.hutool.core.util.URLUtil;
 import cn.hutool.crypto.SecureUtil;
 import com.fujieid.jap.ids.JapIds;
 import com.fujieid.jap.ids.exception.*;
+import com.fujieid.jap.ids.model.AuthCode;
 import com.fujieid.jap.ids.model.ClientDetail;
 import com.fujieid.jap.ids.model.IdsConsts;
 import com.fujieid.jap.ids.model.IdsRequestParam;
@@ -155,6 +156,24 @@ public class OauthUtil {
         }
     }
 
+    /**
+     * Verify the client secret, or the pkce code challenge of the authorization code that has already been consumed
+     *
+     * @param param         request params
+     * @param clientDetail  client detail
+     * @param authCode      authorization code info
+     * @param oauth2Service oauth2Service
+     * @see #validateSecret(IdsRequestParam, ClientDetail, Oauth2Service)
+     * @since 1.0.5
+     */
+    public static void validateSecret(IdsRequestParam param, ClientDetail clientDetail, AuthCode authCode, Oauth2Service oauth2Service) {
+        if (param.getGrantType().equals(GrantType.AUTHORIZATION_CODE.getType()) && param.isEnablePkce()) {
+            oauth2Service.validateAuthrizationCodeChallenge(param.getCodeVerifier(), authCode);
+        } else {
+            matchesSecret(param, clientDetail);
+        }
+    }
+
     private static void matchesSecret(IdsRequestParam param, ClientDetail clientDetail) {
         IdsSecretService secretService = JapIds.getContext().getSecretService();
         if (null == secretService) {
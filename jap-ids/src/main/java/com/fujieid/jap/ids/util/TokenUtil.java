@@ -16,6 +16,10 @@
 package com.fujieid.jap.ids.util;
 
 import cn.hutool.core.util.ObjectUtil;
+import com.fujieid.jap.core.cache.AsyncJapCache;
+import com.fujieid.jap.core.cache.JapCache;
+import com.fujieid.jap.core.context.JapRequestContext;
+import com.fujieid.jap.core.util.JapTokenDigest;
 import com.fujieid.jap.core.util.RequestUtil;
 import com.fujieid.jap.ids.JapIds;
 import com.fujieid.jap.ids.exception.IdsTokenException;
@@ -28,8 +32,9 @@ import com.xkcoding.json.util.StringUtil;
 
 import javax.servlet.http.HttpServletRequest;
 import java.time.LocalDateTime;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
@@ -38,6 +43,14 @@ import java.util.List;
  */
 public class TokenUtil {
 
+    /**
+     * The key prefixes of the two tokens in the {@link IdsConsts#OAUTH_TOKEN_CACHE_REGION}, together with the prefix
+     * of the region they make up {@link IdsConsts#OAUTH_ACCESS_TOKEN_CACHE_KEY} and
+     * {@link IdsConsts#OAUTH_REFRESH_TOKEN_CACHE_KEY}
+     */
+    private static final String ACCESS_TOKEN_KEY = "ACCESS_TOKEN:";
+    private static final String REFRESH_TOKEN_KEY = "REFRESH_TOKEN:";
+
     /**
      * Get access token from request
      *
@@ -88,8 +101,10 @@ public class TokenUtil {
     }
 
     private static String getAccessTokenFromHeader(HttpServletRequest request) {
-        String accessToken = RequestUtil.getHeader(IdsConsts.AUTHORIZATION_HEADER_NAME, request);
-        return BearerToken.parse(accessToken);
+        JapRequestContext context = JapRequestContext.of(request);
+        String accessToken = context.getBearerToken();
+        // Other forms of the header are rare, leave them to the complete parser
+        return null != accessToken ? accessToken : BearerToken.parse(context.getAuthorization());
     }
 
     private static String getAccessTokenFromCookie(HttpServletRequest request) {
@@ -107,6 +122,45 @@ public class TokenUtil {
     }
 
     public static AccessToken createAccessToken(UserInfo user, ClientDetail clientDetail, String grantType, String scope, String nonce, String issuer) {
+        AccessToken accessToken = buildAccessToken(user, clientDetail, grantType, scope, nonce, issuer);
+        // Write both keys in one batch, so that a remote cache can save them in one round trip
+        tokenCache().setAll(tokenValues(accessToken), tokenTimeouts(accessToken));
+        return accessToken;
+    }
+
+    /**
+     * Create the access token and write it to the {@link com.fujieid.jap.ids.context.IdsContext#getAsyncCache()}
+     * without waiting for the cache, so that the caller can sign the id token or load the user in the meantime.
+     *
+     * @param user         user info
+     * @param clientDetail client detail
+     * @param grantType    grant type
+     * @param scope        scope
+     * @param nonce        nonce
+     * @param issuer       issuer
+     * @return CompletionStage of the access token, completed when the token has been saved in the cache
+     * @since 1.0.5
+     */
+    public static CompletionStage<AccessToken> createAccessTokenAsync(UserInfo user, ClientDetail clientDetail, String grantType, String scope, String nonce, String issuer) {
+        AccessToken accessToken = buildAccessToken(user, clientDetail, grantType, scope, nonce, issuer);
+        return asyncTokenCache().setAllAsync(tokenValues(accessToken), tokenTimeouts(accessToken)).thenApply(v -> accessToken);
+    }
+
+    private static Map<String, AccessToken> tokenValues(AccessToken accessToken) {
+        Map<String, AccessToken> values = new HashMap<>(4);
+        values.put(accessTokenKey(accessToken.getAccessToken()), accessToken);
+        values.put(refreshTokenKey(accessToken.getRefreshToken()), accessToken);
+        return values;
+    }
+
+    private static Map<String, Long> tokenTimeouts(AccessToken accessToken) {
+        Map<String, Long> timeouts = new HashMap<>(4);
+        timeouts.put(accessTokenKey(accessToken.getAccessToken()), accessToken.getAccessTokenExpiresIn() * 1000);
+        timeouts.put(refreshTokenKey(accessToken.getRefreshToken()), accessToken.getRefreshTokenExpiresIn() * 1000);
+        return timeouts;
+    }
+
+    private static AccessToken buildAccessToken(UserInfo user, ClientDetail clientDetail, String grantType, String scope, String nonce, String issuer) {
         String clientId = clientDetail.getClientId();
 
         long accessTokenExpiresIn = OauthUtil.getAccessTokenExpiresIn(clientDetail.getAccessTokenExpiresIn());
@@ -135,11 +189,6 @@ public class TokenUtil {
 
         accessToken.setAccessTokenExpiration(OauthUtil.getAccessTokenExpiresAt(accessTokenExpiresIn));
         accessToken.setRefreshTokenExpiration(OauthUtil.getRefreshTokenExpiresAt(refreshTokenExpiresIn));
-
-        String tokenCacheKey = IdsConsts.OAUTH_ACCESS_TOKEN_CACHE_KEY + accessTokenStr;
-        String rtokenCacheKey = IdsConsts.OAUTH_REFRESH_TOKEN_CACHE_KEY + refreshTokenStr;
-        JapIds.getContext().getCache().set(tokenCacheKey, accessToken, accessTokenExpiresIn * 1000);
-        JapIds.getContext().getCache().set(rtokenCacheKey, accessToken, refreshTokenExpiresIn * 1000);
         return accessToken;
     }
 
@@ -157,11 +206,9 @@ public class TokenUtil {
 
         accessToken.setAccessTokenExpiration(OauthUtil.getAccessTokenExpiresAt(accessTokenExpiresIn));
 
-        String tokenCacheKey = IdsConsts.OAUTH_ACCESS_TOKEN_CACHE_KEY + accessTokenStr;
-        JapIds.getContext().getCache().set(tokenCacheKey, accessToken, accessTokenExpiresIn * 1000);
-
-        String rawTokenCacheKey = IdsConsts.OAUTH_ACCESS_TOKEN_CACHE_KEY + rawToken;
-        JapIds.getContext().getCache().removeKey(rawTokenCacheKey);
+        JapCache tokenCache = tokenCache();
+        tokenCache.set(accessTokenKey(accessTokenStr), accessToken, accessTokenExpiresIn * 1000);
+        tokenCache.removeKey(accessTokenKey(rawToken));
         return accessToken;
     }
 
@@ -169,22 +216,70 @@ public class TokenUtil {
         return createAccessToken(null, clientDetail, grantType, scope, nonce, issuer);
     }
 
+    /**
+     * The asynchronous variant of {@link #createClientCredentialsAccessToken(ClientDetail, String, String, String, String)}
+     *
+     * @param clientDetail client detail
+     * @param grantType    grant type
+     * @param scope        scope
+     * @param nonce        nonce
+     * @param issuer       issuer
+     * @return CompletionStage of the access token, completed when the token has been saved in the cache
+     * @since 1.0.5
+     */
+    public static CompletionStage<AccessToken> createClientCredentialsAccessTokenAsync(ClientDetail clientDetail, String grantType, String scope, String nonce, String issuer) {
+        return createAccessTokenAsync(null, clientDetail, grantType, scope, nonce, issuer);
+    }
+
 
     public static void invalidateToken(HttpServletRequest request) {
         String accessTokenStr = TokenUtil.getAccessToken(request);
         AccessToken accessToken = TokenUtil.getByAccessToken(accessTokenStr);
         if (null != accessToken) {
-            String token = IdsConsts.OAUTH_ACCESS_TOKEN_CACHE_KEY + accessTokenStr;
-            String rtoken = IdsConsts.OAUTH_REFRESH_TOKEN_CACHE_KEY + accessToken.getRefreshToken();
-            JapIds.getContext().getCache().removeKey(token);
-            JapIds.getContext().getCache().removeKey(rtoken);
+            tokenCache().removeAll(tokenKeys(accessToken));
         }
     }
 
+    /**
+     * The asynchronous variant of {@link #invalidateToken(HttpServletRequest)}
+     *
+     * @param request current HTTP request
+     * @return CompletionStage, completed when the token has been deleted from the cache
+     * @since 1.0.5
+     */
+    public static CompletionStage<Void> invalidateTokenAsync(HttpServletRequest request) {
+        String accessTokenStr = TokenUtil.getAccessToken(request);
+        return getByAccessTokenAsync(accessTokenStr).thenCompose(accessToken -> {
+            if (null == accessToken) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return asyncTokenCache().removeAllAsync(tokenKeys(accessToken));
+        });
+    }
+
     public static void validateAccessToken(String accessToken) {
 
         AccessToken token = getByAccessToken(accessToken);
 
+        checkAccessToken(token);
+    }
+
+    /**
+     * The asynchronous variant of {@link #validateAccessToken(String)}
+     *
+     * @param accessToken access token
+     * @return CompletionStage of the valid access token, completed exceptionally with {@link InvalidTokenException}
+     * if the token does not exist or has expired
+     * @since 1.0.5
+     */
+    public static CompletionStage<AccessToken> validateAccessTokenAsync(String accessToken) {
+        return getByAccessTokenAsync(accessToken).thenApply(token -> {
+            checkAccessToken(token);
+            return token;
+        });
+    }
+
+    private static void checkAccessToken(AccessToken token) {
         if (token == null) {
             throw new InvalidTokenException(ErrorResponse.INVALID_TOKEN);
         }
@@ -194,7 +289,6 @@ public class TokenUtil {
         if (token.getAccessTokenExpiration().isBefore(nowDateTime)) {
             throw new InvalidTokenException(ErrorResponse.EXPIRED_TOKEN);
         }
-
     }
 
     public static void validateRefreshToken(String refreshToken) {
@@ -216,16 +310,53 @@ public class TokenUtil {
         if (null == accessToken) {
             return null;
         }
-        accessToken = BearerToken.parse(accessToken);
-        String token = IdsConsts.OAUTH_ACCESS_TOKEN_CACHE_KEY + accessToken;
-        return (AccessToken) JapIds.getContext().getCache().get(token);
+        return (AccessToken) tokenCache().get(accessTokenKey(BearerToken.parse(accessToken)));
+    }
+
+    /**
+     * The asynchronous variant of {@link #getByAccessToken(String)}
+     *
+     * @param accessToken access token
+     * @return CompletionStage of the access token, the value is {@code null} if the token does not exist
+     * @since 1.0.5
+     */
+    public static CompletionStage<AccessToken> getByAccessTokenAsync(String accessToken) {
+        if (null == accessToken) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return asyncTokenCache().getAsync(accessTokenKey(BearerToken.parse(accessToken))).thenApply(value -> (AccessToken) value);
     }
 
     public static AccessToken getByRefreshToken(String refreshToken) {
         if (null == refreshToken) {
             return null;
         }
-        String token = IdsConsts.OAUTH_REFRESH_TOKEN_CACHE_KEY + refreshToken;
-        return (AccessToken) JapIds.getContext().getCache().get(token);
+        return (AccessToken) tokenCache().get(refreshTokenKey(refreshToken));
+    }
+
+    /**
+     * The tokens are cached by their digest, a long JWT is neither stored twice nor hashed in full on every lookup
+     *
+     * @param accessToken access token
+     * @return The cache key of the token
+     */
+    private static String accessTokenKey(String accessToken) {
+        return ACCESS_TOKEN_KEY + JapTokenDigest.digest(accessToken);
+    }
+
+    private static String refreshTokenKey(String refreshToken) {
+        return REFRESH_TOKEN_KEY + JapTokenDigest.digest(refreshToken);
+    }
+
+    private static List<String> tokenKeys(AccessToken accessToken) {
+        return Arrays.asList(accessTokenKey(accessToken.getAccessToken()), refreshTokenKey(accessToken.getRefreshToken()));
+    }
+
+    private static JapCache tokenCache() {
+        return JapIds.getContext().getCache().region(IdsConsts.OAUTH_TOKEN_CACHE_REGION);
+    }
+
+    private static AsyncJapCache asyncTokenCache() {
+        return JapIds.getContext().getAsyncCache().asyncRegion(IdsConsts.OAUTH_TOKEN_CACHE_REGION);
     }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.ids;
+
+import com.fujieid.jap.core.cache.JapLocalCache;
+import com.fujieid.jap.ids.model.ClientDetail;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * unit test
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class JapIdsTest extends BaseIdsTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Before
+    @Override
+    public void init() {
+        super.init();
+        JapIds.getContext()
+            .setCache(new JapLocalCache())
+            .setClientDetailService(new IdsClientDetailServiceImpl() {
+                @Override
+                public ClientDetail getByClientId(String clientId) {
+                    loads.incrementAndGet();
+                    return super.getByClientId(clientId);
+                }
+            });
+    }
+
+    @Test
+    public void getClientDetail() {
+        JapIds.getIdsConfig().setClientDetailCacheTtl(60);
+        String clientId = JapIds.getContext().getClientDetailService().getAllClientDetail().get(0).getClientId();
+        Assert.assertNotNull(JapIds.getClientDetail(clientId));
+        Assert.assertNotNull(JapIds.getClientDetail(clientId));
+        Assert.assertEquals(1, loads.get());
+
+        JapIds.invalidateClientDetail(clientId);
+        Assert.assertNotNull(JapIds.getClientDetail(clientId));
+        Assert.assertEquals(2, loads.get());
+
+        Assert.assertNull(JapIds.getClientDetail("missing"));
+        Assert.assertNull(JapIds.getClientDetail("missing"));
+        Assert.assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void getClientDetailWithoutCache() {
+        // Not cached by default
+        String clientId = JapIds.getContext().getClientDetailService().getAllClientDetail().get(0).getClientId();
+        Assert.assertNotNull(JapIds.getClientDetail(clientId));
+        Assert.assertNotNull(JapIds.getClientDetail(clientId));
+        Assert.assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.ids.cache;
+
+import cn.hutool.core.util.StrUtil;
+import com.fujieid.jap.core.cache.CompactJapCacheCodec;
+import com.fujieid.jap.core.cache.JapCacheWeigher;
+import com.fujieid.jap.core.cache.JdkJapCacheCodec;
+import com.fujieid.jap.ids.model.AccessToken;
+import com.fujieid.jap.ids.model.AuthCode;
+import com.fujieid.jap.ids.model.UserInfo;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+/**
+ * unit test
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class IdsCacheSerializerTest {
+
+    private final CompactJapCacheCodec codec = new CompactJapCacheCodec();
+
+    @Test
+    public void accessToken() {
+        LocalDateTime now = LocalDateTime.now();
+        AccessToken accessToken = new AccessToken()
+            .setAccessToken("access-token")
+            .setRefreshToken("refresh-token")
+            .setUserId("1")
+            .setUserName("jap")
+            .setGrantType("password")
+            .setClientId("client")
+            .setAccessTokenExpiresIn(7200L)
+            .setRefreshTokenExpiresIn(null)
+            .setAccessTokenExpiration(now)
+            .setRefreshTokenExpiration(now.plusDays(30));
+        byte[] bytes = codec.encode(accessToken);
+        Assert.assertTrue(bytes.length < new JdkJapCacheCodec().encode(accessToken).length);
+
+        AccessToken decoded = (AccessToken) codec.decode(bytes);
+        Assert.assertEquals("access-token", decoded.getAccessToken());
+        Assert.assertEquals("refresh-token", decoded.getRefreshToken());
+        Assert.assertEquals("1", decoded.getUserId());
+        Assert.assertEquals("jap", decoded.getUserName());
+        Assert.assertEquals("password", decoded.getGrantType());
+        Assert.assertNull(decoded.getScope());
+        Assert.assertEquals("client", decoded.getClientId());
+        Assert.assertEquals(Long.valueOf(7200L), decoded.getAccessTokenExpiresIn());
+        Assert.assertNull(decoded.getRefreshTokenExpiresIn());
+        Assert.assertEquals(now, decoded.getAccessTokenExpiration());
+        Assert.assertEquals(now.plusDays(30), decoded.getRefreshTokenExpiration());
+    }
+
+    @Test
+    public void accessTokenWeight() {
+        String jwt = StrUtil.repeat('x', 1024);
+        AccessToken accessToken = new AccessToken()
+            .setAccessToken(jwt)
+            .setRefreshToken(jwt)
+            .setUserId("1")
+            .setUserName("jap")
+            .setGrantType("authorization_code")
+            .setScope("openid email phone")
+            .setClientId("client")
+            .setAccessTokenExpiresIn(7200L)
+            .setRefreshTokenExpiresIn(2592000L)
+            .setAccessTokenExpiration(LocalDateTime.now())
+            .setRefreshTokenExpiration(LocalDateTime.now().plusDays(30));
+        long weight = JapCacheWeigher.estimate("token", accessToken);
+        // Two tokens of 1 KB characters, each taking at least one byte on the heap
+        Assert.assertTrue(weight > 2 * 1024);
+        Assert.assertTrue(weight < 8 * 1024);
+        Assert.assertTrue(weight > JapCacheWeigher.estimate("token", new AccessToken().setAccessToken("access-token")));
+    }
+
+    @Test
+    public void authCode() {
+        UserInfo user = new UserInfo()
+            .setId("1")
+            .setUsername("jap")
+            .setEmail("jap@fujieid.com")
+            .setAddress(Collections.singletonMap("country", "CN"));
+        AuthCode authCode = new AuthCode()
+            .setScope("openid email")
+            .setNonce("nonce")
+            .setCodeChallengeMethod("S256")
+            .setCodeChallenge("challenge")
+            .setUser(user);
+
+        AuthCode decoded = (AuthCode) codec.decode(codec.encode(authCode));
+        Assert.assertEquals("openid email", decoded.getScope());
+        Assert.assertEquals("nonce", decoded.getNonce());
+        Assert.assertEquals("S256", decoded.getCodeChallengeMethod());
+        Assert.assertEquals("challenge", decoded.getCodeChallenge());
+        Assert.assertEquals("1", decoded.getUser().getId());
+        Assert.assertEquals("jap", decoded.getUser().getUsername());
+        Assert.assertEquals("jap@fujieid.com", decoded.getUser().getEmail());
+        Assert.assertNull(decoded.getUser().getName());
+        Assert.assertEquals(user.getAddress(), decoded.getUser().getAddress());
+
+        Assert.assertNull(((AuthCode) codec.decode(codec.encode(authCode.setUser(null)))).getUser());
+    }
+}
@@ -52,6 +52,15 @@ public class IdsTokenProviderTest extends BaseIdsTest {
         Assert.assertNotNull(response);
     }
 
+    @Test
+    public void generateAuthorizationCodeResponseRedeemedTwice() {
+        this.initParam();
+        String code = oauth2Service.createAuthorizationCode(idsRequestParam, new UserInfo(), 100000L);
+        idsRequestParam.setCode(code);
+        Assert.assertNotNull(idsTokenProvider.generateAuthorizationCodeResponse(idsRequestParam, httpServletRequestMock));
+        Assert.assertThrows(InvalidCodeException.class, () -> idsTokenProvider.generateAuthorizationCodeResponse(idsRequestParam, httpServletRequestMock));
+    }
+
     @Test
     public void generateAuthorizationCodeResponseInvalidClient() {
         this.initParam();
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.ids.util;
+
+import com.fujieid.jap.core.cache.JapCache;
+import com.fujieid.jap.core.util.JapTokenDigest;
+import com.fujieid.jap.ids.BaseIdsTest;
+import com.fujieid.jap.ids.JapIds;
+import com.fujieid.jap.ids.model.AccessToken;
+import com.fujieid.jap.ids.model.ClientDetail;
+import com.fujieid.jap.ids.model.IdsConsts;
+import com.fujieid.jap.ids.model.UserInfo;
+import com.fujieid.jap.ids.model.enums.GrantType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * unit test
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class TokenUtilTest extends BaseIdsTest {
+
+    private AccessToken createAccessToken() {
+        ClientDetail clientDetail = JapIds.getContext().getClientDetailService().getAllClientDetail().get(0);
+        UserInfo user = new UserInfo().setId("1").setUsername("jap");
+        return TokenUtil.createAccessToken(user, clientDetail, GrantType.PASSWORD.getType(), "openid", null, issuer);
+    }
+
+    private JapCache tokenCache() {
+        return JapIds.getContext().getCache().region(IdsConsts.OAUTH_TOKEN_CACHE_REGION);
+    }
+
+    @Test
+    public void lookupByDigest() {
+        AccessToken accessToken = this.createAccessToken();
+        String rawToken = accessToken.getAccessToken();
+
+        Assert.assertTrue(tokenCache().containsKey("ACCESS_TOKEN:" + JapTokenDigest.digest(rawToken)));
+        Assert.assertTrue(tokenCache().containsKey("REFRESH_TOKEN:" + JapTokenDigest.digest(accessToken.getRefreshToken())));
+        Assert.assertFalse(tokenCache().containsKey("ACCESS_TOKEN:" + rawToken));
+
+        Assert.assertEquals(rawToken, TokenUtil.getByAccessToken(rawToken).getAccessToken());
+        Assert.assertEquals(rawToken, TokenUtil.getByAccessToken("Bearer " + rawToken).getAccessToken());
+        Assert.assertEquals(rawToken, TokenUtil.getByRefreshToken(accessToken.getRefreshToken()).getAccessToken());
+        Assert.assertNull(TokenUtil.getByAccessToken(JapTokenDigest.digest(rawToken)));
+    }
+
+    @Test
+    public void invalidateToken() {
+        AccessToken accessToken = this.createAccessToken();
+        when(httpServletRequestMock.getHeader("Authorization")).thenReturn("Bearer " + accessToken.getAccessToken());
+
+        TokenUtil.invalidateToken(httpServletRequestMock);
+
+        Assert.assertNull(TokenUtil.getByAccessToken(accessToken.getAccessToken()));
+        Assert.assertNull(TokenUtil.getByRefreshToken(accessToken.getRefreshToken()));
+        Assert.assertFalse(tokenCache().containsKey("ACCESS_TOKEN:" + JapTokenDigest.digest(accessToken.getAccessToken())));
+        Assert.assertFalse(tokenCache().containsKey("REFRESH_TOKEN:" + JapTokenDigest.digest(accessToken.getRefreshToken())));
+    }
+}
@@ -25,4 +25,18 @@ package com.fujieid.jap.oauth2;
 public interface Oauth2Const {
     String SCOPE_SEPARATOR = " ";
     String STATE_CACHE_KEY = "_jap:state:";
+
+    /**
+     * The cache region of the oauth state, see {@link com.fujieid.jap.core.cache.JapCache#region(String)}
+     *
+     * @since 1.0.5
+     */
+    String STATE_CACHE_REGION = "oauth-state";
+
+    /**
+     * The cache region of the pkce code verifiers
+     *
+     * @since 1.0.5
+     */
+    String PKCE_CACHE_REGION = "oauth-pkce";
 }
@@ -19,6 +19,10 @@ import cn.hutool.core.util.*;
 import com.fujieid.jap.core.JapUser;
 import com.fujieid.jap.core.JapUserService;
 import com.fujieid.jap.core.cache.JapCache;
+import com.fujieid.jap.core.cache.JapCacheEvictionPolicy;
+import com.fujieid.jap.core.cache.JapCacheNamespaces;
+import com.fujieid.jap.core.cache.JapCacheRegion;
+import com.fujieid.jap.core.cache.JapCacheRegions;
 import com.fujieid.jap.core.config.AuthenticateConfig;
 import com.fujieid.jap.core.config.JapConfig;
 import com.fujieid.jap.core.context.JapAuthentication;
@@ -38,6 +42,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The OAuth 2.0 authentication strategy authenticates requests using the OAuth 2.0 framework.
@@ -53,6 +58,21 @@ import java.util.Map;
  */
 public class Oauth2Strategy extends AbstractJapStrategy {
 
+    static {
+        JapCacheNamespaces.register(Oauth2Const.STATE_CACHE_KEY);
+        // The state and the code verifiers are read once within minutes, keep them apart from the long-lived tokens
+        JapCacheRegions.registerDefault(new JapCacheRegion(Oauth2Const.STATE_CACHE_REGION)
+            .setKeyPrefix(Oauth2Const.STATE_CACHE_KEY)
+            .setTimeout(TimeUnit.MINUTES.toMillis(10))
+            .setMaximumSize(100_000)
+            .setEvictionPolicy(JapCacheEvictionPolicy.LRU));
+        JapCacheRegions.registerDefault(new JapCacheRegion(Oauth2Const.PKCE_CACHE_REGION)
+            .setKeyPrefix("_jap:pkce:")
+            .setTimeout(TimeUnit.MINUTES.toMillis(10))
+            .setMaximumSize(100_000)
+            .setEvictionPolicy(JapCacheEvictionPolicy.LRU));
+    }
+
     /**
      * `Strategy` constructor.
      *
@@ -265,7 +285,7 @@ public class Oauth2Strategy extends AbstractJapStrategy {
             state = RandomUtil.randomString(6);
         }
         params.put("state", authConfig.getState());
-        JapAuthentication.getContext().getCache().set(Oauth2Const.STATE_CACHE_KEY.concat(authConfig.getClientId()), state);
+        JapAuthentication.getContext().getCache().region(Oauth2Const.STATE_CACHE_REGION).set(authConfig.getClientId(), state);
         // Pkce is only applicable to authorization code mode
         if (Oauth2ResponseType.code == authConfig.getResponseType() && authConfig.isEnablePkce()) {
             params.putAll(PkceHelper.generatePkceParameters(authConfig));
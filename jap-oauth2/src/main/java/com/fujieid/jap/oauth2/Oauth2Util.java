@@ -20,6 +20,7 @@ import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.crypto.SecureUtil;
+import com.fujieid.jap.core.cache.JapCache;
 import com.fujieid.jap.core.context.JapAuthentication;
 import com.fujieid.jap.core.exception.JapOauth2Exception;
 import com.fujieid.jap.oauth2.pkce.PkceCodeChallengeMethod;
@@ -28,7 +29,6 @@ import com.xkcoding.json.JsonUtil;
 import com.xkcoding.json.util.Kv;
 
 import javax.servlet.http.HttpServletRequest;
-import java.io.Serializable;
 import java.util.Map;
 import java.util.Optional;
 
@@ -100,8 +100,9 @@ public class Oauth2Util {
             throw new JapOauth2Exception("Illegal state.");
 
         }
-        Serializable cacheState = JapAuthentication.getContext().getCache().get(Oauth2Const.STATE_CACHE_KEY.concat(clientId));
-        if (null == cacheState || !cacheState.equals(state)) {
+        // The state is single-use, it is deleted in the same operation only when it matches
+        JapCache stateCache = JapAuthentication.getContext().getCache().region(Oauth2Const.STATE_CACHE_REGION);
+        if (!stateCache.compareAndSet(clientId, state, null, 0)) {
             throw new JapOauth2Exception("Illegal state.");
         }
 
@@ -17,6 +17,7 @@ package com.fujieid.jap.oauth2.pkce;
 
 import com.fujieid.jap.core.context.JapAuthentication;
 import com.fujieid.jap.oauth2.OAuthConfig;
+import com.fujieid.jap.oauth2.Oauth2Const;
 import com.fujieid.jap.oauth2.Oauth2Util;
 
 import java.util.HashMap;
@@ -60,17 +61,18 @@ public class PkceHelper {
         params.put(PkceParams.CODE_CHALLENGE, codeChallenge);
         params.put(PkceParams.CODE_CHALLENGE_METHOD, pkceCodeChallengeMethod);
         // The default cache is local map.
-        JapAuthentication.getContext().getCache().set(oAuthConfig.getClientId(), codeVerifier, oAuthConfig.getCodeVerifierTimeout());
+        JapAuthentication.getContext().getCache().region(Oauth2Const.PKCE_CACHE_REGION)
+            .set(oAuthConfig.getClientId(), codeVerifier, oAuthConfig.getCodeVerifierTimeout());
         return params;
     }
 
     /**
-     * Gets the {@code code_verifier} in the cache
+     * Gets the {@code code_verifier} in the cache and deletes it, the {@code code_verifier} is single-use
      *
      * @param clientId oauth clientId
      * @return {@code code_verifier}
      */
     public static String getCacheCodeVerifier(String clientId) {
-        return (String) JapAuthentication.getContext().getCache().get(clientId);
+        return (String) JapAuthentication.getContext().getCache().region(Oauth2Const.PKCE_CACHE_REGION).getAndRemove(clientId);
     }
 }
@@ -155,7 +155,7 @@ public class Oauth2UtilTest {
         String clientId = "xx";
         boolean verifyState = true;
         JapCache cache = new JapLocalCache();
-        cache.set(Oauth2Const.STATE_CACHE_KEY.concat(clientId), state);
+        cache.region(Oauth2Const.STATE_CACHE_REGION).set(clientId, state);
         JapAuthentication.setContext(new JapContext().setCache(cache));
         Oauth2Util.checkState(state, clientId, verifyState);
     }
@@ -166,7 +166,7 @@ public class Oauth2UtilTest {
         String clientId = "xx";
         boolean verifyState = true;
         JapCache cache = new JapLocalCache();
-        cache.set(Oauth2Const.STATE_CACHE_KEY.concat(clientId), "11");
+        cache.region(Oauth2Const.STATE_CACHE_REGION).set(clientId, "11");
         JapAuthentication.setContext(new JapContext().setCache(cache));
         Assert.assertThrows(JapOauth2Exception.class, () -> Oauth2Util.checkState(state, clientId, verifyState));
     }
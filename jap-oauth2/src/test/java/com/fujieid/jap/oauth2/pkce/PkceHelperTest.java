@@ -20,6 +20,7 @@ import com.fujieid.jap.core.cache.JapLocalCache;
 import com.fujieid.jap.core.context.JapAuthentication;
 import com.fujieid.jap.core.context.JapContext;
 import com.fujieid.jap.oauth2.OAuthConfig;
+import com.fujieid.jap.oauth2.Oauth2Const;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -81,7 +82,7 @@ public class PkceHelperTest {
     public void getCacheCodeVerifier() {
         JapCache japCache = new JapLocalCache();
         JapAuthentication.setContext(new JapContext().setCache(japCache));
-        JapAuthentication.getContext().getCache().set("clientId", "111", 111111);
+        JapAuthentication.getContext().getCache().region(Oauth2Const.PKCE_CACHE_REGION).set("clientId", "111", 111111);
         String res = PkceHelper.getCacheCodeVerifier("clientId");
         Assert.assertNotNull(res);
         Assert.assertEquals("111", res);
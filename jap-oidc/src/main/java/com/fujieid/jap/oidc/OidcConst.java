@@ -28,4 +28,11 @@ public interface OidcConst {
      * Cache idp configuration information to reduce unnecessary http requests
      */
     String DISCOVERY_CACHE_KEY = "_jap:oidc:discovery:";
+
+    /**
+     * The cache region of the idp configuration information, see {@link com.fujieid.jap.core.cache.JapCache#region(String)}
+     *
+     * @since 1.0.5
+     */
+    String DISCOVERY_CACHE_REGION = "oidc-discovery";
 }
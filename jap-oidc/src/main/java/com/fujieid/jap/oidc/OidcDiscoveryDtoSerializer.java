@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020-2040, 北京符节科技有限公司 (support@fujieid.com & https://www.fujieid.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fujieid.jap.oidc;
+
+import com.fujieid.jap.core.cache.JapCacheSerializer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static com.fujieid.jap.core.cache.CompactJapCacheCodec.*;
+
+/**
+ * The compact cache serializer of {@link OidcDiscoveryDto}
+ *
+ * @author yadong.zhang (yadong.zhang0415(a)gmail.com)
+ * @version 1.0.0
+ * @since 1.0.5
+ */
+public class OidcDiscoveryDtoSerializer implements JapCacheSerializer<OidcDiscoveryDto> {
+
+    /**
+     * Increase it when the fields change
+     */
+    private static final int VERSION = 1;
+
+    @Override
+    public int typeId() {
+        return 32;
+    }
+
+    @Override
+    public Class<OidcDiscoveryDto> type() {
+        return OidcDiscoveryDto.class;
+    }
+
+    @Override
+    public void write(OidcDiscoveryDto value, DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        writeString(out, value.getIssuer());
+        writeString(out, value.getAuthorizationEndpoint());
+        writeString(out, value.getTokenEndpoint());
+        writeString(out, value.getUserinfoEndpoint());
+        writeString(out, value.getEndSessionEndpoint());
+        writeString(out, value.getJwksUri());
+    }
+
+    @Override
+    public OidcDiscoveryDto read(DataInput in) throws IOException {
+        checkVersion(in, VERSION);
+        return new OidcDiscoveryDto()
+            .setIssuer(readString(in))
+            .setAuthorizationEndpoint(readString(in))
+            .setTokenEndpoint(readString(in))
+            .setUserinfoEndpoint(readString(in))
+            .setEndSessionEndpoint(readString(in))
+            .setJwksUri(readString(in));
+    }
+}
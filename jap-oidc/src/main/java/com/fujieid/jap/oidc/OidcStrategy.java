@@ -19,6 +19,9 @@ import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.ObjectUtil;
 import com.fujieid.jap.core.JapUserService;
 import com.fujieid.jap.core.cache.JapCache;
+import com.fujieid.jap.core.cache.JapCacheNamespaces;
+import com.fujieid.jap.core.cache.JapCacheRegion;
+import com.fujieid.jap.core.cache.JapCacheRegions;
 import com.fujieid.jap.core.config.AuthenticateConfig;
 import com.fujieid.jap.core.config.JapConfig;
 import com.fujieid.jap.core.exception.JapException;
@@ -30,6 +33,7 @@ import com.fujieid.jap.oauth2.Oauth2Strategy;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
 
 /**
  * OpenID Connect 1.0 is a simple identity layer on top of the OAuth 2.0 protocol.
@@ -43,6 +47,20 @@ import javax.servlet.http.HttpServletResponse;
  */
 public class OidcStrategy extends Oauth2Strategy {
 
+    /**
+     * Reload the discovery document in the background when it expires within this time, in milliseconds
+     */
+    private static final long DISCOVERY_REFRESH_AHEAD = TimeUnit.MINUTES.toMillis(1);
+
+    static {
+        JapCacheNamespaces.register(OidcConst.DISCOVERY_CACHE_KEY);
+        // One document per issuer, a small region is enough
+        JapCacheRegions.registerDefault(new JapCacheRegion(OidcConst.DISCOVERY_CACHE_REGION)
+            .setKeyPrefix(OidcConst.DISCOVERY_CACHE_KEY)
+            .setTimeout(TimeUnit.DAYS.toMillis(1))
+            .setMaximumSize(1_000));
+    }
+
     /**
      * `Strategy` constructor.
      *
@@ -88,18 +106,13 @@ public class OidcStrategy extends Oauth2Strategy {
 
         OidcDiscoveryDto discoveryDto = null;
 
-        JapCache japCache = this.japContext.getCache();
-
-        String discoveryCacheKey = OidcConst.DISCOVERY_CACHE_KEY.concat(issuer);
-        if (japCache.containsKey(discoveryCacheKey)) {
-            discoveryDto = (OidcDiscoveryDto) japCache.get(discoveryCacheKey);
-        } else {
-            try {
-                discoveryDto = OidcUtil.getOidcDiscovery(issuer);
-                japCache.set(discoveryCacheKey, discoveryDto);
-            } catch (OidcException e) {
-                return JapResponse.error(e.getErrorCode(), e.getErrorMessage());
-            }
+        JapCache japCache = this.japContext.getCache().region(OidcConst.DISCOVERY_CACHE_REGION);
+        try {
+            // Concurrent logins of an uncached issuer fetch the document once, a cached document is refreshed
+            // in the background before it expires
+            discoveryDto = (OidcDiscoveryDto) japCache.get(issuer, OidcUtil::getOidcDiscovery, 0, DISCOVERY_REFRESH_AHEAD);
+        } catch (OidcException e) {
+            return JapResponse.error(e.getErrorCode(), e.getErrorMessage());
         }
 
         oidcConfig.setAuthorizationUrl(discoveryDto.getAuthorizationEndpoint())
@@ -15,7 +15,7 @@
  */
 package com.fujieid.jap.simple;
 
-import com.fujieid.jap.core.util.RequestUtil;
+import com.fujieid.jap.core.context.JapRequestContext;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
@@ -40,9 +40,10 @@ public class JapAuthenticationDetails implements Serializable {
 
     public JapAuthenticationDetails(HttpServletRequest request) {
 
-        this.clientIp = RequestUtil.getIp(request);
+        JapRequestContext context = JapRequestContext.of(request);
+        this.clientIp = context.getIp();
         this.remoteAddress = request.getRemoteAddr();
-        this.userAgent = RequestUtil.getHeader("user-agent", request);
+        this.userAgent = context.getUserAgent();
 
         HttpSession session = request.getSession(false);
         this.sessionId = (session != null) ? session.getId() : null;